@@ -0,0 +1,30 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocation rate per
+ * operation is reported next to the time. Arguments are regular expressions
+ * of the benchmarks to run, all benchmarks are run without arguments.
+ * 
+ * Usage: java -jar robotbakery.bench/target/benchmarks.jar [REGEX...]
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class).forks(1)
+				.warmupIterations(3).warmupTime(TimeValue.seconds(1)).measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2));
+		if (args.length == 0)
+			options.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+		for (String arg : args)
+			options.include(arg);
+		new Runner(options.build()).run();
+	}
+
+}
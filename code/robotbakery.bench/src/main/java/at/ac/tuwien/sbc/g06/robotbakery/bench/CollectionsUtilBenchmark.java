@@ -0,0 +1,57 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.CollectionsUtil;
+
+/**
+ * Sorting of the stock maps. The bakery sorts maps with 5 entries (one per
+ * product or ingredient type), larger sizes show how the sorting scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CollectionsUtilBenchmark {
+
+	@Param({ "5", "100" })
+	public int size;
+
+	private Map<String, Integer> map;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		map = new HashMap<>();
+		for (int i = 0; i < size; i++)
+			map.put("product" + i, random.nextInt(100));
+	}
+
+	@Benchmark
+	public LinkedHashMap<String, Integer> sortMapByValuesAscending() {
+		return CollectionsUtil.sortMapByValues(map, true);
+	}
+
+	@Benchmark
+	public LinkedHashMap<String, Integer> sortMapByValuesDescending() {
+		return CollectionsUtil.sortMapByValues(map, false);
+	}
+
+	@Benchmark
+	public LinkedHashMap<String, Integer> sortMapByKeys() {
+		return CollectionsUtil.sortMayByKeys(map, true);
+	}
+
+}
@@ -0,0 +1,65 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.AbstractJMSService;
+
+/**
+ * Wrapping of model objects in messages, which is done for each send and each
+ * notification of the JMS services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreateMessageBenchmark {
+
+	private Connection connection;
+	private AbstractJMSService service;
+	private Product product;
+	private Order order;
+
+	@Setup(Level.Trial)
+	public void setUp() throws JMSException {
+		connection = EmbeddedBroker.connect();
+		service = new AbstractJMSService(connection, false, Session.AUTO_ACKNOWLEDGE);
+		product = new Product(SBCConstants.PRODUCT1_NAME);
+		order = new Order();
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			order.addItem(productName, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws JMSException {
+		service.close();
+		connection.close();
+	}
+
+	@Benchmark
+	public Message createProductMessage() throws JMSException {
+		return service.createMessage(product);
+	}
+
+	@Benchmark
+	public Message createOrderMessage() throws JMSException {
+		return service.createMessage(order);
+	}
+
+}
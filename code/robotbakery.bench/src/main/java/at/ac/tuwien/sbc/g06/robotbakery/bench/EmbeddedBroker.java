@@ -0,0 +1,47 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+
+import org.apache.activemq.broker.BrokerService;
+
+import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSServer;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+
+/**
+ * In-process ActiveMQ broker for the JMS benchmarks. The broker is started on
+ * the first connection and connected with the vm transport, it is not
+ * persistent and does not register JMX beans, so that only the client side
+ * code is measured. It sends the advisories for the queue views.
+ */
+public class EmbeddedBroker {
+
+	private static final String BROKER_NAME = "bench";
+	public static final String ADDRESS = "vm://" + BROKER_NAME + "?create=false";
+
+	private static BrokerService broker;
+
+	public static synchronized Connection connect() throws JMSException {
+		if (broker == null)
+			broker = start();
+		return JMSUtil.createAndConnection(ADDRESS);
+	}
+
+	private static BrokerService start() throws JMSException {
+		BrokerService service = new BrokerService();
+		service.setBrokerName(BROKER_NAME);
+		service.setPersistent(false);
+		service.setUseJmx(false);
+		JMSServer.configureDestinations(service);
+		try {
+			service.start();
+		} catch (Exception e) {
+			throw new JMSException(e.getMessage());
+		}
+		service.waitUntilStarted();
+		return service;
+	}
+
+	private EmbeddedBroker() {
+	}
+}
@@ -0,0 +1,101 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.AbstractJMSService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
+
+/**
+ * Queue browsing helpers, which are used by the JMS services to count and
+ * filter the content of the counter and the storage, and the queue view,
+ * which counts without browsing. The queue is filled once with products of
+ * all types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JMSUtilBenchmark {
+
+	@Param({ "10", "100" })
+	public int messages;
+
+	private Connection connection;
+	private AbstractJMSService service;
+	private Session session;
+	private Queue queue;
+	private QueueView view;
+
+	@Setup(Level.Trial)
+	public void setUp() throws JMSException {
+		connection = EmbeddedBroker.connect();
+		service = new AbstractJMSService(connection, false, Session.AUTO_ACKNOWLEDGE);
+		session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		queue = session.createQueue(JMSConstants.Queue.COUNTER + "." + messages);
+		MessageProducer producer = session.createProducer(queue);
+		for (int i = 0; i < messages; i++)
+			producer.send(service.createMessage(
+					new Product(SBCConstants.PRODUCTS_NAMES.get(i % SBCConstants.PRODUCTS_NAMES.size()))));
+		producer.close();
+		view = QueueView.get(connection, JMSConstants.Queue.COUNTER + "." + messages);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws JMSException {
+		view.release();
+		session.close();
+		service.close();
+		connection.close();
+	}
+
+	@Benchmark
+	public List<Serializable> toList() throws JMSException {
+		QueueBrowser browser = session.createBrowser(queue);
+		try {
+			return JMSUtil.toList(browser, JMSConstants.Property.TYPE, SBCConstants.PRODUCT1_NAME, null);
+		} finally {
+			browser.close();
+		}
+	}
+
+	@Benchmark
+	public Map<String, Integer> getBrowserContentSizeByValues() throws JMSException {
+		QueueBrowser browser = session.createBrowser(queue);
+		try {
+			return JMSUtil.getBrowserContentSizeByValues(browser, SBCConstants.PRODUCTS_NAMES,
+					JMSConstants.Property.TYPE);
+		} finally {
+			browser.close();
+		}
+	}
+
+	@Benchmark
+	public Map<String, Integer> queueViewCount() {
+		return view.count(SBCConstants.PRODUCTS_NAMES, JMSConstants.Property.TYPE);
+	}
+
+}
@@ -0,0 +1,144 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.ActiveMQObjectMessage;
+import org.apache.activemq.util.ByteSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.BakeRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.KneadRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.codec.BinaryMessageCodec;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.codec.MessageCodec;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.codec.ObjectMessageCodec;
+
+/**
+ * Encoding and decoding of the model objects with the object message codec
+ * (Java serialization) and the binary codec. The encoding includes storing
+ * the body of the message, which ActiveMQ does when the message is sent, the
+ * decoding starts with the body of a received message. The sizes of the
+ * bodies are printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageCodecBenchmark {
+
+	@Param({ ObjectMessageCodec.NAME, BinaryMessageCodec.NAME })
+	public String codecName;
+
+	private Connection connection;
+	private Session session;
+	private MessageCodec codec;
+	private Product product;
+	private PackedOrder packedOrder;
+	private ArrayList<Product> batch;
+	private ByteSequence encodedProduct;
+	private ByteSequence encodedPackedOrder;
+
+	@Setup(Level.Trial)
+	public void setUp() throws JMSException {
+		connection = EmbeddedBroker.connect();
+		session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		codec = ObjectMessageCodec.NAME.equals(codecName) ? new ObjectMessageCodec() : new BinaryMessageCodec();
+		product = createProduct(SBCConstants.PRODUCT1_NAME);
+		Order order = new Order();
+		order.setCustomerId(UUID.randomUUID());
+		order.setServiceRobotId(UUID.randomUUID());
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			order.addItem(productName, 2);
+		packedOrder = new PackedOrder(order);
+		batch = new ArrayList<>();
+		for (String productName : SBCConstants.PRODUCTS_NAMES) {
+			packedOrder.addProduct(createProduct(productName));
+			packedOrder.addProduct(createProduct(productName));
+			batch.add(createProduct(productName));
+			batch.add(createProduct(productName));
+		}
+		encodedProduct = encode(product).getContent();
+		encodedPackedOrder = encode(packedOrder).getContent();
+		System.out.println(String.format("%s codec: product %d bytes, packed order %d bytes, batch %d bytes",
+				codecName, encodedProduct.getLength(), encodedPackedOrder.getLength(),
+				encode(batch).getContent().getLength()));
+	}
+
+	private static Product createProduct(String productName) {
+		Product product = new Product(productName);
+		product.addContribution(UUID.randomUUID(), Product.DOUGH_BASE, KneadRobot.class);
+		product.addContribution(UUID.randomUUID(), Product.DOUGH_FINAL, KneadRobot.class);
+		product.addContribution(UUID.randomUUID(), Product.BAKE, BakeRobot.class);
+		return product;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws JMSException {
+		session.close();
+		connection.close();
+	}
+
+	@Benchmark
+	public ActiveMQMessage encodeProduct() throws JMSException {
+		return encode(product);
+	}
+
+	@Benchmark
+	public ActiveMQMessage encodePackedOrder() throws JMSException {
+		return encode(packedOrder);
+	}
+
+	@Benchmark
+	public ActiveMQMessage encodeBatch() throws JMSException {
+		return encode(batch);
+	}
+
+	@Benchmark
+	public Serializable decodeProduct() throws JMSException {
+		return codec.decode(receive(encodedProduct));
+	}
+
+	@Benchmark
+	public Serializable decodePackedOrder() throws JMSException {
+		return codec.decode(receive(encodedPackedOrder));
+	}
+
+	private ActiveMQMessage encode(Serializable object) throws JMSException {
+		ActiveMQMessage message = (ActiveMQMessage) codec.encode(session, object);
+		message.storeContent();
+		return message;
+	}
+
+	/**
+	 * @return message with the given body, like a message which has been
+	 *         received from the broker
+	 */
+	private ActiveMQMessage receive(ByteSequence content) {
+		ActiveMQMessage message = ObjectMessageCodec.NAME.equals(codecName) ? new ActiveMQObjectMessage()
+				: new ActiveMQBytesMessage();
+		message.setContent(content);
+		message.setReadOnlyBody(true);
+		return message;
+	}
+
+}
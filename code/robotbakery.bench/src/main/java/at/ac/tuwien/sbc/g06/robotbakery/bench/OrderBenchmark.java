@@ -0,0 +1,32 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+/**
+ * Creation of a customer order with one item per product, as done by the
+ * tablet and the load generator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderBenchmark {
+
+	@Benchmark
+	public Order addItems() {
+		Order order = new Order();
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			order.addItem(productName, 2);
+		return order;
+	}
+
+}
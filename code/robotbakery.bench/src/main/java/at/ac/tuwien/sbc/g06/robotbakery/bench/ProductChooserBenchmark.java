@@ -0,0 +1,53 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ProductChooser;
+
+/**
+ * Product chooser heuristic of the knead robot, which runs once per knead
+ * cycle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductChooserBenchmark {
+
+	@Param({ "0", "10", "100" })
+	public int baseDoughs;
+
+	private StubKneadRobotService service;
+	private ProductChooser chooser;
+
+	@Setup
+	public void setUp() {
+		service = new StubKneadRobotService(baseDoughs, 20);
+		chooser = new ProductChooser(service.getStockView());
+	}
+
+	@Benchmark
+	public ProductChooser construct() {
+		return new ProductChooser(service.getStockView());
+	}
+
+	@Benchmark
+	public Product getNextProduct() {
+		return chooser.getNextProduct();
+	}
+
+	@Benchmark
+	public Product getFinishableBaseDough() {
+		return chooser.getFinishableBaseDough();
+	}
+
+}
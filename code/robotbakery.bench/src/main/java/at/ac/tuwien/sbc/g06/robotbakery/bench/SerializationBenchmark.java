@@ -0,0 +1,74 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.KneadRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+/**
+ * Java serialization of the model objects, which is done for every object
+ * message and every notification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+	private Product product;
+	private byte[] serializedProduct;
+	private Order order;
+
+	@Setup
+	public void setUp() throws IOException {
+		product = new Product(SBCConstants.PRODUCT1_NAME);
+		product.addContribution(UUID.randomUUID(), Product.DOUGH_BASE, KneadRobot.class);
+		product.addContribution(UUID.randomUUID(), Product.DOUGH_FINAL, KneadRobot.class);
+		serializedProduct = serialize(product);
+		order = new Order();
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			order.addItem(productName, 2);
+	}
+
+	@Benchmark
+	public byte[] serializeProduct() throws IOException {
+		return serialize(product);
+	}
+
+	@Benchmark
+	public Object deserializeProduct() throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializedProduct))) {
+			return in.readObject();
+		}
+	}
+
+	@Benchmark
+	public byte[] serializeOrder() throws IOException {
+		return serialize(order);
+	}
+
+	private static byte[] serialize(Serializable object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+
+}
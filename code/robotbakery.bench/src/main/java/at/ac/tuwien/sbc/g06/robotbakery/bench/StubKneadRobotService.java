@@ -0,0 +1,155 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.ChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IKneadRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+
+/**
+ * Knead robot service without middleware. Returns a fixed stock, so that the
+ * product chooser can be measured without the cost of the space or broker
+ * queries. The maps are copied on each call like a real service does, the
+ * stock view is built once from the same stock and never changes.
+ */
+public class StubKneadRobotService implements IKneadRobotService {
+
+	private final List<Product> baseDoughs = new ArrayList<>();
+	private final Map<IngredientType, Integer> ingredientStock = new EnumMap<>(IngredientType.class);
+	private final Map<String, Integer> counterStock = new HashMap<>();
+	private final Map<String, List<Serializable>> rooms = new HashMap<>();
+	private final StockView stockView;
+
+	/**
+	 * @param baseDoughCount
+	 *            number of base doughs in the storage
+	 * @param ingredientAmount
+	 *            amount of each ingredient type (flour in packs)
+	 */
+	public StubKneadRobotService(int baseDoughCount, int ingredientAmount) {
+		for (int i = 0; i < baseDoughCount; i++)
+			baseDoughs.add(new Product(SBCConstants.PRODUCTS_NAMES.get(i % SBCConstants.PRODUCTS_NAMES.size())));
+		for (IngredientType type : IngredientType.values())
+			ingredientStock.put(type, ingredientAmount);
+		int amount = 0;
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			counterStock.put(productName, amount++ % SBCConstants.COUNTER_MAX_CAPACITY);
+
+		List<Serializable> storage = new ArrayList<>(baseDoughs);
+		for (IngredientType type : IngredientType.values())
+			for (int i = 0; i < ingredientAmount; i++)
+				storage.add(type == IngredientType.FLOUR ? new FlourPack() : new Ingredient(type));
+		List<Serializable> counter = new ArrayList<>();
+		counterStock.forEach((productName, count) -> {
+			for (int i = 0; i < count; i++)
+				counter.add(new Product(productName));
+		});
+		rooms.put(SBCConstants.COORDINATION_ROOM_STORAGE, storage);
+		rooms.put(SBCConstants.COORDINATION_ROOM_BAKEROOM, new ArrayList<>());
+		rooms.put(SBCConstants.COORDINATION_ROOM_COUNTER, counter);
+		stockView = new StockView(new ChangeNotifer() {
+		}, rooms::get, Long.MAX_VALUE);
+	}
+
+	@Override
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		return new EnumMap<>(NotificationKeys.class);
+	}
+
+	@Override
+	public List<Product> checkBaseDoughsInStorage() {
+		return new ArrayList<>(baseDoughs);
+	}
+
+	@Override
+	public Map<IngredientType, Integer> getIngredientStock() {
+		return new EnumMap<>(ingredientStock);
+	}
+
+	@Override
+	public Map<String, Integer> getCounterStock() {
+		return new HashMap<>(counterStock);
+	}
+
+	@Override
+	public StockView getStockView() {
+		return stockView;
+	}
+
+	@Override
+	public List<Ingredient> getIngredientsFromStorage(IngredientType type, Integer integer, ITransaction tx) {
+		return null;
+	}
+
+	@Override
+	public WaterPipe leaseWaterPipe(int waterAmount, ITransaction tx) {
+		return null;
+	}
+
+	@Override
+	public boolean returnWaterPipe(WaterPipe pipe, ITransaction tx) {
+		return false;
+	}
+
+	@Override
+	public boolean putBaseDoughInStorage(Product nextProduct, ITransaction tx) {
+		return false;
+	}
+
+	@Override
+	public Product getProductFromStorage(UUID id, ITransaction tx) {
+		return null;
+	}
+
+	@Override
+	public boolean putDoughInBakeroom(Product nextProduct, ITransaction tx) {
+		return false;
+	}
+
+	@Override
+	public boolean takeFlourFromStorage(int amount, ITransaction tx) {
+		return false;
+	}
+
+	@Override
+	public IngredientReservation reserveIngredients(Map<IngredientType, Integer> billOfMaterials, long ttl,
+			ITransaction tx) {
+		return null;
+	}
+
+	@Override
+	public boolean consumeReservation(IngredientReservation reservation, ITransaction tx) {
+		return false;
+	}
+
+	@Override
+	public boolean releaseReservation(IngredientReservation reservation, ITransaction tx) {
+		return false;
+	}
+
+	@Override
+	public int reclaimExpiredReservations(ITransaction tx) {
+		return 0;
+	}
+
+	@Override
+	public long getReservationConflicts() {
+		return 0;
+	}
+
+}
@@ -0,0 +1,59 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench.load;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.InMemBakery;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.InMemBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.InMemTabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.startup.InMemRobotFactory;
+
+/**
+ * In-memory backend, all robots and customers work directly on one shared
+ * space. Serves as baseline for the distributed backends.
+ */
+public class InMemLoadTestBackend implements LoadTestBackend {
+
+	private final InMemSpace space;
+	private final InMemBakery bakery;
+	private final InMemBakeryUIService bakeryUIService;
+
+	public InMemLoadTestBackend() {
+		space = new InMemSpace();
+		bakery = new InMemBakery(space);
+		bakeryUIService = new InMemBakeryUIService(space);
+	}
+
+	@Override
+	public String getName() {
+		return "InMem";
+	}
+
+	@Override
+	public Bakery getBakery() {
+		return bakery;
+	}
+
+	@Override
+	public IBakeryUIService getBakeryUIService() {
+		return bakeryUIService;
+	}
+
+	@Override
+	public RobotFactory getRobotFactory() {
+		return new InMemRobotFactory(space);
+	}
+
+	@Override
+	public ITabletUIService createTabletUIService() {
+		return new InMemTabletUIService(space);
+	}
+
+	@Override
+	public void close() {
+		// nothing to free, the space is garbage collected
+	}
+
+}
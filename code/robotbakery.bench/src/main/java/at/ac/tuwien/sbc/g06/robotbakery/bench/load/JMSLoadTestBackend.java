@@ -0,0 +1,104 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench.load;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.jms.Connection;
+
+import org.apache.activemq.broker.BrokerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSBakery;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSServer;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.persistence.JMSBrokerStore;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.AbstractJMSService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSTabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.startup.JMSRobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+
+/**
+ * JMS backend with an embedded ActiveMQ broker. All clients connect with the
+ * vm transport, so no message leaves the process. The broker is persistent if
+ * the system property {@value JMSConstants#DATA_DIR_PROPERTY} is set, see
+ * {@link JMSBrokerStore}.
+ */
+public class JMSLoadTestBackend implements LoadTestBackend {
+	private static Logger logger = LoggerFactory.getLogger(JMSLoadTestBackend.class);
+
+	private static final String BROKER_NAME = "loadtest";
+	private static final String ADDRESS = "vm://" + BROKER_NAME + "?create=false";
+
+	private final BrokerService broker;
+	private final Connection connection;
+	private final Connection robotConnection;
+	private final JMSBakery bakery;
+	private final JMSBakeryUIService bakeryUIService;
+	private final List<AbstractJMSService> tabletServices = new CopyOnWriteArrayList<>();
+
+	public JMSLoadTestBackend() throws Exception {
+		broker = new BrokerService();
+		broker.setBrokerName(BROKER_NAME);
+		JMSBrokerStore store = JMSBrokerStore.fromConfiguration();
+		if (store != null)
+			store.configure(broker);
+		else
+			broker.setPersistent(false);
+		broker.setUseJmx(false);
+		JMSServer.configureDestinations(broker);
+		broker.start();
+		broker.waitUntilStarted();
+
+		connection = JMSUtil.createAndConnection(ADDRESS);
+		// the robot factory closes its connection on shutdown
+		robotConnection = JMSUtil.createAndConnection(ADDRESS);
+		bakery = new JMSBakery(connection);
+		bakeryUIService = new JMSBakeryUIService(connection);
+	}
+
+	@Override
+	public String getName() {
+		return "JMS";
+	}
+
+	@Override
+	public Bakery getBakery() {
+		return bakery;
+	}
+
+	@Override
+	public IBakeryUIService getBakeryUIService() {
+		return bakeryUIService;
+	}
+
+	@Override
+	public RobotFactory getRobotFactory() {
+		return new JMSRobotFactory(robotConnection);
+	}
+
+	@Override
+	public ITabletUIService createTabletUIService() {
+		JMSTabletUIService service = new JMSTabletUIService(connection);
+		tabletServices.add(service);
+		return service;
+	}
+
+	@Override
+	public void close() {
+		tabletServices.forEach(AbstractJMSService::close);
+		bakeryUIService.close();
+		try {
+			connection.close();
+			broker.stop();
+		} catch (Exception e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench.load;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects latencies of many threads. The values are kept completely, so that
+ * exact percentiles can be computed at the end of a run.
+ */
+public class LatencyRecorder {
+
+	private long[] values = new long[1024];
+	private int size = 0;
+
+	/**
+	 * @param nanos
+	 *            latency in nanoseconds
+	 */
+	public synchronized void record(long nanos) {
+		if (size == values.length)
+			values = Arrays.copyOf(values, size * 2);
+		values[size++] = nanos;
+	}
+
+	public synchronized int getCount() {
+		return size;
+	}
+
+	/**
+	 * @param percentile
+	 *            percentile between 0 and 100
+	 * @return latency of the given percentile in milliseconds, 0 if nothing
+	 *         has been recorded
+	 */
+	public synchronized double getPercentile(double percentile) {
+		if (size == 0)
+			return 0;
+		long[] sorted = Arrays.copyOf(values, size);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100d * size) - 1;
+		return toMillis(sorted[Math.max(0, Math.min(index, size - 1))]);
+	}
+
+	public synchronized double getMax() {
+		return getPercentile(100);
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+}
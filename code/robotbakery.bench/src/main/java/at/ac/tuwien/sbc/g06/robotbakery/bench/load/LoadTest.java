@@ -0,0 +1,332 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench.load;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotHost;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+/**
+ * Headless end-to-end load test. Starts the bakery, a mix of robots and a
+ * number of simulated customers in one process and measures how many orders
+ * get packed per second and how long a customer waits from placing the order
+ * until the packed order is taken from the terminal. Orders which are not
+ * packed within the timeout are recorded with the timeout as latency.
+ * 
+ * Usage: LoadTest (xvsm|jms|inmem) [customers=10] [duration=60] [warmup=10]
+ * [timeout=60] [supply=2] [csv=FILE] [TYPE[:COUNT]...]
+ * 
+ * Durations are given in seconds of real time. The robots use the simulation
+ * clock, e.g. -Drobotbakery.clock=scaled:100 shortens the simulated work. The
+ * discrete clock is not supported, because the customers are not part of the
+ * simulation.
+ */
+public class LoadTest implements IChangeListener {
+
+	private static final List<String> DEFAULT_ROBOTS = Arrays.asList("service:2", "knead:2", "bake", "deliver");
+	private static final int INITIAL_INGREDIENTS = 20;
+	private static final long PACKED_ORDER_POLL_INTERVAL = 50L;
+
+	private final LoadTestBackend backend;
+	private final List<String> robots;
+	private final int customers;
+	private final long duration;
+	private final long warmup;
+	private final long orderTimeout;
+	private final int supply;
+
+	private final Map<UUID, CompletableFuture<OrderState>> pendingOrders = new ConcurrentHashMap<>();
+	private final LatencyRecorder latencies = new LatencyRecorder();
+	private final AtomicLong placed = new AtomicLong();
+	private final AtomicLong packed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private volatile boolean measuring = false;
+	private volatile boolean running = true;
+
+	public LoadTest(LoadTestBackend backend, List<String> robots, int customers, long duration, long warmup,
+			long orderTimeout, int supply) {
+		this.backend = backend;
+		this.robots = robots;
+		this.customers = customers;
+		this.duration = duration;
+		this.warmup = warmup;
+		this.orderTimeout = orderTimeout;
+		this.supply = supply;
+	}
+
+	/**
+	 * runs the load test and shuts the backend down afterwards
+	 * 
+	 * @return result of the measurement
+	 */
+	public LoadTestResult run() throws InterruptedException {
+		backend.getBakery().init();
+		backend.getBakery().getChangeNotifer().registerChangeListener(this);
+		IBakeryUIService bakeryUIService = backend.getBakeryUIService();
+		bakeryUIService.addIngredientsToStorage(createIngredients(INITIAL_INGREDIENTS));
+		bakeryUIService.addProductsToCounter(createCounterProducts());
+
+		RobotHost host = new RobotHost(backend.getRobotFactory());
+		host.addRobots(robots.toArray(new String[robots.size()]));
+
+		ScheduledExecutorService supplier = Executors.newSingleThreadScheduledExecutor();
+		supplier.scheduleAtFixedRate(() -> bakeryUIService.addIngredientsToStorage(createIngredients(supply)), 1, 1,
+				TimeUnit.SECONDS);
+
+		ExecutorService customerExecutor = Executors.newFixedThreadPool(customers);
+		for (int i = 0; i < customers; i++) {
+			ITabletUIService service = backend.createTabletUIService();
+			Random random = new Random(i);
+			customerExecutor.submit(() -> runCustomer(service, random));
+		}
+
+		TimeUnit.SECONDS.sleep(warmup);
+		measuring = true;
+		long start = System.nanoTime();
+		TimeUnit.SECONDS.sleep(duration);
+		measuring = false;
+		double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+		running = false;
+		supplier.shutdownNow();
+		customerExecutor.shutdownNow();
+		customerExecutor.awaitTermination(orderTimeout, TimeUnit.SECONDS);
+		host.shutdown();
+		backend.close();
+
+		return new LoadTestResult(backend.getName(), String.join(" ", robots), customers,
+				System.getProperty(SimulationClock.CLOCK_PROPERTY, "real"), seconds, placed.get(), packed.get(),
+				rejected.get(), timedOut.get(), failed.get(), latencies);
+	}
+
+	/**
+	 * a customer places an order, waits until it is packed or declined, takes
+	 * the packed order from the terminal and pays it. Then the next order is
+	 * placed.
+	 */
+	private void runCustomer(ITabletUIService service, Random random) {
+		UUID customerId = UUID.randomUUID();
+		while (running && !Thread.currentThread().isInterrupted()) {
+			Order order = createOrder(customerId, random);
+			CompletableFuture<OrderState> outcome = new CompletableFuture<>();
+			pendingOrders.put(order.getId(), outcome);
+			long start = System.nanoTime();
+			OrderState state;
+			try {
+				if (!service.addOrderToCounter(order)) {
+					count(failed);
+					continue;
+				}
+				count(placed);
+				state = outcome.get(orderTimeout, TimeUnit.SECONDS);
+			} catch (TimeoutException e) {
+				// the order is recorded with the timeout, leaving it out would
+				// hide the slowest orders from the percentiles
+				if (measuring) {
+					timedOut.incrementAndGet();
+					latencies.record(TimeUnit.SECONDS.toNanos(orderTimeout));
+				}
+				continue;
+			} catch (ExecutionException e) {
+				count(failed);
+				continue;
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				pendingOrders.remove(order.getId());
+			}
+
+			if (state == OrderState.UNGRANTABLE) {
+				count(rejected);
+				if (!pause(SBCConstants.ROBOT_RETRY_BACKOFF))
+					return;
+				continue;
+			}
+
+			PackedOrder packedOrder = takePackedOrder(service, order);
+			if (packedOrder == null) {
+				count(failed);
+				continue;
+			}
+			long latency = System.nanoTime() - start;
+			if (measuring) {
+				packed.incrementAndGet();
+				latencies.record(latency);
+			}
+			packedOrder.setState(OrderState.PAID);
+			service.payOrder(packedOrder);
+		}
+	}
+
+	/**
+	 * the notification about the packed order can arrive before the packed
+	 * order is visible to other clients, so the terminal is polled shortly
+	 */
+	private PackedOrder takePackedOrder(ITabletUIService service, Order order) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(orderTimeout);
+		PackedOrder packedOrder = service.getPackedOrder(order);
+		while (packedOrder == null && System.nanoTime() < deadline) {
+			if (!pause(PACKED_ORDER_POLL_INTERVAL))
+				return null;
+			packedOrder = service.getPackedOrder(order);
+		}
+		return packedOrder;
+	}
+
+	@Override
+	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
+		if (!added || !(object instanceof Order))
+			return;
+		Order order = (Order) object;
+		if (order.getState() == OrderState.PACKED || order.getState() == OrderState.UNGRANTABLE) {
+			CompletableFuture<OrderState> outcome = pendingOrders.get(order.getId());
+			if (outcome != null)
+				outcome.complete(order.getState());
+		}
+	}
+
+	private void count(AtomicLong counter) {
+		if (measuring)
+			counter.incrementAndGet();
+	}
+
+	private static boolean pause(long millis) {
+		try {
+			Thread.sleep(millis);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * order with one to three different products and one or two pieces each
+	 */
+	private static Order createOrder(UUID customerId, Random random) {
+		Order order = new Order();
+		order.setCustomerId(customerId);
+		List<String> productNames = new ArrayList<>(SBCConstants.PRODUCTS_NAMES);
+		Collections.shuffle(productNames, random);
+		int items = 1 + random.nextInt(3);
+		for (int i = 0; i < items; i++)
+			order.addItem(productNames.get(i), 1 + random.nextInt(2));
+		order.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
+		return order;
+	}
+
+	private static List<Ingredient> createIngredients(int amount) {
+		List<Ingredient> ingredients = new ArrayList<>();
+		for (int i = 0; i < amount; i++) {
+			ingredients.add(new FlourPack());
+			for (IngredientType type : IngredientType.values()) {
+				if (type != IngredientType.FLOUR && type != IngredientType.WATER)
+					ingredients.add(new Ingredient(type));
+			}
+		}
+		return ingredients;
+	}
+
+	private static List<Product> createCounterProducts() {
+		List<Product> products = new ArrayList<>();
+		for (String productName : SBCConstants.PRODUCTS_NAMES) {
+			for (int i = 0; i < SBCConstants.COUNTER_MAX_CAPACITY; i++) {
+				Product product = new Product(productName);
+				product.setType(BakeState.FINALPRODUCT);
+				product.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
+				products.add(product);
+			}
+		}
+		return products;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.out.println("Usage: LoadTest (xvsm|jms|inmem) [customers=10] [duration=60] [warmup=10] [timeout=60]"
+					+ " [supply=2] [csv=FILE] [TYPE[:COUNT]...]");
+			System.exit(1);
+		}
+		LoadTestBackend backend;
+		switch (args[0].toLowerCase()) {
+		case "xvsm":
+			backend = new XVSMLoadTestBackend();
+			break;
+		case "jms":
+			backend = new JMSLoadTestBackend();
+			break;
+		case "inmem":
+			backend = new InMemLoadTestBackend();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown backend: " + args[0]);
+		}
+
+		Map<String, String> options = new HashMap<>();
+		List<String> robots = new ArrayList<>();
+		for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+			int split = arg.indexOf('=');
+			if (split > 0)
+				options.put(arg.substring(0, split), arg.substring(split + 1));
+			else
+				robots.add(arg);
+		}
+		if (robots.isEmpty())
+			robots.addAll(DEFAULT_ROBOTS);
+
+		LoadTest loadTest = new LoadTest(backend, robots, Integer.parseInt(options.getOrDefault("customers", "10")),
+				Long.parseLong(options.getOrDefault("duration", "60")),
+				Long.parseLong(options.getOrDefault("warmup", "10")),
+				Long.parseLong(options.getOrDefault("timeout", "60")),
+				Integer.parseInt(options.getOrDefault("supply", "2")));
+		LoadTestResult result = loadTest.run();
+		result.print(System.out);
+		if (options.containsKey("csv"))
+			appendCsv(result, new File(options.get("csv")));
+		System.exit(0);
+	}
+
+	private static void appendCsv(LoadTestResult result, File file) throws IOException {
+		boolean header = !file.exists();
+		try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
+			if (header)
+				writer.println(LoadTestResult.CSV_HEADER);
+			writer.println(result.toCsv());
+		}
+	}
+
+}
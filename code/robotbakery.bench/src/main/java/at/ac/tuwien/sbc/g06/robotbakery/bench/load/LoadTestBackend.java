@@ -0,0 +1,37 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench.load;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
+
+/**
+ * Middleware which runs in the same process as the load test. The bakery,
+ * the robots and the customers all use the same embedded core or broker.
+ */
+public interface LoadTestBackend {
+
+	String getName();
+
+	Bakery getBakery();
+
+	IBakeryUIService getBakeryUIService();
+
+	/**
+	 * @return factory for the robots, it is closed by the robot host
+	 */
+	RobotFactory getRobotFactory();
+
+	/**
+	 * create a tablet service for one customer, the customers run concurrently
+	 * 
+	 * @return tablet service which is used by one customer only
+	 */
+	ITabletUIService createTabletUIService();
+
+	/**
+	 * free the resources which are not owned by the robot factory
+	 */
+	void close();
+
+}
@@ -0,0 +1,79 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench.load;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Result of one load test run. The same format is used for all backends, so
+ * that runs can be compared directly, either on the console or in a CSV file.
+ */
+public class LoadTestResult {
+
+	public static final String CSV_HEADER = "backend,robots,customers,clock,seconds,placed,packed,rejected,timedOut,"
+			+ "failed,ordersPerSecond,p50Millis,p99Millis,p999Millis,maxMillis";
+
+	private final String backend;
+	private final String robots;
+	private final int customers;
+	private final String clock;
+	private final double seconds;
+	private final long placed;
+	private final long packed;
+	private final long rejected;
+	private final long timedOut;
+	private final long failed;
+	private final double p50;
+	private final double p99;
+	private final double p999;
+	private final double max;
+
+	public LoadTestResult(String backend, String robots, int customers, String clock, double seconds, long placed,
+			long packed, long rejected, long timedOut, long failed, LatencyRecorder latencies) {
+		this.backend = backend;
+		this.robots = robots;
+		this.customers = customers;
+		this.clock = clock;
+		this.seconds = seconds;
+		this.placed = placed;
+		this.packed = packed;
+		this.rejected = rejected;
+		this.timedOut = timedOut;
+		this.failed = failed;
+		this.p50 = latencies.getPercentile(50);
+		this.p99 = latencies.getPercentile(99);
+		this.p999 = latencies.getPercentile(99.9);
+		this.max = latencies.getMax();
+	}
+
+	public double getOrdersPerSecond() {
+		return seconds > 0 ? packed / seconds : 0;
+	}
+
+	public void print(PrintStream out) {
+		out.println("========== Load test result ==========");
+		out.println(String.format(Locale.ROOT, "Backend:           %s", backend));
+		out.println(String.format(Locale.ROOT, "Robots:            %s", robots));
+		out.println(String.format(Locale.ROOT, "Customers:         %d", customers));
+		out.println(String.format(Locale.ROOT, "Clock:             %s", clock));
+		out.println(String.format(Locale.ROOT, "Measured:          %.1f s", seconds));
+		out.println(String.format(Locale.ROOT, "Orders placed:     %d", placed));
+		out.println(String.format(Locale.ROOT, "Orders packed:     %d", packed));
+		out.println(String.format(Locale.ROOT, "Orders rejected:   %d", rejected));
+		out.println(String.format(Locale.ROOT, "Orders timed out:  %d", timedOut));
+		out.println(String.format(Locale.ROOT, "Orders failed:     %d", failed));
+		out.println(String.format(Locale.ROOT, "Throughput:        %.2f orders/s", getOrdersPerSecond()));
+		out.println(String.format(Locale.ROOT, "Order to packed:   p50 %.1f ms, p99 %.1f ms, p999 %.1f ms, max %.1f ms",
+				p50, p99, p999, max));
+		if (timedOut > 0)
+			out.println(String.format(Locale.ROOT, "                   (incl. %.1f %% timed out orders at the timeout)",
+					100d * timedOut / (packed + timedOut)));
+		out.println("======================================");
+	}
+
+	public String toCsv() {
+		return String.format(Locale.ROOT, "%s,%s,%d,%s,%.1f,%d,%d,%d,%d,%d,%.3f,%.1f,%.1f,%.1f,%.1f", backend, robots,
+				customers, clock, seconds, placed, packed, rejected, timedOut, failed, getOrdersPerSecond(), p50, p99,
+				p999, max);
+	}
+
+}
@@ -0,0 +1,61 @@
+package at.ac.tuwien.sbc.g06.robotbakery.bench.load;
+
+import org.mozartspaces.core.Capi;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.notifier.XVSMBakery;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMTabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.startup.XVSMRobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMCoreProvider;
+
+/**
+ * XVSM backend with the shared MozartSpaces core of the JVM, which hosts the
+ * bakery space and is used by all robots and customers.
+ */
+public class XVSMLoadTestBackend implements LoadTestBackend {
+
+	private final Capi capi;
+	private final XVSMBakery bakery;
+	private final XVSMBakeryUIService bakeryUIService;
+
+	public XVSMLoadTestBackend() {
+		capi = XVSMCoreProvider.getCapi();
+		bakery = new XVSMBakery(capi);
+		bakeryUIService = new XVSMBakeryUIService(capi);
+	}
+
+	@Override
+	public String getName() {
+		return "XVSM";
+	}
+
+	@Override
+	public Bakery getBakery() {
+		return bakery;
+	}
+
+	@Override
+	public IBakeryUIService getBakeryUIService() {
+		return bakeryUIService;
+	}
+
+	@Override
+	public RobotFactory getRobotFactory() {
+		return new XVSMRobotFactory(capi);
+	}
+
+	@Override
+	public ITabletUIService createTabletUIService() {
+		return new XVSMTabletUIService(capi);
+	}
+
+	@Override
+	public void close() {
+		// the core is shut down by the robot factory
+	}
+
+}
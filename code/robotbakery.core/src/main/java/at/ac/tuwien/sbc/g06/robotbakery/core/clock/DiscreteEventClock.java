@@ -0,0 +1,138 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.clock;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Discrete event clock. The simulated time stands still while a registered
+ * thread is working. As soon as every registered thread sleeps or waits for an
+ * external event, the time jumps to the earliest scheduled wake-up. Threads
+ * which are not registered can sleep as well, but don't hold back the time.
+ * <p>
+ * All robots have to run in the same process (e.g. in a RobotHost), because
+ * the clock only knows the threads of its own JVM. Messages which are still
+ * in transit in the middleware are not seen by the clock either.
+ */
+public class DiscreteEventClock extends SimulationClock {
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition advanced = lock.newCondition();
+	private final PriorityQueue<Long> wakeUps = new PriorityQueue<>();
+	private final ThreadLocal<Boolean> registered = ThreadLocal.withInitial(() -> false);
+
+	private volatile long now;
+	private int participants = 0;
+	private int blocked = 0;
+
+	public DiscreteEventClock() {
+		this(System.currentTimeMillis());
+	}
+
+	public DiscreteEventClock(long start) {
+		this.now = start;
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return now;
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		if (millis <= 0)
+			return;
+		boolean participant = registered.get();
+		lock.lock();
+		try {
+			long wakeUp = now + millis;
+			wakeUps.add(wakeUp);
+			if (participant)
+				blocked++;
+			try {
+				advance();
+				while (now < wakeUp)
+					advanced.await();
+			} finally {
+				wakeUps.remove(wakeUp);
+				if (participant)
+					blocked--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long toRealTime(long millis) {
+		// waits on external events are not simulated, their timeouts are only
+		// a safety net
+		return Math.max(1, millis);
+	}
+
+	@Override
+	public void register() {
+		if (registered.get())
+			return;
+		registered.set(true);
+		lock.lock();
+		try {
+			participants++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void unregister() {
+		if (!registered.get())
+			return;
+		registered.set(false);
+		lock.lock();
+		try {
+			participants--;
+			advance();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void beginIdle() {
+		if (!registered.get())
+			return;
+		lock.lock();
+		try {
+			blocked++;
+			advance();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void endIdle() {
+		if (!registered.get())
+			return;
+		lock.lock();
+		try {
+			blocked--;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * jump to the next wake-up if no registered thread is working anymore. A
+	 * wake-up which is already due belongs to a thread that has not continued
+	 * yet, so the time must not move on in that case.
+	 */
+	private void advance() {
+		Long next = wakeUps.peek();
+		if (blocked >= participants && next != null && next > now) {
+			now = next;
+			advanced.signalAll();
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.clock;
+
+/**
+ * Clock which uses the wall clock time
+ */
+public class RealTimeClock extends SimulationClock {
+
+	@Override
+	public long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		Thread.sleep(millis);
+	}
+
+	@Override
+	public long toRealTime(long millis) {
+		return Math.max(1, millis);
+	}
+
+}
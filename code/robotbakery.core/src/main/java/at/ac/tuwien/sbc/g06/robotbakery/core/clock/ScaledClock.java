@@ -0,0 +1,40 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock which runs a constant factor faster than real time. The simulated
+ * time starts at the wall clock time of the creation of the clock.
+ */
+public class ScaledClock extends SimulationClock {
+
+	private final double factor;
+	private final long origin;
+
+	public ScaledClock(double factor) {
+		if (factor <= 0)
+			throw new IllegalArgumentException("Factor must be positive");
+		this.factor = factor;
+		this.origin = System.currentTimeMillis();
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		return origin + (long) ((System.currentTimeMillis() - origin) * factor);
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		TimeUnit.NANOSECONDS.sleep((long) (TimeUnit.MILLISECONDS.toNanos(millis) / factor));
+	}
+
+	@Override
+	public long toRealTime(long millis) {
+		return Math.max(1, (long) (millis / factor));
+	}
+
+	public double getFactor() {
+		return factor;
+	}
+
+}
@@ -0,0 +1,106 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.clock;
+
+/**
+ * Source of time for the simulation. Every place which reads the time or
+ * waits for simulated work has to use the current clock, so that the bakery
+ * can run faster than real time. The clock is chosen with the system property
+ * {@value #CLOCK_PROPERTY}:
+ * <ul>
+ * <li>real (default): wall clock time</li>
+ * <li>scaled:FACTOR: time runs FACTOR times faster, e.g. scaled:100</li>
+ * <li>discrete: time jumps to the next scheduled wake-up as soon as all
+ * registered threads are sleeping or idle</li>
+ * </ul>
+ */
+public abstract class SimulationClock {
+
+	public static final String CLOCK_PROPERTY = "robotbakery.clock";
+
+	private static volatile SimulationClock instance;
+
+	public static SimulationClock get() {
+		if (instance == null) {
+			synchronized (SimulationClock.class) {
+				if (instance == null)
+					instance = fromConfiguration(System.getProperty(CLOCK_PROPERTY, "real"));
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * replace the clock, has to be done before the robots are started
+	 * 
+	 * @param clock
+	 *            new clock
+	 */
+	public static void set(SimulationClock clock) {
+		instance = clock;
+	}
+
+	/**
+	 * create a clock from its textual configuration (real, scaled:FACTOR or
+	 * discrete)
+	 * 
+	 * @param configuration
+	 *            clock configuration
+	 * @return configured clock
+	 */
+	public static SimulationClock fromConfiguration(String configuration) {
+		String[] split = configuration.trim().split(":");
+		switch (split[0]) {
+		case "real":
+			return new RealTimeClock();
+		case "scaled":
+			return new ScaledClock(split.length > 1 ? Double.parseDouble(split[1]) : 1d);
+		case "discrete":
+			return new DiscreteEventClock();
+		default:
+			throw new IllegalArgumentException("Unknown clock: " + configuration);
+		}
+	}
+
+	/**
+	 * @return current simulated time in milliseconds since the epoch
+	 */
+	public abstract long currentTimeMillis();
+
+	/**
+	 * wait for the given simulated time
+	 * 
+	 * @param millis
+	 *            simulated time in milliseconds
+	 */
+	public abstract void sleep(long millis) throws InterruptedException;
+
+	/**
+	 * convert a simulated duration to real time, used for timeouts of waits on
+	 * external events
+	 * 
+	 * @param millis
+	 *            simulated duration in milliseconds
+	 * @return real duration in milliseconds, at least 1
+	 */
+	public abstract long toRealTime(long millis);
+
+	/**
+	 * the current thread takes part in the simulation, only relevant for the
+	 * discrete event clock
+	 */
+	public void register() {
+	}
+
+	public void unregister() {
+	}
+
+	/**
+	 * the current thread waits for an external event (e.g. a notification) and
+	 * doesn't hold back the simulated time until {@link #endIdle()} is called
+	 */
+	public void beginIdle() {
+	}
+
+	public void endIdle() {
+	}
+
+}
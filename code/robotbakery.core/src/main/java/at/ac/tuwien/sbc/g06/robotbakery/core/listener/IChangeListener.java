@@ -1,6 +1,7 @@
 package at.ac.tuwien.sbc.g06.robotbakery.core.listener;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * 
@@ -15,4 +16,23 @@ public interface IChangeListener   {
 
 	void onObjectChanged(Serializable object, String coordinationRoom, boolean added);
 
+	/**
+	 * Is called once for objects which are written to or taken from a room
+	 * with one operation, e.g. the products of a bake batch. Listeners which
+	 * can handle a batch at once should override this method, by default each
+	 * object is passed to {@link #onObjectChanged(Serializable, String, boolean)}.
+	 * 
+	 * @param objects
+	 *            changed objects
+	 * @param coordinationRoom
+	 *            room which contains the objects
+	 * @param added
+	 *            true if the objects have been written, false if they have been
+	 *            taken
+	 */
+	default void onObjectsChanged(List<? extends Serializable> objects, String coordinationRoom, boolean added) {
+		for (Serializable object : objects)
+			onObjectChanged(object, coordinationRoom, added);
+	}
+
 }
@@ -0,0 +1,248 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.listener;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.ChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+/**
+ * Materialized view of the stock in the storage, the bakeroom and the counter
+ * and of the pending orders. The view is
+ * maintained from the change notifications, so reading the stock doesn't need
+ * any request to the middleware. Notifications of rolled back operations or
+ * lost notifications let the view drift, therefore it is rebuilt from the
+ * content of the rooms after {@link SBCConstants#STOCK_RESYNC_INTERVAL} of
+ * simulated time.
+ */
+public class StockView implements IChangeListener {
+	private static Logger logger = LoggerFactory.getLogger(StockView.class);
+
+	private static final List<String> TRACKED_ROOMS = Arrays.asList(SBCConstants.COORDINATION_ROOM_STORAGE,
+			SBCConstants.COORDINATION_ROOM_BAKEROOM, SBCConstants.COORDINATION_ROOM_COUNTER);
+	private static final Comparator<Product> DOUGH_ORDER = Comparator
+			.comparing(Product::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder()))
+			.thenComparing(p -> p.getId().toString());
+
+	private final IStockService stockService;
+	private final long resyncInterval;
+	private final ReentrantLock resyncLock = new ReentrantLock();
+	private volatile Stock stock = new Stock();
+	private volatile long lastResync;
+	private volatile boolean synced = false;
+
+	public StockView(ChangeNotifer changeNotifer, IStockService stockService) {
+		this(changeNotifer, stockService, SBCConstants.STOCK_RESYNC_INTERVAL);
+	}
+
+	public StockView(ChangeNotifer changeNotifer, IStockService stockService, long resyncInterval) {
+		this.stockService = stockService;
+		this.resyncInterval = resyncInterval;
+		changeNotifer.registerChangeListener(this);
+	}
+
+	/**
+	 * @return number of ingredients in the storage by type, flour is counted
+	 *         in packs, water is not included
+	 */
+	public Map<IngredientType, Integer> getIngredientStock() {
+		Stock current = current();
+		Map<IngredientType, Integer> map = new EnumMap<>(IngredientType.class);
+		current.ingredients.forEach((type, count) -> {
+			if (type != IngredientType.WATER)
+				map.put(type, Math.max(count.get(), 0));
+		});
+		return map;
+	}
+
+	/**
+	 * @return flour left in all flour packs of the storage
+	 */
+	public int getFlourUnits() {
+		return Math.max(current().flourUnits.get(), 0);
+	}
+
+	/**
+	 * @return number of products in the counter by product name
+	 */
+	public Map<String, Integer> getCounterStock() {
+		Stock current = current();
+		Map<String, Integer> map = new HashMap<>();
+		for (String productName : SBCConstants.PRODUCTS_NAMES) {
+			int count = 0;
+			for (BakeState state : BakeState.values())
+				count += current.getProductCount(SBCConstants.COORDINATION_ROOM_COUNTER, productName, state);
+			map.put(productName, count);
+		}
+		return map;
+	}
+
+	/**
+	 * @return number of products with the given name and state in the given
+	 *         room (storage, bakeroom or counter)
+	 */
+	public int getProductCount(String coordinationRoom, String productName, BakeState state) {
+		return current().getProductCount(coordinationRoom, productName, state);
+	}
+
+	/**
+	 * @return amount of each product which is ordered by the orders that are
+	 *         not processed yet
+	 */
+	public Map<String, Integer> getPendingOrderDemand() {
+		Map<String, Integer> map = new HashMap<>();
+		current().pendingOrders.values().forEach(order -> order.getItemsMap().values()
+				.forEach(item -> map.merge(item.getProductName(), item.getAmount(), Integer::sum)));
+		return map;
+	}
+
+	/**
+	 * @return base doughs in the storage ordered by their production timestamp
+	 */
+	public List<Product> getBaseDoughs() {
+		return new ArrayList<>(current().doughs);
+	}
+
+	/**
+	 * rebuild the view from the content of the rooms
+	 * 
+	 * @return true if the view has been rebuilt
+	 */
+	public boolean resync() {
+		resyncLock.lock();
+		try {
+			Stock next = new Stock();
+			for (String room : TRACKED_ROOMS) {
+				List<Serializable> content = stockService.readRoom(room);
+				if (content == null) {
+					logger.error("Couldn't read the content of room " + room);
+					return false;
+				}
+				content.forEach(object -> next.apply(object, room, true));
+			}
+			// changes which are notified while the rooms are read might be
+			// missing, they are fixed with the next resync
+			stock = next;
+			lastResync = SimulationClock.get().currentTimeMillis();
+			synced = true;
+			return true;
+		} finally {
+			resyncLock.unlock();
+		}
+	}
+
+	@Override
+	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
+		if (TRACKED_ROOMS.contains(coordinationRoom))
+			stock.apply(object, coordinationRoom, added);
+	}
+
+	@Override
+	public void onObjectsChanged(List<? extends Serializable> objects, String coordinationRoom, boolean added) {
+		if (TRACKED_ROOMS.contains(coordinationRoom)) {
+			Stock current = stock;
+			objects.forEach(object -> current.apply(object, coordinationRoom, added));
+		}
+	}
+
+	private Stock current() {
+		if (!synced) {
+			// the first reader builds the view, the others wait for it
+			resyncLock.lock();
+			try {
+				if (!synced)
+					resync();
+			} finally {
+				resyncLock.unlock();
+			}
+		} else if (SimulationClock.get().currentTimeMillis() - lastResync >= resyncInterval && resyncLock.tryLock()) {
+			// only one reader resyncs, the others use the current view
+			try {
+				if (SimulationClock.get().currentTimeMillis() - lastResync >= resyncInterval)
+					resync();
+			} finally {
+				resyncLock.unlock();
+			}
+		}
+		return stock;
+	}
+
+	/**
+	 * counters of one version of the view
+	 */
+	private static class Stock {
+		private final Map<IngredientType, AtomicInteger> ingredients = new EnumMap<>(IngredientType.class);
+		private final AtomicInteger flourUnits = new AtomicInteger();
+		private final Map<String, Map<String, AtomicIntegerArray>> products = new ConcurrentHashMap<>();
+		private final NavigableSet<Product> doughs = new ConcurrentSkipListSet<>(DOUGH_ORDER);
+		private final Map<UUID, Order> pendingOrders = new ConcurrentHashMap<>();
+
+		private Stock() {
+			// the map is not modified afterwards, so it can be read concurrently
+			for (IngredientType type : IngredientType.values())
+				ingredients.put(type, new AtomicInteger());
+		}
+
+		private void apply(Serializable object, String room, boolean added) {
+			int delta = added ? 1 : -1;
+			if (object instanceof Ingredient && SBCConstants.COORDINATION_ROOM_STORAGE.equals(room)) {
+				Ingredient ingredient = (Ingredient) object;
+				ingredients.get(ingredient.getType()).addAndGet(delta);
+				if (ingredient instanceof FlourPack)
+					flourUnits.addAndGet(delta * ((FlourPack) ingredient).getCurrentAmount());
+			} else if (object instanceof Product) {
+				Product product = (Product) object;
+				products.computeIfAbsent(room, r -> new ConcurrentHashMap<>())
+						.computeIfAbsent(product.getProductName(),
+								n -> new AtomicIntegerArray(BakeState.values().length))
+						.addAndGet(product.getType().ordinal(), delta);
+				if (product.getType() == BakeState.DOUGH && SBCConstants.COORDINATION_ROOM_STORAGE.equals(room)) {
+					if (added)
+						doughs.add(product);
+					else
+						doughs.remove(product);
+				}
+			} else if (object instanceof Order && SBCConstants.COORDINATION_ROOM_COUNTER.equals(room)) {
+				// orders are taken and written back with a new state, so only
+				// the last notification of an order counts
+				Order order = (Order) object;
+				if (added && (order.getState() == OrderState.ORDERED || order.getState() == OrderState.WAITING))
+					pendingOrders.put(order.getId(), order);
+				else
+					pendingOrders.remove(order.getId());
+			}
+		}
+
+		private int getProductCount(String room, String productName, BakeState state) {
+			Map<String, AtomicIntegerArray> roomProducts = products.get(room);
+			AtomicIntegerArray counts = roomProducts == null ? null : roomProducts.get(productName);
+			return counts == null ? 0 : Math.max(counts.get(state.ordinal()), 0);
+		}
+	}
+
+}
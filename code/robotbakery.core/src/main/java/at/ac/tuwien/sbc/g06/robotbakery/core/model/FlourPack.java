@@ -1,5 +1,7 @@
 package at.ac.tuwien.sbc.g06.robotbakery.core.model;
 
+import java.util.UUID;
+
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
 
@@ -16,6 +18,25 @@ public class FlourPack extends Ingredient {
 		this.currentAmount = SBCConstants.FLOUR_PACK_SIZE;
 	}
 
+	/**
+	 * creates an opened flour pack
+	 * 
+	 * @param currentAmount
+	 *            flour which is left in the pack
+	 */
+	public FlourPack(int currentAmount) {
+		super(IngredientType.FLOUR);
+		this.currentAmount = currentAmount;
+	}
+
+	/**
+	 * creates a flour pack with a given id, e.g. when it is decoded
+	 */
+	public FlourPack(UUID id, int currentAmount) {
+		super(id, IngredientType.FLOUR);
+		this.currentAmount = currentAmount;
+	}
+
 	/**
 	 * Takes the needed amount from the flour pack. If the flour pack hasn't
 	 * enough flour left the rest amount is returned
@@ -15,11 +15,16 @@ public class Ingredient implements Serializable {
 	private final UUID id;
 
 	public Ingredient(IngredientType type) {
-		super();
-		id = UUID.randomUUID();
+		this(UUID.randomUUID(), type);
+	}
 
+	/**
+	 * creates an ingredient with a given id, e.g. when it is decoded
+	 */
+	public Ingredient(UUID id, IngredientType type) {
+		super();
+		this.id = id;
 		this.type = type;
-
 	}
 
 	public IngredientType getType() {
@@ -0,0 +1,101 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+/**
+ * Ingredients which are taken out of the storage for a knead robot. The
+ * reservation is kept in the storage until it is consumed or released, an
+ * expired reservation is returned to the storage by the next robot which
+ * doesn't find enough ingredients.
+ */
+@SuppressWarnings("serial")
+public class IngredientReservation implements Serializable {
+
+	private final UUID id;
+	private final int flourAmount;
+	private final List<Ingredient> ingredients;
+	private final long expiresAt;
+
+	/**
+	 * @param flourAmount
+	 *            amount of flour which was taken from the flour packs
+	 * @param ingredients
+	 *            other reserved ingredients
+	 * @param expiresAt
+	 *            simulation time after which the reservation can be reclaimed
+	 */
+	public IngredientReservation(int flourAmount, List<Ingredient> ingredients, long expiresAt) {
+		this.id = UUID.randomUUID();
+		this.flourAmount = flourAmount;
+		this.ingredients = ingredients;
+		this.expiresAt = expiresAt;
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	public int getFlourAmount() {
+		return flourAmount;
+	}
+
+	public List<Ingredient> getIngredients() {
+		return ingredients;
+	}
+
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	public boolean isExpired(long now) {
+		return expiresAt <= now;
+	}
+
+	/**
+	 * @return reserved amount of the given ingredient type
+	 */
+	public int getAmount(IngredientType type) {
+		if (type == IngredientType.FLOUR)
+			return flourAmount;
+		return (int) ingredients.stream().filter(i -> i.getType() == type).count();
+	}
+
+	/**
+	 * @return true if the reservation contains at least the given amounts
+	 */
+	public boolean covers(Iterable<Map.Entry<IngredientType, Integer>> billOfMaterials) {
+		for (Map.Entry<IngredientType, Integer> entry : billOfMaterials) {
+			if (getAmount(entry.getKey()) < entry.getValue())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return ingredients which are put back into the storage if the
+	 *         reservation is released, the flour is put back in new packs
+	 */
+	public List<Ingredient> getReleasedIngredients() {
+		List<Ingredient> released = new ArrayList<>(ingredients);
+		for (int rest = flourAmount; rest > 0; rest -= SBCConstants.FLOUR_PACK_SIZE) {
+			FlourPack pack = new FlourPack();
+			pack.takeFlour(Math.max(SBCConstants.FLOUR_PACK_SIZE - rest, 0));
+			released.add(pack);
+		}
+		return released;
+	}
+
+	@Override
+	public String toString() {
+		return "IngredientReservation [id=" + id + ", flourAmount=" + flourAmount + ", ingredients=" + ingredients
+				+ ", expiresAt=" + expiresAt + "]";
+	}
+
+}
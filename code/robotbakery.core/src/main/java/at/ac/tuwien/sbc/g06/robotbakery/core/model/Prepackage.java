@@ -28,9 +28,16 @@ public class Prepackage implements Serializable {
 	private String state;
 
 	public Prepackage() {
+		this(UUID.randomUUID());
+	}
+
+	/**
+	 * creates a prepackage with a given id, e.g. when it is decoded
+	 */
+	public Prepackage(UUID id) {
 		super();
 		this.products = new ArrayList<>(SBCConstants.PREPACKAGE_SIZE);
-		this.id = UUID.randomUUID();
+		this.id = id;
 		this.sold = false;
 		this.state = STATE_IN_TERMINAL;
 	}
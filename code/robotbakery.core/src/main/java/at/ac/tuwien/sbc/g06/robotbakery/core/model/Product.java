@@ -62,8 +62,20 @@ public class Product implements Serializable {
 	}
 
 	public Product(Recipe recipe) {
+		this(UUID.randomUUID(), recipe);
+	}
+
+	/**
+	 * creates a product with a given id, e.g. when it is decoded
+	 * 
+	 * @param id
+	 *            id of the product
+	 * @param recipe
+	 *            recipe of the product
+	 */
+	public Product(UUID id, Recipe recipe) {
 		super();
-		id = UUID.randomUUID();
+		this.id = id;
 		this.productName = recipe.getProductName();
 		this.recipe = recipe;
 		this.price = recipe.getPricePerUnit();
@@ -82,6 +94,14 @@ public class Product implements Serializable {
 	 *            robot class
 	 */
 	public void addContribution(UUID contributerId, String type, Class<? extends Robot> contributor) {
+		contributions.add(new Contribution(contributerId, type, contributor.getSimpleName()));
+	}
+
+	/**
+	 * adds a contribution of a robot which is given by the name of its class,
+	 * e.g. when the product is decoded
+	 */
+	public void addContribution(UUID contributerId, String type, String contributor) {
 		contributions.add(new Contribution(contributerId, type, contributor));
 	}
 
@@ -138,11 +158,11 @@ public class Product implements Serializable {
 		final String type;
 		final String contributor;
 
-		private Contribution(UUID contributerId, String type, Class<? extends Robot> contributor) {
+		private Contribution(UUID contributerId, String type, String contributor) {
 			super();
 			this.contributerId = contributerId;
 			this.type = type;
-			this.contributor = contributor.getSimpleName();
+			this.contributor = contributor;
 		}
 
 		public UUID getContributerId() {
@@ -1,13 +1,118 @@
 package at.ac.tuwien.sbc.g06.robotbakery.core.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 /**
- * water pipe class
+ * Water pipe of the storage. A pipe stays in the storage while it is used, a
+ * knead robot replaces it with a leased copy and returns it afterwards. A pipe
+ * whose lease is expired is free again, so that a pipe isn't lost if a robot
+ * stops while using it. The pipes of the bakery are configured with the
+ * system property {@value #WATER_PIPES_PROPERTY}, a comma separated list of
+ * flow rates in milliliters per second, e.g. 250,500 for two pipes.
  */
 @SuppressWarnings("serial")
 public class WaterPipe implements Serializable {
 
-	
-	
+	public static final String WATER_PIPES_PROPERTY = "robotbakery.waterPipes";
+	public static final int DEFAULT_FLOW_RATE = 250;
+
+	private final UUID id;
+	private final int flowRate;
+	private final long leaseExpiresAt;
+
+	public WaterPipe() {
+		this(DEFAULT_FLOW_RATE);
+	}
+
+	/**
+	 * @param flowRate
+	 *            milliliters of water per second of simulation time
+	 */
+	public WaterPipe(int flowRate) {
+		this(UUID.randomUUID(), flowRate, 0);
+	}
+
+	private WaterPipe(UUID id, int flowRate, long leaseExpiresAt) {
+		this.id = id;
+		this.flowRate = flowRate;
+		this.leaseExpiresAt = leaseExpiresAt;
+	}
+
+	/**
+	 * @return the pipes of the bakery, see {@link #WATER_PIPES_PROPERTY}
+	 */
+	public static List<WaterPipe> getConfiguredPipes() {
+		return fromConfiguration(System.getProperty(WATER_PIPES_PROPERTY, String.valueOf(DEFAULT_FLOW_RATE)));
+	}
+
+	/**
+	 * create water pipes from a comma separated list of flow rates
+	 *
+	 * @param configuration
+	 *            flow rates in milliliters per second
+	 * @return one pipe per flow rate
+	 */
+	public static List<WaterPipe> fromConfiguration(String configuration) {
+		List<WaterPipe> pipes = new ArrayList<>();
+		for (String flowRate : configuration.split(",")) {
+			if (!flowRate.trim().isEmpty())
+				pipes.add(new WaterPipe(Integer.parseInt(flowRate.trim())));
+		}
+		if (pipes.isEmpty())
+			throw new IllegalArgumentException("No water pipes configured: " + configuration);
+		return pipes;
+	}
+
+	public UUID getId() {
+		return id;
+	}
+
+	public int getFlowRate() {
+		return flowRate;
+	}
+
+	public long getLeaseExpiresAt() {
+		return leaseExpiresAt;
+	}
+
+	/**
+	 * @return true if the pipe isn't leased or the lease is expired
+	 */
+	public boolean isFree(long now) {
+		return leaseExpiresAt <= now;
+	}
+
+	/**
+	 * @param waterAmount
+	 *            water in milliliters
+	 * @return simulation time in milliseconds the pipe needs for the amount
+	 */
+	public long getUsageTime(int waterAmount) {
+		return (long) (waterAmount * 1000d / flowRate);
+	}
+
+	/**
+	 * @param expiresAt
+	 *            simulation time until the pipe belongs to the leaseholder
+	 * @return leased copy of this pipe
+	 */
+	public WaterPipe lease(long expiresAt) {
+		return new WaterPipe(id, flowRate, expiresAt);
+	}
+
+	/**
+	 * @return free copy of this pipe
+	 */
+	public WaterPipe release() {
+		return new WaterPipe(id, flowRate, 0);
+	}
+
+	@Override
+	public String toString() {
+		return "WaterPipe [id=" + id + ", flowRate=" + flowRate + ", leaseExpiresAt=" + leaseExpiresAt + "]";
+	}
+
 }
@@ -1,18 +1,19 @@
 package at.ac.tuwien.sbc.g06.robotbakery.core.notifier;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
 
 /**
  * class that keeps the registered change listeners in a set, is used for
- * notification
+ * notification. Listeners can be added and removed while notifications are
+ * delivered, e.g. when robots are added to or removed from a running host
  * 
  * @param <T>
  */
 public abstract class ChangeNotifer {
-	protected Set<IChangeListener> registeredChangeListeners = new HashSet<>();
+	protected Set<IChangeListener> registeredChangeListeners = new CopyOnWriteArraySet<>();
 
 	public boolean registerChangeListener(IChangeListener listener) {
 		return registeredChangeListeners.add(listener);
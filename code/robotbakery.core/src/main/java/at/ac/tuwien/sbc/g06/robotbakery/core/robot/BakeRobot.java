@@ -24,15 +24,19 @@ public class BakeRobot extends Robot {
 			String id) {
 		super(transactionManager, changeNotifer, id);
 		this.service = service;
-		notificationState = service.getInitialState();
+		notificationState.setAll(service.getInitialState());
 	};
 
 	@Override
 	public void run() {
-		while (!Thread.interrupted()) {
-			if (!notificationState.get(IS_BAKEROOM_EMPTY)) {
+		while (!Thread.currentThread().isInterrupted()) {
+			long state = notificationState.snapshot();
+			if (isSet(state, IS_BAKEROOM_EMPTY)) {
+				idle(state, false, false, IS_BAKEROOM_EMPTY);
+			} else {
 				List<Product> products = service.getUnbakedProducts(null);
 				if (products == null || products.isEmpty()) {
+					idle(state, true, false);
 					continue;
 				}
 
@@ -71,10 +75,10 @@ public class BakeRobot extends Robot {
 	@Override
 	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
 		if (added && object instanceof Product && coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_BAKEROOM)) {
-			notificationState.put(IS_BAKEROOM_EMPTY, false);
+			setState(IS_BAKEROOM_EMPTY, false);
 		} else if (object instanceof NotificationMessage
 				&& ((NotificationMessage) object).getMessageTyp() == NotificationMessage.NO_MORE_PRODUCTS_IN_BAKEROOM) {
-			notificationState.put(IS_BAKEROOM_EMPTY, true);
+			setState(IS_BAKEROOM_EMPTY, true);
 		}
 
 	}
@@ -26,16 +26,21 @@ public class DeliveryRobot extends Robot {
 			ITransactionManager transactionManager, String id) {
 		super(transactionManager, changeNotifer, id);
 		this.service = service;
-		notificationState = service.getInitialState();
+		notificationState.setAll(service.getInitialState());
 
 	};
 
 	@Override
 	public void run() {
-		while (!Thread.interrupted()) {
-			if (notificationState.get(IS_DELIVERY_ORDER_AVAILABLE)) {
-				doTask(processNextDelivery);
+		while (!Thread.currentThread().isInterrupted()) {
+			long state = notificationState.snapshot();
+			boolean attempted = false;
+			boolean succeeded = false;
+			if (isSet(state, IS_DELIVERY_ORDER_AVAILABLE)) {
+				attempted = true;
+				succeeded = doTask(processNextDelivery);
 			}
+			idle(state, attempted, succeeded, IS_DELIVERY_ORDER_AVAILABLE);
 
 		}
 
@@ -69,12 +74,12 @@ public class DeliveryRobot extends Robot {
 	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
 		if (added && coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_TERMINAL) && object instanceof PackedOrder
 				&& ((PackedOrder) object).isDelivery()) {
-			notificationState.put(IS_DELIVERY_ORDER_AVAILABLE, true);
+			setState(IS_DELIVERY_ORDER_AVAILABLE, true);
 		} else if(added && object instanceof NotificationMessage) {
 			NotificationMessage message = (NotificationMessage) object;
 
 			if(message.getMessageTyp()==NotificationMessage.NO_MORE_DELIVERY_ORDERS) {
-				notificationState.put(IS_DELIVERY_ORDER_AVAILABLE, false);
+				setState(IS_DELIVERY_ORDER_AVAILABLE, false);
 			}
 		}
 
@@ -5,14 +5,20 @@ import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.Notificati
 
 import java.io.Serializable;
 import java.sql.Timestamp;
-import java.util.List;
-import java.util.Map.Entry;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.ChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ProductionPlanner.WorkItem;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IKneadRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransactionManager;
@@ -22,32 +28,81 @@ import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
 public class KneadRobot extends Robot {
 
 	private IKneadRobotService service;
+	private final ProductionPlanner planner;
+	private final WaterSupply waterSupply;
 
 	private Product nextProduct;
+	private IngredientReservation reservation;
+	private WaterPipe waterPipe;
 
 	public KneadRobot(IKneadRobotService service, ChangeNotifer changeNotifer, ITransactionManager transactionManager,
 			String id) {
+		this(service, changeNotifer, transactionManager, id, new ProductionPlanner(service.getStockView()));
+	}
+
+	/**
+	 * creates a knead robot which gets its work from a planner that is shared
+	 * with the other knead robots of the host
+	 */
+	public KneadRobot(IKneadRobotService service, ChangeNotifer changeNotifer, ITransactionManager transactionManager,
+			String id, ProductionPlanner planner) {
+		this(service, changeNotifer, transactionManager, id, planner, new WaterSupply());
+	}
+
+	/**
+	 * creates a knead robot which shares the planner and the wait queue for
+	 * the water pipes with the other knead robots of the host
+	 */
+	public KneadRobot(IKneadRobotService service, ChangeNotifer changeNotifer, ITransactionManager transactionManager,
+			String id, ProductionPlanner planner, WaterSupply waterSupply) {
 		super(transactionManager, changeNotifer, id);
 		this.service = service;
-		notificationState = service.getInitialState();
+		this.planner = planner;
+		this.waterSupply = waterSupply;
+		notificationState.setAll(service.getInitialState());
 	;
 	}
 
 	/**
-	 * get ingredients from storage for a recipe to finish a base dough
+	 * reserve the ingredients for the next product in a transaction of its
+	 * own, so that a robot which lost the race for the ingredients fails before
+	 * it uses the water. New doughs are only made from flour if the other
+	 * ingredients can't be reserved, the base dough is put in the storage then.
 	 * 
-	 * @param tx
-	 *            Transaction
-	 * @return return true if ingredients are fetched and false for exceptions
-	 *         or when there are not enough in the storage
+	 * @param finishBaseDough
+	 *            true if the next product is a base dough from the storage
+	 * @return true if the ingredients are reserved
 	 */
-	private boolean getAdditionalIngredients(ITransaction tx) {
-		for (Entry<IngredientType, Integer> entry : nextProduct.getRecipe().getAdditionalIngredients()) {
-			List<Ingredient> ingredients = service.getIngredientsFromStorage(entry.getKey(), entry.getValue(), tx);
-			if (ingredients == null || ingredients.size() < entry.getValue())
-				return false;
-		}
-		return true;
+	private boolean reserveIngredients(boolean finishBaseDough) {
+		Map<IngredientType, Integer> billOfMaterials = new EnumMap<>(IngredientType.class);
+		nextProduct.getRecipe().getAdditionalIngredients()
+				.forEach(entry -> billOfMaterials.put(entry.getKey(), entry.getValue()));
+		if (finishBaseDough)
+			return reserveIngredients(billOfMaterials);
+		int flourAmount = nextProduct.getRecipe().getAmount(IngredientType.FLOUR);
+		billOfMaterials.put(IngredientType.FLOUR, flourAmount);
+		return reserveIngredients(billOfMaterials)
+				|| reserveIngredients(Collections.singletonMap(IngredientType.FLOUR, flourAmount));
+	}
+
+	private boolean reserveIngredients(Map<IngredientType, Integer> billOfMaterials) {
+		ITransactionalTask reserve = tx -> (reservation = service.reserveIngredients(billOfMaterials,
+				SBCConstants.RESERVATION_TTL, tx)) != null;
+		if (doTask(reserve))
+			return true;
+		// the ingredients might be held by reservations of robots which have
+		// stopped, these are put back into the storage when they are expired
+		return doTask(tx -> service.reclaimExpiredReservations(tx) > 0) && doTask(reserve);
+	}
+
+	/**
+	 * put the ingredients of a reservation, which wasn't consumed, back into
+	 * the storage
+	 */
+	private void releaseReservation() {
+		if (reservation != null && !doTask(tx -> service.releaseReservation(reservation, tx)))
+			debug("Reservation couldn't be released, it is reclaimed when it expires");
+		reservation = null;
 	}
 
 	/**
@@ -59,8 +114,12 @@ public class KneadRobot extends Robot {
 	 * @return true if dough is finished and put in bakeroom, false if exception
 	 */
 	private boolean addAddtionalIngredientsAndFinsish(ITransaction tx) {
+		if (!service.consumeReservation(reservation, tx)) {
+			debug("Reservation expired");
+			return false;
+		}
 		// If we don't have enough ingredients for finishing, put it in storage
-		if (!getAdditionalIngredients(tx)) {
+		if (!reservation.covers(nextProduct.getRecipe().getAdditionalIngredients())) {
 			debug("Not enough additional ingredients -> put dough in storage");
 			return service.putBaseDoughInStorage(nextProduct, tx);
 		}
@@ -74,39 +133,51 @@ public class KneadRobot extends Robot {
 	}
 
 	/**
-	 * get flour and water for base dough
+	 * get water for base dough. The pipe is leased and returned in
+	 * transactions of their own and used outside of any transaction, so that
+	 * the other robots only wait as long as the water runs. The ingredients are
+	 * reserved after the pipe is leased, a reservation which is made before
+	 * would expire while the robot waits for its turn.
+	 * 
+	 * @param reserve
+	 *            reserves the ingredients of the dough
+	 * @return true if the ingredients are reserved and the water is taken
 	 */
-	ITransactionalTask getBaseIngredients = tx -> {
-		int flourAmount = nextProduct.getRecipe().getAmount(IngredientType.FLOUR);
-
-		if (!service.takeFlourFromStorage(flourAmount, tx)) {
+	private boolean getWater(BooleanSupplier reserve) {
+		int waterAmount = nextProduct.getRecipe().getAmount(IngredientType.WATER);
+		ITransactionalTask lease = tx -> (waterPipe = service.leaseWaterPipe(waterAmount, tx)) != null;
+		try {
+			waterSupply.acquire(() -> doTask(lease) ? waterPipe : null);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			return false;
 		}
-		// Take water
-		long time = (long) (nextProduct.getRecipe().getAmount(IngredientType.WATER) / 500d * 2000);
-		if (!service.useWaterPipe(time, tx))
+		try {
+			if (!reserve.getAsBoolean())
+				return false;
+			SimulationClock.get().sleep(waterPipe.getUsageTime(waterAmount));
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			return false;
-		return true;
-
-	};
+		} finally {
+			if (!doTask(tx -> service.returnWaterPipe(waterPipe, tx)))
+				debug("Water pipe couldn't be returned, it is free again when the lease expires");
+			waterPipe = null;
+			waterSupply.release();
+		}
+	}
 
 	/**
-	 * make base dough and emulate working time
+	 * make base dough and emulate working time, the water is taken already
 	 */
 	ITransactionalTask tryToMakeDough = tx -> {
 		debug("Trying to make new fresh dough");
-		// Taking base ingredients is a own subtask, so that the transaction can
-		// get committed as soon as possible, to free up the water resource
-		if (!doTask(getBaseIngredients)) {
-			debug("Not enough base ingredients");
-			return false;
-		}
-
 		// Stir dough
 		sleepFor(1000, 3000);
 		// base dough is ready-> add contribution tag.
 		nextProduct.addContribution(getId(), Product.DOUGH_BASE, getClass());
-		nextProduct.setTimestamp(new Timestamp(System.currentTimeMillis()));
+		nextProduct.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
 
 		return addAddtionalIngredientsAndFinsish(tx);
 
@@ -124,28 +195,49 @@ public class KneadRobot extends Robot {
 
 	@Override
 	public void run() {
-			while (!Thread.interrupted()) {
-			if (!notificationState.get(NO_MORE_INGREDIENTS_IN_STORAGE)) {
-				ProductChooser productChooser = new ProductChooser(service, null);
-				if (productChooser.correctlyInitialized()) {
-					nextProduct = productChooser.getFinishableBaseDough();
-					if (nextProduct != null) {
-						doTask(tryToFinishExistingDough);
-					} else {
-						nextProduct = productChooser.getNextProduct();
-						if (nextProduct != null) {
-							doTask(tryToMakeDough);
-						}
-
+		while (!Thread.currentThread().isInterrupted()) {
+			long state = notificationState.snapshot();
+			boolean attempted = false;
+			boolean succeeded = false;
+			if (!isSet(state, NO_MORE_INGREDIENTS_IN_STORAGE)) {
+				attempted = true;
+				WorkItem workItem = planner.nextWorkItem();
+				if (workItem != null) {
+					nextProduct = workItem.getProduct();
+					try {
+						if (workItem.isFinishBaseDough())
+							succeeded = reserve(workItem) && doTask(tryToFinishExistingDough);
+						else
+							succeeded = getWater(() -> reserve(workItem)) && doTask(tryToMakeDough);
+					} finally {
+						if (!succeeded)
+							releaseReservation();
+						reservation = null;
+						planner.complete(workItem, succeeded);
 					}
-
 				}
 			}
+			idle(state, attempted, succeeded, NO_MORE_INGREDIENTS_IN_STORAGE);
 
 		}
 
 	}
 
+	private boolean reserve(WorkItem workItem) {
+		boolean reserved = reserveIngredients(workItem.isFinishBaseDough());
+		if (reserved)
+			planner.reserved(workItem);
+		return reserved;
+	}
+
+	/**
+	 * @return wait queue for the water pipes, which might be shared with other
+	 *         knead robots
+	 */
+	public WaterSupply getWaterSupply() {
+		return waterSupply;
+	}
+
 	private void debug(String message) {
 		System.out.println(String.format("%s %s", message,
 				nextProduct != null ? "(" + nextProduct.getId() + ", " + nextProduct.getProductName() + ")" : ""));
@@ -153,11 +245,11 @@ public class KneadRobot extends Robot {
 
 	@Override
 	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
-		if (added && object instanceof Ingredient && coordinationRoom == SBCConstants.COORDINATION_ROOM_STORAGE) {
-			notificationState.put(NO_MORE_INGREDIENTS_IN_STORAGE, false);
+		if (added && object instanceof Ingredient && SBCConstants.COORDINATION_ROOM_STORAGE.equals(coordinationRoom)) {
+			setState(NO_MORE_INGREDIENTS_IN_STORAGE, false);
 		} else if (object instanceof NotificationMessage
 				&& ((NotificationMessage) object).getMessageTyp() == NotificationMessage.NO_MORE_INGREDIENTS_IN_STORAGE) {
-			notificationState.put(NO_MORE_INGREDIENTS_IN_STORAGE, true);
+			setState(NO_MORE_INGREDIENTS_IN_STORAGE, true);
 		}
 	}
 
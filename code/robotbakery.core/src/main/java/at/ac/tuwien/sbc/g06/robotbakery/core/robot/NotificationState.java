@@ -0,0 +1,149 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.robot;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+
+/**
+ * Notification flags of a robot. The flags and a change sequence are packed
+ * in one atomic word: the lower {@link #FLAG_BITS} bits hold one flag per
+ * {@link NotificationKeys} (indexed by ordinal), the upper bits count the
+ * updates. A single read therefore gives a consistent snapshot, updates are
+ * done with compare-and-set. Waiting threads are parked and get unparked by
+ * the writer, no monitor is involved.
+ */
+public class NotificationState {
+
+	private static final int FLAG_BITS = 16;
+	private static final long FLAG_MASK = (1L << FLAG_BITS) - 1;
+	private static final long SEQUENCE_INCREMENT = 1L << FLAG_BITS;
+
+	static {
+		if (NotificationKeys.values().length > FLAG_BITS)
+			throw new IllegalStateException("Too many notification keys for the state word");
+	}
+
+	private final AtomicLong word = new AtomicLong();
+	private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @return current flags and sequence as one word
+	 */
+	public long snapshot() {
+		return word.get();
+	}
+
+	public boolean get(NotificationKeys key) {
+		return isSet(word.get(), key);
+	}
+
+	/**
+	 * update a flag. Each update increases the sequence, even if the value is
+	 * unchanged, because the event itself might allow a robot to retry its
+	 * work.
+	 *
+	 * @param key
+	 *            notification key
+	 * @param value
+	 *            new value of the flag
+	 */
+	public void set(NotificationKeys key, boolean value) {
+		long bit = bit(key);
+		long current;
+		long next;
+		do {
+			current = word.get();
+			long flags = value ? (current | bit) : (current & ~bit);
+			next = ((current & ~FLAG_MASK) + SEQUENCE_INCREMENT) | (flags & FLAG_MASK);
+		} while (!word.compareAndSet(current, next));
+		wakeUpWaiters();
+	}
+
+	/**
+	 * set all flags of the given map, used for the initial state of a robot
+	 *
+	 * @param state
+	 *            map of flags
+	 */
+	public void setAll(Map<NotificationKeys, Boolean> state) {
+		if (state != null)
+			state.forEach((key, value) -> set(key, value != null && value));
+	}
+
+	/**
+	 * park until any update happened after the given snapshot
+	 *
+	 * @param snapshot
+	 *            last seen snapshot
+	 * @param timeout
+	 *            maximum waiting time in milliseconds
+	 * @return true if the state was updated, false on timeout or interrupt
+	 */
+	public boolean awaitUpdate(long snapshot, long timeout) {
+		return await(snapshot, ~0L, timeout);
+	}
+
+	/**
+	 * park until one of the given flags differs from the given snapshot
+	 *
+	 * @param snapshot
+	 *            last seen snapshot
+	 * @param keys
+	 *            flags to observe
+	 * @param timeout
+	 *            maximum waiting time in milliseconds
+	 * @return true if one of the flags changed, false on timeout or interrupt
+	 */
+	public boolean awaitChange(long snapshot, long timeout, NotificationKeys... keys) {
+		long mask = 0;
+		for (NotificationKeys key : keys)
+			mask |= bit(key);
+		return await(snapshot, mask, timeout);
+	}
+
+	public static boolean isSet(long snapshot, NotificationKeys key) {
+		return (snapshot & bit(key)) != 0;
+	}
+
+	public static long sequence(long snapshot) {
+		return snapshot >>> FLAG_BITS;
+	}
+
+	private boolean await(long snapshot, long mask, long timeout) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		Thread current = Thread.currentThread();
+		waiters.add(current);
+		try {
+			while (!changed(snapshot, mask)) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0 || current.isInterrupted())
+					return false;
+				LockSupport.parkNanos(this, remaining);
+			}
+			return true;
+		} finally {
+			waiters.remove(current);
+		}
+	}
+
+	private boolean changed(long snapshot, long mask) {
+		long current = word.get();
+		// a full mask compares the sequence as well
+		return ((current ^ snapshot) & mask) != 0;
+	}
+
+	private void wakeUpWaiters() {
+		for (Thread waiter : waiters)
+			LockSupport.unpark(waiter);
+	}
+
+	private static long bit(NotificationKeys key) {
+		return 1L << key.ordinal();
+	}
+
+}
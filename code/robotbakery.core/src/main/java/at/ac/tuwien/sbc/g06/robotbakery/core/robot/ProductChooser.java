@@ -5,11 +5,10 @@ import java.util.Map;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
-import at.ac.tuwien.sbc.g06.robotbakery.core.service.IKneadRobotService;
-import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.CollectionsUtil;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.RecipeRegistry;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
@@ -21,12 +20,30 @@ public class ProductChooser {
 	private List<Product> baseDoughCandidates;
 	private Map<String, Integer> counterStock;
 	private Map<IngredientType, Integer> ingredientStock;
+	private int flourUnits;
 
-	public ProductChooser(IKneadRobotService kneadRobotService, ITransaction tx) {
-		baseDoughCandidates = kneadRobotService.checkBaseDoughsInStorage();
-		counterStock = CollectionsUtil.sortMapByValues(kneadRobotService.getCounterStock(), true);
-		ingredientStock = CollectionsUtil.sortMapByValues(kneadRobotService.getIngredientStock(), false);
+	/**
+	 * creates a chooser for the current stock, which is read from the
+	 * materialized view instead of the middleware
+	 * 
+	 * @param stockView
+	 *            view of the storage and counter stock
+	 */
+	public ProductChooser(StockView stockView) {
+		this(stockView.getBaseDoughs(), stockView.getCounterStock(), stockView.getIngredientStock(),
+				stockView.getFlourUnits());
+	}
 
+	/**
+	 * creates a chooser for a stock which is not reserved by the production
+	 * planner yet
+	 */
+	ProductChooser(List<Product> baseDoughs, Map<String, Integer> counterStock,
+			Map<IngredientType, Integer> ingredientStock, int flourUnits) {
+		this.baseDoughCandidates = baseDoughs;
+		this.counterStock = CollectionsUtil.sortMapByValues(counterStock, true);
+		this.ingredientStock = CollectionsUtil.sortMapByValues(ingredientStock, false);
+		this.flourUnits = flourUnits;
 	}
 
 	public boolean correctlyInitialized() {
@@ -88,14 +105,12 @@ public class ProductChooser {
 	}
 
 	private boolean notEnoughInStock(Recipe r, IngredientType type, Integer amount) {
-		if (type == IngredientType.FLOUR)
-			return r.getAmount(type) <= amount * SBCConstants.FLOUR_PACK_SIZE;
 		return r.getAmount(type) <= amount;
 
 	}
 
 	public Product getNextBaseDoughForStorage() {
-		Recipe candiate = getSuitableRecipe(IngredientType.FLOUR, ingredientStock.get(IngredientType.FLOUR), true);
+		Recipe candiate = getSuitableRecipe(IngredientType.FLOUR, flourUnits, true);
 		if (candiate != null)
 			return new Product(candiate);
 		return null;
@@ -109,8 +124,7 @@ public class ProductChooser {
 	}
 
 	private boolean enoughIngredientsToFinishBaseDough(Recipe recipe) {
-		return recipe.getAmount(IngredientType.FLOUR) <= ingredientStock.get(IngredientType.FLOUR)
-				* SBCConstants.FLOUR_PACK_SIZE;
+		return recipe.getAmount(IngredientType.FLOUR) <= flourUnits;
 	}
 
 	private boolean enoughAddtionaIngredientsToFinish(Recipe recipe) {
@@ -121,7 +135,7 @@ public class ProductChooser {
 
 	private List<Recipe> getRecipesSortedByDiff(Map<String, Integer> stock, int median) {
 		return stock.keySet().stream()
-				.sorted((i, j) -> diff(stock.get(i), median).compareTo(diff(stock.get(i), median)))
+				.sorted((i, j) -> diff(stock.get(j), median).compareTo(diff(stock.get(i), median)))
 				.map(productName -> RecipeRegistry.getInstance().getRecipeByName(productName))
 				.collect(Collectors.toList());
 
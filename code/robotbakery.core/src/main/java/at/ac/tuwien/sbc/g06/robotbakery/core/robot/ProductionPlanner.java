@@ -0,0 +1,264 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.robot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.RecipeRegistry;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+/**
+ * Production planner of the knead robots which share a stock view. The planner
+ * computes a schedule of work items over a horizon and hands them out one by
+ * one, so that the knead robots don't compete for the same base doughs and
+ * ingredients.
+ * <p>
+ * The demand of a product is its deficit in the counter plus the amount in the
+ * pending orders, reduced by the products which are in the bakeroom, finished
+ * in the storage or handed out already. Products with the same bake time are
+ * planned one after another up to the oven batch size, ties are broken by the
+ * time the product needs the water pipe. If nothing is demanded, the product
+ * chooser heuristic fills the storage. The ingredients and base doughs of
+ * handed out work items are reserved in the plan until the robot has reserved
+ * the ingredients in the storage, they are not in the stock view anymore then.
+ */
+public class ProductionPlanner {
+
+	private final StockView stockView;
+	private final int horizon;
+	private final Deque<WorkItem> plan = new ArrayDeque<>();
+	private final Set<WorkItem> handedOut = new HashSet<>();
+	private long plannedAt;
+
+	public ProductionPlanner(StockView stockView) {
+		this(stockView, SBCConstants.PLANNER_HORIZON);
+	}
+
+	/**
+	 * @param stockView
+	 *            view of the stock the plan is computed from
+	 * @param horizon
+	 *            maximum number of work items which are planned in advance
+	 */
+	public ProductionPlanner(StockView stockView, int horizon) {
+		this.stockView = stockView;
+		this.horizon = horizon;
+	}
+
+	/**
+	 * hands out the next work item of the plan, the plan is computed again if
+	 * it is empty or older than {@link SBCConstants#PLANNER_REPLAN_INTERVAL}
+	 *
+	 * @return next work item or null if there is nothing to do with the
+	 *         ingredients in the storage
+	 */
+	public synchronized WorkItem nextWorkItem() {
+		if (plan.isEmpty()
+				|| SimulationClock.get().currentTimeMillis() - plannedAt >= SBCConstants.PLANNER_REPLAN_INTERVAL)
+			replan();
+		WorkItem item = plan.pollFirst();
+		if (item != null)
+			handedOut.add(item);
+		return item;
+	}
+
+	/**
+	 * marks the ingredients of a work item as reserved in the storage, so
+	 * they are not subtracted from the stock view again when the plan is
+	 * computed
+	 *
+	 * @param item
+	 *            work item which was handed out by this planner
+	 */
+	public synchronized void reserved(WorkItem item) {
+		item.ingredientsReserved = true;
+	}
+
+	/**
+	 * releases the reservations of a work item
+	 *
+	 * @param item
+	 *            work item which was handed out by this planner
+	 * @param succeeded
+	 *            false if the robot couldn't finish the item, the rest of the
+	 *            plan is dropped then, because the stock differs from the plan
+	 */
+	public synchronized void complete(WorkItem item, boolean succeeded) {
+		handedOut.remove(item);
+		if (!succeeded)
+			plan.clear();
+	}
+
+	private void replan() {
+		plan.clear();
+		plannedAt = SimulationClock.get().currentTimeMillis();
+		Budget budget = new Budget(stockView);
+		Map<String, Integer> demand = getDemand();
+		for (WorkItem item : handedOut) {
+			budget.reserve(item);
+			demand.merge(item.getProduct().getProductName(), -1, Integer::sum);
+		}
+
+		int batchBakeTime = -1;
+		int batchSize = 0;
+		while (plan.size() < horizon) {
+			WorkItem item = planForDemand(budget, demand, batchBakeTime);
+			if (item == null)
+				item = planForStorage(budget, demand);
+			if (item == null)
+				break;
+			budget.reserve(item);
+			demand.merge(item.getProduct().getProductName(), -1, Integer::sum);
+			plan.add(item);
+
+			int bakeTime = item.getProduct().getRecipe().getBakeTime();
+			batchSize = bakeTime == batchBakeTime ? batchSize + 1 : 1;
+			batchBakeTime = batchSize < SBCConstants.BAKE_SIZE ? bakeTime : -1;
+		}
+	}
+
+	/**
+	 * plans the most demanded product, which can be made with the budget.
+	 * Products of the current oven batch come first, existing base doughs are
+	 * finished before new doughs are made.
+	 */
+	private WorkItem planForDemand(Budget budget, Map<String, Integer> demand, int batchBakeTime) {
+		Comparator<Recipe> order = Comparator.comparing((Recipe r) -> r.getBakeTime() != batchBakeTime)
+				.thenComparing(r -> demand.get(r.getProductName()), Comparator.reverseOrder())
+				.thenComparing(r -> r.getAmount(IngredientType.WATER));
+		List<Recipe> recipes = RecipeRegistry.getInstance().getAllRecipes().stream()
+				.filter(r -> demand.getOrDefault(r.getProductName(), 0) > 0).sorted(order)
+				.collect(Collectors.toList());
+		for (Recipe recipe : recipes) {
+			Product baseDough = budget.doughs.stream()
+					.filter(d -> d.getProductName().equals(recipe.getProductName()) && budget.canFinish(recipe))
+					.findFirst().orElse(null);
+			if (baseDough != null)
+				return new WorkItem(baseDough, true);
+			if (budget.canMake(recipe))
+				return new WorkItem(new Product(recipe), false);
+		}
+		return null;
+	}
+
+	/**
+	 * falls back to the product chooser heuristic if no demanded product can
+	 * be made
+	 */
+	private WorkItem planForStorage(Budget budget, Map<String, Integer> demand) {
+		Map<String, Integer> counterStock = new HashMap<>();
+		demand.forEach((name, amount) -> counterStock.put(name, SBCConstants.COUNTER_MAX_CAPACITY - amount));
+		ProductChooser productChooser = new ProductChooser(budget.doughs, counterStock, budget.ingredients,
+				budget.flourUnits);
+		Product baseDough = productChooser.getFinishableBaseDough();
+		if (baseDough != null)
+			return new WorkItem(baseDough, true);
+		Product product = productChooser.getNextProduct();
+		return product == null ? null : new WorkItem(product, false);
+	}
+
+	private Map<String, Integer> getDemand() {
+		Map<String, Integer> counterStock = stockView.getCounterStock();
+		Map<String, Integer> orderDemand = stockView.getPendingOrderDemand();
+		Map<String, Integer> demand = new HashMap<>();
+		for (String productName : SBCConstants.PRODUCTS_NAMES) {
+			int supply = counterStock.getOrDefault(productName, 0)
+					+ stockView.getProductCount(SBCConstants.COORDINATION_ROOM_STORAGE, productName,
+							BakeState.FINALPRODUCT);
+			for (BakeState state : BakeState.values())
+				supply += stockView.getProductCount(SBCConstants.COORDINATION_ROOM_BAKEROOM, productName, state);
+			demand.put(productName,
+					SBCConstants.COUNTER_MAX_CAPACITY - supply + orderDemand.getOrDefault(productName, 0));
+		}
+		return demand;
+	}
+
+	/**
+	 * ingredients and base doughs which are not reserved by the plan or by
+	 * handed out work items
+	 */
+	private static class Budget {
+		private final List<Product> doughs;
+		private final Map<IngredientType, Integer> ingredients;
+		private int flourUnits;
+
+		private Budget(StockView stockView) {
+			doughs = new ArrayList<>(stockView.getBaseDoughs());
+			ingredients = new EnumMap<>(stockView.getIngredientStock());
+			flourUnits = stockView.getFlourUnits();
+		}
+
+		private boolean canMake(Recipe recipe) {
+			return recipe.getAmount(IngredientType.FLOUR) <= flourUnits && canFinish(recipe);
+		}
+
+		private boolean canFinish(Recipe recipe) {
+			return recipe.getAdditionalIngredients().stream()
+					.allMatch(e -> ingredients.getOrDefault(e.getKey(), 0) >= e.getValue());
+		}
+
+		private void reserve(WorkItem item) {
+			Product product = item.getProduct();
+			Recipe recipe = product.getRecipe();
+			if (item.isFinishBaseDough())
+				doughs.removeIf(d -> d.getId().equals(product.getId()));
+			// reserved ingredients have been taken from the storage already
+			if (item.ingredientsReserved)
+				return;
+			if (!item.isFinishBaseDough())
+				flourUnits -= recipe.getAmount(IngredientType.FLOUR);
+			for (Entry<IngredientType, Integer> entry : recipe.getAdditionalIngredients())
+				ingredients.merge(entry.getKey(), -entry.getValue(), Integer::sum);
+		}
+	}
+
+	/**
+	 * product which a knead robot should make next
+	 */
+	public static class WorkItem {
+		private final Product product;
+		private final boolean finishBaseDough;
+		private boolean ingredientsReserved;
+
+		private WorkItem(Product product, boolean finishBaseDough) {
+			this.product = product;
+			this.finishBaseDough = finishBaseDough;
+		}
+
+		/**
+		 * @return base dough from the storage or a new product
+		 */
+		public Product getProduct() {
+			return product;
+		}
+
+		/**
+		 * @return true if the product is a base dough in the storage, which has
+		 *         to be finished
+		 */
+		public boolean isFinishBaseDough() {
+			return finishBaseDough;
+		}
+
+		@Override
+		public String toString() {
+			return "WorkItem [product=" + product.getProductName() + ", finishBaseDough=" + finishBaseDough + "]";
+		}
+	}
+
+}
@@ -1,15 +1,17 @@
 package at.ac.tuwien.sbc.g06.robotbakery.core.robot;
 
-import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
 import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
 import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.ChangeNotifer;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransactionManager;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransactionalTask;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
 
 /**
  * Abstract class for robots
@@ -18,10 +20,12 @@ public abstract class Robot implements Runnable,IChangeListener {
 
 	private final UUID id;
 	private ITransactionManager transactionManager;
-	protected Map<String,Boolean> notificationState;
+	private ChangeNotifer changeNotifer;
+	protected final NotificationState notificationState = new NotificationState();
 	public Robot(ITransactionManager transactionManager, ChangeNotifer changeNotifer,String id) {
 		if(id != null) this.id = UUID.fromString(id);
 		else this.id = UUID.randomUUID();
+		this.changeNotifer = changeNotifer;
 		changeNotifer.registerChangeListener(this);
 		this.transactionManager = transactionManager;
 		
@@ -33,9 +37,10 @@ public abstract class Robot implements Runnable,IChangeListener {
 	 */
 	protected void sleepFor(long millis) {
 		try {
-			Thread.sleep(millis);
+			SimulationClock.get().sleep(millis);
 		} catch (InterruptedException e) {
-			// ignore InterrupedException for now
+			// keep the flag, so that the run loop can terminate
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -46,9 +51,81 @@ public abstract class Robot implements Runnable,IChangeListener {
 	 */
 	protected void sleepFor(long min, long max) {
 		try {
-			Thread.sleep(ThreadLocalRandom.current().nextLong(min, max));
+			SimulationClock.get().sleep(ThreadLocalRandom.current().nextLong(min, max));
 		} catch (InterruptedException e) {
-			// ignore InterrupedException for now
+			// keep the flag, so that the run loop can terminate
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * update a notification flag and wake up the robot if it is parked
+	 * @param key notification key
+	 * @param value new value of the flag
+	 */
+	protected void setState(NotificationKeys key, boolean value) {
+		notificationState.set(key, value);
+	}
+
+	/**
+	 * read a single notification flag
+	 * @param key notification key
+	 * @return current value of the flag
+	 */
+	protected boolean getState(NotificationKeys key) {
+		return notificationState.get(key);
+	}
+
+	/**
+	 * read a flag of a snapshot taken with notificationState.snapshot()
+	 * @param snapshot snapshot of the notification state
+	 * @param key notification key
+	 * @return value of the flag in the snapshot
+	 */
+	protected static boolean isSet(long snapshot, NotificationKeys key) {
+		return NotificationState.isSet(snapshot, key);
+	}
+
+	/**
+	 * park the robot until the notification state is updated after the given
+	 * snapshot or the timeout is reached. Has to be called with a snapshot taken
+	 * before the flags were checked, so that no update in between gets lost.
+	 * @param snapshot last seen snapshot of the notification state
+	 * @param timeout maximum waiting time in milliseconds
+	 * @return true if the state was updated, false on timeout or interrupt
+	 */
+	protected boolean awaitStateChange(long snapshot, long timeout) {
+		SimulationClock clock = SimulationClock.get();
+		clock.beginIdle();
+		try {
+			return notificationState.awaitUpdate(snapshot, clock.toRealTime(timeout));
+		} finally {
+			clock.endIdle();
+		}
+	}
+
+	/**
+	 * park the robot at the end of a run loop iteration. If nothing was done, because
+	 * no flag allowed it, the robot waits until one of its guard flags changes. If work
+	 * was allowed but nothing could be committed, it backs off for a short time or until
+	 * the next notification, so that the space/broker is not polled in a tight loop.
+	 * @param snapshot snapshot taken at the start of the iteration
+	 * @param attempted true if at least one task was attempted
+	 * @param succeeded true if at least one task was committed
+	 * @param guards flags which decide whether the robot has work
+	 */
+	protected void idle(long snapshot, boolean attempted, boolean succeeded, NotificationKeys... guards) {
+		if (succeeded)
+			return;
+		SimulationClock clock = SimulationClock.get();
+		clock.beginIdle();
+		try {
+			if (attempted)
+				notificationState.awaitUpdate(snapshot, clock.toRealTime(SBCConstants.ROBOT_RETRY_BACKOFF));
+			else
+				notificationState.awaitChange(snapshot, clock.toRealTime(SBCConstants.ROBOT_IDLE_TIMEOUT), guards);
+		} finally {
+			clock.endIdle();
 		}
 	}
 
@@ -56,16 +133,24 @@ public abstract class Robot implements Runnable,IChangeListener {
 		return id;
 	}
 
+	/**
+	 * unregister the robot from its change notifier, has to be called when the
+	 * robot is stopped while the notifier keeps running
+	 */
+	public void detach() {
+		changeNotifer.removeChangeListener(this);
+	}
+
 	/**
 	 * commit or rollback transaction
 	 * @param task transactional task
-	 * @return true for commit and false for rollback
+	 * @return true for commit and false for rollback or a failed commit
 	 */
 	protected boolean doTask(ITransactionalTask task) {
 		ITransaction transaction = transactionManager.createTransaction();
 		if (task.execute(transaction)) {
-			transactionManager.commitTransaction(transaction);
-			return true;
+			// the commit fails on a conflict with another transaction
+			return transactionManager.commitTransaction(transaction);
 		} else {
 			transactionManager.rollback(transaction);
 			return false;
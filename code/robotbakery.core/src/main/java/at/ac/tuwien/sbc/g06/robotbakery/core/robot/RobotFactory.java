@@ -0,0 +1,40 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.robot;
+
+/**
+ * Creates robots of a given type for one middleware implementation. The
+ * factory owns the shared middleware resources (core/connection), so that all
+ * robots created by it can run in the same process.
+ */
+public interface RobotFactory {
+
+	public static final String TYPE_SERVICE = "service";
+	public static final String TYPE_KNEAD = "knead";
+	public static final String TYPE_BAKE = "bake";
+	public static final String TYPE_DELIVER = "deliver";
+
+	/**
+	 * create a new robot
+	 *
+	 * @param type
+	 *            robot type (service|knead|bake|deliver)
+	 * @param id
+	 *            id of the robot, random id is used if null
+	 * @return the new robot
+	 * @throws IllegalArgumentException
+	 *             if the type is unknown
+	 */
+	Robot createRobot(String type, String id);
+
+	/**
+	 * free the resources which are used only by this robot (e.g. its session)
+	 *
+	 * @param robot
+	 *            robot which has been stopped
+	 */
+	void releaseRobot(Robot robot);
+
+	/**
+	 * free the shared resources, is called when the host is shut down
+	 */
+	void close();
+}
@@ -0,0 +1,223 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.robot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+
+/**
+ * Runs multiple robots of mixed types in one process. All robots share the
+ * middleware resources of the given factory and are executed on one executor,
+ * which uses virtual threads if the JDK supports them. Robots can be added and
+ * removed while the host is running.
+ */
+public class RobotHost {
+	private static Logger logger = LoggerFactory.getLogger(RobotHost.class);
+	private static final long SHUTDOWN_TIMEOUT = 10000L;
+
+	private final RobotFactory factory;
+	private final ExecutorService executor;
+	private final Map<UUID, RobotTask> tasks = new ConcurrentHashMap<>();
+
+	public RobotHost(RobotFactory factory) {
+		this(factory, createExecutor());
+	}
+
+	public RobotHost(RobotFactory factory, ExecutorService executor) {
+		this.factory = factory;
+		this.executor = executor;
+	}
+
+	/**
+	 * create a robot and start it on the shared executor
+	 *
+	 * @param type
+	 *            robot type (service|knead|bake|deliver)
+	 * @param id
+	 *            id of the robot, random id is used if null
+	 * @return the started robot
+	 */
+	public Robot addRobot(String type, String id) {
+		Robot robot = factory.createRobot(type, id);
+		RobotTask task = new RobotTask(robot);
+		if (tasks.putIfAbsent(robot.getId(), task) != null) {
+			robot.detach();
+			factory.releaseRobot(robot);
+			throw new IllegalArgumentException("Robot with id " + robot.getId() + " is already running");
+		}
+		task.future = executor.submit(task);
+		System.out.println(String.format("Starting robot of type \"%s\" with id \"%s\"",
+				robot.getClass().getSimpleName(), robot.getId()));
+		return robot;
+	}
+
+	/**
+	 * add robots from startup arguments of the form TYPE[:COUNT], e.g.
+	 * "service:2 knead:4 bake deliver"
+	 *
+	 * @param args
+	 *            startup arguments
+	 */
+	public void addRobots(String... args) {
+		for (String arg : args) {
+			String[] split = arg.split(":");
+			int count = split.length > 1 ? Integer.parseInt(split[1]) : 1;
+			for (int i = 0; i < count; i++)
+				addRobot(split[0], null);
+		}
+	}
+
+	/**
+	 * stop a robot and release the resources it used exclusively
+	 *
+	 * @param id
+	 *            id of the robot
+	 * @return true if the robot was running
+	 */
+	public boolean removeRobot(UUID id) {
+		RobotTask task = tasks.get(id);
+		if (task == null)
+			return false;
+		// A task which has not been started yet is released here, a running
+		// task releases its resources when its run loop terminates
+		if (task.started.compareAndSet(false, true))
+			release(task);
+		if (task.future != null)
+			task.future.cancel(true);
+		System.out.println(String.format("Stopping robot with id \"%s\"", id));
+		return true;
+	}
+
+	public Collection<Robot> getRobots() {
+		List<Robot> robots = new ArrayList<>();
+		tasks.values().forEach(t -> robots.add(t.robot));
+		return robots;
+	}
+
+	/**
+	 * stop all robots and free the shared resources
+	 */
+	public void shutdown() {
+		Set<WaterSupply> waterSupplies = new HashSet<>();
+		getRobots().stream().filter(r -> r instanceof KneadRobot)
+				.forEach(r -> waterSupplies.add(((KneadRobot) r).getWaterSupply()));
+		new ArrayList<>(tasks.keySet()).forEach(this::removeRobot);
+		executor.shutdownNow();
+		try {
+			// robots finish their current task before the shared resources are closed
+			executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		waterSupplies.forEach(waterSupply -> logger.info(waterSupply.toString()));
+		factory.close();
+	}
+
+	/**
+	 * simple command interface to manage the robots at runtime. Supported
+	 * commands: add TYPE [ID], remove ID, list, exit. Returns on exit or end of
+	 * the stream and shuts the host down.
+	 *
+	 * @param in
+	 *            input stream to read the commands from
+	 */
+	public void runConsole(InputStream in) throws IOException {
+		System.out.println("Commands: add TYPE (service|knead|bake|deliver) (ID), remove ID, list, exit");
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] command = line.trim().split("\\s+");
+			try {
+				if (command[0].equals("add") && command.length > 1) {
+					addRobot(command[1], command.length > 2 ? command[2] : null);
+				} else if (command[0].equals("remove") && command.length > 1) {
+					if (!removeRobot(UUID.fromString(command[1])))
+						System.out.println("No robot with id " + command[1]);
+				} else if (command[0].equals("list")) {
+					getRobots().forEach(r -> System.out.println(r.getClass().getSimpleName() + " " + r.getId()));
+				} else if (command[0].equals("exit")) {
+					break;
+				} else if (!command[0].isEmpty()) {
+					System.out.println("Unknown command: " + line);
+				}
+			} catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+			}
+		}
+		shutdown();
+	}
+
+	private void release(RobotTask task) {
+		if (tasks.remove(task.robot.getId(), task)) {
+			task.robot.detach();
+			factory.releaseRobot(task.robot);
+		}
+	}
+
+	/**
+	 * creates an executor which runs each robot on its own virtual thread. The
+	 * project is compiled for Java 8, so the factory method is looked up by
+	 * reflection, on older JDKs a cached pool of daemon threads is used.
+	 *
+	 * @return executor for robots
+	 */
+	public static ExecutorService createExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			AtomicInteger counter = new AtomicInteger();
+			return Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, "robot-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	private class RobotTask implements Runnable {
+		private final Robot robot;
+		private final AtomicBoolean started = new AtomicBoolean(false);
+		private volatile Future<?> future;
+
+		private RobotTask(Robot robot) {
+			this.robot = robot;
+		}
+
+		@Override
+		public void run() {
+			if (!started.compareAndSet(false, true))
+				return;
+			SimulationClock.get().register();
+			try {
+				robot.run();
+			} catch (RuntimeException e) {
+				logger.error(e.getMessage());
+			} finally {
+				SimulationClock.get().unregister();
+				release(this);
+			}
+		}
+	}
+
+}
@@ -8,10 +8,11 @@ import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.Notificati
 import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.NO_MORE_PRODUCTS_IN_STORAGE;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
@@ -40,22 +41,32 @@ public class ServiceRobot extends Robot implements IChangeListener {
 			ITransactionManager transactionManager, String id) {
 		super(transactionManager, changeNotifer, id);
 		this.service = service;
-		notificationState = service.getInitialState();
+		notificationState.setAll(service.getInitialState());
 
 	};
 
 	@Override
 	public void run() {
-		while (!Thread.interrupted()) {
-			if (!notificationState.get(NO_MORE_PRODUCTS_IN_STORAGE) && !notificationState.get(IS_COUNTER_FULL))
-				doTask(getProductFromStorage);
+		while (!Thread.currentThread().isInterrupted()) {
+			long state = notificationState.snapshot();
+			boolean attempted = false;
+			boolean succeeded = false;
+			if (!isSet(state, NO_MORE_PRODUCTS_IN_STORAGE) && !isSet(state, IS_COUNTER_FULL)) {
+				attempted = true;
+				succeeded |= doTask(getProductFromStorage);
+			}
 
-			if (!notificationState.get(IS_COUNTER_EMPTY) && notificationState.get(IS_ORDER_AVAILABLE))
-				doTask(processNextOrder);
+			if (!isSet(state, IS_COUNTER_EMPTY) && isSet(state, IS_ORDER_AVAILABLE)) {
+				attempted = true;
+				succeeded |= doTask(processNextOrder);
+			}
 
-			if (!notificationState.get(NO_MORE_PRODUCTS_IN_STORAGE) && !notificationState.get(IS_PREPACKAGE_LIMIT)) {
-				doTask(prepackProducts);
+			if (!isSet(state, NO_MORE_PRODUCTS_IN_STORAGE) && !isSet(state, IS_PREPACKAGE_LIMIT)) {
+				attempted = true;
+				succeeded |= doTask(prepackProducts);
 			}
+			idle(state, attempted, succeeded, NO_MORE_PRODUCTS_IN_STORAGE, IS_COUNTER_FULL, IS_COUNTER_EMPTY,
+					IS_ORDER_AVAILABLE, IS_PREPACKAGE_LIMIT);
 
 		}
 
@@ -73,13 +84,13 @@ public class ServiceRobot extends Robot implements IChangeListener {
 		PackedOrder packedOrder = new PackedOrder(currentOrder);
 		packedOrder.setState(OrderState.PACKED);
 		packedOrder.setServiceRobotId(getId());
-		for (Item item : currentOrder.getItemsMap().values()) {
-			List<Product> temp = service.getProductsFromCounter(item.getProductName(), item.getAmount(), tx);
-			if (temp != null && temp.size() == item.getAmount())
-				packedOrder.addAll(temp);
-			else
-				return false;
-		}
+		Map<String, Integer> amounts = new HashMap<>();
+		for (Item item : currentOrder.getItemsMap().values())
+			amounts.put(item.getProductName(), item.getAmount());
+		List<Product> products = service.getProductsFromCounter(amounts, tx);
+		if (products == null)
+			return false;
+		packedOrder.addAll(products);
 
 		// simulate packing duration
 		sleepFor(1000, 3000);
@@ -98,8 +109,14 @@ public class ServiceRobot extends Robot implements IChangeListener {
 	 * @return true if there enough products in stock
 	 */
 	private boolean waitForEnoughProducts() {
+		long state = notificationState.snapshot();
 		Map<String, Integer> counterStock = service.getCounterStock();
 		while (!enoughProducts(counterStock)) {
+			if (Thread.currentThread().isInterrupted())
+				return false;
+			// wait for a change in the counter instead of polling it continuously
+			awaitStateChange(state, SBCConstants.ROBOT_RETRY_BACKOFF);
+			state = notificationState.snapshot();
 			counterStock = service.getCounterStock();
 		}
 		return true;
@@ -122,11 +139,11 @@ public class ServiceRobot extends Robot implements IChangeListener {
 	ITransactionalTask processNextOrder = tx -> {
 		currentOrder = service.getNextOrder(tx);
 		if (currentOrder == null
-				|| (notificationState.get(IS_ORDER_PROCESSING_LOCKED) && !currentOrder.isHighPriority())) {
+				|| (getState(IS_ORDER_PROCESSING_LOCKED) && !currentOrder.isHighPriority())) {
 			return false;
 		}
 		if (currentOrder.isDelivery()) {
-			boolean maxWaitReached = System.currentTimeMillis()
+			boolean maxWaitReached = SimulationClock.get().currentTimeMillis()
 					- currentOrder.getTimestamp().getTime() >= SBCConstants.DELIVERY_MAX_WAIT;
 			currentOrder.setHighPriority(maxWaitReached);
 
@@ -166,25 +183,14 @@ public class ServiceRobot extends Robot implements IChangeListener {
 			return false;
 		missingProducts = CollectionsUtil.sortMapByValues(missingProducts, false);
 
-		List<Product> productsForCounter = new ArrayList<>();
-
-		missingProducts.forEach((s, i) -> {
-			List<Product> temp = service.getProductsFromStorage(s, i, tx);
-			if (temp != null && !temp.isEmpty())
-				productsForCounter.addAll(temp);
-		});
-
-		if (productsForCounter.isEmpty()) {
+		List<Product> productsForCounter = service.getProductsFromStorage(missingProducts, tx);
+		if (productsForCounter == null || productsForCounter.isEmpty()) {
 			return false;
 		}
 
 		System.out.println("Stocking up the counter");
-		for (Product product : productsForCounter) {
-			product.addContribution(getId(), Product.TRANSFER_TO_COUNTER, getClass());
-			if (!service.addToCounter(product, tx))
-				return false;
-		}
-		return true;
+		productsForCounter.forEach(p -> p.addContribution(getId(), Product.TRANSFER_TO_COUNTER, getClass()));
+		return service.addToCounter(productsForCounter, tx);
 	};
 
 	/**
@@ -209,44 +215,44 @@ public class ServiceRobot extends Robot implements IChangeListener {
 	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
 		if (added && object instanceof Product) {
 			if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_STORAGE)) {
-				notificationState.put(NO_MORE_PRODUCTS_IN_STORAGE, false);
+				setState(NO_MORE_PRODUCTS_IN_STORAGE, false);
 			} else if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_COUNTER)) {
-				notificationState.put(IS_COUNTER_EMPTY, false);
-				notificationState.put(IS_COUNTER_FULL, false);
+				setState(IS_COUNTER_EMPTY, false);
+				setState(IS_COUNTER_FULL, false);
 			}
 		} else if (added && object instanceof Order) {
 			if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_COUNTER)
 					&& ((Order) object).getState() == OrderState.ORDERED) {
-				notificationState.put(IS_ORDER_AVAILABLE, true);
+				setState(IS_ORDER_AVAILABLE, true);
 			}
 		} else if (!added && object instanceof Prepackage) {
-			notificationState.put(IS_PREPACKAGE_LIMIT, false);
+			setState(IS_PREPACKAGE_LIMIT, false);
 		} else if (!added && object instanceof Product) {
 			if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_COUNTER)) {
-				notificationState.put(IS_COUNTER_FULL, false);
+				setState(IS_COUNTER_FULL, false);
 			}
 		} else if (added && object instanceof NotificationMessage) {
 			NotificationMessage message = (NotificationMessage) object;
 
 			switch (message.getMessageTyp()) {
 			case NotificationMessage.NO_MORE_PRODUCTS_IN_COUNTER:
-				notificationState.put(IS_COUNTER_EMPTY, true);
+				setState(IS_COUNTER_EMPTY, true);
 				break;
 			case NotificationMessage.NO_MORE_PRODUCTS_IN_STORAGE:
-				notificationState.put(NO_MORE_PRODUCTS_IN_STORAGE, true);
+				setState(NO_MORE_PRODUCTS_IN_STORAGE, true);
 				break;
 			case NotificationMessage.ORDER_PROCESSING_LOCKED:
-				notificationState.put(IS_ORDER_PROCESSING_LOCKED, true);
+				setState(IS_ORDER_PROCESSING_LOCKED, true);
 				break;
 			case NotificationMessage.ORDER_PROCESSING_FREE:
-				notificationState.put(IS_ORDER_PROCESSING_LOCKED, false);
+				setState(IS_ORDER_PROCESSING_LOCKED, false);
 				break;
 			case NotificationMessage.NO_MORE_ORDERS:
-				notificationState.put(IS_ORDER_AVAILABLE, false);
+				setState(IS_ORDER_AVAILABLE, false);
 			case NotificationMessage.PREPACKAGE_LIMIT_REACHED:
-				notificationState.put(IS_PREPACKAGE_LIMIT, true);
+				setState(IS_PREPACKAGE_LIMIT, true);
 			case NotificationMessage.COUNTER_STOCK_FULL:
-				notificationState.put(IS_COUNTER_FULL, true);
+				setState(IS_COUNTER_FULL, true);
 			default:
 				break;
 			}
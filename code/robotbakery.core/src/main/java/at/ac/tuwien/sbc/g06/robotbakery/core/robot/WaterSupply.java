@@ -0,0 +1,127 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.robot;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+/**
+ * Wait queue of the knead robots of a host for the water pipes. The robots get
+ * their turn in FIFO order, only as many robots as there are pipes try to
+ * lease a pipe at the same time. A robot which has its turn but doesn't get a
+ * pipe, because it is leased by a robot of another host, tries again after
+ * {@link SBCConstants#WATER_PIPE_POLL_INTERVAL}. The waiting times are
+ * recorded in simulation time.
+ */
+public class WaterSupply {
+
+	private final Semaphore turns;
+	private final AtomicLong waits = new AtomicLong();
+	private final AtomicLong totalWaitTime = new AtomicLong();
+	private final AtomicLong maxWaitTime = new AtomicLong();
+
+	public WaterSupply() {
+		this(WaterPipe.getConfiguredPipes().size());
+	}
+
+	/**
+	 * @param pipes
+	 *            number of water pipes in the storage
+	 */
+	public WaterSupply(int pipes) {
+		this.turns = new Semaphore(pipes, true);
+	}
+
+	/**
+	 * wait for the turn of the calling robot and lease a pipe, the pipe has to
+	 * be given back with {@link #release()} after it was returned to the
+	 * storage
+	 *
+	 * @param lessor
+	 *            leases a free pipe in the storage, returns null if no pipe is
+	 *            free
+	 * @return leased water pipe
+	 * @throws InterruptedException
+	 *             if the robot is stopped while waiting
+	 */
+	public WaterPipe acquire(Supplier<WaterPipe> lessor) throws InterruptedException {
+		SimulationClock clock = SimulationClock.get();
+		long start = clock.currentTimeMillis();
+		clock.beginIdle();
+		try {
+			turns.acquire();
+		} finally {
+			clock.endIdle();
+		}
+		try {
+			WaterPipe pipe;
+			while ((pipe = lessor.get()) == null)
+				clock.sleep(SBCConstants.WATER_PIPE_POLL_INTERVAL);
+			record(clock.currentTimeMillis() - start);
+			return pipe;
+		} catch (InterruptedException | RuntimeException e) {
+			turns.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * give the turn to the next waiting robot
+	 */
+	public void release() {
+		turns.release();
+	}
+
+	private void record(long waitTime) {
+		waits.incrementAndGet();
+		totalWaitTime.addAndGet(waitTime);
+		maxWaitTime.accumulateAndGet(waitTime, Math::max);
+	}
+
+	/**
+	 * @return number of robots which wait for their turn
+	 */
+	public int getQueueLength() {
+		return turns.getQueueLength();
+	}
+
+	/**
+	 * @return number of waits which ended with a leased pipe, the average wait
+	 *         time is taken over these
+	 */
+	public long getWaits() {
+		return waits.get();
+	}
+
+	/**
+	 * @return summed up waiting time in simulation milliseconds
+	 */
+	public long getTotalWaitTime() {
+		return totalWaitTime.get();
+	}
+
+	/**
+	 * @return longest waiting time in simulation milliseconds
+	 */
+	public long getMaxWaitTime() {
+		return maxWaitTime.get();
+	}
+
+	/**
+	 * @return average waiting time in simulation milliseconds
+	 */
+	public double getAverageWaitTime() {
+		long count = waits.get();
+		return count == 0 ? 0 : (double) totalWaitTime.get() / count;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("WaterSupply [waits=%d, averageWaitTime=%.1f, maxWaitTime=%d, queueLength=%d]",
+				getWaits(), getAverageWaitTime(), getMaxWaitTime(), getQueueLength());
+	}
+
+}
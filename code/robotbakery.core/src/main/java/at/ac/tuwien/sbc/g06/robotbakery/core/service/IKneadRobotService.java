@@ -4,9 +4,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 
 /**
@@ -40,6 +43,14 @@ public interface IKneadRobotService extends IRobotService{
 	 */
 	Map<String, Integer> getCounterStock();
 
+	/**
+	 * Returns the materialized view of the storage and counter stock, which is
+	 * used to choose the next product without querying the middleware.
+	 * 
+	 * @return
+	 */
+	StockView getStockView();
+
 	/**
 	 * Get the specified amount of ingredients for a certain type
 	 * @param type Get ingredients of this type
@@ -50,12 +61,20 @@ public interface IKneadRobotService extends IRobotService{
 	List<Ingredient> getIngredientsFromStorage(IngredientType type, Integer integer, ITransaction tx);
 
 	/**
-	 * Reserves water pipe for use
-	 * @param time water pipe is used for specified time in milliseconds
+	 * Leases a free water pipe, the pipe stays in the storage while it is used
+	 * @param waterAmount amount of water in milliliters, the lease lasts as long as the pipe needs for it
 	 * @param tx Transaction
-	 * @return true for success and false for exception
+	 * @return leased water pipe or null if no pipe is free
 	 */
-	boolean useWaterPipe(long time, ITransaction tx);
+	WaterPipe leaseWaterPipe(int waterAmount, ITransaction tx);
+
+	/**
+	 * Returns a leased water pipe
+	 * @param pipe pipe which was leased with {@link #leaseWaterPipe(int, ITransaction)}
+	 * @param tx Transaction
+	 * @return true for success and false if the lease is expired and the pipe was taken over
+	 */
+	boolean returnWaterPipe(WaterPipe pipe, ITransaction tx);
 
 	/**
 	 * puts base dough in storage
@@ -89,8 +108,47 @@ public interface IKneadRobotService extends IRobotService{
 	 */
 	boolean takeFlourFromStorage(int amount, ITransaction tx);
 
-	
+	/**
+	 * Takes the given ingredients out of the storage and keeps them in a
+	 * reservation, which has to be consumed or released before it expires. The
+	 * transaction has to be rolled back if no reservation is returned.
+	 * @param billOfMaterials amount of each ingredient type, flour in units
+	 * @param ttl time to live of the reservation in milliseconds
+	 * @param tx Transaction
+	 * @return reservation or null if the ingredients aren't available, which
+	 *         is counted as reservation conflict
+	 */
+	IngredientReservation reserveIngredients(Map<IngredientType, Integer> billOfMaterials, long ttl,
+			ITransaction tx);
+
+	/**
+	 * Removes the reservation, its ingredients are used up
+	 * @param reservation reservation of the robot
+	 * @param tx Transaction
+	 * @return true for success or false if the reservation has expired and
+	 *         was reclaimed already
+	 */
+	boolean consumeReservation(IngredientReservation reservation, ITransaction tx);
 
+	/**
+	 * Removes the reservation and puts its ingredients back into the storage
+	 * @param reservation reservation of the robot
+	 * @param tx Transaction
+	 * @return true for success or false for exception
+	 */
+	boolean releaseReservation(IngredientReservation reservation, ITransaction tx);
 
+	/**
+	 * Puts the ingredients of all expired reservations back into the storage
+	 * @param tx Transaction
+	 * @return number of reclaimed reservations or -1 for exception
+	 */
+	int reclaimExpiredReservations(ITransaction tx);
+
+	/**
+	 * @return number of reservations of this service which failed because the
+	 *         ingredients were not available
+	 */
+	long getReservationConflicts();
 
 }
@@ -2,6 +2,8 @@ package at.ac.tuwien.sbc.g06.robotbakery.core.service;
 
 import java.util.Map;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+
 /**
  * Interface for robots
  */
@@ -9,8 +11,8 @@ public interface IRobotService {
 
 	/**
 	 * current state of the bakery is delivered to robots
-	 * @return returns a map with notification strings as key and a boolean value
+	 * @return returns a map with notification keys and a boolean value
 	 */
-	Map<String, Boolean> getInitialState();
+	Map<NotificationKeys, Boolean> getInitialState();
 
 }
@@ -26,15 +26,17 @@ public interface IServiceRobotService extends IRobotService,INotificationService
 	Order getNextOrder(ITransaction tx);
 
 	/**
-	 * add product to counter
+	 * add products to counter, the capacity of the counter is checked for all
+	 * products at once
 	 * 
-	 * @param product
-	 *            product to put in counter
+	 * @param products
+	 *            products to put in counter
 	 * @param tx
 	 *            Transaction
-	 * @return true for success or false for exception
+	 * @return true for success or false if the products exceed the capacity
+	 *         or for exception
 	 */
-	boolean addToCounter(Product product, ITransaction tx);
+	boolean addToCounter(List<Product> products, ITransaction tx);
 
 	/**
 	 * get stock numbers from counter
@@ -66,31 +68,29 @@ public interface IServiceRobotService extends IRobotService,INotificationService
 	boolean putPackedOrderInTerminal(PackedOrder packedOrder, ITransaction tx);
 
 	/**
-	 * get products from storage
+	 * get products of several types from storage with one operation
 	 * 
-	 * @param productType
-	 *            type of product
-	 * @param amount
-	 *            amount
+	 * @param amounts
+	 *            amount of each product name
 	 * @param tx
 	 *            Transaction
-	 * @return List of products from defined type or null for exception
+	 * @return List of the products which are available, up to the amount of
+	 *         each type, or null for exception
 	 */
-	List<Product> getProductsFromStorage(String productType, int amount, ITransaction tx);
+	List<Product> getProductsFromStorage(Map<String, Integer> amounts, ITransaction tx);
 	
 	List<Product> getProductsFromStorage(int amount, ITransaction tx);
 	/**
-	 * get products from counter with specified name
+	 * get the products of an order from counter with one operation
 	 * 
-	 * @param productName
-	 *            productName
-	 * @param amount
-	 *            amount
+	 * @param amounts
+	 *            amount of each product name
 	 * @param tx
 	 *            Transaction
-	 * @return List of products from defined type or null for exception
+	 * @return List of products or null if the counter doesn't contain all of
+	 *         them or for exception
 	 */
-	List<Product> getProductsFromCounter(String productName, int amount, ITransaction tx);
+	List<Product> getProductsFromCounter(Map<String, Integer> amounts, ITransaction tx);
 
 	/**
 	 * Returns a delivery to the counter collection area
@@ -0,0 +1,21 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.service;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Reads the content of the coordination rooms, is used to resynchronize the
+ * stock view.
+ */
+public interface IStockService {
+
+	/**
+	 * Returns all objects which are currently in the given coordination room.
+	 * 
+	 * @param coordinationRoom
+	 *            coordination room (SBCConstants.COORDINATION_ROOM_*)
+	 * @return content of the room or null if it couldn't be read
+	 */
+	List<Serializable> readRoom(String coordinationRoom);
+
+}
@@ -0,0 +1,102 @@
+package at.ac.tuwien.sbc.g06.robotbakery.core.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+
+/**
+ * Chooses the flour packs a knead robot takes for a given amount of flour, so
+ * that as few packs as possible stay open. Opened packs which don't cover the
+ * needed amount are used up first, the rest is taken from the best fitting
+ * pack, i.e. the smallest pack which still covers it. A pack which contains
+ * exactly the needed amount is always preferred. The services take the chosen
+ * packs with one operation and put the rest back as a new pack.
+ */
+public final class FlourAllocator {
+
+	private FlourAllocator() {
+	}
+
+	/**
+	 * @param packs
+	 *            flour packs in the storage
+	 * @param amount
+	 *            needed amount of flour
+	 * @return chosen packs or null if the packs don't contain enough flour
+	 */
+	public static Allocation allocate(Collection<FlourPack> packs, int amount) {
+		List<FlourPack> available = new ArrayList<>(packs);
+		available.sort(Comparator.comparing(FlourPack::getCurrentAmount));
+		List<FlourPack> chosen = new ArrayList<>();
+		int remaining = amount;
+		while (remaining > 0) {
+			if (available.isEmpty())
+				return null;
+			FlourPack pack = findExactFit(available, remaining);
+			if (pack == null)
+				pack = available.get(0).getCurrentAmount() < remaining ? available.get(0)
+						: findBestFit(available, remaining);
+			available.remove(pack);
+			chosen.add(pack);
+			remaining -= pack.getCurrentAmount();
+		}
+		return new Allocation(chosen, -remaining);
+	}
+
+	private static FlourPack findExactFit(List<FlourPack> sorted, int amount) {
+		for (FlourPack pack : sorted) {
+			if (pack.getCurrentAmount() == amount)
+				return pack;
+			if (pack.getCurrentAmount() > amount)
+				return null;
+		}
+		return null;
+	}
+
+	private static FlourPack findBestFit(List<FlourPack> sorted, int amount) {
+		for (FlourPack pack : sorted) {
+			if (pack.getCurrentAmount() >= amount)
+				return pack;
+		}
+		return null;
+	}
+
+	/**
+	 * flour packs which are taken for an amount of flour
+	 */
+	public static class Allocation {
+		private final List<FlourPack> packs;
+		private final int rest;
+
+		private Allocation(List<FlourPack> packs, int rest) {
+			this.packs = packs;
+			this.rest = rest;
+		}
+
+		/**
+		 * @return packs which are taken from the storage
+		 */
+		public List<FlourPack> getPacks() {
+			return packs;
+		}
+
+		/**
+		 * @return flour which is left in the last pack
+		 */
+		public int getRest() {
+			return rest;
+		}
+
+		/**
+		 * @return new pack with the rest of the flour or null if there is no
+		 *         rest
+		 */
+		public FlourPack getRestPack() {
+			return rest > 0 ? new FlourPack(rest) : null;
+		}
+	}
+
+}
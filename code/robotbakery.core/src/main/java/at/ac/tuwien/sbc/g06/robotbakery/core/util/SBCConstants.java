@@ -18,8 +18,17 @@ public final class SBCConstants {
 	public static final Integer BAKE_SIZE = 5;
 
 	public static final Long BAKE_WAIT = 10000L;
+	public static final Long BAKE_POLL_INTERVAL = 100L;
 	public static final Long DELIVER_DURATION = 5000L;
 	public static final Long DELIVERY_MAX_WAIT = 30000L;
+	public static final Long ROBOT_IDLE_TIMEOUT = 30000L;
+	public static final Long ROBOT_RETRY_BACKOFF = 1000L;
+	public static final Long STOCK_RESYNC_INTERVAL = 10000L;
+	public static final Integer PLANNER_HORIZON = 10;
+	public static final Long PLANNER_REPLAN_INTERVAL = 2000L;
+	public static final Long RESERVATION_TTL = 20000L;
+	public static final Long WATER_PIPE_LEASE_MARGIN = 5000L;
+	public static final Long WATER_PIPE_POLL_INTERVAL = 500L;
 	public static final Integer PREPACKAGE_SIZE = 3;
 	public static final Integer PREPACKAGE_MAX_AMOUNT = 5;
 
@@ -28,17 +37,21 @@ public final class SBCConstants {
 	public static final String COORDINATION_ROOM_TERMINAL = "Terminal";
 	public static final String COORDINATION_ROOM_BAKEROOM = "Bakeroom";
 
-	public static final class NotificationKeys {
-		public static final String IS_ORDER_AVAILABLE = "isOrderAvailable";
-		public static final String IS_COUNTER_EMPTY = "isCounterEmpty";
-		public static final String IS_COUNTER_FULL = "isCounterFull";
-		public static final String NO_MORE_PRODUCTS_IN_STORAGE = "noMoreProductsInStorage";
-		public static final String NO_MORE_INGREDIENTS_IN_STORAGE = "noMoreIngredientsInStorage";
-		public static final String IS_PREPACKAGE_LIMIT = "isPrepackageLimit";
-		public static final String IS_BAKEROOM_EMPTY = "isBakeroomEmpty";
-		public static final String IS_DELIVERY_ORDER_AVAILABLE = "isDeliveryOrderAvailable";
-		public static final String IS_LOCKED_FOR_DELIVERY_ORDER = "isLockedForDeliveryOrder";
-		public static final String IS_ORDER_PROCESSING_LOCKED = "isOrderProcessingLocked";
+	/**
+	 * Keys of the notification flags of the robots, the ordinal is used as bit
+	 * index in the notification state
+	 */
+	public enum NotificationKeys {
+		IS_ORDER_AVAILABLE,
+		IS_COUNTER_EMPTY,
+		IS_COUNTER_FULL,
+		NO_MORE_PRODUCTS_IN_STORAGE,
+		NO_MORE_INGREDIENTS_IN_STORAGE,
+		IS_PREPACKAGE_LIMIT,
+		IS_BAKEROOM_EMPTY,
+		IS_DELIVERY_ORDER_AVAILABLE,
+		IS_LOCKED_FOR_DELIVERY_ORDER,
+		IS_ORDER_PROCESSING_LOCKED
 	}
 
 	public static final class TestDataKeys {
@@ -0,0 +1,23 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.GenericInMemService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+public class InMemBakery extends Bakery {
+
+	private final GenericInMemService service;
+
+	public InMemBakery(InMemSpace space) {
+		super(new InMemBakeryChangeNotifer(space));
+		service = new GenericInMemService(space);
+	}
+
+	@Override
+	public void init() {
+		service.write(WaterPipe.getConfiguredPipes(), service.getRoom(SBCConstants.COORDINATION_ROOM_STORAGE), null);
+	}
+
+}
@@ -0,0 +1,30 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem;
+
+import java.io.Serializable;
+import java.util.List;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
+import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.ChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+/**
+ * Forwards the committed changes of the space to the registered listeners, the
+ * names of the rooms are the coordination rooms
+ */
+public class InMemBakeryChangeNotifer extends ChangeNotifer implements IChangeListener {
+
+	public InMemBakeryChangeNotifer(InMemSpace space) {
+		space.addObserver(this);
+	}
+
+	@Override
+	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
+		registeredChangeListeners.forEach(ls -> ls.onObjectChanged(object, coordinationRoom, added));
+	}
+
+	@Override
+	public void onObjectsChanged(List<? extends Serializable> objects, String coordinationRoom, boolean added) {
+		registeredChangeListeners.forEach(ls -> ls.onObjectsChanged(objects, coordinationRoom, added));
+	}
+
+}
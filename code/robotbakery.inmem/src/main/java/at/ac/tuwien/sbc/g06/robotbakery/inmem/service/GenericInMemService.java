@@ -0,0 +1,89 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemTransaction;
+
+/**
+ * Base class of the in-memory services. Operations without a transaction are
+ * executed in a transaction of their own, which is committed immediately.
+ */
+public class GenericInMemService {
+
+	protected final InMemSpace space;
+
+	public GenericInMemService(InMemSpace space) {
+		this.space = space;
+	}
+
+	public InMemRoom getRoom(String name) {
+		return space.getRoom(name);
+	}
+
+	public <T extends Serializable> boolean write(List<T> modelObjects, InMemRoom room, ITransaction tx) {
+		return execute(tx, t -> {
+			modelObjects.forEach(mo -> t.write(room, mo));
+			return true;
+		});
+	}
+
+	public <T extends Serializable> boolean write(T modelObject, InMemRoom room, ITransaction tx) {
+		return execute(tx, t -> {
+			t.write(room, modelObject);
+			return true;
+		});
+	}
+
+	/**
+	 * notify the listeners about the given object without storing it
+	 */
+	public <T extends Serializable> boolean notify(T modelObject, InMemRoom room, ITransaction tx) {
+		return execute(tx, t -> {
+			t.notify(room, modelObject);
+			return true;
+		});
+	}
+
+	public <T extends Serializable> T takeFirst(InMemRoom room, ITransaction tx, Class<T> type,
+			Predicate<? super T> filter, Comparator<? super T> order) {
+		List<T> result = take(room, tx, type, filter, order, 1, 1);
+		return result == null ? null : result.get(0);
+	}
+
+	public <T extends Serializable> List<T> take(InMemRoom room, ITransaction tx, Class<T> type,
+			Predicate<? super T> filter, Comparator<? super T> order, int min, int max) {
+		return execute(tx, t -> t.take(room, type, filter, order, min, max));
+	}
+
+	public <T> List<T> read(InMemRoom room, ITransaction tx, Class<T> type,
+			Predicate<? super T> filter, Comparator<? super T> order) {
+		return execute(tx, t -> t.read(room, type, filter, order, Integer.MAX_VALUE));
+	}
+
+	public <T extends Serializable> int count(InMemRoom room, ITransaction tx, Class<T> type,
+			Predicate<? super T> filter) {
+		return execute(tx, t -> t.count(room, type, filter));
+	}
+
+	private <R> R execute(ITransaction tx, Function<InMemTransaction, R> operation) {
+		if (tx instanceof InMemTransaction)
+			return operation.apply((InMemTransaction) tx);
+		InMemTransaction autoTx = space.createTransaction();
+		try {
+			R result = operation.apply(autoTx);
+			autoTx.commit();
+			return result;
+		} catch (RuntimeException e) {
+			autoTx.rollback();
+			throw e;
+		}
+	}
+
+}
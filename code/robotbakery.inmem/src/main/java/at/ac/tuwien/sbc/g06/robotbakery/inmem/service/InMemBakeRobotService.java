@@ -0,0 +1,67 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.IS_BAKEROOM_EMPTY;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+public class InMemBakeRobotService extends GenericInMemService implements IBakeRobotService {
+
+	private final InMemRoom storageRoom;
+	private final InMemRoom bakeroomRoom;
+
+	public InMemBakeRobotService(InMemSpace space) {
+		super(space);
+		storageRoom = getRoom(SBCConstants.COORDINATION_ROOM_STORAGE);
+		bakeroomRoom = getRoom(SBCConstants.COORDINATION_ROOM_BAKEROOM);
+	}
+
+	@Override
+	public List<Product> getUnbakedProducts(ITransaction tx) {
+		Product product = takeFirst(bakeroomRoom, tx, Product.class, null, null);
+		if (product == null)
+			return null;
+		List<Product> products = new ArrayList<>();
+		products.add(product);
+		SimulationClock clock = SimulationClock.get();
+		long end = clock.currentTimeMillis() + SBCConstants.BAKE_WAIT;
+		while (products.size() < SBCConstants.BAKE_SIZE && clock.currentTimeMillis() < end) {
+			List<Product> nextProducts = take(bakeroomRoom, tx, Product.class, null, null, 0,
+					SBCConstants.BAKE_SIZE - products.size());
+			products.addAll(nextProducts);
+			if (nextProducts.isEmpty()) {
+				// nothing in the bakeroom yet, wait for the next poll
+				try {
+					clock.sleep(SBCConstants.BAKE_POLL_INTERVAL);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		return products;
+	}
+
+	@Override
+	public boolean putBakedProductsInStorage(List<Product> products, ITransaction tx) {
+		return write(products, storageRoom, tx);
+	}
+
+	@Override
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> map = new EnumMap<>(NotificationKeys.class);
+		map.put(IS_BAKEROOM_EMPTY, count(bakeroomRoom, null, Product.class, null) == 0);
+		return map;
+	}
+}
@@ -0,0 +1,46 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import java.io.Serializable;
+import java.util.List;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeryUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+public class InMemBakeryUIService extends GenericInMemService implements IBakeryUIService {
+
+	private final InMemRoom storageRoom;
+	private final InMemRoom counterRoom;
+	private final InMemRoom bakeroomRoom;
+
+	public InMemBakeryUIService(InMemSpace space) {
+		super(space);
+		storageRoom = getRoom(SBCConstants.COORDINATION_ROOM_STORAGE);
+		counterRoom = getRoom(SBCConstants.COORDINATION_ROOM_COUNTER);
+		bakeroomRoom = getRoom(SBCConstants.COORDINATION_ROOM_BAKEROOM);
+	}
+
+	@Override
+	public boolean addIngredientsToStorage(List<Ingredient> ingredients) {
+		return write(ingredients, storageRoom, null);
+	}
+
+	@Override
+	public void addItemsToStorage(List<Serializable> items) {
+		write(items, storageRoom, null);
+	}
+
+	@Override
+	public void addProductsToCounter(List<Product> products) {
+		write(products, counterRoom, null);
+	}
+
+	@Override
+	public void addProductsToBakeroom(List<Product> forBakeroom) {
+		write(forBakeroom, bakeroomRoom, null);
+	}
+
+}
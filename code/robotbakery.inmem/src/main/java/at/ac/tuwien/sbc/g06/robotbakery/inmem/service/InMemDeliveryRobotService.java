@@ -0,0 +1,72 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IDeliveryRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+/**
+ * Delivery destinations are rooms of the space which are named by the delivery
+ * address of the customer
+ */
+public class InMemDeliveryRobotService extends GenericInMemService implements IDeliveryRobotService {
+
+	private final InMemRoom terminalRoom;
+	private final InMemRoom counterRoom;
+	private InMemRoom destinationRoom;
+
+	public InMemDeliveryRobotService(InMemSpace space) {
+		super(space);
+		terminalRoom = getRoom(SBCConstants.COORDINATION_ROOM_TERMINAL);
+		counterRoom = getRoom(SBCConstants.COORDINATION_ROOM_COUNTER);
+	}
+
+	@Override
+	public PackedOrder getPackedDeliveryOrder() {
+		return takeFirst(terminalRoom, null, PackedOrder.class, PackedOrder::isDelivery,
+				Comparator.comparing(PackedOrder::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())));
+	}
+
+	@Override
+	public boolean checkDestination(PackedOrder deliveryOrder) {
+		destinationRoom = deliveryOrder.getDeliveryAddress() == null ? null
+				: space.lookupRoom(deliveryOrder.getDeliveryAddress().toString());
+		return destinationRoom != null;
+	}
+
+	@Override
+	public boolean deliverOrder(PackedOrder order) {
+		boolean delivered = false;
+		if (destinationRoom != null) {
+			delivered = write(order, destinationRoom, null);
+		}
+		if (delivered) {
+			order.setState(Order.OrderState.DELIVERED);
+		} else {
+			order.setState(OrderState.UNDELIVERALBE);
+		}
+		write(order, counterRoom, null);
+		return delivered;
+	}
+
+	@Override
+	public boolean updateOrder(Order delivery) {
+		return write(delivery, counterRoom, null);
+	}
+
+	@Override
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> map = new EnumMap<>(NotificationKeys.class);
+		map.put(NotificationKeys.IS_DELIVERY_ORDER_AVAILABLE,
+				count(terminalRoom, null, PackedOrder.class, PackedOrder::isDelivery) > 0);
+		return map;
+	}
+}
@@ -0,0 +1,28 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import java.net.URI;
+import java.util.UUID;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IDeliveryTabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+/**
+ * Tablet of a customer who orders for delivery, the delivered orders are
+ * written to a room of the space which is named by the delivery URI
+ */
+public class InMemDeliveryTabletUIService extends InMemTabletUIService implements IDeliveryTabletUIService {
+
+	private final URI deliveryURI;
+
+	public InMemDeliveryTabletUIService(InMemSpace space) {
+		super(space);
+		deliveryURI = URI.create("inmem://delivery/" + UUID.randomUUID());
+		getRoom(deliveryURI.toString());
+	}
+
+	@Override
+	public URI getDeliveryURI() {
+		return deliveryURI;
+	}
+
+}
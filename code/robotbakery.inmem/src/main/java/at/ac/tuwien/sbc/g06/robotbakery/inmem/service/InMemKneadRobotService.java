@@ -0,0 +1,199 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.NO_MORE_INGREDIENTS_IN_STORAGE;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IKneadRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.FlourAllocator;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.FlourAllocator.Allocation;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.InMemBakeryChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+public class InMemKneadRobotService extends GenericInMemService implements IKneadRobotService {
+	private final InMemRoom storageRoom;
+	private final InMemRoom counterRoom;
+	private final InMemRoom bakeroomRoom;
+	private final StockView stockView;
+	private final AtomicLong reservationConflicts = new AtomicLong();
+
+	public InMemKneadRobotService(InMemSpace space) {
+		this(space, new StockView(new InMemBakeryChangeNotifer(space), new InMemStockService(space)));
+	}
+
+	public InMemKneadRobotService(InMemSpace space, StockView stockView) {
+		super(space);
+		this.stockView = stockView;
+		storageRoom = getRoom(SBCConstants.COORDINATION_ROOM_STORAGE);
+		counterRoom = getRoom(SBCConstants.COORDINATION_ROOM_COUNTER);
+		bakeroomRoom = getRoom(SBCConstants.COORDINATION_ROOM_BAKEROOM);
+	}
+
+	@Override
+	public List<Product> checkBaseDoughsInStorage() {
+		return read(storageRoom, null, Product.class, p -> p.getType() == BakeState.DOUGH,
+				Comparator.comparing(Product::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())));
+	}
+
+	@Override
+	public Map<IngredientType, Integer> getIngredientStock() {
+		Map<IngredientType, Integer> map = new HashMap<>();
+		for (IngredientType type : IngredientType.values()) {
+			if (type == IngredientType.FLOUR) {
+				map.put(type, count(storageRoom, null, FlourPack.class, null));
+			} else if (type != IngredientType.WATER) {
+				map.put(type, count(storageRoom, null, Ingredient.class, i -> i.getType() == type));
+			}
+		}
+		return map;
+	}
+
+	@Override
+	public Map<String, Integer> getCounterStock() {
+		return stockView.getCounterStock();
+	}
+
+	@Override
+	public StockView getStockView() {
+		return stockView;
+	}
+
+	@Override
+	public List<Ingredient> getIngredientsFromStorage(IngredientType type, Integer amount, ITransaction tx) {
+		return take(storageRoom, tx, Ingredient.class, i -> i.getType() == type, null, amount, amount);
+	}
+
+	@Override
+	public WaterPipe leaseWaterPipe(int waterAmount, ITransaction tx) {
+		long now = SimulationClock.get().currentTimeMillis();
+		WaterPipe pipe = takeFirst(storageRoom, tx, WaterPipe.class, p -> p.isFree(now), null);
+		if (pipe == null)
+			return null;
+		WaterPipe leased = pipe
+				.lease(now + pipe.getUsageTime(waterAmount) + SBCConstants.WATER_PIPE_LEASE_MARGIN);
+		return write(leased, storageRoom, tx) ? leased : null;
+	}
+
+	@Override
+	public boolean returnWaterPipe(WaterPipe pipe, ITransaction tx) {
+		// the lease is only returned if it wasn't taken over after it expired
+		WaterPipe leased = takeFirst(storageRoom, tx, WaterPipe.class,
+				p -> p.getId().equals(pipe.getId()) && p.getLeaseExpiresAt() == pipe.getLeaseExpiresAt(), null);
+		return leased != null && write(leased.release(), storageRoom, tx);
+	}
+
+	@Override
+	public boolean putBaseDoughInStorage(Product nextProduct, ITransaction tx) {
+		return write(nextProduct, storageRoom, tx);
+	}
+
+	@Override
+	public Product getProductFromStorage(UUID id, ITransaction tx) {
+		return takeFirst(storageRoom, tx, Product.class, p -> p.getId().equals(id), null);
+	}
+
+	@Override
+	public boolean putDoughInBakeroom(Product nextProduct, ITransaction tx) {
+		return write(nextProduct, bakeroomRoom, tx);
+	}
+
+	@Override
+	public boolean takeFlourFromStorage(int amount, ITransaction tx) {
+		Allocation allocation = FlourAllocator.allocate(read(storageRoom, tx, FlourPack.class, null, null), amount);
+		if (allocation == null)
+			return false;
+		Set<UUID> ids = allocation.getPacks().stream().map(FlourPack::getId).collect(Collectors.toSet());
+		if (take(storageRoom, tx, FlourPack.class, p -> ids.contains(p.getId()), null, ids.size(), ids.size()) == null)
+			return false;
+		// the taken packs are shared with the space and restored on rollback,
+		// so the rest is put back as a new pack
+		FlourPack restPack = allocation.getRestPack();
+		return restPack == null || write(restPack, storageRoom, tx);
+	}
+
+	@Override
+	public IngredientReservation reserveIngredients(Map<IngredientType, Integer> billOfMaterials, long ttl,
+			ITransaction tx) {
+		int flourAmount = 0;
+		List<Ingredient> ingredients = new ArrayList<>();
+		for (Entry<IngredientType, Integer> entry : billOfMaterials.entrySet()) {
+			if (entry.getKey() == IngredientType.FLOUR) {
+				if (!takeFlourFromStorage(entry.getValue(), tx))
+					return reservationConflict();
+				flourAmount = entry.getValue();
+			} else {
+				List<Ingredient> taken = getIngredientsFromStorage(entry.getKey(), entry.getValue(), tx);
+				if (taken == null)
+					return reservationConflict();
+				ingredients.addAll(taken);
+			}
+		}
+		IngredientReservation reservation = new IngredientReservation(flourAmount, ingredients,
+				SimulationClock.get().currentTimeMillis() + ttl);
+		return write(reservation, storageRoom, tx) ? reservation : null;
+	}
+
+	private IngredientReservation reservationConflict() {
+		reservationConflicts.incrementAndGet();
+		return null;
+	}
+
+	@Override
+	public boolean consumeReservation(IngredientReservation reservation, ITransaction tx) {
+		return takeFirst(storageRoom, tx, IngredientReservation.class, r -> r.getId().equals(reservation.getId()),
+				null) != null;
+	}
+
+	@Override
+	public boolean releaseReservation(IngredientReservation reservation, ITransaction tx) {
+		return consumeReservation(reservation, tx) && write(reservation.getReleasedIngredients(), storageRoom, tx);
+	}
+
+	@Override
+	public int reclaimExpiredReservations(ITransaction tx) {
+		long now = SimulationClock.get().currentTimeMillis();
+		List<IngredientReservation> expired = take(storageRoom, tx, IngredientReservation.class,
+				r -> r.isExpired(now), null, 0, Integer.MAX_VALUE);
+		for (IngredientReservation reservation : expired) {
+			if (!write(reservation.getReleasedIngredients(), storageRoom, tx))
+				return -1;
+		}
+		return expired.size();
+	}
+
+	@Override
+	public long getReservationConflicts() {
+		return reservationConflicts.get();
+	}
+
+	@Override
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> notificationState = new EnumMap<>(NotificationKeys.class);
+		notificationState.put(NO_MORE_INGREDIENTS_IN_STORAGE, count(storageRoom, null, Ingredient.class, null) == 0);
+		return notificationState;
+	}
+}
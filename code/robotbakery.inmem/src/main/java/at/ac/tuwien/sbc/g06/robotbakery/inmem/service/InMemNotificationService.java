@@ -0,0 +1,28 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.INotificationService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+/**
+ * Notifications are only delivered to the listeners of the space, they are
+ * not stored in the counter
+ */
+public class InMemNotificationService extends GenericInMemService implements INotificationService {
+
+	private final InMemRoom counterRoom;
+
+	public InMemNotificationService(InMemSpace space) {
+		super(space);
+		counterRoom = getRoom(SBCConstants.COORDINATION_ROOM_COUNTER);
+	}
+
+	@Override
+	public boolean sendNotification(NotificationMessage notification, ITransaction tx) {
+		return notify(notification, counterRoom, tx);
+	}
+
+}
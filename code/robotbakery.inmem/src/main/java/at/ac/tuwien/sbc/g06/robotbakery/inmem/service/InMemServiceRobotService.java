@@ -0,0 +1,162 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.COUNTER_MAX_CAPACITY;
+import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.*;
+import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.PRODUCTS_NAMES;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IServiceRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.InMemBakeryChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+public class InMemServiceRobotService extends GenericInMemService implements IServiceRobotService {
+
+	private final InMemRoom counterRoom;
+	private final InMemRoom terminalRoom;
+	private final InMemRoom storageRoom;
+	private final StockView stockView;
+
+	public InMemServiceRobotService(InMemSpace space) {
+		this(space, new StockView(new InMemBakeryChangeNotifer(space), new InMemStockService(space)));
+	}
+
+	public InMemServiceRobotService(InMemSpace space, StockView stockView) {
+		super(space);
+		this.stockView = stockView;
+		counterRoom = getRoom(SBCConstants.COORDINATION_ROOM_COUNTER);
+		terminalRoom = getRoom(SBCConstants.COORDINATION_ROOM_TERMINAL);
+		storageRoom = getRoom(SBCConstants.COORDINATION_ROOM_STORAGE);
+	}
+
+	@Override
+	public Order getNextOrder(ITransaction tx) {
+		return takeFirst(counterRoom, tx, Order.class, this::isOpen,
+				Comparator.comparing(Order::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())));
+	}
+
+	@Override
+	public boolean addToCounter(List<Product> products, ITransaction tx) {
+		Map<String, Integer> available = new HashMap<>();
+		read(counterRoom, tx, Product.class, null, null)
+				.forEach(p -> available.merge(p.getProductName(), 1, Integer::sum));
+		for (Product product : products) {
+			if (available.merge(product.getProductName(), 1, Integer::sum) > SBCConstants.COUNTER_MAX_CAPACITY)
+				return false;
+		}
+		return write(products, counterRoom, tx);
+	}
+
+	@Override
+	public List<Product> getProductsFromStorage(Map<String, Integer> amounts, ITransaction tx) {
+		List<Product> products = new ArrayList<>();
+		for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+			List<Product> taken = getProducts(storageRoom, amount.getKey(), amount.getValue(), tx);
+			if (taken == null)
+				return null;
+			products.addAll(taken);
+		}
+		return products;
+	}
+
+	@Override
+	public List<Product> getProductsFromCounter(Map<String, Integer> amounts, ITransaction tx) {
+		List<Product> products = new ArrayList<>();
+		for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+			List<Product> taken = getProducts(counterRoom, amount.getKey(), amount.getValue(), tx);
+			if (taken == null || taken.size() < amount.getValue())
+				return null;
+			products.addAll(taken);
+		}
+		return products;
+	}
+
+	private List<Product> getProducts(InMemRoom room, String productName, int amount, ITransaction tx) {
+		return take(room, tx, Product.class,
+				p -> p.getType() == BakeState.FINALPRODUCT && p.getProductName().equals(productName), null, 0, amount);
+	}
+
+	@Override
+	public boolean updateOrder(Order order, ITransaction tx) {
+		return write(order, counterRoom, tx);
+	}
+
+	@Override
+	public boolean putPackedOrderInTerminal(PackedOrder packedOrder, ITransaction tx) {
+		return write(packedOrder, terminalRoom, tx);
+	}
+
+	@Override
+	public Map<String, Integer> getCounterStock() {
+		Map<String, Integer> missingProducts = new HashMap<>();
+		stockView.getCounterStock().forEach((name, available) -> {
+			if (available < COUNTER_MAX_CAPACITY) {
+				missingProducts.put(name, COUNTER_MAX_CAPACITY - available);
+			}
+		});
+		return missingProducts;
+	}
+
+	@Override
+	public boolean returnOrder(Order currentOrder, ITransaction tx) {
+		return write(currentOrder, counterRoom, tx);
+	}
+
+	@Override
+	public boolean putPrepackageInTerminal(Prepackage prepackage, ITransaction tx) {
+		return write(prepackage, terminalRoom, tx);
+	}
+
+	@Override
+	public List<Product> getProductsFromStorage(int amount, ITransaction tx) {
+		return take(storageRoom, tx, Product.class, p -> p.getType() == BakeState.FINALPRODUCT, null, 0, amount);
+	}
+
+	@Override
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		int counterProducts = count(counterRoom, null, Product.class, null);
+		Map<NotificationKeys, Boolean> notificationState = new EnumMap<>(NotificationKeys.class);
+		notificationState.put(IS_COUNTER_EMPTY, counterProducts == 0);
+		notificationState.put(IS_COUNTER_FULL, counterProducts == PRODUCTS_NAMES.size() * COUNTER_MAX_CAPACITY);
+		notificationState.put(NO_MORE_PRODUCTS_IN_STORAGE,
+				count(storageRoom, null, Product.class, p -> p.getType() == BakeState.FINALPRODUCT) == 0);
+		notificationState.put(IS_ORDER_AVAILABLE, count(counterRoom, null, Order.class, this::isOpen) > 0);
+		notificationState.put(IS_PREPACKAGE_LIMIT,
+				count(terminalRoom, null, Prepackage.class, null) >= SBCConstants.PREPACKAGE_MAX_AMOUNT);
+		notificationState.put(IS_ORDER_PROCESSING_LOCKED,
+				count(counterRoom, null, Order.class, o -> isOpen(o) && o.isHighPriority()) > 0);
+		return notificationState;
+	}
+
+	@Override
+	public boolean sendNotification(NotificationMessage notification, ITransaction tx) {
+		return notify(notification, counterRoom, tx);
+	}
+
+	@Override
+	public List<Prepackage> readPrepackages(ITransaction tx) {
+		return read(terminalRoom, tx, Prepackage.class, null, null);
+	}
+
+	private boolean isOpen(Order order) {
+		return order.getState() == OrderState.ORDERED || order.getState() == OrderState.WAITING;
+	}
+
+}
@@ -0,0 +1,23 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+public class InMemStockService extends GenericInMemService implements IStockService {
+
+	public InMemStockService(InMemSpace space) {
+		super(space);
+	}
+
+	@Override
+	public List<Serializable> readRoom(String coordinationRoom) {
+		List<Serializable> content = new ArrayList<>();
+		read(getRoom(coordinationRoom), null, Object.class, null, null).forEach(o -> content.add((Serializable) o));
+		return content;
+	}
+
+}
@@ -0,0 +1,71 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemRoom;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+
+public class InMemTabletUIService extends GenericInMemService implements ITabletUIService {
+
+	private final InMemRoom counterRoom;
+	private final InMemRoom terminalRoom;
+
+	public InMemTabletUIService(InMemSpace space) {
+		super(space);
+		counterRoom = getRoom(SBCConstants.COORDINATION_ROOM_COUNTER);
+		terminalRoom = getRoom(SBCConstants.COORDINATION_ROOM_TERMINAL);
+	}
+
+	@Override
+	public boolean addOrderToCounter(Order order) {
+		return write(order, counterRoom, null);
+	}
+
+	@Override
+	public PackedOrder getPackedOrder(Order order) {
+		return takeFirst(terminalRoom, null, PackedOrder.class,
+				p -> p.getId().equals(order.getId()) && order.getCustomerId().equals(p.getCustomerId()), null);
+	}
+
+	@Override
+	public boolean payOrder(PackedOrder order) {
+		order.setState(OrderState.PAID);
+		return write(order, counterRoom, null);
+	}
+
+	@Override
+	public Map<String, Integer> getInitialCounterProducts() {
+		Map<String, Integer> map = new HashMap<>();
+		for (String productName : SBCConstants.PRODUCTS_NAMES) {
+			map.put(productName, count(counterRoom, null, Product.class, p -> productName.equals(p.getProductName())));
+		}
+		return map;
+	}
+
+	@Override
+	public Prepackage getPrepackage(UUID packageId) {
+		return takeFirst(terminalRoom, null, Prepackage.class, p -> p.getId().equals(packageId), null);
+	}
+
+	@Override
+	public List<Prepackage> getInitialPrepackages() {
+		return read(terminalRoom, null, Prepackage.class, p -> Prepackage.STATE_IN_TERMINAL.equals(p.getState()),
+				null);
+	}
+
+	@Override
+	public boolean updatePrepackage(Prepackage prepackage) {
+		return write(prepackage, terminalRoom, null);
+	}
+
+}
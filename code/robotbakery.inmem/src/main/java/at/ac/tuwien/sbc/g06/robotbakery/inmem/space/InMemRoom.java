@@ -0,0 +1,79 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.space;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Coordination room of the in-memory space. Entries are indexed by their class
+ * and all of its superclasses, each index is ordered by the write sequence, so
+ * iterating an index gives the entries of a type in FIFO order.
+ */
+public class InMemRoom {
+
+	private final String name;
+	private final Map<Class<?>, ConcurrentNavigableMap<Long, VersionedEntry>> typeIndex = new ConcurrentHashMap<>();
+	// version of the last commit which wrote or took entries of a type
+	private final Map<Class<?>, Long> modifiedVersions = new ConcurrentHashMap<>();
+
+	InMemRoom(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param type
+	 *            type of the entries
+	 * @return entries of the given type (including subtypes) in FIFO order,
+	 *         removed entries which are still visible to older transactions are
+	 *         included
+	 */
+	Collection<VersionedEntry> getEntries(Class<?> type) {
+		ConcurrentNavigableMap<Long, VersionedEntry> index = typeIndex.get(type);
+		if (index == null)
+			return Collections.emptyList();
+		return index.values();
+	}
+
+	void insert(VersionedEntry entry) {
+		for (Class<?> type = entry.getValue().getClass(); type != null; type = type.getSuperclass())
+			typeIndex.computeIfAbsent(type, t -> new ConcurrentSkipListMap<>()).put(entry.getSequence(), entry);
+	}
+
+	/**
+	 * @return version of the last commit which wrote or took entries of the
+	 *         given type (including subtypes) or 0 if there was none
+	 */
+	long getModifiedVersion(Class<?> type) {
+		return modifiedVersions.getOrDefault(type, 0L);
+	}
+
+	/**
+	 * record the version of a commit which wrote or took the entry, has to be
+	 * called with the commit lock of the space
+	 */
+	void modified(VersionedEntry entry, long version) {
+		for (Class<?> type = entry.getValue().getClass(); type != null; type = type.getSuperclass())
+			modifiedVersions.put(type, version);
+	}
+
+	void remove(VersionedEntry entry) {
+		for (Class<?> type = entry.getValue().getClass(); type != null; type = type.getSuperclass()) {
+			ConcurrentNavigableMap<Long, VersionedEntry> index = typeIndex.get(type);
+			if (index != null)
+				index.remove(entry.getSequence());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "InMemRoom [name=" + name + "]";
+	}
+
+}
@@ -0,0 +1,177 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.space;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemTransaction.Change;
+
+/**
+ * Shared in-memory space which holds the rooms of one bakery. Objects are
+ * stored by reference, nothing is serialized. Every commit creates a new
+ * version of the space, entries taken in a version are kept until no running
+ * transaction can see them anymore. A transaction which writes or takes is
+ * only committed if the entries it has read or counted haven't been changed
+ * by another commit since its snapshot, so a check like the capacity of the
+ * counter can't be passed by two transactions at once. Observers are notified
+ * about the changes of a transaction after it has been committed.
+ */
+public class InMemSpace {
+	private static Logger logger = LoggerFactory.getLogger(InMemSpace.class);
+
+	private final Map<String, InMemRoom> rooms = new ConcurrentHashMap<>();
+	private final AtomicLong version = new AtomicLong();
+	private final AtomicLong sequence = new AtomicLong();
+	private final Set<InMemTransaction> activeTransactions = ConcurrentHashMap.newKeySet();
+	private final Set<IChangeListener> observers = new CopyOnWriteArraySet<>();
+	private final ReentrantLock commitLock = new ReentrantLock();
+	// guarded by the commit lock, ordered by removed version
+	private final Queue<VersionedEntry> removedEntries = new ArrayDeque<>();
+
+	/**
+	 * @param name
+	 *            name of the room
+	 * @return the room with the given name, is created if it doesn't exist
+	 */
+	public InMemRoom getRoom(String name) {
+		return rooms.computeIfAbsent(name, InMemRoom::new);
+	}
+
+	/**
+	 * @param name
+	 *            name of the room
+	 * @return the room with the given name or null if it doesn't exist
+	 */
+	public InMemRoom lookupRoom(String name) {
+		return rooms.get(name);
+	}
+
+	/**
+	 * @return version of the last commit
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+
+	public InMemTransaction createTransaction() {
+		InMemTransaction tx = new InMemTransaction(this);
+		// register before the snapshot is taken, so that the entries it can see
+		// are not pruned in between
+		activeTransactions.add(tx);
+		tx.setSnapshot(version.get());
+		return tx;
+	}
+
+	public boolean addObserver(IChangeListener observer) {
+		return observers.add(observer);
+	}
+
+	public boolean removeObserver(IChangeListener observer) {
+		return observers.remove(observer);
+	}
+
+	VersionedEntry createEntry(InMemRoom room, Serializable value) {
+		return new VersionedEntry(sequence.incrementAndGet(), room, value);
+	}
+
+	boolean commit(InMemTransaction tx) {
+		commitLock.lock();
+		try {
+			if (!activeTransactions.remove(tx))
+				return false;
+			// read-only transactions don't create a new version
+			if (!tx.getWritten().isEmpty() || !tx.getTaken().isEmpty()) {
+				if (!tx.isReadSetValid()) {
+					tx.getTaken().forEach(e -> e.release(tx));
+					return false;
+				}
+				publish(tx);
+			}
+		} finally {
+			commitLock.unlock();
+		}
+		fireChanges(tx.getChanges());
+		return true;
+	}
+
+	boolean rollback(InMemTransaction tx) {
+		if (!activeTransactions.remove(tx))
+			return false;
+		tx.getTaken().forEach(e -> e.release(tx));
+		return true;
+	}
+
+	/**
+	 * publish the writes and takes of a transaction with a new version, the
+	 * commit lock has to be held
+	 */
+	private void publish(InMemTransaction tx) {
+		long next = version.get() + 1;
+		for (VersionedEntry entry : tx.getWritten()) {
+			entry.setCreatedVersion(next);
+			entry.getRoom().insert(entry);
+			entry.getRoom().modified(entry, next);
+		}
+		for (VersionedEntry entry : tx.getTaken()) {
+			entry.setRemovedVersion(next);
+			entry.getRoom().modified(entry, next);
+			removedEntries.add(entry);
+		}
+		version.set(next);
+		prune();
+	}
+
+	/**
+	 * remove the taken entries which are not visible to any running
+	 * transaction
+	 */
+	private void prune() {
+		long oldest = version.get();
+		for (InMemTransaction tx : activeTransactions) {
+			long snapshot = tx.getSnapshot();
+			if (snapshot < 0)
+				return;
+			oldest = Math.min(oldest, snapshot);
+		}
+		while (!removedEntries.isEmpty() && removedEntries.peek().getRemovedVersion() <= oldest) {
+			VersionedEntry entry = removedEntries.poll();
+			entry.getRoom().remove(entry);
+		}
+	}
+
+	/**
+	 * consecutive changes of the same room and kind are delivered as one batch
+	 */
+	private void fireChanges(List<Change> changes) {
+		int start = 0;
+		while (start < changes.size()) {
+			Change first = changes.get(start);
+			List<Serializable> batch = new ArrayList<>();
+			int end = start;
+			while (end < changes.size() && changes.get(end).room == first.room
+					&& changes.get(end).added == first.added)
+				batch.add(changes.get(end++).value);
+			for (IChangeListener observer : observers) {
+				try {
+					observer.onObjectsChanged(batch, first.room.getName(), first.added);
+				} catch (RuntimeException e) {
+					logger.error(e.getMessage());
+				}
+			}
+			start = end;
+		}
+	}
+
+}
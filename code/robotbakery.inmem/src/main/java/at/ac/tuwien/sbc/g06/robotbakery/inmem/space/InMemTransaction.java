@@ -0,0 +1,223 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.space;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+
+/**
+ * Transaction of the in-memory space. Reads see the committed state of the
+ * space at the start of the transaction plus its own writes. Takes claim the
+ * latest committed entries without locking, entries which are claimed by
+ * another transaction are skipped. Writes are buffered and published
+ * atomically with a new version on commit, afterwards the changes are
+ * notified. The rooms and types which are read or counted are recorded, the
+ * commit of a transaction which writes or takes fails if another transaction
+ * has changed them since the snapshot. A transaction is used by one thread
+ * only.
+ */
+public class InMemTransaction implements ITransaction {
+
+	private final InMemSpace space;
+	private volatile long snapshot = -1;
+	private final List<VersionedEntry> taken = new ArrayList<>();
+	private final List<VersionedEntry> written = new ArrayList<>();
+	private final List<Change> changes = new ArrayList<>();
+	private final Map<InMemRoom, Set<Class<?>>> readSet = new HashMap<>();
+
+	InMemTransaction(InMemSpace space) {
+		this.space = space;
+	}
+
+	/**
+	 * take entries of a room
+	 *
+	 * @param room
+	 *            room to take from
+	 * @param type
+	 *            type of the entries
+	 * @param filter
+	 *            filter of the entries, null for all
+	 * @param order
+	 *            order in which the entries are taken, null for FIFO
+	 * @param min
+	 *            minimal number of entries, nothing is taken if less are
+	 *            available
+	 * @param max
+	 *            maximal number of entries
+	 * @return taken values or null if less than min are available
+	 */
+	public <T extends Serializable> List<T> take(InMemRoom room, Class<T> type, Predicate<? super T> filter,
+			Comparator<? super T> order, int min, int max) {
+		List<VersionedEntry> result = new ArrayList<>();
+		long version = space.getVersion();
+		Stream<VersionedEntry> candidates = Stream.concat(
+				room.getEntries(type).stream().filter(e -> e.isVisible(version) && !e.isClaimed()),
+				ownWrites(room, type));
+		for (VersionedEntry entry : (Iterable<VersionedEntry>) select(candidates, type, filter, order)::iterator) {
+			if (result.size() >= max)
+				break;
+			if (written.contains(entry) || entry.claim(this))
+				result.add(entry);
+		}
+		if (result.size() < min) {
+			result.forEach(e -> e.release(this));
+			return null;
+		}
+		for (VersionedEntry entry : result) {
+			if (written.remove(entry)) {
+				// taking an own write cancels it
+				changes.removeIf(c -> c.entry == entry);
+			} else {
+				taken.add(entry);
+				changes.add(new Change(entry, entry.getRoom(), entry.getValue(), false));
+			}
+		}
+		return values(result, type);
+	}
+
+	/**
+	 * read entries of a room as seen by this transaction
+	 *
+	 * @param room
+	 *            room to read from
+	 * @param type
+	 *            type of the entries
+	 * @param filter
+	 *            filter of the entries, null for all
+	 * @param order
+	 *            order of the result, null for FIFO
+	 * @param max
+	 *            maximal number of entries
+	 * @return read values
+	 */
+	public <T> List<T> read(InMemRoom room, Class<T> type, Predicate<? super T> filter,
+			Comparator<? super T> order, int max) {
+		addToReadSet(room, type);
+		return values(select(visible(room, type), type, filter, order).limit(max).collect(Collectors.toList()), type);
+	}
+
+	/**
+	 * @return number of entries of the room as seen by this transaction
+	 */
+	public <T> int count(InMemRoom room, Class<T> type, Predicate<? super T> filter) {
+		addToReadSet(room, type);
+		return (int) select(visible(room, type), type, filter, null).count();
+	}
+
+	public void write(InMemRoom room, Serializable value) {
+		VersionedEntry entry = space.createEntry(room, value);
+		written.add(entry);
+		changes.add(new Change(entry, room, value, true));
+	}
+
+	/**
+	 * notify the listeners of the space on commit without storing the value
+	 *
+	 * @param room
+	 *            room which is reported to the listeners
+	 * @param value
+	 *            notified value
+	 */
+	public void notify(InMemRoom room, Serializable value) {
+		changes.add(new Change(null, room, value, true));
+	}
+
+	public boolean commit() {
+		return space.commit(this);
+	}
+
+	public boolean rollback() {
+		return space.rollback(this);
+	}
+
+	private void addToReadSet(InMemRoom room, Class<?> type) {
+		readSet.computeIfAbsent(room, r -> new HashSet<>()).add(type);
+	}
+
+	/**
+	 * @return true if no entry of the rooms and types which have been read or
+	 *         counted has been written or taken by a commit after the
+	 *         snapshot, has to be called with the commit lock of the space
+	 */
+	boolean isReadSetValid() {
+		for (Map.Entry<InMemRoom, Set<Class<?>>> read : readSet.entrySet()) {
+			for (Class<?> type : read.getValue()) {
+				if (read.getKey().getModifiedVersion(type) > snapshot)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	long getSnapshot() {
+		return snapshot;
+	}
+
+	void setSnapshot(long snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	List<VersionedEntry> getTaken() {
+		return taken;
+	}
+
+	List<VersionedEntry> getWritten() {
+		return written;
+	}
+
+	List<Change> getChanges() {
+		return changes;
+	}
+
+	private Stream<VersionedEntry> visible(InMemRoom room, Class<?> type) {
+		return Stream.concat(room.getEntries(type).stream().filter(e -> e.isVisible(snapshot) && !e.isClaimedBy(this)),
+				ownWrites(room, type));
+	}
+
+	private Stream<VersionedEntry> ownWrites(InMemRoom room, Class<?> type) {
+		return written.stream().filter(e -> e.getRoom() == room && type.isInstance(e.getValue()));
+	}
+
+	private static <T> Stream<VersionedEntry> select(Stream<VersionedEntry> entries, Class<T> type,
+			Predicate<? super T> filter, Comparator<? super T> order) {
+		if (filter != null)
+			entries = entries.filter(e -> filter.test(type.cast(e.getValue())));
+		if (order != null)
+			entries = entries.sorted(Comparator.comparing(e -> type.cast(e.getValue()), order));
+		return entries;
+	}
+
+	private static <T> List<T> values(List<VersionedEntry> entries, Class<T> type) {
+		List<T> values = new ArrayList<>(entries.size());
+		entries.forEach(e -> values.add(type.cast(e.getValue())));
+		return values;
+	}
+
+	/**
+	 * change which is notified after the commit
+	 */
+	static class Change {
+		final VersionedEntry entry;
+		final InMemRoom room;
+		final Serializable value;
+		final boolean added;
+
+		Change(VersionedEntry entry, InMemRoom room, Serializable value, boolean added) {
+			this.entry = entry;
+			this.room = room;
+			this.value = value;
+			this.added = added;
+		}
+	}
+
+}
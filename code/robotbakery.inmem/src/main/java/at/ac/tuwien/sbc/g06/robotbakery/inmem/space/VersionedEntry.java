@@ -0,0 +1,86 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.space;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Entry of a room. The value is stored by reference, the entry keeps the
+ * versions in which it was written and taken, so that every transaction sees
+ * the room as it was when the transaction started. A transaction which takes
+ * the entry claims it first, competing transactions skip claimed entries.
+ */
+class VersionedEntry {
+
+	static final long NOT_REMOVED = Long.MAX_VALUE;
+
+	private final long sequence;
+	private final InMemRoom room;
+	private final Serializable value;
+	private volatile long createdVersion = NOT_REMOVED;
+	private volatile long removedVersion = NOT_REMOVED;
+	private final AtomicReference<InMemTransaction> owner = new AtomicReference<>();
+
+	VersionedEntry(long sequence, InMemRoom room, Serializable value) {
+		this.sequence = sequence;
+		this.room = room;
+		this.value = value;
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	InMemRoom getRoom() {
+		return room;
+	}
+
+	Serializable getValue() {
+		return value;
+	}
+
+	/**
+	 * @param snapshot
+	 *            version of the space when the reader started
+	 * @return true if the entry was written before and not yet taken at the
+	 *         given version
+	 */
+	boolean isVisible(long snapshot) {
+		return createdVersion <= snapshot && removedVersion > snapshot;
+	}
+
+	boolean isClaimed() {
+		return owner.get() != null;
+	}
+
+	/**
+	 * claim the entry for a take, fails if another transaction took it already
+	 *
+	 * @param tx
+	 *            taking transaction
+	 * @return true if the entry belongs to the transaction now
+	 */
+	boolean claim(InMemTransaction tx) {
+		return removedVersion == NOT_REMOVED && owner.compareAndSet(null, tx);
+	}
+
+	boolean isClaimedBy(InMemTransaction tx) {
+		return owner.get() == tx;
+	}
+
+	void release(InMemTransaction tx) {
+		owner.compareAndSet(tx, null);
+	}
+
+	long getRemovedVersion() {
+		return removedVersion;
+	}
+
+	void setCreatedVersion(long createdVersion) {
+		this.createdVersion = createdVersion;
+	}
+
+	void setRemovedVersion(long removedVersion) {
+		this.removedVersion = removedVersion;
+	}
+
+}
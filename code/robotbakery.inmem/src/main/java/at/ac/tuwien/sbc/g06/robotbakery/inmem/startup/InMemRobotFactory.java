@@ -0,0 +1,70 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.startup;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.BakeRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.DeliveryRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.KneadRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ProductionPlanner;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.Robot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ServiceRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.WaterSupply;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.InMemBakeryChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.InMemBakeRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.InMemDeliveryRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.InMemKneadRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.InMemServiceRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.service.InMemStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.transaction.InMemTransactionManager;
+
+/**
+ * Creates robots which work directly on the given in-memory space, the space
+ * has to be shared with the bakery and the tablets of the same process.
+ */
+public class InMemRobotFactory implements RobotFactory {
+
+	private final InMemSpace space;
+	private final InMemTransactionManager transactionManager;
+	private final InMemBakeryChangeNotifer changeNotifer;
+	private final StockView stockView;
+	private final ProductionPlanner planner;
+	private final WaterSupply waterSupply;
+
+	public InMemRobotFactory(InMemSpace space) {
+		this.space = space;
+		this.transactionManager = new InMemTransactionManager(space);
+		this.changeNotifer = new InMemBakeryChangeNotifer(space);
+		this.stockView = new StockView(changeNotifer, new InMemStockService(space));
+		this.planner = new ProductionPlanner(stockView);
+		this.waterSupply = new WaterSupply();
+	}
+
+	@Override
+	public Robot createRobot(String type, String id) {
+		switch (type) {
+		case TYPE_SERVICE:
+			return new ServiceRobot(new InMemServiceRobotService(space, stockView), changeNotifer, transactionManager, id);
+		case TYPE_KNEAD:
+			return new KneadRobot(new InMemKneadRobotService(space, stockView), changeNotifer, transactionManager, id,
+					planner, waterSupply);
+		case TYPE_BAKE:
+			return new BakeRobot(new InMemBakeRobotService(space), changeNotifer, transactionManager, id);
+		case TYPE_DELIVER:
+			return new DeliveryRobot(new InMemDeliveryRobotService(space), changeNotifer, transactionManager, id);
+		default:
+			throw new IllegalArgumentException("Unknown robot type: " + type);
+		}
+	}
+
+	@Override
+	public void releaseRobot(Robot robot) {
+		// in-memory services don't hold resources of their own
+	}
+
+	@Override
+	public void close() {
+		space.removeObserver(changeNotifer);
+	}
+
+}
@@ -0,0 +1,35 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.transaction;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransactionManager;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemTransaction;
+
+public class InMemTransactionManager implements ITransactionManager {
+
+	private final InMemSpace space;
+
+	public InMemTransactionManager(InMemSpace space) {
+		this.space = space;
+	}
+
+	@Override
+	public ITransaction createTransaction() {
+		return space.createTransaction();
+	}
+
+	@Override
+	public boolean commitTransaction(ITransaction transaction) {
+		if (!(transaction instanceof InMemTransaction))
+			return false;
+		return ((InMemTransaction) transaction).commit();
+	}
+
+	@Override
+	public boolean rollback(ITransaction transaction) {
+		if (!(transaction instanceof InMemTransaction))
+			return false;
+		return ((InMemTransaction) transaction).rollback();
+	}
+
+}
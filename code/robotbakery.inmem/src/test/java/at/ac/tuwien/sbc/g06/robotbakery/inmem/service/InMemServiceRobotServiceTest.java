@@ -0,0 +1,63 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemSpace;
+import at.ac.tuwien.sbc.g06.robotbakery.inmem.space.InMemTransaction;
+
+public class InMemServiceRobotServiceTest {
+
+	private static final String PRODUCT = SBCConstants.PRODUCTS_NAMES.get(0);
+
+	private InMemSpace space;
+	private InMemServiceRobotService service;
+
+	@Before
+	public void setUp() {
+		space = new InMemSpace();
+		service = new InMemServiceRobotService(space);
+	}
+
+	@Test
+	public void testAddToCounterChecksCapacity() {
+		assertTrue(service.addToCounter(products(SBCConstants.COUNTER_MAX_CAPACITY), null));
+		assertFalse(service.addToCounter(products(1), null));
+		assertEquals(SBCConstants.COUNTER_MAX_CAPACITY.intValue(), counterStock());
+	}
+
+	@Test
+	public void testConcurrentRefillsDontOverfillCounter() {
+		assertTrue(service.addToCounter(products(SBCConstants.COUNTER_MAX_CAPACITY - 1), null));
+		InMemTransaction first = space.createTransaction();
+		InMemTransaction second = space.createTransaction();
+		// both pass the capacity check before either is committed
+		assertTrue(service.addToCounter(products(1), first));
+		assertTrue(service.addToCounter(products(1), second));
+		assertTrue(first.commit());
+		assertFalse(second.commit());
+		assertEquals(SBCConstants.COUNTER_MAX_CAPACITY.intValue(), counterStock());
+	}
+
+	private int counterStock() {
+		return service.count(service.getRoom(SBCConstants.COORDINATION_ROOM_COUNTER), null, Product.class,
+				p -> PRODUCT.equals(p.getProductName()));
+	}
+
+	private static List<Product> products(int amount) {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < amount; i++)
+			products.add(new Product(PRODUCT));
+		return products;
+	}
+
+}
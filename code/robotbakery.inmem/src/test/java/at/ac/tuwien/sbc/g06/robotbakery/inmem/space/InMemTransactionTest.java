@@ -0,0 +1,182 @@
+package at.ac.tuwien.sbc.g06.robotbakery.inmem.space;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
+
+public class InMemTransactionTest {
+
+	private InMemSpace space;
+	private InMemRoom room;
+	private InMemRoom otherRoom;
+
+	@Before
+	public void setUp() {
+		space = new InMemSpace();
+		room = space.getRoom("room");
+		otherRoom = space.getRoom("other");
+	}
+
+	@Test
+	public void testCommitPublishesWrites() {
+		InMemTransaction tx = space.createTransaction();
+		tx.write(room, "a");
+		assertEquals(1, tx.count(room, String.class, null));
+		assertEquals(0, count(room));
+		assertTrue(tx.commit());
+		assertEquals(1, count(room));
+		assertEquals(1, space.getVersion());
+	}
+
+	@Test
+	public void testRollbackDiscardsWrites() {
+		InMemTransaction tx = space.createTransaction();
+		tx.write(room, "a");
+		assertTrue(tx.rollback());
+		assertEquals(0, count(room));
+		assertFalse(tx.commit());
+	}
+
+	@Test
+	public void testReadsSeeSnapshot() {
+		write(room, "a");
+		InMemTransaction reader = space.createTransaction();
+		write(room, "b");
+		take(room);
+		assertEquals(1, reader.count(room, String.class, null));
+		assertEquals("a", reader.read(room, String.class, null, null, 10).get(0));
+		assertTrue(reader.commit());
+	}
+
+	@Test
+	public void testClaimedEntryIsSkipped() {
+		write(room, "a");
+		write(room, "b");
+		InMemTransaction first = space.createTransaction();
+		InMemTransaction second = space.createTransaction();
+		assertEquals("a", first.take(room, String.class, null, null, 1, 1).get(0));
+		assertEquals("b", second.take(room, String.class, null, null, 1, 1).get(0));
+		assertNull(second.take(room, String.class, null, null, 1, 1));
+		assertTrue(first.commit());
+		assertTrue(second.commit());
+		assertEquals(0, count(room));
+	}
+
+	@Test
+	public void testRollbackReleasesTakenEntries() {
+		write(room, "a");
+		InMemTransaction first = space.createTransaction();
+		assertEquals(1, first.take(room, String.class, null, null, 1, 1).size());
+		InMemTransaction second = space.createTransaction();
+		assertNull(second.take(room, String.class, null, null, 1, 1));
+		assertTrue(first.rollback());
+		assertEquals(1, second.take(room, String.class, null, null, 1, 1).size());
+		assertTrue(second.commit());
+		assertEquals(0, count(room));
+	}
+
+	@Test
+	public void testTakingOwnWriteCancelsIt() {
+		InMemTransaction tx = space.createTransaction();
+		tx.write(room, "a");
+		assertEquals(1, tx.take(room, String.class, null, null, 1, 1).size());
+		assertTrue(tx.commit());
+		assertEquals(0, count(room));
+	}
+
+	@Test
+	public void testWriteSkewIsDetected() {
+		// two transactions check the same limit and write
+		InMemTransaction first = space.createTransaction();
+		InMemTransaction second = space.createTransaction();
+		if (first.count(room, String.class, null) < 1)
+			first.write(room, "a");
+		if (second.count(room, String.class, null) < 1)
+			second.write(room, "b");
+		assertTrue(first.commit());
+		assertFalse(second.commit());
+		assertEquals(1, count(room));
+	}
+
+	@Test
+	public void testConflictingCommitReleasesTakenEntries() {
+		write(otherRoom, "x");
+		InMemTransaction first = space.createTransaction();
+		InMemTransaction second = space.createTransaction();
+		second.count(room, String.class, null);
+		assertEquals(1, second.take(otherRoom, String.class, null, null, 1, 1).size());
+		first.write(room, "a");
+		assertTrue(first.commit());
+		assertFalse(second.commit());
+		assertEquals(1, count(otherRoom));
+		assertEquals(1, take(otherRoom));
+	}
+
+	@Test
+	public void testChangesOfOtherRoomsAndTypesDontConflict() {
+		InMemTransaction first = space.createTransaction();
+		InMemTransaction second = space.createTransaction();
+		second.count(room, String.class, null);
+		second.write(room, "a");
+		first.write(otherRoom, "x");
+		first.write(room, 1);
+		assertTrue(first.commit());
+		assertTrue(second.commit());
+	}
+
+	@Test
+	public void testReadOnlyTransactionCommitsAfterChange() {
+		InMemTransaction reader = space.createTransaction();
+		reader.count(room, String.class, null);
+		write(room, "a");
+		assertTrue(reader.commit());
+	}
+
+	@Test
+	public void testChangesAreNotifiedAfterCommit() {
+		List<Serializable> notified = new ArrayList<>();
+		space.addObserver(new IChangeListener() {
+			@Override
+			public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
+				notified.add(object);
+			}
+		});
+		InMemTransaction tx = space.createTransaction();
+		tx.write(room, "a");
+		tx.write(room, "b");
+		assertTrue(notified.isEmpty());
+		assertTrue(tx.commit());
+		assertEquals(2, notified.size());
+	}
+
+	private void write(InMemRoom target, Serializable value) {
+		InMemTransaction tx = space.createTransaction();
+		tx.write(target, value);
+		assertTrue(tx.commit());
+	}
+
+	private int take(InMemRoom target) {
+		InMemTransaction tx = space.createTransaction();
+		List<String> taken = tx.take(target, String.class, null, null, 1, 1);
+		assertTrue(tx.commit());
+		return taken == null ? 0 : taken.size();
+	}
+
+	private int count(InMemRoom target) {
+		InMemTransaction tx = space.createTransaction();
+		int count = tx.count(target, String.class, null);
+		tx.commit();
+		return count;
+	}
+
+}
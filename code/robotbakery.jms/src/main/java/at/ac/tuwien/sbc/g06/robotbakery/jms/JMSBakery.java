@@ -1,49 +1,91 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms;
 
+import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
+import javax.jms.QueueBrowser;
 import javax.jms.Session;
-import javax.jms.TopicConnection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSStockService;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
 
 public class JMSBakery extends Bakery {
 	private static Logger logger = LoggerFactory.getLogger(JMSBakery.class);
-	private TopicConnection connection;
+	private Connection connection;
 	private MessageProducer counterQueueMessageProducer;
 	private Session queueSession;
 
 	public JMSBakery() {
 		super(new JMSBakeryChangeNotifer());
 		try {
-			connection = JMSUtil.createTopicConnection(JMSConstants.SERVER_ADDRESS);
-			queueSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-			Queue counterQueue = queueSession.createQueue(JMSConstants.Queue.COUNTER);
-			counterQueueMessageProducer = queueSession.createProducer(counterQueue);
-			connection.start();
+			init(JMSUtil.createTopicConnection(JMSUtil.getServerAddress()));
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
 	}
 
+	/**
+	 * Creates the bakery on a connection that is shared with other services,
+	 * e.g. with an embedded broker
+	 * 
+	 * @param connection
+	 *            shared connection
+	 */
+	public JMSBakery(Connection connection) {
+		super(new JMSBakeryChangeNotifer(connection));
+		try {
+			init(connection);
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+	private void init(Connection connection) throws JMSException {
+		this.connection = connection;
+		queueSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		Queue counterQueue = queueSession.createQueue(JMSConstants.Queue.COUNTER);
+		counterQueueMessageProducer = queueSession.createProducer(counterQueue);
+		connection.start();
+	}
+
 	@Override
 	public void init() {
 		try {
-			Message msg = queueSession.createObjectMessage(new WaterPipe());
-			msg.setStringProperty(JMSConstants.Property.CLASS, WaterPipe.class.getSimpleName());
-			counterQueueMessageProducer.send(msg);
+			// the queues which a persistent broker has restored contain the
+			// water pipes already
+			if (isRecovered()) {
+				((JMSBakeryChangeNotifer) changeNotifer).replayRecoveredBakery(new JMSStockService(connection));
+				return;
+			}
+			for (WaterPipe pipe : WaterPipe.getConfiguredPipes()) {
+				Message msg = queueSession.createObjectMessage(pipe);
+				msg.setStringProperty(JMSConstants.Property.CLASS, WaterPipe.class.getSimpleName());
+				msg.setStringProperty(JMSConstants.Property.ID, pipe.getId().toString());
+				msg.setLongProperty(JMSConstants.Property.EXPIRES_AT, pipe.getLeaseExpiresAt());
+				counterQueueMessageProducer.send(msg);
+			}
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
 
 	}
 
+	private boolean isRecovered() throws JMSException {
+		QueueBrowser browser = queueSession.createBrowser(queueSession.createQueue(JMSConstants.Queue.COUNTER),
+				String.format("%s = '%s'", JMSConstants.Property.CLASS, WaterPipe.class.getSimpleName()));
+		try {
+			return browser.getEnumeration().hasMoreElements();
+		} finally {
+			browser.close();
+		}
+	}
+
 }
@@ -1,53 +1,109 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
 
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.Message;
+import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
 import javax.jms.ObjectMessage;
 import javax.jms.Session;
 import javax.jms.Topic;
-import javax.jms.TopicConnection;
-import javax.jms.TopicSession;
-import javax.jms.TopicSubscriber;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
 import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.ChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
 
 public class JMSBakeryChangeNotifer extends ChangeNotifer implements MessageListener{
 	private static Logger logger = LoggerFactory.getLogger(JMSBakeryChangeNotifer.class);
-	private TopicConnection connection;
-	private TopicSession session;
+	private static final List<String> REPLAYED_ROOMS = Arrays.asList(SBCConstants.COORDINATION_ROOM_STORAGE,
+			SBCConstants.COORDINATION_ROOM_BAKEROOM, SBCConstants.COORDINATION_ROOM_COUNTER,
+			SBCConstants.COORDINATION_ROOM_TERMINAL);
+
+	private Connection connection;
+	private Session session;
+	private IStockService recoveredBakery;
 	
 	public JMSBakeryChangeNotifer() {
 		try {
-			connection = JMSUtil.createTopicConnection(JMSConstants.SERVER_ADDRESS);
-			session = connection.createTopicSession(false, Session.AUTO_ACKNOWLEDGE);
-			Topic notificationTopic = session.createTopic(JMSConstants.Topic.NOTIFICATION);
-			TopicSubscriber subscriber = session.createSubscriber(notificationTopic);
-			subscriber.setMessageListener(this);
-			connection.start();
+			subscribe(JMSUtil.createTopicConnection(JMSUtil.getServerAddress()));
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates a notifier which subscribes with its own session on a connection
+	 * that is shared with other services
+	 * 
+	 * @param connection
+	 *            shared connection
+	 */
+	public JMSBakeryChangeNotifer(Connection connection) {
+		try {
+			subscribe(connection);
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
 	}
 
+	private void subscribe(Connection connection) throws JMSException {
+		this.connection = connection;
+		session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		Topic notificationTopic = session.createTopic(JMSConstants.Topic.NOTIFICATION);
+		MessageConsumer subscriber = session.createConsumer(notificationTopic);
+		subscriber.setMessageListener(this);
+		connection.start();
+	}
+
+	/**
+	 * Listeners which are registered after a persistent broker has restored
+	 * the queues receive the content of the rooms first, like it had been
+	 * written, e.g. the dashboard of the bakery. Is not used for the stock
+	 * views of the robots, which read the rooms themselves.
+	 * 
+	 * @param stockService
+	 *            service which reads the restored rooms
+	 */
+	public void replayRecoveredBakery(IStockService stockService) {
+		this.recoveredBakery = stockService;
+	}
+
+	@Override
+	public boolean registerChangeListener(IChangeListener listener) {
+		if (!super.registerChangeListener(listener))
+			return false;
+		if (recoveredBakery != null) {
+			for (String room : REPLAYED_ROOMS) {
+				List<Serializable> content = recoveredBakery.readRoom(room);
+				if (content != null && !content.isEmpty())
+					listener.onObjectsChanged(content, room, true);
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public void onMessage(Message message) {
 		try {
-			if (message instanceof ObjectMessage) {
-				Serializable ser = ((ObjectMessage) message).getObject();
+			if (message instanceof ObjectMessage || message instanceof BytesMessage) {
+				List<Serializable> objects = JMSUtil.getNotifiedObjects(message);
 				boolean removed = message.getBooleanProperty(JMSConstants.Property.REMOVED);
 
 				String coordinationRoom = JMSUtil
 						.getCoordinationRoom(message.getStringProperty(JMSConstants.Property.ORIGINAL_DESTINATION));
 
-				registeredChangeListeners.forEach(ls -> ls.onObjectChanged(ser, coordinationRoom, !removed));
+				registeredChangeListeners.forEach(ls -> ls.onObjectsChanged(objects, coordinationRoom, !removed));
 
 			}
 
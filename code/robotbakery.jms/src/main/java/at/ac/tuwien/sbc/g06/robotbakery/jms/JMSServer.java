@@ -1,13 +1,27 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms;
 
+import java.util.Collections;
+
 import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.broker.region.policy.PolicyMap;
+import org.apache.activemq.command.ActiveMQQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.jms.persistence.JMSBrokerStore;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
 
 public class JMSServer  {
 	private static Logger logger = LoggerFactory.getLogger(JMSServer.class);
+
+	// messages which the broker pages in for the browsers and the consumers
+	// of a bakery queue, by default a browser only sees the first 400
+	// messages of a queue and a consumer with a selector the first 200
+	private static final int PAGE_SIZE = 100000;
+	private static final String[] BAKERY_QUEUES = { JMSConstants.Queue.ORDER, JMSConstants.Queue.COUNTER,
+			JMSConstants.Queue.TERMINAL, JMSConstants.Queue.STORAGE, JMSConstants.Queue.BAKEROOM };
 	private BrokerService broker;
 
 	public JMSServer() throws Exception {
@@ -21,12 +35,36 @@ public class JMSServer  {
 	}
 
 	public boolean startUp(String address) {
+		return startUp(address, null);
+	}
+
+	/**
+	 * starts the broker, which accepts connections at the given address and
+	 * from clients in this process at vm://brokerName
+	 * 
+	 * @param address
+	 *            address of the transport connector
+	 * @param brokerName
+	 *            name of the broker, e.g. {@link JMSConstants#BROKER_NAME}, or
+	 *            null for the default name
+	 * @return true if the broker has been started
+	 */
+	public boolean startUp(String address, String brokerName) {
 		try {
 			broker = new BrokerService();
+			if (brokerName != null)
+				broker.setBrokerName(brokerName);
 			broker.addConnector(address);
-			broker.setPersistent(false);
-			// Clear potential old messages
-			broker.deleteAllMessages();
+			JMSBrokerStore store = JMSBrokerStore.fromConfiguration();
+			if (store != null) {
+				// the queues are restored when the broker starts
+				store.configure(broker);
+			} else {
+				broker.setPersistent(false);
+				// Clear potential old messages
+				broker.deleteAllMessages();
+			}
+			configureDestinations(broker);
 			broker.start();
 
 			System.out.println(
@@ -38,6 +76,34 @@ public class JMSServer  {
 		}
 
 	}
-	
-	
+
+	/**
+	 * sets the destination policies of the broker, has to be called before
+	 * the broker is started. The broker sends the advisories for the
+	 * {@link QueueView}s of all destinations. The bakery queues are paged in
+	 * with up to {@value #PAGE_SIZE} messages, so that the browsers and the
+	 * consumers with selectors see the whole queue, also after the queue has
+	 * been restored from the store. The paged in messages are held in the
+	 * memory of the broker with their bodies, with messages of about 1 KB a
+	 * queue which is paged in completely takes about 100 MB. The other
+	 * destinations, e.g. the delivery queue and the topics, keep the default
+	 * page size.
+	 *
+	 * @param broker
+	 *            broker which is not started yet
+	 */
+	public static void configureDestinations(BrokerService broker) {
+		PolicyEntry defaultPolicy = new PolicyEntry();
+		QueueView.enableAdvisories(defaultPolicy);
+		PolicyEntry queuePolicy = new PolicyEntry();
+		queuePolicy.setDestination(new ActiveMQQueue(String.join(",", BAKERY_QUEUES)));
+		QueueView.enableAdvisories(queuePolicy);
+		queuePolicy.setMaxBrowsePageSize(PAGE_SIZE);
+		queuePolicy.setMaxPageSize(PAGE_SIZE);
+		PolicyMap policyMap = new PolicyMap();
+		policyMap.setDefaultEntry(defaultPolicy);
+		policyMap.setPolicyEntries(Collections.singletonList(queuePolicy));
+		broker.setDestinationPolicy(policyMap);
+	}
+
 }
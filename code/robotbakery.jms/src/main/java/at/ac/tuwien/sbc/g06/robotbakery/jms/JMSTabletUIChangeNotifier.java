@@ -1,7 +1,9 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms;
 
 import java.io.Serializable;
+import java.util.List;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -26,7 +28,7 @@ public class JMSTabletUIChangeNotifier extends TabletUIChangeNotifer implements
 
 	public JMSTabletUIChangeNotifier() {
 		try {
-			connection = JMSUtil.createTopicConnection(JMSConstants.SERVER_ADDRESS);
+			connection = JMSUtil.createTopicConnection(JMSUtil.getServerAddress());
 			session = connection.createTopicSession(false, Session.AUTO_ACKNOWLEDGE);
 			Topic notificationTopic = session.createTopic(JMSConstants.Topic.NOTIFICATION);
 			TopicSubscriber subscriber = session.createSubscriber(notificationTopic);
@@ -40,12 +42,12 @@ public class JMSTabletUIChangeNotifier extends TabletUIChangeNotifer implements
 	@Override
 	public void onMessage(Message message) {
 		try {
-			if (message instanceof ObjectMessage) {
-				Serializable ser = ((ObjectMessage) message).getObject();
+			if (message instanceof ObjectMessage || message instanceof BytesMessage) {
+				List<Serializable> objects = JMSUtil.getNotifiedObjects(message);
 				boolean removed = message.getBooleanProperty(JMSConstants.Property.REMOVED);
 				String coordinationRoom = JMSUtil
 						.getCoordinationRoom(message.getStringProperty(JMSConstants.Property.ORIGINAL_DESTINATION));
-				registeredChangeListeners.forEach(ls -> ls.onObjectChanged(ser, coordinationRoom, !removed));
+				registeredChangeListeners.forEach(ls -> ls.onObjectsChanged(objects, coordinationRoom, !removed));
 			}
 
 		} catch (JMSException e) {
@@ -0,0 +1,395 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.Item;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.Contribution;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.RecipeRegistry;
+
+/**
+ * Compact binary format of the model objects which are sent in the JMS
+ * messages. An encoded object starts with the version of the format and a tag
+ * for its class. Recipes of the {@link RecipeRegistry} are referenced by their
+ * product name instead of being written, enums are written as their ordinal
+ * and the contribution types of the products as index of the known types.
+ *
+ * Lists, e.g. of a batched notification, may contain objects of other classes,
+ * which are written with Java serialization.
+ */
+public final class BinaryFormat {
+
+	public static final byte VERSION = 1;
+
+	private static final byte TAG_PRODUCT = 1;
+	private static final byte TAG_ORDER = 2;
+	private static final byte TAG_PACKED_ORDER = 3;
+	private static final byte TAG_PREPACKAGE = 4;
+	private static final byte TAG_INGREDIENT = 5;
+	private static final byte TAG_FLOUR_PACK = 6;
+	private static final byte TAG_NOTIFICATION = 7;
+	private static final byte TAG_LIST = 8;
+	private static final byte TAG_SERIALIZED = 9;
+
+	private static final byte RECIPE_REFERENCE = 0;
+	private static final byte RECIPE_INLINE = 1;
+
+	private static final List<String> CONTRIBUTION_TYPES = Arrays.asList(Product.DOUGH_BASE, Product.DOUGH_FINAL,
+			Product.BAKE, Product.TRANSFER_TO_COUNTER, Product.PACK_UP, Product.DELIVERD);
+	private static final byte OTHER_CONTRIBUTION_TYPE = -1;
+
+	/**
+	 * @param object
+	 *            object which should be encoded
+	 * @return true if the class of the object has a binary representation,
+	 *         objects of other classes can only be encoded in a list
+	 */
+	public static boolean supports(Object object) {
+		return object instanceof Product || object instanceof Order || object instanceof Prepackage
+				|| object instanceof Ingredient || object instanceof NotificationMessage || object instanceof List;
+	}
+
+	/**
+	 * @param object
+	 *            object which should be encoded, see
+	 *            {@link #supports(Object)}
+	 * @return encoded object
+	 * @throws IOException
+	 */
+	public static byte[] write(Serializable object) throws IOException {
+		if (!supports(object))
+			throw new IOException("No binary format for " + object.getClass().getSimpleName());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(VERSION);
+		writeObject(out, object);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param data
+	 *            encoded object
+	 * @return decoded object
+	 * @throws IOException
+	 *             if the data has another version of the format or is
+	 *             corrupted
+	 */
+	public static Serializable read(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		byte version = in.readByte();
+		if (version != VERSION)
+			throw new IOException("Unsupported version of binary format: " + version);
+		return readObject(in);
+	}
+
+	private static void writeObject(DataOutputStream out, Object object) throws IOException {
+		if (object instanceof Product) {
+			out.writeByte(TAG_PRODUCT);
+			writeProduct(out, (Product) object);
+		} else if (object instanceof PackedOrder) {
+			out.writeByte(TAG_PACKED_ORDER);
+			writeOrder(out, (Order) object);
+			writeProducts(out, ((PackedOrder) object).getProducts());
+		} else if (object instanceof Order) {
+			out.writeByte(TAG_ORDER);
+			writeOrder(out, (Order) object);
+		} else if (object instanceof Prepackage) {
+			out.writeByte(TAG_PREPACKAGE);
+			writePrepackage(out, (Prepackage) object);
+		} else if (object instanceof FlourPack) {
+			out.writeByte(TAG_FLOUR_PACK);
+			writeUUID(out, ((FlourPack) object).getId());
+			out.writeInt(((FlourPack) object).getCurrentAmount());
+		} else if (object instanceof Ingredient) {
+			out.writeByte(TAG_INGREDIENT);
+			writeUUID(out, ((Ingredient) object).getId());
+			out.writeByte(((Ingredient) object).getType().ordinal());
+		} else if (object instanceof NotificationMessage) {
+			out.writeByte(TAG_NOTIFICATION);
+			out.writeInt(((NotificationMessage) object).getMessageTyp());
+		} else if (object instanceof List) {
+			List<?> list = (List<?>) object;
+			out.writeByte(TAG_LIST);
+			out.writeInt(list.size());
+			for (Object element : list)
+				writeObject(out, element);
+		} else {
+			out.writeByte(TAG_SERIALIZED);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+				objectOut.writeObject(object);
+			}
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		}
+	}
+
+	private static Serializable readObject(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case TAG_PRODUCT:
+			return readProduct(in);
+		case TAG_PACKED_ORDER:
+			PackedOrder packedOrder = readPackedOrder(in);
+			packedOrder.addAll(readProducts(in));
+			return packedOrder;
+		case TAG_ORDER:
+			return readOrder(in);
+		case TAG_PREPACKAGE:
+			return readPrepackage(in);
+		case TAG_FLOUR_PACK:
+			return new FlourPack(readUUID(in), in.readInt());
+		case TAG_INGREDIENT:
+			return new Ingredient(readUUID(in), IngredientType.values()[in.readByte()]);
+		case TAG_NOTIFICATION:
+			return new NotificationMessage(in.readInt());
+		case TAG_LIST:
+			int size = in.readInt();
+			ArrayList<Serializable> list = new ArrayList<>(size);
+			for (int i = 0; i < size; i++)
+				list.add(readObject(in));
+			return list;
+		case TAG_SERIALIZED:
+			byte[] serialized = new byte[in.readInt()];
+			in.readFully(serialized);
+			try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+				return (Serializable) objectIn.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		default:
+			throw new IOException("Unknown tag in binary format: " + tag);
+		}
+	}
+
+	private static void writeProduct(DataOutputStream out, Product product) throws IOException {
+		writeUUID(out, product.getId());
+		writeRecipe(out, product.getRecipe());
+		out.writeByte(product.getType().ordinal());
+		writeTimestamp(out, product.getTimestamp());
+		out.writeShort(product.getContributions().size());
+		for (Contribution contribution : product.getContributions()) {
+			writeUUID(out, contribution.getContributerId());
+			int type = CONTRIBUTION_TYPES.indexOf(contribution.getType());
+			out.writeByte(type);
+			if (type == OTHER_CONTRIBUTION_TYPE)
+				writeString(out, contribution.getType());
+			writeString(out, contribution.getContributor());
+		}
+	}
+
+	private static Product readProduct(DataInputStream in) throws IOException {
+		Product product = new Product(readUUID(in), readRecipe(in));
+		product.setType(BakeState.values()[in.readByte()]);
+		product.setTimestamp(readTimestamp(in));
+		int contributions = in.readShort();
+		for (int i = 0; i < contributions; i++) {
+			UUID contributerId = readUUID(in);
+			byte type = in.readByte();
+			String typeName = type == OTHER_CONTRIBUTION_TYPE ? readString(in) : CONTRIBUTION_TYPES.get(type);
+			product.addContribution(contributerId, typeName, readString(in));
+		}
+		return product;
+	}
+
+	private static void writeProducts(DataOutputStream out, List<Product> products) throws IOException {
+		out.writeInt(products.size());
+		for (Product product : products)
+			writeProduct(out, product);
+	}
+
+	private static List<Product> readProducts(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<Product> products = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			products.add(readProduct(in));
+		return products;
+	}
+
+	/**
+	 * the recipe is referenced by its product name, if it is the recipe of the
+	 * registry for the product
+	 */
+	private static void writeRecipe(DataOutputStream out, Recipe recipe) throws IOException {
+		if (isRegistered(recipe)) {
+			out.writeByte(RECIPE_REFERENCE);
+			out.writeUTF(recipe.getProductName());
+			return;
+		}
+		out.writeByte(RECIPE_INLINE);
+		out.writeUTF(recipe.getProductName());
+		out.writeDouble(recipe.getPricePerUnit());
+		out.writeInt(recipe.getBakeTime());
+		out.writeByte(recipe.getIngredients().size());
+		for (Map.Entry<IngredientType, Integer> ingredient : recipe.getIngredients().entrySet()) {
+			out.writeByte(ingredient.getKey().ordinal());
+			out.writeInt(ingredient.getValue());
+		}
+	}
+
+	private static Recipe readRecipe(DataInputStream in) throws IOException {
+		byte kind = in.readByte();
+		String productName = in.readUTF();
+		if (kind == RECIPE_REFERENCE) {
+			Recipe recipe = RecipeRegistry.getInstance().getRecipeByName(productName);
+			if (recipe == null)
+				throw new IOException("Unknown recipe: " + productName);
+			return recipe;
+		}
+		double pricePerUnit = in.readDouble();
+		int bakeTime = in.readInt();
+		int size = in.readByte();
+		List<IngredientType> types = new ArrayList<>(size);
+		List<Integer> amounts = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			types.add(IngredientType.values()[in.readByte()]);
+			amounts.add(in.readInt());
+		}
+		return new Recipe(productName, types, amounts, pricePerUnit, bakeTime);
+	}
+
+	/**
+	 * a recipe which has been deserialized is a copy of the recipe of the
+	 * registry, so the recipes are compared by their content
+	 */
+	private static boolean isRegistered(Recipe recipe) {
+		Recipe registered = RecipeRegistry.getInstance().getRecipeByName(recipe.getProductName());
+		return registered == recipe || registered != null
+				&& registered.getPricePerUnit() == recipe.getPricePerUnit()
+				&& registered.getBakeTime().equals(recipe.getBakeTime())
+				&& registered.getIngredients().equals(recipe.getIngredients());
+	}
+
+	private static void writeOrder(DataOutputStream out, Order order) throws IOException {
+		writeUUID(out, order.getId());
+		writeUUID(out, order.getCustomerId());
+		writeUUID(out, order.getServiceRobotId());
+		out.writeByte(order.getState().ordinal());
+		writeTimestamp(out, order.getTimestamp());
+		out.writeBoolean(order.isHighPriority());
+		out.writeBoolean(order.isDelivery());
+		writeString(out, order.getDeliveryAddress() != null ? order.getDeliveryAddress().toString() : null);
+		writeUUID(out, order.getDeliveryRobotId());
+		out.writeShort(order.getItemsMap().size());
+		for (Item item : order.getItemsMap().values()) {
+			out.writeUTF(item.getProductName());
+			out.writeInt(item.getAmount());
+		}
+		out.writeDouble(order.getTotalSum());
+	}
+
+	private static Order readOrder(DataInputStream in) throws IOException {
+		Order order = new Order(readUUID(in));
+		order.setCustomerId(readUUID(in));
+		order.setServiceRobotId(readUUID(in));
+		order.setState(OrderState.values()[in.readByte()]);
+		order.setTimestamp(readTimestamp(in));
+		order.setHighPriority(in.readBoolean());
+		order.setDelivery(in.readBoolean());
+		String deliveryAddress = readString(in);
+		order.setDeliveryAddress(deliveryAddress != null ? URI.create(deliveryAddress) : null);
+		order.setDeliveryRobotId(readUUID(in));
+		int items = in.readShort();
+		for (int i = 0; i < items; i++)
+			order.addItem(in.readUTF(), in.readInt());
+		order.setTotalSum(in.readDouble());
+		return order;
+	}
+
+	/**
+	 * a packed order copies all fields of the order except its state and the
+	 * total sum
+	 */
+	private static PackedOrder readPackedOrder(DataInputStream in) throws IOException {
+		Order order = readOrder(in);
+		PackedOrder packedOrder = new PackedOrder(order);
+		packedOrder.setState(order.getState());
+		packedOrder.setTotalSum(order.getTotalSum());
+		return packedOrder;
+	}
+
+	private static void writePrepackage(DataOutputStream out, Prepackage prepackage) throws IOException {
+		writeUUID(out, prepackage.getId());
+		writeUUID(out, prepackage.getServiceRobotId());
+		writeUUID(out, prepackage.getCustomerId());
+		out.writeBoolean(prepackage.isSold());
+		writeString(out, prepackage.getState());
+		writeProducts(out, prepackage.getProducts());
+	}
+
+	private static Prepackage readPrepackage(DataInputStream in) throws IOException {
+		Prepackage prepackage = new Prepackage(readUUID(in));
+		prepackage.setServiceRobotId(readUUID(in));
+		prepackage.setCustomerId(readUUID(in));
+		prepackage.setSold(in.readBoolean());
+		prepackage.setState(readString(in));
+		prepackage.setProducts(readProducts(in));
+		return prepackage;
+	}
+
+	private static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+		out.writeBoolean(uuid != null);
+		if (uuid != null) {
+			out.writeLong(uuid.getMostSignificantBits());
+			out.writeLong(uuid.getLeastSignificantBits());
+		}
+	}
+
+	private static UUID readUUID(DataInputStream in) throws IOException {
+		return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		out.writeBoolean(string != null);
+		if (string != null)
+			out.writeUTF(string);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeTimestamp(DataOutputStream out, Timestamp timestamp) throws IOException {
+		out.writeBoolean(timestamp != null);
+		if (timestamp != null) {
+			out.writeLong(timestamp.getTime());
+			out.writeInt(timestamp.getNanos());
+		}
+	}
+
+	private static Timestamp readTimestamp(DataInputStream in) throws IOException {
+		if (!in.readBoolean())
+			return null;
+		Timestamp timestamp = new Timestamp(in.readLong());
+		timestamp.setNanos(in.readInt());
+		return timestamp;
+	}
+
+	private BinaryFormat() {
+	}
+}
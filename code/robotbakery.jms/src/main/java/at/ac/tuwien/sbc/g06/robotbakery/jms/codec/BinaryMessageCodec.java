@@ -0,0 +1,35 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.codec;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+/**
+ * Wraps the objects in bytes messages with the {@link BinaryFormat}. Objects
+ * of classes without binary format, e.g. water pipes and ingredient
+ * reservations, are wrapped in object messages.
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+	public static final String NAME = "binary";
+
+	@Override
+	public Message encode(Session session, Serializable object) throws JMSException {
+		if (!BinaryFormat.supports(object))
+			return session.createObjectMessage(object);
+		try {
+			BytesMessage message = session.createBytesMessage();
+			message.writeBytes(BinaryFormat.write(object));
+			return message;
+		} catch (IOException e) {
+			JMSException exception = new JMSException(e.getMessage());
+			exception.setLinkedException(e);
+			throw exception;
+		}
+	}
+
+}
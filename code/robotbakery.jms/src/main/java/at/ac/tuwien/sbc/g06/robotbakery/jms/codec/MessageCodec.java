@@ -0,0 +1,57 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.codec;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.Session;
+
+/**
+ * Wraps the model objects in the messages of the queues and the notification
+ * topic. The codec is chosen with the system property
+ * {@value at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants#CODEC_PROPERTY},
+ * see {@link at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil#getCodec()}.
+ * Every codec decodes the messages of all codecs, so that robots and the
+ * bakery can be started with different codecs.
+ */
+public interface MessageCodec {
+
+	/**
+	 * @param session
+	 *            session which creates the message
+	 * @param object
+	 *            model object
+	 * @return message containing the object, without properties
+	 * @throws JMSException
+	 */
+	Message encode(Session session, Serializable object) throws JMSException;
+
+	/**
+	 * @param message
+	 *            received or browsed message
+	 * @return object of the message or null if the message contains no object
+	 * @throws JMSException
+	 */
+	default Serializable decode(Message message) throws JMSException {
+		if (message instanceof ObjectMessage)
+			return ((ObjectMessage) message).getObject();
+		if (message instanceof BytesMessage) {
+			BytesMessage bytesMessage = (BytesMessage) message;
+			bytesMessage.reset();
+			byte[] data = new byte[(int) bytesMessage.getBodyLength()];
+			bytesMessage.readBytes(data);
+			try {
+				return BinaryFormat.read(data);
+			} catch (IOException e) {
+				JMSException exception = new JMSException(e.getMessage());
+				exception.setLinkedException(e);
+				throw exception;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,21 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.codec;
+
+import java.io.Serializable;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+/**
+ * Wraps every object in an object message with Java serialization
+ */
+public class ObjectMessageCodec implements MessageCodec {
+
+	public static final String NAME = "object";
+
+	@Override
+	public Message encode(Session session, Serializable object) throws JMSException {
+		return session.createObjectMessage(object);
+	}
+
+}
@@ -0,0 +1,115 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.persistence;
+
+import java.io.File;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.store.kahadb.KahaDBPersistenceAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+
+/**
+ * Persistent store of the broker, so that the queues of the bakery survive a
+ * restart. The messages are written to the KahaDB journal in the data
+ * directory, which is chosen with the system property
+ * {@value JMSConstants#DATA_DIR_PROPERTY}. On startup the broker restores the
+ * queues from the index and replays the journal since the last checkpoint.
+ * The index is checkpointed every second, so only a short part of the journal
+ * has to be replayed, and the journal records are checksummed, so that a
+ * record which has been cut off by a crash ends the replay.
+ *
+ * The system property {@value JMSConstants#SYNC_PROPERTY} chooses when the
+ * journal is forced to disk, see {@link SyncPolicy}.
+ */
+public class JMSBrokerStore {
+	private static Logger logger = LoggerFactory.getLogger(JMSBrokerStore.class);
+
+	private static final long CHECKPOINT_INTERVAL = 1000;
+	private static final int INDEX_CACHE_SIZE = 10000;
+
+	public enum SyncPolicy {
+		/**
+		 * every send and commit is written to the journal and forced to disk
+		 * on its own
+		 */
+		MESSAGE,
+		/**
+		 * group commit: sends and commits wait until their write has been
+		 * forced to disk, but the writes which arrive while the journal is
+		 * forced are written and forced together
+		 */
+		BATCH,
+		/**
+		 * the journal is written on each send and commit, but not forced, a
+		 * crash of the broker process loses nothing, a crash of the host may
+		 * lose the last writes
+		 */
+		ASYNC;
+	}
+
+	private final File directory;
+	private final SyncPolicy syncPolicy;
+
+	public JMSBrokerStore(File directory, SyncPolicy syncPolicy) {
+		this.directory = directory;
+		this.syncPolicy = syncPolicy;
+	}
+
+	/**
+	 * @return store in the directory of the system property
+	 *         {@value JMSConstants#DATA_DIR_PROPERTY} or null if the property
+	 *         is not set, i.e. the broker is not persistent
+	 */
+	public static JMSBrokerStore fromConfiguration() {
+		String dataDir = System.getProperty(JMSConstants.DATA_DIR_PROPERTY);
+		if (dataDir == null || dataDir.trim().isEmpty())
+			return null;
+		String sync = System.getProperty(JMSConstants.SYNC_PROPERTY, SyncPolicy.BATCH.name());
+		SyncPolicy syncPolicy;
+		try {
+			syncPolicy = SyncPolicy.valueOf(sync.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			logger.error("Unknown sync policy " + sync + ", using " + SyncPolicy.BATCH);
+			syncPolicy = SyncPolicy.BATCH;
+		}
+		return new JMSBrokerStore(new File(dataDir.trim()), syncPolicy);
+	}
+
+	/**
+	 * makes the broker persistent with this store, has to be called before
+	 * the broker is started
+	 *
+	 * @param broker
+	 *            broker which is not started yet
+	 * @throws Exception
+	 *             if the store can't be created
+	 */
+	public void configure(BrokerService broker) throws Exception {
+		KahaDBPersistenceAdapter adapter = new KahaDBPersistenceAdapter();
+		adapter.setDirectory(new File(directory, "kahadb"));
+		adapter.setCheckpointInterval(CHECKPOINT_INTERVAL);
+		adapter.setIndexCacheSize(INDEX_CACHE_SIZE);
+		adapter.setChecksumJournalFiles(true);
+		adapter.setCheckForCorruptJournalFiles(true);
+		adapter.setEnableJournalDiskSyncs(syncPolicy != SyncPolicy.ASYNC);
+		if (syncPolicy == SyncPolicy.MESSAGE) {
+			// a batch of the journal can't take a second write
+			adapter.setJournalMaxWriteBatchSize(1);
+			adapter.setConcurrentStoreAndDispatchQueues(false);
+		}
+		broker.setDataDirectoryFile(directory);
+		broker.setPersistent(true);
+		broker.setPersistenceAdapter(adapter);
+		logger.info("Persistent broker in " + directory.getAbsolutePath() + ", sync policy " + syncPolicy);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public SyncPolicy getSyncPolicy() {
+		return syncPolicy;
+	}
+
+}
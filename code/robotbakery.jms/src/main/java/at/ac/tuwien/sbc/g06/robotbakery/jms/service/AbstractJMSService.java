@@ -1,5 +1,6 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms.service;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,35 +11,59 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
-import javax.jms.ObjectMessage;
 import javax.jms.Session;
 import javax.jms.Topic;
 
+import org.apache.activemq.command.ActiveMQMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.ConsumerCache;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
 
 public class AbstractJMSService {
 	private static Logger logger = LoggerFactory.getLogger(AbstractJMSService.class);
 
 	protected Connection connection;
+	private boolean ownsConnection = false;
 
 	protected Topic notificationTopic;
 	protected MessageProducer notifier;
 	protected Session session;
+	protected ConsumerCache consumers;
+	private final List<QueueView> views = new ArrayList<>();
 
 	public AbstractJMSService(boolean transacted, int ackMode, String address) {
+		this(connect(address), transacted, ackMode);
+		ownsConnection = true;
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> close()));
+
+	}
+
+	/**
+	 * Creates a service with its own session on a connection that is shared
+	 * with other services. The connection is not closed by the service.
+	 * 
+	 * @param connection
+	 *            shared connection
+	 */
+	public AbstractJMSService(Connection connection, boolean transacted, int ackMode) {
+		this.connection = connection;
+		if (connection == null)
+			return;
 		try {
-			connection = JMSUtil.createAndConnection(address);
 			session = connection.createSession(transacted, ackMode);
+			consumers = new ConsumerCache(session, JMSConstants.CONSUMER_CACHE_SIZE);
 			this.notificationTopic = session.createTopic(JMSConstants.Topic.NOTIFICATION);
 			notifier = session.createProducer(notificationTopic);
 			connection.start();
@@ -46,32 +71,58 @@ public class AbstractJMSService {
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
+	}
 
-		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-			try {
-				if (session != null)
-					session.close();
-				if (connection != null)
-					connection.close();
-			} catch (JMSException e) {
-				logger.error(e.getMessage());
-			}
+	private static Connection connect(String address) {
+		try {
+			return JMSUtil.createAndConnection(address);
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+			return null;
+		}
+	}
 
-		}));
+	/**
+	 * @param queueName
+	 *            name of the queue
+	 * @return view of the queue, which is shared with the other services of
+	 *         the connection and released when this service is closed
+	 */
+	protected QueueView getView(String queueName) {
+		QueueView view = QueueView.get(connection, queueName);
+		views.add(view);
+		return view;
+	}
 
+	/**
+	 * closes the session of this service and the connection, if it is not
+	 * shared, and releases the views of the service
+	 */
+	public void close() {
+		views.forEach(QueueView::release);
+		views.clear();
+		try {
+			if (session != null)
+				session.close();
+			if (ownsConnection && connection != null)
+				connection.close();
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
 	}
 
 	/**
-	 * Helper method which creates an ObjectMessage containing modelObject which
-	 * is passed as input argument. In addition properties which are required
-	 * for this type of model object get attached to the message;
+	 * Helper method which creates a message containing modelObject which is
+	 * passed as input argument, see {@link JMSUtil#getCodec()}. In addition
+	 * properties which are required for this type of model object get attached
+	 * to the message;
 	 * 
 	 * @param modelObject
 	 *            Object which should be wrapped in a message
 	 * @throws JMSException
 	 */
 	public <T extends Serializable> Message createMessage(T modelObject) throws JMSException {
-		Message msg = session.createObjectMessage(modelObject);
+		Message msg = JMSUtil.getCodec().encode(session, modelObject);
 		if (modelObject instanceof PackedOrder) {
 			PackedOrder packedOrder = (PackedOrder) modelObject;
 			msg.setStringProperty(JMSConstants.Property.CLASS, PackedOrder.class.getSimpleName());
@@ -96,7 +147,15 @@ public class AbstractJMSService {
 			msg.setStringProperty(JMSConstants.Property.STATE, product.getType().toString());
 			msg.setStringProperty(JMSConstants.Property.ID, product.getId().toString());
 		} else if (modelObject instanceof WaterPipe) {
+			WaterPipe pipe = (WaterPipe) modelObject;
 			msg.setStringProperty(JMSConstants.Property.CLASS, WaterPipe.class.getSimpleName());
+			msg.setStringProperty(JMSConstants.Property.ID, pipe.getId().toString());
+			msg.setLongProperty(JMSConstants.Property.EXPIRES_AT, pipe.getLeaseExpiresAt());
+		} else if (modelObject instanceof IngredientReservation) {
+			IngredientReservation reservation = (IngredientReservation) modelObject;
+			msg.setStringProperty(JMSConstants.Property.CLASS, IngredientReservation.class.getSimpleName());
+			msg.setStringProperty(JMSConstants.Property.ID, reservation.getId().toString());
+			msg.setLongProperty(JMSConstants.Property.EXPIRES_AT, reservation.getExpiresAt());
 		} else if (modelObject instanceof Prepackage) {
 			Prepackage prepackage = (Prepackage) modelObject;
 			msg.setStringProperty(JMSConstants.Property.ID, prepackage.getId().toString());
@@ -106,7 +165,12 @@ public class AbstractJMSService {
 	}
 
 	/**
-	 * sends message to producer
+	 * sends message to producer. A copy of the message is sent to the
+	 * notification topic, so that the object is encoded only once. The
+	 * properties of the copy are set with
+	 * {@link ActiveMQMessage#setProperty(String, Object)}, because a JMS
+	 * property setter clears the body of a bytes message which has been
+	 * copied.
 	 * 
 	 * @param producer
 	 *            producer which should consume message
@@ -118,18 +182,23 @@ public class AbstractJMSService {
 	 */
 	public <T extends Serializable> boolean send(MessageProducer producer, T messageObject) {
 		try {
-			Message msg = createMessage(messageObject);
+			ActiveMQMessage msg = (ActiveMQMessage) createMessage(messageObject);
+			ActiveMQMessage notification = (ActiveMQMessage) msg.copy();
 			producer.send(msg);
-			notify(messageObject, false, producer.getDestination());
+			notification.setProperty(JMSConstants.Property.REMOVED, false);
+			notification.setProperty(JMSConstants.Property.ORIGINAL_DESTINATION,
+					getDestinationName(producer.getDestination()));
+			notifier.send(notificationTopic, notification);
 			return true;
-		} catch (JMSException e) {
+		} catch (JMSException | IOException e) {
 			return false;
 		}
 
 	}
 
 	/**
-	 * sends multiple messages to producer
+	 * sends multiple messages to producer, the listeners are notified with one
+	 * batched notification
 	 * 
 	 * @param producer
 	 *            producer which should consume message
@@ -140,11 +209,13 @@ public class AbstractJMSService {
 	 * @return true if success, else false
 	 */
 	public <T extends Serializable> boolean send(MessageProducer producer, List<T> messageObjects) {
-		for (Serializable ser : messageObjects) {
-			if (!send(producer, ser))
-				return false;
+		try {
+			for (Serializable ser : messageObjects)
+				producer.send(createMessage(ser));
+			return notifyBatch(messageObjects, false, producer.getDestination());
+		} catch (JMSException e) {
+			return false;
 		}
-		return true;
 
 	}
 
@@ -162,20 +233,70 @@ public class AbstractJMSService {
 	}
 
 	public boolean notify(Serializable messageObject, boolean remove, Destination originalDestination) {
-		return notify(messageObject, remove,
-				originalDestination != null ? originalDestination.toString() : "unavailable");
+		return notify(messageObject, remove, getDestinationName(originalDestination));
+	}
+
+	/**
+	 * notifies the listeners about objects which have been sent to or received
+	 * from the same destination with one message. The message contains the
+	 * list of objects and the property {@link JMSConstants.Property#BATCH}.
+	 * 
+	 * @param messageObjects
+	 *            sent or received objects
+	 * @param remove
+	 *            true if the objects have been received
+	 * @param originalDestination
+	 *            destination of the objects
+	 * @return true if success, else false
+	 */
+	public boolean notifyBatch(List<? extends Serializable> messageObjects, boolean remove,
+			Destination originalDestination) {
+		if (messageObjects.isEmpty())
+			return true;
+		if (messageObjects.size() == 1)
+			return notify(messageObjects.get(0), remove, originalDestination);
+		try {
+			Message msg = JMSUtil.getCodec().encode(session, new ArrayList<Serializable>(messageObjects));
+			msg.setBooleanProperty(JMSConstants.Property.BATCH, true);
+			msg.setBooleanProperty(JMSConstants.Property.REMOVED, remove);
+			msg.setStringProperty(JMSConstants.Property.ORIGINAL_DESTINATION,
+					getDestinationName(originalDestination));
+			notifier.send(notificationTopic, msg);
+			return true;
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+			return false;
+		}
+	}
+
+	private static String getDestinationName(Destination destination) {
+		return destination != null ? destination.toString() : "unavailable";
 	}
 
 	public <T extends Serializable> T receive(MessageConsumer consumer) {
 		try {
-			Message msg = consumer.receiveNoWait();
-			if (msg instanceof ObjectMessage) {
-				@SuppressWarnings("unchecked")
-				T cast = (T) ((ObjectMessage) msg).getObject();
-				notify(cast, true, msg.getJMSDestination());
-				return cast;
-			}
+			return unwrap(consumer.receiveNoWait(), true);
+		} catch (JMSException | ClassCastException e) {
+			logger.error(e.getMessage());
+		}
+		return null;
+
+	}
 
+	/**
+	 * receive a message and wait for it if it is not available yet. Is used
+	 * for consumers which have just been created, because the broker
+	 * dispatches the messages to a new consumer asynchronously.
+	 * 
+	 * @param consumer
+	 *            consumer which receives the message
+	 * @param timeout
+	 *            maximum waiting time in milliseconds
+	 * @return received object or null if no message arrived in time
+	 */
+	public <T extends Serializable> T receiveTimed(MessageConsumer consumer, long timeout) {
+		try {
+			return unwrap(consumer.receive(timeout), true);
 		} catch (JMSException | ClassCastException e) {
 			logger.error(e.getMessage());
 		}
@@ -183,6 +304,16 @@ public class AbstractJMSService {
 
 	}
 
+	private <T extends Serializable> T unwrap(Message msg, boolean notify) throws JMSException {
+		if (msg == null)
+			return null;
+		@SuppressWarnings("unchecked")
+		T cast = (T) JMSUtil.getCodec().decode(msg);
+		if (cast != null && notify)
+			notify(cast, true, msg.getJMSDestination());
+		return cast;
+	}
+
 	/**
 	 * receive multiple elements
 	 * 
@@ -192,22 +323,136 @@ public class AbstractJMSService {
 	 *            amount of messages
 	 * @param <T>
 	 *            serializable class
-	 * @return list with objects
+	 * @return list with objects or null if less messages are available
 	 */
 	public <T extends Serializable> List<T> receive(MessageConsumer consumer, int amount) {
+		List<T> list = receiveAvailable(consumer, amount);
+		return list.size() == amount ? list : null;
+
+	}
+
+	/**
+	 * receive the messages which are available, but not more than the given
+	 * amount. The listeners are notified with one batched notification.
+	 * 
+	 * @param consumer
+	 *            consumer which receives messages
+	 * @param amount
+	 *            maximum amount of messages
+	 * @return received objects
+	 */
+	public <T extends Serializable> List<T> receiveAvailable(MessageConsumer consumer, int amount) {
 		List<T> list = new ArrayList<>();
-		for (int i = 0; i < amount; i++) {
-			T element = receive(consumer);
-			if (element == null)
-				return null;
-			list.add(element);
+		Destination destination = null;
+		try {
+			while (list.size() < amount) {
+				Message msg = consumer.receiveNoWait();
+				T element = unwrap(msg, false);
+				if (element == null)
+					break;
+				destination = msg.getJMSDestination();
+				list.add(element);
+			}
+		} catch (JMSException | ClassCastException e) {
+			logger.error(e.getMessage());
 		}
+		notifyBatch(list, true, destination);
 		return list;
+	}
 
+	/**
+	 * receive a message with a consumer of the {@link ConsumerCache}
+	 * 
+	 * @param queueName
+	 *            name of the queue
+	 * @param selector
+	 *            message selector, e.g. for the id of the message
+	 * @return received object or null if no matching message is available
+	 */
+	public <T extends Serializable> T take(String queueName, String selector) {
+		List<T> taken = takeAvailable(queueName, selector, 1);
+		return taken == null || taken.isEmpty() ? null : taken.get(0);
+	}
+
+	/**
+	 * receive up to the given amount of messages with a consumer of the
+	 * {@link ConsumerCache}. A message which another session has received but
+	 * not committed yet is not available. The listeners are notified with one
+	 * batched notification.
+	 * 
+	 * @param queueName
+	 *            name of the queue
+	 * @param selector
+	 *            message selector or null for all messages of the queue
+	 * @param amount
+	 *            maximum amount of messages
+	 * @return received objects or null if the consumer couldn't be created
+	 */
+	public <T extends Serializable> List<T> takeAvailable(String queueName, String selector, int amount) {
+		try {
+			return receiveAvailable(consumers.get(queueName, selector), amount);
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * receive a message with a consumer which is closed afterwards, see
+	 * {@link #takeAvailableOnce(String, String, int)}
+	 *
+	 * @param queueName
+	 *            name of the queue
+	 * @param selector
+	 *            message selector for the id of the message
+	 * @return received object or null if no matching message is available
+	 */
+	public <T extends Serializable> T takeOnce(String queueName, String selector) {
+		List<T> taken = takeAvailableOnce(queueName, selector, 1);
+		return taken == null || taken.isEmpty() ? null : taken.get(0);
+	}
+
+	/**
+	 * receive up to the given amount of messages with a consumer which is
+	 * created for this take and closed afterwards. Is used for selectors which
+	 * are not repeated, e.g. for the ids of the messages, which would evict
+	 * the consumers of the {@link ConsumerCache}.
+	 *
+	 * @param queueName
+	 *            name of the queue
+	 * @param selector
+	 *            message selector for the ids of the messages
+	 * @param amount
+	 *            maximum amount of messages
+	 * @return received objects or null if the consumer couldn't be created
+	 */
+	public <T extends Serializable> List<T> takeAvailableOnce(String queueName, String selector, int amount) {
+		MessageConsumer consumer = null;
+		try {
+			consumer = consumers.create(queueName, selector);
+			return receiveAvailable(consumer, amount);
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+			return null;
+		} finally {
+			try {
+				if (consumer != null)
+					consumer.close();
+			} catch (JMSException e) {
+				logger.error(e.getMessage());
+			}
+		}
 	}
 
 	public Session getSession() {
 		return session;
 	}
 
+	/**
+	 * @return consumers of the session, see {@link ConsumerCache}
+	 */
+	public ConsumerCache getConsumers() {
+		return consumers;
+	}
+
 }
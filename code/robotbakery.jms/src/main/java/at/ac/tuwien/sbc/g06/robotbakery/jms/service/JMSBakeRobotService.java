@@ -1,45 +1,50 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms.service;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.jms.Connection;
 import javax.jms.JMSException;
-import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
-import javax.jms.QueueBrowser;
 import javax.jms.Session;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
 
 public class JMSBakeRobotService extends AbstractJMSService implements IBakeRobotService {
 
 	private static Logger logger = LoggerFactory.getLogger(JMSTabletUIService.class);
-	private Queue bakeroomQueue;
 	private Queue storageQueue;
 	private MessageProducer storageQueueProducer;
-	private MessageConsumer bakeroomQueueConsumer;
-	private QueueBrowser bakeroomQueueBrowser;
+	private QueueView bakeroomView;
 
 	public JMSBakeRobotService() {
-		super(false, Session.AUTO_ACKNOWLEDGE, JMSConstants.SERVER_ADDRESS);
+		super(false, Session.AUTO_ACKNOWLEDGE, JMSUtil.getServerAddress());
+		init();
+	}
+
+	public JMSBakeRobotService(Connection connection) {
+		super(connection, false, Session.AUTO_ACKNOWLEDGE);
+		init();
+	}
 
+	private void init() {
 		try {
-			bakeroomQueue = session.createQueue(JMSConstants.Queue.BAKEROOM);
 			storageQueue = session.createQueue(JMSConstants.Queue.STORAGE);
 			storageQueueProducer = session.createProducer(storageQueue);
-			bakeroomQueueBrowser = session.createBrowser(bakeroomQueue);
-			bakeroomQueueConsumer = session.createConsumer(bakeroomQueue);
+			bakeroomView = getView(JMSConstants.Queue.BAKEROOM);
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
@@ -47,19 +52,23 @@ public class JMSBakeRobotService extends AbstractJMSService implements IBakeRobo
 
 	@Override
 	public List<Product> getUnbakedProducts(ITransaction tx) {
-		List<Product> products = new ArrayList<Product>();
-		Product firstProduct = receive(bakeroomQueueConsumer);
-		if (firstProduct != null) {
-			products.add(firstProduct);
-			long t = System.currentTimeMillis();
-			long end = t + SBCConstants.BAKE_WAIT;
-			while (System.currentTimeMillis() < end) {
-				Product nextProduct = receive(bakeroomQueueConsumer);
-				if (nextProduct != null) {
-					products.add(nextProduct);
-					if (products.size() == 5)
-						break;
+		// the products which are available together are taken and notified as
+		// one batch
+		List<Product> products = takeAvailable(JMSConstants.Queue.BAKEROOM, null, SBCConstants.BAKE_SIZE);
+		if (products != null && !products.isEmpty()) {
+			SimulationClock clock = SimulationClock.get();
+			long end = clock.currentTimeMillis() + SBCConstants.BAKE_WAIT;
+			while (products.size() < SBCConstants.BAKE_SIZE && clock.currentTimeMillis() < end) {
+				try {
+					clock.sleep(SBCConstants.BAKE_POLL_INTERVAL);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
 				}
+				List<Product> nextProducts = takeAvailable(JMSConstants.Queue.BAKEROOM, null,
+						SBCConstants.BAKE_SIZE - products.size());
+				if (nextProducts != null)
+					products.addAll(nextProducts);
 			}
 
 		}
@@ -68,18 +77,14 @@ public class JMSBakeRobotService extends AbstractJMSService implements IBakeRobo
 
 	@Override
 	public boolean putBakedProductsInStorage(List<Product> products, ITransaction tx) {
-		for (Product product : products) {
-			if (!send(storageQueueProducer, product))
-				return false;
-		}
-		return true;
+		return send(storageQueueProducer, products);
 	}
 
 	@Override
-	public Map<String, Boolean> getInitialState() {
-		Map<String, Boolean> map = new HashMap<>();
-		map.put(SBCConstants.NotificationKeys.IS_BAKEROOM_EMPTY,
-				JMSUtil.test(bakeroomQueueBrowser, JMSConstants.Property.CLASS, Product.class.getSimpleName()) == 0);
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> map = new EnumMap<>(NotificationKeys.class);
+		map.put(NotificationKeys.IS_BAKEROOM_EMPTY,
+				bakeroomView.count(JMSConstants.Property.CLASS, Product.class.getSimpleName()) == 0);
 		return map;
 	}
 
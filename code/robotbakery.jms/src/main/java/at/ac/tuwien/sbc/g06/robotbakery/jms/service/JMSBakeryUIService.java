@@ -3,6 +3,7 @@ package at.ac.tuwien.sbc.g06.robotbakery.jms.service;
 import java.io.Serializable;
 import java.util.List;
 
+import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
@@ -15,6 +16,7 @@ import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IBakeryUIService;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
 
 public class JMSBakeryUIService extends AbstractJMSService implements IBakeryUIService {
 
@@ -27,7 +29,16 @@ public class JMSBakeryUIService extends AbstractJMSService implements IBakeryUIS
 	private MessageProducer counterProducer;
 
 	public JMSBakeryUIService() {
-		super(false, Session.AUTO_ACKNOWLEDGE, JMSConstants.SERVER_ADDRESS);
+		super(false, Session.AUTO_ACKNOWLEDGE, JMSUtil.getServerAddress());
+		init();
+	}
+
+	public JMSBakeryUIService(Connection connection) {
+		super(connection, false, Session.AUTO_ACKNOWLEDGE);
+		init();
+	}
+
+	private void init() {
 		try {
 			storageQueue = session.createQueue(JMSConstants.Queue.STORAGE);
 			counteQueue = session.createQueue(JMSConstants.Queue.COUNTER);
@@ -43,12 +54,7 @@ public class JMSBakeryUIService extends AbstractJMSService implements IBakeryUIS
 
 	@Override
 	public boolean addIngredientsToStorage(List<Ingredient> ingredients) {
-		for (Ingredient ingredient : ingredients) {
-			if (!send(storageProducer, ingredient))
-				return false;
-		}
-
-		return true;
+		return send(storageProducer, ingredients);
 
 	}
 
@@ -1,15 +1,13 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms.service;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 import javax.jms.Connection;
 import javax.jms.DeliveryMode;
 import javax.jms.JMSException;
-import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
-import javax.jms.QueueBrowser;
 import javax.jms.Session;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
@@ -20,8 +18,10 @@ import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IDeliveryRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
 
 import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.IS_ORDER_AVAILABLE;
 
@@ -33,24 +33,25 @@ import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.Notificati
 public class JMSDeliveryRobotService extends AbstractJMSService implements IDeliveryRobotService {
 
 	private static Logger logger = LoggerFactory.getLogger(JMSServiceRobotService.class);
-	private Queue terminalQueue;
-	private MessageConsumer terminalConsumer;
 	private MessageProducer destination;
 	private Connection connection;
 	private Queue orderQueue;
-	private QueueBrowser orderQueueBrowser;
+	private QueueView orderView;
 
 	public JMSDeliveryRobotService() {
-		super(true, Session.CLIENT_ACKNOWLEDGE, JMSConstants.SERVER_ADDRESS);
+		super(true, Session.CLIENT_ACKNOWLEDGE, JMSUtil.getServerAddress());
+		init();
+	}
+
+	public JMSDeliveryRobotService(Connection connection) {
+		super(connection, true, Session.CLIENT_ACKNOWLEDGE);
+		init();
+	}
 
+	private void init() {
 		try {
 			orderQueue = session.createQueue(JMSConstants.Queue.ORDER);
-			terminalQueue = session.createQueue(JMSConstants.Queue.TERMINAL);
-
-			orderQueueBrowser = session.createBrowser(orderQueue);
-			terminalConsumer = session.createConsumer(terminalQueue,
-					String.format("%s='%s'", JMSConstants.Property.DELIVERY, "true"));
-
+			orderView = getView(JMSConstants.Queue.ORDER);
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
@@ -58,7 +59,7 @@ public class JMSDeliveryRobotService extends AbstractJMSService implements IDeli
 
 	@Override
 	public PackedOrder getPackedDeliveryOrder() {
-		return receive(terminalConsumer);
+		return take(JMSConstants.Queue.TERMINAL, String.format("%s='%s'", JMSConstants.Property.DELIVERY, "true"));
 	}
 
 	@Override
@@ -100,10 +101,10 @@ public class JMSDeliveryRobotService extends AbstractJMSService implements IDeli
 	}
 
 	@Override
-	public Map<String, Boolean> getInitialState() {
-		Map<String, Boolean> map = new HashMap<>();
-		map.put(SBCConstants.NotificationKeys.IS_DELIVERY_ORDER_AVAILABLE,
-				JMSUtil.test(orderQueueBrowser, JMSConstants.Property.DELIVERY, "true") > 0);
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> map = new EnumMap<>(NotificationKeys.class);
+		map.put(NotificationKeys.IS_DELIVERY_ORDER_AVAILABLE,
+				orderView.count(JMSConstants.Property.DELIVERY, "true") > 0);
 		return map;
 	}
 }
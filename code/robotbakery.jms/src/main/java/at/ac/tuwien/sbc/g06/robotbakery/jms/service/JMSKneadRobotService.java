@@ -4,13 +4,18 @@ import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.Notificati
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+import javax.jms.Connection;
 import javax.jms.JMSException;
-import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.QueueBrowser;
@@ -19,17 +24,25 @@ import javax.jms.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IKneadRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.FlourAllocator;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.FlourAllocator.Allocation;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSBakeryChangeNotifer;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
 
 /**
  * 
@@ -42,20 +55,35 @@ public class JMSKneadRobotService extends AbstractJMSService implements IKneadRo
 	private Queue bakeroomQueue;
 	private Queue counterQueue;
 	private QueueBrowser ingredientBrowser;
-	private QueueBrowser productCounterBrowser;
 	private QueueBrowser productStorageBrowser;
+	private QueueBrowser reservationBrowser;
+	private QueueBrowser waterPipeBrowser;
+	private QueueView storageView;
 
 	private MessageProducer bakeroomProducer;
 	private MessageProducer storageProducer;
 
-	private Map<String, MessageConsumer> storageProductTypeConsumers = new HashMap<>();
-	private Map<IngredientType, MessageConsumer> storageIngredientTypeConsumers = new HashMap<>();
-
 	private MessageProducer counterProducer;
-	private MessageConsumer waterConsumer;
+	private final AtomicLong reservationConflicts = new AtomicLong();
+	private final StockView stockView;
 
 	public JMSKneadRobotService() {
-		super(true, Session.SESSION_TRANSACTED, JMSConstants.SERVER_ADDRESS);
+		super(true, Session.SESSION_TRANSACTED, JMSUtil.getServerAddress());
+		stockView = new StockView(new JMSBakeryChangeNotifer(), new JMSStockService());
+		init();
+	}
+
+	public JMSKneadRobotService(Connection connection) {
+		this(connection, new StockView(new JMSBakeryChangeNotifer(connection), new JMSStockService(connection)));
+	}
+
+	public JMSKneadRobotService(Connection connection, StockView stockView) {
+		super(connection, true, Session.SESSION_TRANSACTED);
+		this.stockView = stockView;
+		init();
+	}
+
+	private void init() {
 		try {
 			storageQueue = session.createQueue(JMSConstants.Queue.STORAGE);
 			storageProducer = session.createProducer(storageQueue);
@@ -64,32 +92,17 @@ public class JMSKneadRobotService extends AbstractJMSService implements IKneadRo
 			ingredientBrowser = session.createBrowser(storageQueue,
 					String.format("%s = '%s'", JMSConstants.Property.CLASS, Ingredient.class.getSimpleName()));
 
+			reservationBrowser = session.createBrowser(storageQueue, String.format("%s = '%s'",
+					JMSConstants.Property.CLASS, IngredientReservation.class.getSimpleName()));
+
 			counterQueue = session.createQueue(JMSConstants.Queue.COUNTER);
-			productCounterBrowser = session.createBrowser(counterQueue,
-					String.format("%s = '%s'", JMSConstants.Property.CLASS, Product.class.getSimpleName()));
+			waterPipeBrowser = session.createBrowser(counterQueue,
+					String.format("%s = '%s'", JMSConstants.Property.CLASS, WaterPipe.class.getSimpleName()));
 			bakeroomQueue = session.createQueue(JMSConstants.Queue.BAKEROOM);
+			storageView = getView(JMSConstants.Queue.STORAGE);
 
 			bakeroomProducer = session.createProducer(bakeroomQueue);
 			counterProducer = session.createProducer(counterQueue);
-
-			for (String name : SBCConstants.PRODUCTS_NAMES) {
-				storageProductTypeConsumers.put(name,
-						session.createConsumer(storageQueue,
-								String.format("%s='%s' AND %s='%s'", JMSConstants.Property.CLASS,
-										Product.class.getSimpleName(), JMSConstants.Property.TYPE, name)));
-			}
-
-			for (IngredientType type : IngredientType.values()) {
-				storageIngredientTypeConsumers.put(type,
-						session.createConsumer(storageQueue,
-								String.format("%s='%s' AND %s='%s' ", JMSConstants.Property.CLASS,
-										Ingredient.class.getSimpleName(), JMSConstants.Property.TYPE,
-										type.toString())));
-			}
-
-			waterConsumer = session.createConsumer(counterQueue, String
-					.format(String.format("%s = '%s'", JMSConstants.Property.CLASS, WaterPipe.class.getSimpleName())));
-
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
@@ -102,38 +115,57 @@ public class JMSKneadRobotService extends AbstractJMSService implements IKneadRo
 
 	@Override
 	public Map<IngredientType, Integer> getIngredientStock() {
-		return JMSUtil.getBrowserContentSizeByValues(ingredientBrowser, Arrays.asList(IngredientType.values()),
-				JMSConstants.Property.TYPE);
+		return storageView.count(Arrays.asList(IngredientType.values()), JMSConstants.Property.TYPE);
 	}
 
 	@Override
 	public Map<String, Integer> getCounterStock() {
-		return JMSUtil.getBrowserContentSizeByValues(productCounterBrowser, SBCConstants.PRODUCTS_NAMES,
-				JMSConstants.Property.TYPE);
+		return stockView.getCounterStock();
 	}
 
 	@Override
-	public List<Ingredient> getIngredientsFromStorage(IngredientType type, Integer amount, ITransaction tx) {
-		return receive(storageIngredientTypeConsumers.get(type), amount);
+	public StockView getStockView() {
+		return stockView;
 	}
 
 	@Override
-	public boolean useWaterPipe(long time, ITransaction tx) {
-		try {
+	public List<Ingredient> getIngredientsFromStorage(IngredientType type, Integer amount, ITransaction tx) {
+		List<Ingredient> ingredients = takeAvailable(JMSConstants.Queue.STORAGE,
+				String.format("%s='%s' AND %s='%s'", JMSConstants.Property.CLASS, Ingredient.class.getSimpleName(),
+						JMSConstants.Property.TYPE, type),
+				amount);
+		return ingredients != null && ingredients.size() == amount ? ingredients : null;
+	}
 
-			WaterPipe pipe = receive(waterConsumer);
-			if (pipe != null) {
-				Thread.sleep(time);
-				send(counterProducer, pipe);
-				return true;
-			}
-			waterConsumer.close();
+	@Override
+	public WaterPipe leaseWaterPipe(int waterAmount, ITransaction tx) {
+		long now = SimulationClock.get().currentTimeMillis();
+		List<WaterPipe> pipes = JMSUtil.toList(waterPipeBrowser, JMSConstants.Property.CLASS,
+				WaterPipe.class.getSimpleName(), null);
+		WaterPipe pipe = pipes.stream().filter(p -> p.isFree(now)).findFirst().orElse(null);
+		if (pipe == null || takeWaterPipe(pipe) == null)
+			return null;
+		WaterPipe leased = pipe
+				.lease(now + pipe.getUsageTime(waterAmount) + SBCConstants.WATER_PIPE_LEASE_MARGIN);
+		return send(counterProducer, leased) ? leased : null;
+	}
 
-		} catch (Exception e) {
-			logger.error(e.getMessage());
+	@Override
+	public boolean returnWaterPipe(WaterPipe pipe, ITransaction tx) {
+		WaterPipe leased = takeWaterPipe(pipe);
+		return leased != null && send(counterProducer, leased.release());
+	}
 
-		}
-		return false;
+	/**
+	 * Receives the given version of a water pipe, the lease is part of the
+	 * selector, so that a lease which was taken over after it expired isn't
+	 * returned
+	 */
+	private WaterPipe takeWaterPipe(WaterPipe pipe) {
+		return takeOnce(JMSConstants.Queue.COUNTER,
+				String.format("%s = '%s' AND %s = '%s' AND %s = %d", JMSConstants.Property.CLASS,
+						WaterPipe.class.getSimpleName(), JMSConstants.Property.ID, pipe.getId(),
+						JMSConstants.Property.EXPIRES_AT, pipe.getLeaseExpiresAt()));
 	}
 
 	@Override
@@ -143,98 +175,119 @@ public class JMSKneadRobotService extends AbstractJMSService implements IKneadRo
 
 	@Override
 	public Product getProductFromStorage(UUID id, ITransaction tx) {
-		List<Product> products = JMSUtil.toList(productStorageBrowser, JMSConstants.Property.STATE,
-				BakeState.DOUGH.toString(), null);
-		Product returnVal = products.stream().filter(p -> p.getId().toString().equals(id.toString())).findFirst()
-				.orElse(null);
-		if (returnVal == null)
-			return null;
-
-		String compare = returnVal.getId().toString();
-		List<Product> pushBack = new ArrayList<>();
-		MessageConsumer consumer = storageProductTypeConsumers.get(returnVal.getProductName());
-		while (compare != null) {
-			Product temp = receive(consumer);
-			if (temp == null)
-				return null;
-			if (temp.getId().toString().equals(compare)) {
-				compare = null;
-			} else {
-				pushBack.add(temp);
-			}
-
-		}
+		return takeOnce(JMSConstants.Queue.STORAGE, String.format("%s = '%s' AND %s = '%s'",
+				JMSConstants.Property.CLASS, Product.class.getSimpleName(), JMSConstants.Property.ID, id));
+	}
 
-		for (Product p : pushBack) {
-			if (!send(storageProducer, p)) {
-				return null;
-			}
+	@Override
+	public boolean takeFlourFromStorage(int amount, ITransaction tx) {
+		// the browser also shows packs which another robot has taken but not
+		// committed yet, these are skipped and the missing flour is allocated
+		// from the other packs
+		Set<UUID> skipped = new HashSet<>();
+		int missing = amount;
+		for (int attempt = 0; missing > 0 && attempt < JMSConstants.FLOUR_TAKE_ATTEMPTS; attempt++) {
+			List<FlourPack> packs = JMSUtil.toList(ingredientBrowser, JMSConstants.Property.TYPE,
+					IngredientType.FLOUR.toString(), null);
+			packs.removeIf(pack -> skipped.contains(pack.getId()));
+			Allocation allocation = FlourAllocator.allocate(packs, missing);
+			if (allocation == null)
+				return false;
+			String ids = allocation.getPacks().stream().map(pack -> "'" + pack.getId() + "'")
+					.collect(Collectors.joining(", "));
+			List<FlourPack> taken = takeAvailableOnce(JMSConstants.Queue.STORAGE,
+					String.format("%s = '%s' AND %s IN (%s)", JMSConstants.Property.CLASS,
+							Ingredient.class.getSimpleName(), JMSConstants.Property.ID, ids),
+					allocation.getPacks().size());
+			if (taken == null)
+				return false;
+			allocation.getPacks().forEach(pack -> skipped.add(pack.getId()));
+			missing -= taken.stream().mapToInt(FlourPack::getCurrentAmount).sum();
 		}
+		if (missing > 0)
+			return false;
+		return missing == 0 || send(storageProducer, new FlourPack(-missing));
+	}
 
-		return returnVal;
-
+	@Override
+	public boolean putDoughInBakeroom(Product nextProduct, ITransaction tx) {
+		return send(bakeroomProducer, nextProduct);
 	}
 
 	@Override
-	public boolean takeFlourFromStorage(int amount, ITransaction tx) {
-		List<Ingredient> list = JMSUtil.toList(ingredientBrowser, JMSConstants.Property.TYPE,
-				IngredientType.FLOUR.toString(), null);
-		if (list.isEmpty())
-			return false;
-		if (list.size() > 1)
-			list.sort((i, j) -> ((FlourPack) i).getCurrentAmount().compareTo(((FlourPack) j).getCurrentAmount()));
-		List<String> used = new ArrayList<String>();
-		FlourPack open = null;
-		for (int i = 0; i < list.size(); i++) {
-			FlourPack pack = (FlourPack) list.get(i);
-			amount = pack.takeFlour(amount);
-			if (pack.getCurrentAmount() > 0) {
-				open = pack;
+	public IngredientReservation reserveIngredients(Map<IngredientType, Integer> billOfMaterials, long ttl,
+			ITransaction tx) {
+		int flourAmount = 0;
+		List<Ingredient> ingredients = new ArrayList<>();
+		for (Entry<IngredientType, Integer> entry : billOfMaterials.entrySet()) {
+			if (entry.getKey() == IngredientType.FLOUR) {
+				if (!takeFlourFromStorage(entry.getValue(), tx))
+					return reservationConflict();
+				flourAmount = entry.getValue();
 			} else {
-				used.add(pack.getId().toString());
-			}
-			if (amount == 0) {
-				break;
+				List<Ingredient> taken = getIngredientsFromStorage(entry.getKey(), entry.getValue(), tx);
+				if (taken == null)
+					return reservationConflict();
+				ingredients.addAll(taken);
 			}
 		}
-		if (open != null)
-			used.add(open.getId().toString());
-		return doRealDelete(used, open);
+		IngredientReservation reservation = new IngredientReservation(flourAmount, ingredients,
+				SimulationClock.get().currentTimeMillis() + ttl);
+		return send(storageProducer, reservation) ? reservation : null;
+	}
 
+	private IngredientReservation reservationConflict() {
+		reservationConflicts.incrementAndGet();
+		return null;
 	}
 
-	private boolean doRealDelete(List<String> used, FlourPack open) {
-		MessageConsumer consumer = storageIngredientTypeConsumers.get(IngredientType.FLOUR);
-		List<Ingredient> pushBack = new ArrayList<Ingredient>();
-		while (!used.isEmpty()) {
-			Ingredient temp = receive(consumer);
-			if (temp == null)
-				return false;
-			if (!used.remove(temp.getId().toString())) {
-				pushBack.add(temp);
-			}
+	@Override
+	public boolean consumeReservation(IngredientReservation reservation, ITransaction tx) {
+		return takeReservation(reservation.getId()) != null;
+	}
 
+	@Override
+	public boolean releaseReservation(IngredientReservation reservation, ITransaction tx) {
+		return consumeReservation(reservation, tx) && send(storageProducer, reservation.getReleasedIngredients());
+	}
+
+	@Override
+	public int reclaimExpiredReservations(ITransaction tx) {
+		long now = SimulationClock.get().currentTimeMillis();
+		List<IngredientReservation> reservations = JMSUtil.toList(reservationBrowser, JMSConstants.Property.CLASS,
+				IngredientReservation.class.getSimpleName(), null);
+		int reclaimed = 0;
+		for (IngredientReservation reservation : reservations) {
+			if (reservation.isExpired(now)) {
+				IngredientReservation expired = takeReservation(reservation.getId());
+				if (expired == null || !send(storageProducer, expired.getReleasedIngredients()))
+					return -1;
+				reclaimed++;
+			}
 		}
-		if (open != null)
-			pushBack.add(open);
-		for (Ingredient i : pushBack) {
-			if (!send(storageProducer, i))
-				return false;
-		}
+		return reclaimed;
+	}
 
-		return true;
+	/**
+	 * Receives a reservation with a consumer of its own. A consumer for all
+	 * reservations would get reservations of other robots dispatched, which
+	 * they couldn't receive anymore.
+	 */
+	private IngredientReservation takeReservation(UUID id) {
+		return takeOnce(JMSConstants.Queue.STORAGE, String.format("%s = '%s' AND %s = '%s'", JMSConstants.Property.CLASS,
+				IngredientReservation.class.getSimpleName(), JMSConstants.Property.ID, id));
 	}
 
 	@Override
-	public boolean putDoughInBakeroom(Product nextProduct, ITransaction tx) {
-		return send(bakeroomProducer, nextProduct);
+	public long getReservationConflicts() {
+		return reservationConflicts.get();
 	}
 
 	@Override
-	public Map<String, Boolean> getInitialState() {
-		Map<String, Boolean> notificationState = new HashMap<>();
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> notificationState = new EnumMap<>(NotificationKeys.class);
 		notificationState.put(NO_MORE_INGREDIENTS_IN_STORAGE,
-				JMSUtil.test(ingredientBrowser, JMSConstants.Property.CLASS, Ingredient.class.getSimpleName()) == 0);
+				storageView.count(JMSConstants.Property.CLASS, Ingredient.class.getSimpleName()) == 0);
 		return notificationState;
 
 	}
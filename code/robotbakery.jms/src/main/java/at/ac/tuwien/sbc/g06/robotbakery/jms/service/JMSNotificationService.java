@@ -1,19 +1,25 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms.service;
 
+import javax.jms.Connection;
 import javax.jms.Session;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.INotificationService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
 
 public class JMSNotificationService extends AbstractJMSService implements INotificationService {
 
 	public JMSNotificationService() {
-		super(false, Session.AUTO_ACKNOWLEDGE, JMSConstants.SERVER_ADDRESS);
+		super(false, Session.AUTO_ACKNOWLEDGE, JMSUtil.getServerAddress());
 
 	}
 
+	public JMSNotificationService(Connection connection) {
+		super(connection, false, Session.AUTO_ACKNOWLEDGE);
+	}
+
 	@Override
 	public boolean sendNotification(NotificationMessage notification, ITransaction tx) {
 		return notify(notification, false, JMSConstants.Queue.COUNTER.replace("queue://", ""));
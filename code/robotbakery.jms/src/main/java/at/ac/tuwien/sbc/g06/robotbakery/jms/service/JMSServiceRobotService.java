@@ -9,12 +9,13 @@ import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.Notificati
 import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.NO_MORE_PRODUCTS_IN_STORAGE;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.jms.Connection;
 import javax.jms.JMSException;
-import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.QueueBrowser;
@@ -23,6 +24,7 @@ import javax.jms.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
@@ -32,58 +34,58 @@ import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IServiceRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSBakeryChangeNotifer;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
 
 public class JMSServiceRobotService extends AbstractJMSService implements IServiceRobotService {
 	private static Logger logger = LoggerFactory.getLogger(JMSServiceRobotService.class);
 	private Queue orderQueue;
 	private Queue counterQueue;
-	private Queue storageQueue;
 	private Queue terminalQueue;
-	private MessageConsumer orderConsumer;
 	private MessageProducer counterProducer;
 	private MessageProducer terminalQueueProducer;
-	private QueueBrowser productCounterQueueBrowser;
-	private Map<String, MessageConsumer> counterProductTypeConsumers = new HashMap<>();
-	private Map<String, MessageConsumer> storageProductTypeConsumers = new HashMap<>();
-	private QueueBrowser storageQueueBrowser;
-	private QueueBrowser orderQueueBrowser;
+	private QueueView counterView;
+	private QueueView storageView;
+	private QueueView orderView;
+	private QueueView terminalView;
 	private QueueBrowser terminalQueueBrowser;
+	private final Map<String, QueueBrowser> counterProductBrowsers = new HashMap<>();
+	private final StockView stockView;
 
 	public JMSServiceRobotService() {
-		super(true, Session.CLIENT_ACKNOWLEDGE, JMSConstants.SERVER_ADDRESS);
+		super(true, Session.CLIENT_ACKNOWLEDGE, JMSUtil.getServerAddress());
+		stockView = new StockView(new JMSBakeryChangeNotifer(), new JMSStockService());
+		init();
+	}
+
+	public JMSServiceRobotService(Connection connection) {
+		this(connection, new StockView(new JMSBakeryChangeNotifer(connection), new JMSStockService(connection)));
+	}
 
+	public JMSServiceRobotService(Connection connection, StockView stockView) {
+		super(connection, true, Session.CLIENT_ACKNOWLEDGE);
+		this.stockView = stockView;
+		init();
+	}
+
+	private void init() {
 		try {
 			orderQueue = session.createQueue(JMSConstants.Queue.ORDER);
 			terminalQueue = session.createQueue(JMSConstants.Queue.TERMINAL);
 			counterQueue = session.createQueue(JMSConstants.Queue.COUNTER);
-			storageQueue = session.createQueue(JMSConstants.Queue.STORAGE);
 			counterProducer = session.createProducer(counterQueue);
-			orderConsumer = session.createConsumer(orderQueue, String.format("%s='%s' OR %s='%s' ",
-					JMSConstants.Property.STATE, OrderState.ORDERED, JMSConstants.Property.STATE, OrderState.WAITING));
 			terminalQueueProducer = session.createProducer(terminalQueue);
-			storageQueueBrowser = session.createBrowser(storageQueue);
-			orderQueueBrowser = session.createBrowser(orderQueue,
-					String.format("%s='%s'", JMSConstants.Property.CLASS, Order.class.getSimpleName()));
-
 			terminalQueueBrowser = session.createBrowser(terminalQueue);
-			productCounterQueueBrowser = session.createBrowser(counterQueue,
-					String.format("%s='%s'", JMSConstants.Property.CLASS, Product.class.getSimpleName()));
-
-			for (String name : SBCConstants.PRODUCTS_NAMES) {
-				counterProductTypeConsumers.put(name,
-						session.createConsumer(counterQueue,
-								String.format("%s='%s' AND %s='%s' ", JMSConstants.Property.CLASS,
-										Product.class.getSimpleName(), JMSConstants.Property.TYPE, name)));
-			}
-
-			for (String name : SBCConstants.PRODUCTS_NAMES) {
-				storageProductTypeConsumers.put(name,
-						session.createConsumer(storageQueue,
-								String.format("%s='%s' AND %s='%s' ", JMSConstants.Property.CLASS,
-										Product.class.getSimpleName(), JMSConstants.Property.TYPE, name)));
-			}
+			for (String productName : SBCConstants.PRODUCTS_NAMES)
+				counterProductBrowsers.put(productName, session.createBrowser(counterQueue,
+						getProductSelector(productName)));
+			counterView = getView(JMSConstants.Queue.COUNTER);
+			storageView = getView(JMSConstants.Queue.STORAGE);
+			orderView = getView(JMSConstants.Queue.ORDER);
+			terminalView = getView(JMSConstants.Queue.TERMINAL);
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
 		}
@@ -91,7 +93,8 @@ public class JMSServiceRobotService extends AbstractJMSService implements IServi
 
 	@Override
 	public Order getNextOrder(ITransaction tx) {
-		return receive(orderConsumer);
+		return take(JMSConstants.Queue.ORDER, String.format("%s='%s' OR %s='%s'", JMSConstants.Property.STATE,
+				OrderState.ORDERED, JMSConstants.Property.STATE, OrderState.WAITING));
 	}
 
 	@Override
@@ -108,28 +111,35 @@ public class JMSServiceRobotService extends AbstractJMSService implements IServi
 
 	@Override
 	public Map<String, Integer> getCounterStock() {
-		Map<String, Integer> map = JMSUtil.getBrowserContentSizeByValues(productCounterQueueBrowser,
-				SBCConstants.PRODUCTS_NAMES, JMSConstants.Property.TYPE);
+		Map<String, Integer> map = stockView.getCounterStock();
 		map.forEach((s, i) -> map.replace(s, SBCConstants.COUNTER_MAX_CAPACITY - i));
 		return map;
 	}
 
 	@Override
-	public List<Product> getProductsFromStorage(String productName, int amount, ITransaction tx) {
-		MessageConsumer consumer = storageProductTypeConsumers.get(productName);
-		List<Product> list = new ArrayList<>();
-		for (int i = 0; i < amount; i++) {
-			Product element = receive(consumer);
-			if (element == null)
-				return list;
-			list.add(element);
+	public List<Product> getProductsFromStorage(Map<String, Integer> amounts, ITransaction tx) {
+		List<Product> products = new ArrayList<>();
+		for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+			List<Product> taken = takeAvailable(JMSConstants.Queue.STORAGE, getProductSelector(amount.getKey()),
+					amount.getValue());
+			if (taken == null)
+				return null;
+			products.addAll(taken);
 		}
-		return null;
+		return products;
 	}
 
 	@Override
-	public List<Product> getProductsFromCounter(String productName, int amount, ITransaction tx) {
-		return receive(counterProductTypeConsumers.get(productName), amount);
+	public List<Product> getProductsFromCounter(Map<String, Integer> amounts, ITransaction tx) {
+		List<Product> products = new ArrayList<>();
+		for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+			List<Product> taken = takeAvailable(JMSConstants.Queue.COUNTER, getProductSelector(amount.getKey()),
+					amount.getValue());
+			if (taken == null || taken.size() < amount.getValue())
+				return null;
+			products.addAll(taken);
+		}
+		return products;
 	}
 
 	public Session getSession() {
@@ -138,8 +148,18 @@ public class JMSServiceRobotService extends AbstractJMSService implements IServi
 	}
 
 	@Override
-	public boolean addToCounter(Product product, ITransaction tx) {
-		return send(counterProducer, product);
+	public boolean addToCounter(List<Product> products, ITransaction tx) {
+		// the counter is browsed in the session of the transaction, the stock
+		// view is updated asynchronously and might miss recent refills
+		Map<String, Integer> added = new HashMap<>();
+		products.forEach(p -> added.merge(p.getProductName(), 1, Integer::sum));
+		for (Map.Entry<String, Integer> entry : added.entrySet()) {
+			QueueBrowser browser = counterProductBrowsers.get(entry.getKey());
+			int available = browser == null ? -1 : JMSUtil.count(browser);
+			if (available < 0 || available + entry.getValue() > SBCConstants.COUNTER_MAX_CAPACITY)
+				return false;
+		}
+		return send(counterProducer, products);
 
 	}
 
@@ -155,37 +175,29 @@ public class JMSServiceRobotService extends AbstractJMSService implements IServi
 
 	@Override
 	public List<Product> getProductsFromStorage(int amount, ITransaction tx) {
-		List<Product> readProducts = JMSUtil.toList(storageQueueBrowser, JMSConstants.Property.CLASS,
-				Product.class.getSimpleName(), amount);
-		List<Product> finalList = new ArrayList<>();
-		for (Product product : readProducts) {
-			Product received = receive(storageProductTypeConsumers.get(product.getProductName()));
-			if (received != null) {
-				finalList.add(received);
-			} else {
-				return null;
-			}
-
-		}
+		return takeAvailable(JMSConstants.Queue.STORAGE,
+				String.format("%s='%s'", JMSConstants.Property.CLASS, Product.class.getSimpleName()), amount);
+	}
 
-		return finalList;
+	private static String getProductSelector(String productName) {
+		return String.format("%s='%s' AND %s='%s'", JMSConstants.Property.CLASS, Product.class.getSimpleName(),
+				JMSConstants.Property.TYPE, productName);
 	}
 
 	@Override
-	public Map<String, Boolean> getInitialState() {
-		Map<String, Boolean> notificationState = new HashMap<>();
-		notificationState.put(IS_COUNTER_EMPTY, JMSUtil.test(productCounterQueueBrowser, JMSConstants.Property.CLASS,
-				Product.class.getSimpleName()) == 0);
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> notificationState = new EnumMap<>(NotificationKeys.class);
+		int counterProducts = counterView.count(JMSConstants.Property.CLASS, Product.class.getSimpleName());
+		notificationState.put(IS_COUNTER_EMPTY, counterProducts == 0);
 		notificationState.put(NO_MORE_PRODUCTS_IN_STORAGE,
-				JMSUtil.test(storageQueueBrowser, JMSConstants.Property.CLASS, Product.class.getSimpleName()) == 0);
+				storageView.count(JMSConstants.Property.CLASS, Product.class.getSimpleName()) == 0);
 		notificationState.put(IS_ORDER_AVAILABLE,
-				JMSUtil.test(orderQueueBrowser, JMSConstants.Property.CLASS, Order.class.getSimpleName()) > 0);
-		notificationState.put(IS_PREPACKAGE_LIMIT, JMSUtil.test(terminalQueueBrowser, JMSConstants.Property.CLASS,
+				orderView.count(JMSConstants.Property.CLASS, Order.class.getSimpleName()) > 0);
+		notificationState.put(IS_PREPACKAGE_LIMIT, terminalView.count(JMSConstants.Property.CLASS,
 				Prepackage.class.getSimpleName()) >= SBCConstants.PREPACKAGE_MAX_AMOUNT);
 		notificationState.put(IS_ORDER_PROCESSING_LOCKED,
-				JMSUtil.test(orderQueueBrowser, JMSConstants.Property.HIGH_PRIORITY, "true") > 0);
-		notificationState.put(IS_COUNTER_FULL, JMSUtil.test(productCounterQueueBrowser, JMSConstants.Property.CLASS,
-				Product.class.getSimpleName()) == 5 * COUNTER_MAX_CAPACITY);
+				orderView.count(JMSConstants.Property.HIGH_PRIORITY, "true") > 0);
+		notificationState.put(IS_COUNTER_FULL, counterProducts == 5 * COUNTER_MAX_CAPACITY);
 		return notificationState;
 	}
 
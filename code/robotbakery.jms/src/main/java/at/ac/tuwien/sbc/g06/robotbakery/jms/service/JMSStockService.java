@@ -0,0 +1,89 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+
+/**
+ * Browses the queues of the storage, bakeroom, counter and terminal for the
+ * resync of the stock view and the replay of a recovered bakery. Orders are in
+ * a queue of their own, but belong to the counter like in the change
+ * notifications.
+ */
+public class JMSStockService extends AbstractJMSService implements IStockService {
+	private static Logger logger = LoggerFactory.getLogger(JMSStockService.class);
+	private Map<String, List<QueueBrowser>> browsers = new HashMap<>();
+
+	public JMSStockService() {
+		super(false, Session.AUTO_ACKNOWLEDGE, JMSUtil.getServerAddress());
+		init();
+	}
+
+	public JMSStockService(Connection connection) {
+		super(connection, false, Session.AUTO_ACKNOWLEDGE);
+		init();
+	}
+
+	private void init() {
+		try {
+			browsers.put(SBCConstants.COORDINATION_ROOM_STORAGE,
+					Arrays.asList(createBrowser(JMSConstants.Queue.STORAGE)));
+			browsers.put(SBCConstants.COORDINATION_ROOM_BAKEROOM,
+					Arrays.asList(createBrowser(JMSConstants.Queue.BAKEROOM)));
+			browsers.put(SBCConstants.COORDINATION_ROOM_COUNTER,
+					Arrays.asList(createBrowser(JMSConstants.Queue.COUNTER), createBrowser(JMSConstants.Queue.ORDER)));
+			browsers.put(SBCConstants.COORDINATION_ROOM_TERMINAL,
+					Arrays.asList(createBrowser(JMSConstants.Queue.TERMINAL)));
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+	private QueueBrowser createBrowser(String queueName) throws JMSException {
+		return session.createBrowser(session.createQueue(queueName));
+	}
+
+	@Override
+	public List<Serializable> readRoom(String coordinationRoom) {
+		List<QueueBrowser> roomBrowsers = browsers.get(coordinationRoom);
+		if (roomBrowsers == null)
+			return null;
+		List<Serializable> content = new ArrayList<>();
+		try {
+			for (QueueBrowser browser : roomBrowsers) {
+				Enumeration<?> messages = browser.getEnumeration();
+				while (messages.hasMoreElements()) {
+					Object element = messages.nextElement();
+					if (element instanceof Message) {
+						Serializable object = JMSUtil.getCodec().decode((Message) element);
+						if (object != null)
+							content.add(object);
+					}
+				}
+			}
+			return content;
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+			return null;
+		}
+	}
+
+}
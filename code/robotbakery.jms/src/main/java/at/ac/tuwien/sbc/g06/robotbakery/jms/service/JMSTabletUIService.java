@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
@@ -17,11 +18,11 @@ import org.slf4j.LoggerFactory;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
-import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
 
 public class JMSTabletUIService extends AbstractJMSService implements ITabletUIService {
 	private static Logger logger = LoggerFactory.getLogger(AbstractJMSService.class);
@@ -29,12 +30,21 @@ public class JMSTabletUIService extends AbstractJMSService implements ITabletUIS
 	private MessageProducer orderProducer;
 	private Queue terminalQueue;
 	private Queue counterQueue;
-	private QueueBrowser counterQueueBrowser;
+	private QueueView counterView;
 
 	private QueueBrowser terminalQueueBrowser;
 
 	public JMSTabletUIService() {
-		super(false, Session.AUTO_ACKNOWLEDGE, JMSConstants.SERVER_ADDRESS);
+		super(false, Session.AUTO_ACKNOWLEDGE, JMSUtil.getServerAddress());
+		init();
+	}
+
+	public JMSTabletUIService(Connection connection) {
+		super(connection, false, Session.AUTO_ACKNOWLEDGE);
+		init();
+	}
+
+	private void init() {
 		try {
 			counterQueue = session.createQueue(JMSConstants.Queue.COUNTER);
 			orderQueue = session.createQueue(JMSConstants.Queue.ORDER);
@@ -42,8 +52,7 @@ public class JMSTabletUIService extends AbstractJMSService implements ITabletUIS
 			orderProducer = session.createProducer(orderQueue);
 
 			// We keep the order in the counter as an history after payment, so
-			counterQueueBrowser = session.createBrowser(counterQueue,
-					String.format("%s = '%s'", JMSConstants.Property.CLASS, Product.class.getSimpleName()));
+			counterView = getView(JMSConstants.Queue.COUNTER);
 			terminalQueueBrowser = session.createBrowser(terminalQueue);
 		} catch (JMSException e) {
 			logger.error(e.getMessage());
@@ -58,19 +67,21 @@ public class JMSTabletUIService extends AbstractJMSService implements ITabletUIS
 
 	@Override
 	public PackedOrder getPackedOrder(Order order) {
+		MessageConsumer terminalOrderConsumer = null;
 		try {
-			List<Order> test = JMSUtil.toList(terminalQueueBrowser, JMSConstants.Property.CLASS,
-					PackedOrder.class.getSimpleName(), null);
-			MessageConsumer terminalOrderConsumer = session.createConsumer(terminalQueue,
+			terminalOrderConsumer = session.createConsumer(terminalQueue,
 					String.format("%s= '%s' AND %s= '%s' AND %s='%s' ", JMSConstants.Property.CLASS,
 							PackedOrder.class.getSimpleName(), JMSConstants.Property.CUSTOMER_ID,
 							order.getCustomerId().toString(), JMSConstants.Property.ORDER_ID,
 							order.getId().toString()));
-			return receive(terminalOrderConsumer);
+			return receiveTimed(terminalOrderConsumer, JMSConstants.MAX_TIMEOUT);
 		} catch (JMSException e) {
 			e.printStackTrace();
 			return null;
 
+		} finally {
+			// an open consumer would keep prefetched messages from later calls
+			close(terminalOrderConsumer);
 		}
 
 	}
@@ -83,23 +94,32 @@ public class JMSTabletUIService extends AbstractJMSService implements ITabletUIS
 
 	@Override
 	public Map<String, Integer> getInitialCounterProducts() {
-		return JMSUtil.getBrowserContentSizeByValues(counterQueueBrowser, SBCConstants.PRODUCTS_NAMES,
-				JMSConstants.Property.TYPE);
+		return counterView.count(SBCConstants.PRODUCTS_NAMES, JMSConstants.Property.TYPE);
 	}
 
 	@Override
 	public Prepackage getPrepackage(UUID packageId) {
+		MessageConsumer terminalPrepackageConsumer = null;
 		try {
-			List<Order> test = JMSUtil.toList(terminalQueueBrowser, JMSConstants.Property.ID, packageId.toString(),
-					null);
-			MessageConsumer terminalPrepackageConsumer = session.createConsumer(terminalQueue,
+			terminalPrepackageConsumer = session.createConsumer(terminalQueue,
 					String.format("%s= '%s' AND %s= '%s'  ", JMSConstants.Property.CLASS,
 							Prepackage.class.getSimpleName(), JMSConstants.Property.ID, packageId.toString()));
-			return receive(terminalPrepackageConsumer);
+			return receiveTimed(terminalPrepackageConsumer, JMSConstants.MAX_TIMEOUT);
 		} catch (JMSException e) {
 			e.printStackTrace();
 			return null;
 
+		} finally {
+			close(terminalPrepackageConsumer);
+		}
+	}
+
+	private void close(MessageConsumer consumer) {
+		try {
+			if (consumer != null)
+				consumer.close();
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
 		}
 	}
 
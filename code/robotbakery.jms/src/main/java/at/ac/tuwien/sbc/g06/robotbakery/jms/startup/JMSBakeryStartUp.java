@@ -1,26 +1,55 @@
 package at.ac.tuwien.sbc.g06.robotbakery.jms.startup;
 
+import java.util.List;
+
+import javax.jms.Connection;
+
 import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotHost;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSBakery;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSServer;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSBakeryUIService;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSNotificationService;
 import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
 import at.tuwien.sbc.g06.robotbakery.ui.dashboard.DashboardInitializer;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
+/**
+ * Starts the broker and the dashboard of the bakery. The bakery connects to
+ * the broker in this process with the vm transport, remote robots and tablets
+ * connect with tcp. Robots which are given as arguments, e.g. "service:2
+ * knead:2 bake deliver", are hosted in this process and connect with the vm
+ * transport as well.
+ */
 public class JMSBakeryStartUp extends Application {
 
+	private RobotHost robotHost;
+
 	@Override
 	public void start(Stage primaryStage) throws Exception {
 		// Initialize Bakery-instance and required ui listeners
 		JMSServer server = new JMSServer();
-		server.startUp(JMSConstants.SERVER_ADDRESS);
-		Bakery bakery = new JMSBakery();
+		server.startUp(JMSConstants.SERVER_ADDRESS, JMSConstants.BROKER_NAME);
+		Connection connection = JMSUtil.createAndConnection(JMSConstants.EMBEDDED_ADDRESS);
+		Bakery bakery = new JMSBakery(connection);
 
-		DashboardInitializer.initializeDashboard(primaryStage, bakery, new JMSBakeryUIService(), new JMSNotificationService());
+		DashboardInitializer.initializeDashboard(primaryStage, bakery, new JMSBakeryUIService(connection),
+				new JMSNotificationService(connection));
 
+		List<String> robots = getParameters().getRaw();
+		if (!robots.isEmpty()) {
+			robotHost = new RobotHost(
+					new JMSRobotFactory(JMSUtil.createAndConnection(JMSConstants.EMBEDDED_ADDRESS)));
+			robotHost.addRobots(robots.toArray(new String[robots.size()]));
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (robotHost != null)
+			robotHost.shutdown();
 	}
 
 	public static void main(String[] args) {
@@ -0,0 +1,110 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.startup;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.BakeRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.DeliveryRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.KneadRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ProductionPlanner;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.Robot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ServiceRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.WaterSupply;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSBakeryChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.AbstractJMSService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSBakeRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSDeliveryRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSKneadRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSServiceRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.service.JMSStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.transaction.JMSTransactionManager;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.JMSUtil;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.QueueView;
+
+/**
+ * Creates JMS robots which share one connection and one change notifier. Each
+ * robot gets its own session, because sessions must not be used concurrently.
+ */
+public class JMSRobotFactory implements RobotFactory {
+	private static Logger logger = LoggerFactory.getLogger(JMSRobotFactory.class);
+
+	private final Connection connection;
+	private final JMSBakeryChangeNotifer changeNotifer;
+	private final StockView stockView;
+	private final ProductionPlanner planner;
+	private final WaterSupply waterSupply;
+	private final Map<UUID, AbstractJMSService> services = new ConcurrentHashMap<>();
+
+	public JMSRobotFactory() throws JMSException {
+		this(JMSUtil.createAndConnection(JMSUtil.getServerAddress()));
+	}
+
+	public JMSRobotFactory(Connection connection) {
+		this.connection = connection;
+		this.changeNotifer = new JMSBakeryChangeNotifer(connection);
+		this.stockView = new StockView(changeNotifer, new JMSStockService(connection));
+		this.planner = new ProductionPlanner(stockView);
+		this.waterSupply = new WaterSupply();
+	}
+
+	@Override
+	public Robot createRobot(String type, String id) {
+		Robot robot;
+		switch (type) {
+		case TYPE_SERVICE:
+			JMSServiceRobotService serviceRobotService = new JMSServiceRobotService(connection, stockView);
+			robot = new ServiceRobot(serviceRobotService, changeNotifer, new JMSTransactionManager(
+					serviceRobotService.getSession(), serviceRobotService.getConsumers()), id);
+			services.put(robot.getId(), serviceRobotService);
+			break;
+		case TYPE_KNEAD:
+			JMSKneadRobotService kneadRobotService = new JMSKneadRobotService(connection, stockView);
+			robot = new KneadRobot(kneadRobotService, changeNotifer, new JMSTransactionManager(
+					kneadRobotService.getSession(), kneadRobotService.getConsumers()), id, planner, waterSupply);
+			services.put(robot.getId(), kneadRobotService);
+			break;
+		case TYPE_BAKE:
+			JMSBakeRobotService bakeRobotService = new JMSBakeRobotService(connection);
+			robot = new BakeRobot(bakeRobotService, changeNotifer, new JMSTransactionManager(
+					bakeRobotService.getSession(), bakeRobotService.getConsumers()), id);
+			services.put(robot.getId(), bakeRobotService);
+			break;
+		case TYPE_DELIVER:
+			JMSDeliveryRobotService deliveryRobotService = new JMSDeliveryRobotService(connection);
+			robot = new DeliveryRobot(deliveryRobotService, changeNotifer, new JMSTransactionManager(
+					deliveryRobotService.getSession(), deliveryRobotService.getConsumers()), id);
+			services.put(robot.getId(), deliveryRobotService);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown robot type: " + type);
+		}
+		return robot;
+	}
+
+	@Override
+	public void releaseRobot(Robot robot) {
+		AbstractJMSService service = services.remove(robot.getId());
+		if (service != null)
+			service.close();
+	}
+
+	@Override
+	public void close() {
+		QueueView.close(connection);
+		try {
+			connection.close();
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+}
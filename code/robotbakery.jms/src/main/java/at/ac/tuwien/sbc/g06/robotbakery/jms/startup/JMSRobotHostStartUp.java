@@ -0,0 +1,22 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.startup;
+
+import java.io.IOException;
+
+import javax.jms.JMSException;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotHost;
+
+/**
+ * Starts multiple robots in one process, e.g. "service:2 knead:4 bake deliver"
+ */
+public class JMSRobotHostStartUp {
+
+	public static void main(String[] args) throws IOException, JMSException {
+		RobotHost host = new RobotHost(new JMSRobotFactory());
+		host.addRobots(args);
+		System.out.println("Press CTRL+C to exit...");
+		host.runConsole(System.in);
+		System.exit(0);
+	}
+
+}
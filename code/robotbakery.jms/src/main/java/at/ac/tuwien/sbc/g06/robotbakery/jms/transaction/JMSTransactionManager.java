@@ -5,15 +5,28 @@ import javax.jms.Session;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransactionManager;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.util.ConsumerCache;
 
 public class JMSTransactionManager implements ITransactionManager {
 
 	private Session session;
+	private ConsumerCache consumers;
 
 	public JMSTransactionManager(Session session) {
 		this.session = session;
 	}
 
+	/**
+	 * @param session
+	 *            session of the service
+	 * @param consumers
+	 *            consumers of the session, which are closed after a rollback
+	 */
+	public JMSTransactionManager(Session session, ConsumerCache consumers) {
+		this.session = session;
+		this.consumers = consumers;
+	}
+
 	@Override
 	public ITransaction createTransaction() {
 		return new JMSTransaction();
@@ -25,6 +38,8 @@ public class JMSTransactionManager implements ITransactionManager {
 			return true;
 		try {
 			session.commit();
+			if (consumers != null)
+				consumers.committed();
 			return true;
 		} catch (JMSException e) {
 			throw new RuntimeException("Error when trying to commit a transaction");
@@ -38,6 +53,8 @@ public class JMSTransactionManager implements ITransactionManager {
 			return true;
 		try {
 			session.rollback();
+			if (consumers != null)
+				consumers.rolledBack();
 			return true;
 		} catch (JMSException e) {
 			throw new RuntimeException("Error when trying to commit a transaction");
@@ -0,0 +1,143 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Consumers of a session by queue and selector. The least recently used
+ * consumer is closed when the cache is full, so a service can take messages
+ * with the same selector again without creating and closing a consumer for
+ * each take, while the number of open consumers of the session is bounded.
+ *
+ * The consumers have a prefetch size of 0, they pull a message from the broker
+ * when they receive it. An open consumer with prefetch gets messages
+ * dispatched which consumers of other sessions with the same selector can't
+ * receive anymore. A pull doesn't wait for the broker to dispatch the
+ * messages, so {@link MessageConsumer#receiveNoWait()} already returns a
+ * message which is in the queue.
+ *
+ * After a rollback the received messages are redelivered to the consumers
+ * which received them, the consumers of the transaction are closed then, so
+ * that the broker can dispatch the messages to other sessions again.
+ *
+ * Only selectors which are repeated are worth caching. A selector for the id
+ * of a message is used once and would evict the consumers which are in use,
+ * its consumer is created with {@link #create(String, String)} and closed
+ * after the take.
+ */
+public class ConsumerCache {
+	private static Logger logger = LoggerFactory.getLogger(ConsumerCache.class);
+
+	private static final String NO_PREFETCH = "?consumer.prefetchSize=0";
+
+	private final Session session;
+	private final Map<String, MessageConsumer> consumers;
+	private final Set<String> used = new HashSet<>();
+
+	/**
+	 * @param session
+	 *            session which creates the consumers
+	 * @param capacity
+	 *            maximum number of open consumers
+	 */
+	public ConsumerCache(Session session, int capacity) {
+		this.session = session;
+		this.consumers = new LinkedHashMap<String, MessageConsumer>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, MessageConsumer> eldest) {
+				if (size() <= capacity)
+					return false;
+				used.remove(eldest.getKey());
+				close(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * @param queueName
+	 *            name of the queue, see {@link JMSConstants.Queue}
+	 * @param selector
+	 *            message selector or null for all messages of the queue
+	 * @return cached consumer, which is created if there is none for the queue
+	 *         and selector
+	 * @throws JMSException
+	 */
+	public synchronized MessageConsumer get(String queueName, String selector) throws JMSException {
+		String key = queueName + "|" + selector;
+		MessageConsumer consumer = consumers.get(key);
+		if (consumer == null) {
+			consumer = create(queueName, selector);
+			consumers.put(key, consumer);
+		}
+		used.add(key);
+		return consumer;
+	}
+
+	/**
+	 * @param queueName
+	 *            name of the queue, see {@link JMSConstants.Queue}
+	 * @param selector
+	 *            message selector, e.g. for the id of a message
+	 * @return new consumer without prefetch, which isn't cached and has to be
+	 *         closed by the caller. In a transacted session the broker keeps
+	 *         it until the transaction is completed, so the messages it has
+	 *         received are redelivered to other sessions after a rollback.
+	 * @throws JMSException
+	 */
+	public MessageConsumer create(String queueName, String selector) throws JMSException {
+		return session.createConsumer(session.createQueue(queueName + NO_PREFETCH), selector);
+	}
+
+	/**
+	 * has to be called after the transaction of the session has been
+	 * committed
+	 */
+	public synchronized void committed() {
+		used.clear();
+	}
+
+	/**
+	 * closes the consumers which have been used in the transaction, has to be
+	 * called after the transaction of the session has been rolled back
+	 */
+	public synchronized void rolledBack() {
+		for (String key : used)
+			close(consumers.remove(key));
+		used.clear();
+	}
+
+	/**
+	 * closes all consumers of the cache
+	 */
+	public synchronized void clear() {
+		List<MessageConsumer> open = new ArrayList<>(consumers.values());
+		consumers.clear();
+		used.clear();
+		open.forEach(ConsumerCache::close);
+	}
+
+	private static void close(MessageConsumer consumer) {
+		if (consumer == null)
+			return;
+		try {
+			consumer.close();
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+}
@@ -13,6 +13,8 @@ public class JMSConstants {
 		public static final String ID = "uuid";
 		public static final String DELIVERY = "delivery";
 		public static final String HIGH_PRIORITY = "isHighPriority";
+		public static final String EXPIRES_AT = "expiresAt";
+		public static final String BATCH = "batch";
 
 		private Property() {
 		};
@@ -40,9 +42,30 @@ public class JMSConstants {
 
 	public static final String LOCALHOST_ADDRESS = "tcp://localhost:";
 	public static final String SERVER_ADDRESS = "tcp://localhost:5557";
+	/**
+	 * system property which overrides the address of the bakery's broker, see
+	 * {@link JMSUtil#getServerAddress()}
+	 */
+	public static final String ADDRESS_PROPERTY = "robotbakery.jms.address";
+	/**
+	 * name of the bakery's broker, clients in the process of the broker
+	 * connect with {@link #EMBEDDED_ADDRESS}
+	 */
+	public static final String BROKER_NAME = "robotbakery";
+	public static final String EMBEDDED_ADDRESS = "vm://" + BROKER_NAME + "?create=false";
 	public static final int PORT_RANGE_START = 45555;
 	public static final int PORT_RANGE_END = 45575;
 	public static final long MAX_TIMEOUT = 2000;
+	public static final int FLOUR_TAKE_ATTEMPTS = 3;
+	public static final int CONSUMER_CACHE_SIZE = 64;
+	/**
+	 * system property which chooses the codec of the messages, binary
+	 * (default) or object
+	 */
+	public static final String CODEC_PROPERTY = "robotbakery.jms.codec";
+	// persistence of the broker, see JMSBrokerStore
+	public static final String DATA_DIR_PROPERTY = "robotbakery.jms.dataDir";
+	public static final String SYNC_PROPERTY = "robotbakery.jms.sync";
 
 	private JMSConstants() {
 	};
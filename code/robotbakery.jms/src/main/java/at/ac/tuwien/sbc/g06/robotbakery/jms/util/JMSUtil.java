@@ -5,35 +5,92 @@ import java.io.Serializable;
 import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
-import javax.jms.ObjectMessage;
+import javax.jms.Message;
 import javax.jms.QueueBrowser;
 import javax.jms.TopicConnection;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.pool.PooledConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.codec.BinaryMessageCodec;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.codec.MessageCodec;
+import at.ac.tuwien.sbc.g06.robotbakery.jms.codec.ObjectMessageCodec;
 
 public class JMSUtil {
 	private static Logger logger = LoggerFactory.getLogger(JMSUtil.class);
 
+	private static final MessageCodec codec = createCodec(
+			System.getProperty(JMSConstants.CODEC_PROPERTY, BinaryMessageCodec.NAME));
+
+	private static final Map<String, PooledConnectionFactory> connectionFactories = new ConcurrentHashMap<>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(
+				new Thread(() -> connectionFactories.values().forEach(PooledConnectionFactory::stop)));
+	}
+
+	/**
+	 * @param address
+	 *            address of the broker
+	 * @return started connection of the shared factory of the address, see
+	 *         {@link #getConnectionFactory(String)}
+	 * @throws JMSException
+	 */
 	public static Connection createAndConnection(String address) throws JMSException {
 		Connection connection;
-		ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(address);
-		connection = connectionFactory.createConnection();
+		connection = getConnectionFactory(address).createConnection();
 		connection.start();
 		return connection;
 
 	}
 
+	/**
+	 * @return address of the bakery's broker, which is set with the system
+	 *         property {@value JMSConstants#ADDRESS_PROPERTY}, e.g.
+	 *         {@value JMSConstants#EMBEDDED_ADDRESS} if the broker runs in this
+	 *         process, or {@value JMSConstants#SERVER_ADDRESS}
+	 */
+	public static String getServerAddress() {
+		return System.getProperty(JMSConstants.ADDRESS_PROPERTY, JMSConstants.SERVER_ADDRESS);
+	}
+
+	/**
+	 * Connection factory which is shared by all services of the process that
+	 * connect to the address. The connections of the factory are handles of
+	 * one pooled connection to the broker, and the sessions which the services
+	 * close are kept open for the next service, so a robot or tablet which is
+	 * started doesn't open a connection and sessions at the broker.
+	 * 
+	 * The messages are not copied on send, since the services create a new
+	 * message for each send. With the vm transport of an embedded broker the
+	 * sent message itself is handed to the broker, without being marshalled.
+	 * 
+	 * @param address
+	 *            address of the broker
+	 * @return shared factory, which is created on first use
+	 */
+	private static PooledConnectionFactory getConnectionFactory(String address) {
+		return connectionFactories.computeIfAbsent(address, a -> {
+			ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(a);
+			connectionFactory.setCopyMessageOnSend(false);
+			PooledConnectionFactory pool = new PooledConnectionFactory(connectionFactory);
+			pool.start();
+			return pool;
+		});
+	}
+
 	public static boolean available(int port) {
 		System.out.println("--------------Testing port " + port);
 		Socket s = null;
@@ -60,13 +117,36 @@ public class JMSUtil {
 
 	public static TopicConnection createTopicConnection(String address) throws JMSException {
 		TopicConnection connection;
-		ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(address);
-		connection = connectionFactory.createTopicConnection();
+		// the pooled connections are topic and queue connections
+		connection = (TopicConnection) getConnectionFactory(address).createConnection();
 		connection.start();
 		return connection;
 
 	}
 
+	/**
+	 * Counts the messages of a browser, which selects them by itself, without
+	 * decoding them.
+	 * 
+	 * @param browser
+	 *            Browser with a message selector
+	 * @return number of messages or -1 if the queue couldn't be browsed
+	 */
+	public static int count(QueueBrowser browser) {
+		int count = 0;
+		try {
+			Enumeration<?> messages = browser.getEnumeration();
+			while (messages.hasMoreElements()) {
+				messages.nextElement();
+				count++;
+			}
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+			return -1;
+		}
+		return count;
+	}
+
 	public static int test(QueueBrowser browser, String property, String value) {
 		return test(browser, new String[] { property }, new String[] { value });
 
@@ -114,14 +194,17 @@ public class JMSUtil {
 			Enumeration<?> messages = browser.getEnumeration();
 			while (messages.hasMoreElements()) {
 				Object element = messages.nextElement();
-				if (element instanceof ObjectMessage) {
-					ObjectMessage msg = (ObjectMessage) element;
+				if (element instanceof Message) {
+					Message msg = (Message) element;
 					boolean keep = true;
 					for (int i = 0; i < properties.length; i++) {
 						keep = values[i].equals(msg.getStringProperty(properties[i]));
 					}
-					if (keep)
-						list.add((T) msg.getObject());
+					if (keep) {
+						T object = (T) codec.decode(msg);
+						if (object != null)
+							list.add(object);
+					}
 					if (maxSize != null && maxSize.equals(list.size()))
 						return list;
 
@@ -169,6 +252,43 @@ public class JMSUtil {
 		
 	}
 
+	/**
+	 * @param message
+	 *            message of the notification topic
+	 * @return objects of a batched notification or the single object of the
+	 *         notification
+	 * @throws JMSException
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Serializable> getNotifiedObjects(Message message) throws JMSException {
+		Serializable object = codec.decode(message);
+		if (object == null)
+			return Collections.emptyList();
+		if (message.getBooleanProperty(JMSConstants.Property.BATCH))
+			return (List<Serializable>) object;
+		return Collections.singletonList(object);
+	}
+
+	/**
+	 * @return codec of the messages, which is chosen with the system property
+	 *         {@value JMSConstants#CODEC_PROPERTY}
+	 */
+	public static MessageCodec getCodec() {
+		return codec;
+	}
+
+	private static MessageCodec createCodec(String name) {
+		switch (name) {
+		case ObjectMessageCodec.NAME:
+			return new ObjectMessageCodec();
+		case BinaryMessageCodec.NAME:
+			return new BinaryMessageCodec();
+		default:
+			logger.error("Unknown message codec " + name + ", using " + BinaryMessageCodec.NAME);
+			return new BinaryMessageCodec();
+		}
+	}
+
 	public static String getCoordinationRoom(String string) {
 		switch (string.replace("queue://", "")) {
 		case JMSConstants.Queue.BAKEROOM:
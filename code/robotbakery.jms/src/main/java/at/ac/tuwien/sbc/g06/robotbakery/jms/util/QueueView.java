@@ -0,0 +1,312 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+
+import org.apache.activemq.advisory.AdvisorySupport;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.policy.PolicyEntry;
+import org.apache.activemq.command.ActiveMQDestination;
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.activemq.command.DataStructure;
+import org.apache.activemq.command.MessageId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.jms.JMSServer;
+
+/**
+ * Counts the messages of a queue by the values of their string properties,
+ * without browsing the queue. The view reads the properties of the messages
+ * in the queue once and is updated by the advisories of the broker, which
+ * are sent when a send or a receive is committed. Rolled back receives don't
+ * change the view. The bodies of the messages are never deserialized. The
+ * notification topic is not used, because its notifications include objects
+ * which are not in a queue, e.g. updated orders, and the water pipes are sent
+ * without notification.
+ *
+ * The broker has to send the advisories for delivered and consumed messages,
+ * see {@link #enableAdvisories(PolicyEntry)}. The views of a connection
+ * are shared by its services, a view is removed when the last service has
+ * released it or the connection is closed.
+ */
+public class QueueView implements MessageListener {
+	private static Logger logger = LoggerFactory.getLogger(QueueView.class);
+
+	private static final int REMOVED_IDS = 4096;
+	private static final Map<Connection, Map<String, QueueView>> views = new HashMap<>();
+
+	private final String queueName;
+	private final Map<String, Map<String, String>> entries = new HashMap<>();
+	private final Map<String, Map<String, Set<String>>> index = new HashMap<>();
+	// ids of removed messages, a browse or an advisory which arrives late
+	// must not add them again
+	private final Map<String, Boolean> removed = new LinkedHashMap<String, Boolean>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > REMOVED_IDS;
+		}
+	};
+	private final Connection connection;
+	private ActiveMQTopic deliveredTopic;
+	private Session advisorySession;
+	private int users;
+
+	private QueueView(Connection connection, String queueName) {
+		this.connection = connection;
+		this.queueName = queueName;
+	}
+
+	/**
+	 * @param connection
+	 *            connection which receives the advisories
+	 * @param queueName
+	 *            name of the queue, see {@link JMSConstants.Queue}
+	 * @return view of the queue, which is created on the first call for the
+	 *         connection and has to be released with {@link #release()}
+	 */
+	public static QueueView get(Connection connection, String queueName) {
+		synchronized (views) {
+			Map<String, QueueView> connectionViews = views.computeIfAbsent(connection, c -> new HashMap<>());
+			QueueView view = connectionViews.get(queueName);
+			if (view == null) {
+				view = new QueueView(connection, queueName);
+				view.init(connection);
+				connectionViews.put(queueName, view);
+			}
+			view.users++;
+			return view;
+		}
+	}
+
+	/**
+	 * release the view, it is removed and stops receiving the advisories when
+	 * it has been released as often as it has been got
+	 */
+	public void release() {
+		synchronized (views) {
+			if (--users > 0)
+				return;
+			Map<String, QueueView> connectionViews = views.get(connection);
+			if (connectionViews == null || connectionViews.get(queueName) != this)
+				return;
+			connectionViews.remove(queueName);
+			if (connectionViews.isEmpty())
+				views.remove(connection);
+		}
+		closeSession();
+	}
+
+	/**
+	 * remove the views of a connection, has to be called when the connection
+	 * is closed
+	 */
+	public static void close(Connection connection) {
+		Map<String, QueueView> connectionViews;
+		synchronized (views) {
+			connectionViews = views.remove(connection);
+		}
+		if (connectionViews != null)
+			connectionViews.values().forEach(QueueView::closeSession);
+	}
+
+	private void closeSession() {
+		try {
+			if (advisorySession != null)
+				advisorySession.close();
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+	/**
+	 * let the broker send the advisories for delivered and consumed messages
+	 * of the destinations of the policy, see
+	 * {@link JMSServer#configureDestinations(BrokerService)}
+	 */
+	public static void enableAdvisories(PolicyEntry policy) {
+		policy.setAdvisoryForDelivery(true);
+		policy.setAdvisoryForConsumed(true);
+	}
+
+	/**
+	 * subscribes to the advisories before the queue is browsed, so that no
+	 * change between the browse and the subscription is missed
+	 */
+	private void init(Connection connection) {
+		if (connection == null)
+			return;
+		try {
+			advisorySession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			ActiveMQDestination queue = ActiveMQDestination.transform(advisorySession.createQueue(queueName));
+			deliveredTopic = AdvisorySupport.getMessageDeliveredAdvisoryTopic(queue);
+			ActiveMQTopic advisories = new ActiveMQTopic(deliveredTopic.getPhysicalName() + ","
+					+ AdvisorySupport.getMessageConsumedAdvisoryTopic(queue).getPhysicalName() + ","
+					+ AdvisorySupport.getMessageDLQdAdvisoryTopic(queue).getPhysicalName() + ","
+					+ AdvisorySupport.getExpiredQueueMessageAdvisoryTopic(queue).getPhysicalName());
+			MessageConsumer consumer = advisorySession.createConsumer(advisories);
+			consumer.setMessageListener(this);
+			connection.start();
+
+			Session browserSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			try {
+				load(browserSession, browserSession.createQueue(queueName));
+			} finally {
+				browserSession.close();
+			}
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+	private void load(Session session, Queue queue) throws JMSException {
+		QueueBrowser browser = session.createBrowser(queue);
+		Enumeration<?> messages = browser.getEnumeration();
+		while (messages.hasMoreElements()) {
+			Message message = (Message) messages.nextElement();
+			add(message.getJMSMessageID(), getProperties(message));
+		}
+		browser.close();
+	}
+
+	@Override
+	public void onMessage(Message message) {
+		if (!(message instanceof ActiveMQMessage))
+			return;
+		try {
+			DataStructure data = ((ActiveMQMessage) message).getDataStructure();
+			if (deliveredTopic.equals(message.getJMSDestination())) {
+				if (data instanceof Message)
+					add(((Message) data).getJMSMessageID(), getProperties((Message) data));
+			} else if (data instanceof Message) {
+				remove(((Message) data).getJMSMessageID());
+			} else if (data instanceof MessageId) {
+				remove(data.toString());
+			} else {
+				remove(message.getStringProperty(AdvisorySupport.MSG_PROPERTY_MESSAGE_ID));
+			}
+		} catch (JMSException e) {
+			logger.error(e.getMessage());
+		}
+	}
+
+	private static Map<String, String> getProperties(Message message) throws JMSException {
+		Map<String, String> properties = new HashMap<>();
+		Enumeration<?> names = message.getPropertyNames();
+		while (names.hasMoreElements()) {
+			String name = (String) names.nextElement();
+			Object value = message.getObjectProperty(name);
+			if (value instanceof String)
+				properties.put(name, (String) value);
+		}
+		return properties;
+	}
+
+	private synchronized void add(String id, Map<String, String> properties) {
+		if (id == null || removed.containsKey(id) || entries.containsKey(id))
+			return;
+		entries.put(id, properties);
+		properties.forEach((property, value) -> index.computeIfAbsent(property, p -> new HashMap<>())
+				.computeIfAbsent(value, v -> new HashSet<>()).add(id));
+	}
+
+	private synchronized void remove(String id) {
+		if (id == null)
+			return;
+		removed.put(id, Boolean.TRUE);
+		Map<String, String> properties = entries.remove(id);
+		if (properties == null)
+			return;
+		properties.forEach((property, value) -> {
+			Map<String, Set<String>> values = index.get(property);
+			Set<String> ids = values.get(value);
+			ids.remove(id);
+			if (ids.isEmpty())
+				values.remove(value);
+		});
+	}
+
+	/**
+	 * @return number of messages in the queue
+	 */
+	public synchronized int count() {
+		return entries.size();
+	}
+
+	/**
+	 * counts the messages which have a property with the given value, like
+	 * {@link JMSUtil#test(QueueBrowser, String, String)}
+	 */
+	public synchronized int count(String property, String value) {
+		return getIds(property, value).size();
+	}
+
+	/**
+	 * counts the messages which have all the properties with the given
+	 * values
+	 *
+	 * @param properties
+	 * @param values
+	 * @return number of matching messages
+	 */
+	public synchronized int count(String[] properties, String[] values) {
+		if (properties.length == 0)
+			return count();
+		int count = 0;
+		for (String id : getIds(properties[0], values[0])) {
+			Map<String, String> entry = entries.get(id);
+			boolean keep = true;
+			for (int i = 1; i < properties.length && keep; i++)
+				keep = values[i].equals(entry.get(properties[i]));
+			if (keep)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * counts the messages for each value of a property, like
+	 * {@link JMSUtil#getBrowserContentSizeByValues(QueueBrowser, Collection, String)}
+	 */
+	public synchronized <V> Map<V, Integer> count(Collection<V> values, String property) {
+		Map<V, Integer> map = new HashMap<>();
+		values.forEach(v -> map.put(v, count(property, v.toString())));
+		return map;
+	}
+
+	/**
+	 * @return message ids of the messages which have a property with the given
+	 *         value
+	 */
+	public synchronized Set<String> getHandles(String property, String value) {
+		return new HashSet<>(getIds(property, value));
+	}
+
+	private Set<String> getIds(String property, String value) {
+		Set<String> ids = index.getOrDefault(property, Collections.emptyMap()).get(value);
+		return ids == null ? Collections.emptySet() : ids;
+	}
+
+	public String getQueueName() {
+		return queueName;
+	}
+
+}
@@ -0,0 +1,287 @@
+package at.ac.tuwien.sbc.g06.robotbakery.jms.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.Contribution;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.RecipeRegistry;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+
+public class BinaryFormatTest {
+
+	@Test
+	public void testProductWithContributions() throws IOException {
+		Product product = product(SBCConstants.PRODUCT1_NAME);
+		product.addContribution(UUID.randomUUID(), Product.DOUGH_BASE, "KneadRobot");
+		product.addContribution(UUID.randomUUID(), Product.BAKE, "BakeRobot");
+		// types which aren't known to the format are written as string
+		product.addContribution(UUID.randomUUID(), "Inspected", "QualityRobot");
+		assertProduct(product, roundTrip(product));
+	}
+
+	@Test
+	public void testProductWithoutTimestampAndContributions() throws IOException {
+		Product product = new Product(UUID.randomUUID(), recipe(SBCConstants.PRODUCT2_NAME));
+		product.setType(BakeState.DOUGH);
+		assertProduct(product, roundTrip(product));
+	}
+
+	@Test
+	public void testProductWithUnregisteredRecipe() throws IOException {
+		Recipe recipe = new Recipe("Testbrot", Arrays.asList(IngredientType.FLOUR, IngredientType.WATER),
+				Arrays.asList(500, 250), 2.5, 3000);
+		Product product = new Product(UUID.randomUUID(), recipe);
+		Product decoded = roundTrip(product);
+		assertProduct(product, decoded);
+		assertEquals(recipe.getIngredients(), decoded.getRecipe().getIngredients());
+		assertEquals(recipe.getPricePerUnit(), decoded.getRecipe().getPricePerUnit(), 0);
+		assertEquals(recipe.getBakeTime(), decoded.getRecipe().getBakeTime());
+	}
+
+	@Test
+	public void testOrder() throws IOException {
+		Order order = order();
+		Order decoded = roundTrip(order);
+		assertFalse(decoded instanceof PackedOrder);
+		assertOrder(order, decoded);
+	}
+
+	@Test
+	public void testOrderWithoutOptionalFields() throws IOException {
+		Order order = new Order(UUID.randomUUID());
+		order.setState(OrderState.ORDERED);
+		assertOrder(order, roundTrip(order));
+	}
+
+	@Test
+	public void testPackedOrder() throws IOException {
+		PackedOrder packedOrder = new PackedOrder(order());
+		packedOrder.setState(OrderState.PACKED);
+		packedOrder.setTotalSum(4.2);
+		packedOrder.addProduct(product(SBCConstants.PRODUCT1_NAME));
+		packedOrder.addProduct(product(SBCConstants.PRODUCT3_NAME));
+		PackedOrder decoded = roundTrip(packedOrder);
+		assertOrder(packedOrder, decoded);
+		assertEquals(2, decoded.getProducts().size());
+		for (int i = 0; i < 2; i++)
+			assertProduct(packedOrder.getProducts().get(i), decoded.getProducts().get(i));
+	}
+
+	@Test
+	public void testPrepackage() throws IOException {
+		Prepackage prepackage = new Prepackage(UUID.randomUUID());
+		prepackage.setServiceRobotId(UUID.randomUUID());
+		prepackage.setCustomerId(UUID.randomUUID());
+		prepackage.setSold(true);
+		prepackage.setState(Prepackage.STATE_IN_TERMINAL);
+		prepackage.setProducts(new ArrayList<>(Arrays.asList(product(SBCConstants.PRODUCT1_NAME),
+				product(SBCConstants.PRODUCT2_NAME))));
+		Prepackage decoded = roundTrip(prepackage);
+		assertEquals(prepackage.getId(), decoded.getId());
+		assertEquals(prepackage.getServiceRobotId(), decoded.getServiceRobotId());
+		assertEquals(prepackage.getCustomerId(), decoded.getCustomerId());
+		assertTrue(decoded.isSold());
+		assertEquals(prepackage.getState(), decoded.getState());
+		assertEquals(2, decoded.getProducts().size());
+		for (int i = 0; i < 2; i++)
+			assertProduct(prepackage.getProducts().get(i), decoded.getProducts().get(i));
+	}
+
+	@Test
+	public void testIngredient() throws IOException {
+		Ingredient ingredient = new Ingredient(UUID.randomUUID(), IngredientType.EGGS);
+		Ingredient decoded = roundTrip(ingredient);
+		assertFalse(decoded instanceof FlourPack);
+		assertEquals(ingredient.getId(), decoded.getId());
+		assertEquals(ingredient.getType(), decoded.getType());
+	}
+
+	@Test
+	public void testFlourPack() throws IOException {
+		FlourPack pack = new FlourPack(UUID.randomUUID(), 1234);
+		FlourPack decoded = roundTrip(pack);
+		assertEquals(pack.getId(), decoded.getId());
+		assertEquals(IngredientType.FLOUR, decoded.getType());
+		assertEquals(pack.getCurrentAmount(), decoded.getCurrentAmount());
+	}
+
+	@Test
+	public void testNotification() throws IOException {
+		NotificationMessage notification = new NotificationMessage(NotificationMessage.NO_MORE_INGREDIENTS_IN_STORAGE);
+		NotificationMessage decoded = roundTrip(notification);
+		assertEquals(notification.getMessageTyp(), decoded.getMessageTyp());
+	}
+
+	@Test
+	public void testListWithTaggedAndSerializedElements() throws IOException {
+		// water pipes have no binary representation, they are serialized in
+		// a list
+		WaterPipe pipe = new WaterPipe(300).lease(5000);
+		ArrayList<Serializable> list = new ArrayList<>(Arrays.asList(product(SBCConstants.PRODUCT1_NAME),
+				new FlourPack(UUID.randomUUID(), 100), pipe, new ArrayList<>(Arrays.asList(order()))));
+		List<?> decoded = roundTrip(list);
+		assertEquals(4, decoded.size());
+		assertProduct((Product) list.get(0), (Product) decoded.get(0));
+		assertEquals(((FlourPack) list.get(1)).getId(), ((FlourPack) decoded.get(1)).getId());
+		WaterPipe decodedPipe = (WaterPipe) decoded.get(2);
+		assertEquals(pipe.getId(), decodedPipe.getId());
+		assertEquals(pipe.getFlowRate(), decodedPipe.getFlowRate());
+		assertEquals(pipe.getLeaseExpiresAt(), decodedPipe.getLeaseExpiresAt());
+		List<?> nested = (List<?>) decoded.get(3);
+		assertOrder((Order) ((List<?>) list.get(3)).get(0), (Order) nested.get(0));
+	}
+
+	@Test
+	public void testEmptyList() throws IOException {
+		assertTrue(roundTrip(new ArrayList<Serializable>()).isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnsupportedClassIsNotWritten() throws IOException {
+		assertFalse(BinaryFormat.supports(new WaterPipe()));
+		BinaryFormat.write(new WaterPipe());
+	}
+
+	@Test
+	public void testUnknownTag() {
+		assertReadFails(new byte[] { BinaryFormat.VERSION, 42 }, "Unknown tag");
+	}
+
+	@Test
+	public void testUnsupportedVersion() {
+		byte[] data = write(new NotificationMessage(NotificationMessage.ORDER_PROCESSING_FREE));
+		data[0] = BinaryFormat.VERSION + 1;
+		assertReadFails(data, "Unsupported version");
+	}
+
+	@Test
+	public void testTruncatedData() {
+		byte[] data = write(order());
+		assertReadFails(Arrays.copyOf(data, data.length / 2), null);
+	}
+
+	@Test
+	public void testNullTimestampOfOrder() throws IOException {
+		Order order = order();
+		order.setTimestamp(null);
+		assertNull(roundTrip(order).getTimestamp());
+	}
+
+	@Test
+	public void testEncodingIsStable() throws IOException {
+		Order order = order();
+		assertArrayEquals(BinaryFormat.write(order), BinaryFormat.write(roundTrip(order)));
+	}
+
+	private static Product product(String productName) {
+		Product product = new Product(UUID.randomUUID(), recipe(productName));
+		product.setType(BakeState.FINALPRODUCT);
+		Timestamp timestamp = new Timestamp(1495000000123L);
+		timestamp.setNanos(123456789);
+		product.setTimestamp(timestamp);
+		return product;
+	}
+
+	private static Recipe recipe(String productName) {
+		return RecipeRegistry.getInstance().getRecipeByName(productName);
+	}
+
+	private static Order order() {
+		Order order = new Order(UUID.randomUUID());
+		order.setCustomerId(UUID.randomUUID());
+		order.setServiceRobotId(UUID.randomUUID());
+		order.setState(OrderState.WAITING);
+		order.setTimestamp(new Timestamp(1495000000000L));
+		order.setHighPriority(true);
+		order.setDelivery(true);
+		order.setDeliveryAddress(URI.create("xvsm://localhost:9877"));
+		order.setDeliveryRobotId(UUID.randomUUID());
+		order.addItem(SBCConstants.PRODUCT1_NAME, 3);
+		order.addItem(SBCConstants.PRODUCT2_NAME, 1);
+		order.setTotalSum(3.5);
+		return order;
+	}
+
+	private static void assertProduct(Product expected, Product actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getProductName(), actual.getProductName());
+		assertEquals(expected.getType(), actual.getType());
+		assertEquals(expected.getTimestamp(), actual.getTimestamp());
+		assertEquals(expected.getContributions().size(), actual.getContributions().size());
+		for (int i = 0; i < expected.getContributions().size(); i++) {
+			Contribution contribution = expected.getContributions().get(i);
+			assertEquals(contribution.getContributerId(), actual.getContributions().get(i).getContributerId());
+			assertEquals(contribution.getType(), actual.getContributions().get(i).getType());
+			assertEquals(contribution.getContributor(), actual.getContributions().get(i).getContributor());
+		}
+	}
+
+	private static void assertOrder(Order expected, Order actual) {
+		assertEquals(expected.getId(), actual.getId());
+		assertEquals(expected.getCustomerId(), actual.getCustomerId());
+		assertEquals(expected.getServiceRobotId(), actual.getServiceRobotId());
+		assertEquals(expected.getState(), actual.getState());
+		assertEquals(expected.getTimestamp(), actual.getTimestamp());
+		assertEquals(expected.isHighPriority(), actual.isHighPriority());
+		assertEquals(expected.isDelivery(), actual.isDelivery());
+		assertEquals(expected.getDeliveryAddress(), actual.getDeliveryAddress());
+		assertEquals(expected.getDeliveryRobotId(), actual.getDeliveryRobotId());
+		assertEquals(expected.getItemsMap().keySet(), actual.getItemsMap().keySet());
+		expected.getItemsMap().forEach((productName, item) -> assertEquals(item.getAmount(),
+				actual.getItemsMap().get(productName).getAmount()));
+		assertEquals(expected.getTotalSum(), actual.getTotalSum(), 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Serializable> T roundTrip(T object) throws IOException {
+		byte[] data = BinaryFormat.write(object);
+		assertEquals(BinaryFormat.VERSION, data[0]);
+		return (T) BinaryFormat.read(data);
+	}
+
+	private static byte[] write(Serializable object) {
+		try {
+			return BinaryFormat.write(object);
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static void assertReadFails(byte[] data, String message) {
+		try {
+			BinaryFormat.read(data);
+			fail("Data was decoded");
+		} catch (IOException e) {
+			if (message != null)
+				assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+		}
+	}
+
+}
@@ -1,9 +1,15 @@
 package at.tuwien.sbc.g06.robotbakery.ui.dashboard;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
@@ -79,58 +85,22 @@ public class DashboardData implements IChangeListener {
 	@Override
 	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
 		if (object instanceof Product) {
-			Product product = (Product) object;
-			switch (coordinationRoom) {
-			case SBCConstants.COORDINATION_ROOM_BAKEROOM:
-				if (added)
-					onProductAddedToBakeroom(product);
-				else
-					onProductRemovedFromBakeroom(product);
-				break;
-			case SBCConstants.COORDINATION_ROOM_COUNTER:
-				if (added)
-					onProductAddedToCounter(product);
-				else
-					onProductRemovedFromCounter(product);
-				break;
-			case SBCConstants.COORDINATION_ROOM_STORAGE:
-				if (added)
-					onProductAddedToStorage(product);
-				else
-					onProductRemovedFromStorage(product);
-				break;
-			case SBCConstants.COORDINATION_ROOM_TERMINAL:
-				if (added)
-					onProductAddedToTerminal(product);
-				else
-					onProductRemovedFromTerminal(product);
-				break;
-			default:
-				break;
-			}
-
+			onProductsChanged(Collections.singletonList((Product) object), coordinationRoom, added);
 		} else if (object instanceof Ingredient) {
-			Ingredient ingredient = (Ingredient) object;
-			if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_STORAGE)) {
-				if (added)
-					onIngredientAddedToStorage(ingredient);
-				else
-					onIngredientRemovedFromStorage(ingredient);
-			}
+			if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_STORAGE))
+				onIngredientsChanged(Collections.singletonList((Ingredient) object), added);
 		} else if (object instanceof Order) {
 			Order order = (Order) object;
 			if (added) {
 				onOrderAddedOrUpdated(order);
 				if (order instanceof PackedOrder) {
-					((PackedOrder) order).getProducts().forEach(p -> {
-						if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_TERMINAL)) {
-							onProductRemovedFromCounter(p);
-							onProductAddedToTerminal(p);
-						} else if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_COUNTER)) {
-							onProductRemovedFromTerminal(p);
-						}
-
-					});
+					List<Product> products = ((PackedOrder) order).getProducts();
+					if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_TERMINAL)) {
+						onProductsRemovedFromCounter(products);
+						onProductsAddedToTerminal(products);
+					} else if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_COUNTER)) {
+						onProductsRemovedFromTerminal(products);
+					}
 				}
 			}
 		} else if (object instanceof Prepackage) {
@@ -141,6 +111,66 @@ public class DashboardData implements IChangeListener {
 
 	}
 
+	/**
+	 * applies the products and ingredients of a batch with one update of each
+	 * list, the other objects are applied one by one
+	 */
+	@Override
+	public void onObjectsChanged(List<? extends Serializable> objects, String coordinationRoom, boolean added) {
+		List<Product> products = new ArrayList<>();
+		List<Ingredient> ingredientsOfBatch = new ArrayList<>();
+		for (Serializable object : objects) {
+			if (object instanceof Product)
+				products.add((Product) object);
+			else if (object instanceof Ingredient)
+				ingredientsOfBatch.add((Ingredient) object);
+			else
+				onObjectChanged(object, coordinationRoom, added);
+		}
+		if (!products.isEmpty())
+			onProductsChanged(products, coordinationRoom, added);
+		if (!ingredientsOfBatch.isEmpty() && coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_STORAGE))
+			onIngredientsChanged(ingredientsOfBatch, added);
+	}
+
+	private void onProductsChanged(List<Product> products, String coordinationRoom, boolean added) {
+		switch (coordinationRoom) {
+		case SBCConstants.COORDINATION_ROOM_BAKEROOM:
+			if (added)
+				onProductsAddedToBakeroom(products);
+			else
+				onProductsRemovedFromBakeroom(products);
+			break;
+		case SBCConstants.COORDINATION_ROOM_COUNTER:
+			if (added)
+				onProductsAddedToCounter(products);
+			else
+				onProductsRemovedFromCounter(products);
+			break;
+		case SBCConstants.COORDINATION_ROOM_STORAGE:
+			if (added)
+				onProductsAddedToStorage(products);
+			else
+				onProductsRemovedFromStorage(products);
+			break;
+		case SBCConstants.COORDINATION_ROOM_TERMINAL:
+			if (added)
+				onProductsAddedToTerminal(products);
+			else
+				onProductsRemovedFromTerminal(products);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void onIngredientsChanged(List<Ingredient> ingredientsOfBatch, boolean added) {
+		if (added)
+			onIngredientsAddedToStorage(ingredientsOfBatch);
+		else
+			onIngredientsRemovedFromStorage(ingredientsOfBatch);
+	}
+
 	private void onPrepackageAdded(Prepackage prepackage) {
 		int index = prepackages.indexOf(prepackage);
 		if (index == -1)
@@ -173,38 +203,45 @@ public class DashboardData implements IChangeListener {
 		}
 	}
 
-	private void onProductAddedToStorage(Product product) {
-
-		ItemCount count = storageProductsCounterMap.get(toFullProductName(product));
-		if (count == null) {
-			count = new ItemCount(toFullProductName(product));
-			storageProductsCounterMap.put(toFullProductName(product), count);
-			productsInStorage.add(count);
+	private void onProductsAddedToStorage(List<Product> products) {
+		Set<ItemCount> changedCounts = new LinkedHashSet<>();
+		Map<ProductState, List<Product>> productsByState = new EnumMap<>(ProductState.class);
+		for (Product product : products) {
+			ItemCount count = storageProductsCounterMap.get(toFullProductName(product));
+			if (count == null) {
+				count = new ItemCount(toFullProductName(product));
+				storageProductsCounterMap.put(toFullProductName(product), count);
+				productsInStorage.add(count);
+			}
+			count.amount++;
+			changedCounts.add(count);
+			productsByState.computeIfAbsent(getStorageState(product), s -> new ArrayList<>()).add(product);
 		}
-		count.amount++;
-		addOrUpdate(count, productsInStorage);
-		ProductState state = product.getType() == BakeState.DOUGH ? ProductState.DOUGH_IN_STORAGE
-				: ProductState.PRODUCT_IN_STORAGE;
-
-		addOrUpdate(product, stateToProductsMap.get(state));
+		changedCounts.forEach(count -> addOrUpdate(count, productsInStorage));
+		productsByState.forEach(
+				(state, productsOfState) -> addOrUpdateAll(productsOfState, stateToProductsMap.get(state)));
 
 	}
 
-	private void onProductRemovedFromStorage(Product product) {
-		ItemCount count = storageProductsCounterMap.get(product.getProductName());
-		if (count != null) {
-			if (count.amount > 0) {
-				count.amount--;
-				addOrUpdate(count, productsInStorage);
-			} else {
-				productsInStorage.remove(count);
-				storageProductsCounterMap.remove(count.itemName);
+	private void onProductsRemovedFromStorage(List<Product> products) {
+		Set<ItemCount> changedCounts = new LinkedHashSet<>();
+		Map<ProductState, List<Product>> productsByState = new EnumMap<>(ProductState.class);
+		for (Product product : products) {
+			ItemCount count = storageProductsCounterMap.get(product.getProductName());
+			if (count != null) {
+				if (count.amount > 0) {
+					count.amount--;
+					changedCounts.add(count);
+				} else {
+					productsInStorage.remove(count);
+					storageProductsCounterMap.remove(count.itemName);
+					changedCounts.remove(count);
+				}
 			}
+			productsByState.computeIfAbsent(getStorageState(product), s -> new ArrayList<>()).add(product);
 		}
-
-		ProductState state = product.getType() == BakeState.DOUGH ? ProductState.DOUGH_IN_STORAGE
-				: ProductState.PRODUCT_IN_STORAGE;
-		stateToProductsMap.get(state).remove(product);
+		changedCounts.forEach(count -> addOrUpdate(count, productsInStorage));
+		productsByState.forEach((state, productsOfState) -> stateToProductsMap.get(state).removeAll(productsOfState));
 
 		if (stateToProductsMap.get(ProductState.PRODUCT_IN_STORAGE).isEmpty()) {
 			notificationSerivce
@@ -213,17 +250,21 @@ public class DashboardData implements IChangeListener {
 
 	}
 
-	private void onProductAddedToCounter(Product product) {
-		ItemCount count = counterProductsCounterMap.get(product.getProductName());
-		if (count == null) {
-			count = new ItemCount(product.getProductName());
-			counterProductsCounterMap.put(product.getProductName(), count);
-			productsInCounter.add(count);
+	private void onProductsAddedToCounter(List<Product> products) {
+		Set<ItemCount> changedCounts = new LinkedHashSet<>();
+		for (Product product : products) {
+			ItemCount count = counterProductsCounterMap.get(product.getProductName());
+			if (count == null) {
+				count = new ItemCount(product.getProductName());
+				counterProductsCounterMap.put(product.getProductName(), count);
+				productsInCounter.add(count);
+			}
+			count.amount++;
+			changedCounts.add(count);
 		}
-		count.amount++;
-		addOrUpdate(count, productsInCounter);
+		changedCounts.forEach(count -> addOrUpdate(count, productsInCounter));
 
-		addOrUpdate(product, stateToProductsMap.get(ProductState.PRODUCT_IN_COUNTER));
+		addOrUpdateAll(products, stateToProductsMap.get(ProductState.PRODUCT_IN_COUNTER));
 
 		for(ItemCount c: counterProductsCounterMap.values()) {
 			if(c.getAmount() < 10) return;
@@ -234,32 +275,37 @@ public class DashboardData implements IChangeListener {
 
 	}
 
-	private void onProductRemovedFromCounter(Product product) {
-		ItemCount count = counterProductsCounterMap.get(product.getProductName());
-		if (count != null) {
-			if (count.amount > 0) {
-				count.amount--;
-				addOrUpdate(count, productsInCounter);
-			} else {
-				productsInCounter.remove(count);
-				counterProductsCounterMap.remove(count.itemName);
+	private void onProductsRemovedFromCounter(List<Product> products) {
+		Set<ItemCount> changedCounts = new LinkedHashSet<>();
+		for (Product product : products) {
+			ItemCount count = counterProductsCounterMap.get(product.getProductName());
+			if (count != null) {
+				if (count.amount > 0) {
+					count.amount--;
+					changedCounts.add(count);
+				} else {
+					productsInCounter.remove(count);
+					counterProductsCounterMap.remove(count.itemName);
+					changedCounts.remove(count);
+				}
 			}
 		}
+		changedCounts.forEach(count -> addOrUpdate(count, productsInCounter));
 
-		stateToProductsMap.get(ProductState.PRODUCT_IN_COUNTER).remove(product);
+		stateToProductsMap.get(ProductState.PRODUCT_IN_COUNTER).removeAll(products);
 		if (stateToProductsMap.get(ProductState.PRODUCT_IN_COUNTER).isEmpty()) {
 			notificationSerivce
 					.sendNotification(new NotificationMessage(NotificationMessage.NO_MORE_PRODUCTS_IN_COUNTER), null);
 		}
 	}
 
-	private void onProductAddedToBakeroom(Product product) {
-		addOrUpdate(product, stateToProductsMap.get(ProductState.DOUGH_IN_BAKEROOM));
+	private void onProductsAddedToBakeroom(List<Product> products) {
+		addOrUpdateAll(products, stateToProductsMap.get(ProductState.DOUGH_IN_BAKEROOM));
 
 	}
 
-	private void onProductRemovedFromBakeroom(Product product) {
-		stateToProductsMap.get(ProductState.DOUGH_IN_BAKEROOM).remove(product);
+	private void onProductsRemovedFromBakeroom(List<Product> products) {
+		stateToProductsMap.get(ProductState.DOUGH_IN_BAKEROOM).removeAll(products);
 		if (stateToProductsMap.get(ProductState.DOUGH_IN_BAKEROOM).isEmpty()) {
 			notificationSerivce
 					.sendNotification(new NotificationMessage(NotificationMessage.NO_MORE_PRODUCTS_IN_BAKEROOM), null);
@@ -267,57 +313,67 @@ public class DashboardData implements IChangeListener {
 
 	}
 
-	private void onProductAddedToTerminal(Product product) {
-		addOrUpdate(product, stateToProductsMap.get(ProductState.PRODUCT_IN_TERMINAL));
+	private void onProductsAddedToTerminal(List<Product> products) {
+		addOrUpdateAll(products, stateToProductsMap.get(ProductState.PRODUCT_IN_TERMINAL));
 
 	}
 
-	private void onProductRemovedFromTerminal(Product product) {
-		stateToProductsMap.get(ProductState.PRODUCT_IN_TERMINAL).remove(product);
-		addOrUpdate(product, stateToProductsMap.get(ProductState.PRODUCT_SOLD));
+	private void onProductsRemovedFromTerminal(List<Product> products) {
+		stateToProductsMap.get(ProductState.PRODUCT_IN_TERMINAL).removeAll(products);
+		addOrUpdateAll(products, stateToProductsMap.get(ProductState.PRODUCT_SOLD));
 
 	}
 
-	private void onIngredientAddedToStorage(Ingredient ingredient) {
-		String ingredientName = getIngredientName(ingredient);
-		ItemCount count = ingredientsCounterMap.get(ingredientName);
-		if (count == null) {
-			count = new ItemCount(ingredientName);
-			ingredientsCounterMap.put(ingredientName, count);
-			ingredients.add(count);
-		}
-		if (ingredient instanceof FlourPack) {
-			FlourPack pack = (FlourPack) ingredient;
-			count.amount += pack.getCurrentAmount();
-		} else {
-			count.amount++;
+	private void onIngredientsAddedToStorage(List<Ingredient> ingredientsOfBatch) {
+		Set<ItemCount> changedCounts = new LinkedHashSet<>();
+		for (Ingredient ingredient : ingredientsOfBatch) {
+			String ingredientName = getIngredientName(ingredient);
+			ItemCount count = ingredientsCounterMap.get(ingredientName);
+			if (count == null) {
+				count = new ItemCount(ingredientName);
+				ingredientsCounterMap.put(ingredientName, count);
+				ingredients.add(count);
+			}
+			if (ingredient instanceof FlourPack) {
+				FlourPack pack = (FlourPack) ingredient;
+				count.amount += pack.getCurrentAmount();
+			} else {
+				count.amount++;
+			}
+			changedCounts.add(count);
 		}
 
-		addOrUpdate(count, ingredients);
+		changedCounts.forEach(count -> addOrUpdate(count, ingredients));
 	}
 
-	private void onIngredientRemovedFromStorage(Ingredient ingredient) {
-		String ingredientName = getIngredientName(ingredient);
-		ItemCount count = ingredientsCounterMap.get(ingredientName);
-		if (count != null) {
-			if (count.amount > 0) {
-				if (ingredient instanceof FlourPack) {
-					FlourPack pack = (FlourPack) ingredient;
-					count.amount -= pack.getCurrentAmount();
+	private void onIngredientsRemovedFromStorage(List<Ingredient> ingredientsOfBatch) {
+		Set<ItemCount> changedCounts = new LinkedHashSet<>();
+		boolean counted = false;
+		for (Ingredient ingredient : ingredientsOfBatch) {
+			String ingredientName = getIngredientName(ingredient);
+			ItemCount count = ingredientsCounterMap.get(ingredientName);
+			if (count != null) {
+				counted = true;
+				if (count.amount > 0) {
+					if (ingredient instanceof FlourPack) {
+						FlourPack pack = (FlourPack) ingredient;
+						count.amount -= pack.getCurrentAmount();
+					} else {
+						count.amount--;
+					}
+					changedCounts.add(count);
 				} else {
-					count.amount--;
+					ingredients.remove(count);
+					ingredientsCounterMap.remove(count.itemName);
+					changedCounts.remove(count);
 				}
-
-				addOrUpdate(count, ingredients);
-			} else {
-				ingredients.remove(count);
-				ingredientsCounterMap.remove(count.itemName);
 			}
+		}
+		changedCounts.forEach(count -> addOrUpdate(count, ingredients));
 
-			if (!ingredientsCounterMap.values().stream().anyMatch((i) -> i.getAmount() > 0)) {
-				notificationSerivce.sendNotification(
-						new NotificationMessage(NotificationMessage.NO_MORE_INGREDIENTS_IN_STORAGE), null);
-			}
+		if (counted && !ingredientsCounterMap.values().stream().anyMatch((i) -> i.getAmount() > 0)) {
+			notificationSerivce.sendNotification(
+					new NotificationMessage(NotificationMessage.NO_MORE_INGREDIENTS_IN_STORAGE), null);
 		}
 
 	}
@@ -353,6 +409,26 @@ public class DashboardData implements IChangeListener {
 
 	}
 
+	/**
+	 * replaces the elements which are in the list already and adds the others
+	 * with one change of the list
+	 */
+	private <T> void addOrUpdateAll(List<T> elements, ObservableList<T> observableList) {
+		List<T> newElements = new ArrayList<>();
+		for (T element : elements) {
+			int index = observableList.indexOf(element);
+			if (index != -1)
+				observableList.set(index, element);
+			else
+				newElements.add(element);
+		}
+		observableList.addAll(newElements);
+	}
+
+	private ProductState getStorageState(Product product) {
+		return product.getType() == BakeState.DOUGH ? ProductState.DOUGH_IN_STORAGE : ProductState.PRODUCT_IN_STORAGE;
+	}
+
 	/**
 	 * Helper class for representing Items and the current stock in the UI (e.g.
 	 * Ingredients or Products)
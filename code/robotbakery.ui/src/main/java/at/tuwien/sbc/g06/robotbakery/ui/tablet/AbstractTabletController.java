@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.UUID;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.Item;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
@@ -191,7 +192,7 @@ public abstract class AbstractTabletController {
 		if (order.getState() == OrderState.ORDERED || order.getState() == OrderState.UNGRANTABLE) {
 			if (orderValid()) {
 				order.setState(OrderState.ORDERED);
-				order.setTimestamp(new Timestamp(System.currentTimeMillis()));
+				order.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
 				service.addOrderToCounter(order);
 			} else
 				invalidOrderAlert.showAndWait();
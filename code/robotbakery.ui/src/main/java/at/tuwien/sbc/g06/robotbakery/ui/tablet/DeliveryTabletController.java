@@ -4,6 +4,7 @@ import java.net.URI;
 import java.sql.Timestamp;
 import java.util.UUID;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IDeliveryTabletUIService;
@@ -34,7 +35,7 @@ public class DeliveryTabletController extends AbstractTabletController {
 		if (order.getState() == OrderState.ORDERED || order.getState() == OrderState.UNGRANTABLE) {
 			if (orderValid()) {
 				order.setState(OrderState.ORDERED);
-				order.setTimestamp(new Timestamp(System.currentTimeMillis()));
+				order.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
 				service.addOrderToCounter(order);
 				disableOrderEdit(true);
 			} else
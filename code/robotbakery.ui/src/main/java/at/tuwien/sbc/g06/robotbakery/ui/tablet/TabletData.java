@@ -1,8 +1,13 @@
 package at.tuwien.sbc.g06.robotbakery.ui.tablet;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.listener.IChangeListener;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
@@ -56,13 +61,7 @@ public class TabletData implements IChangeListener {
 	@Override
 	public void onObjectChanged(Serializable object, String coordinationRoom, boolean added) {
 		if (object instanceof Product) {
-			Product product = (Product) object;
-			if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_COUNTER)) {
-				if (added)
-					onProductsAddedToCounter(product);
-				else
-					onProductRemovedFromCounter(product);
-			}
+			onProductsChanged(Collections.singletonList((Product) object), coordinationRoom, added);
 		} else if (object instanceof Order) {
 			if (added)
 				onOrderUpdated((Order) object);
@@ -76,6 +75,32 @@ public class TabletData implements IChangeListener {
 
 	}
 
+	/**
+	 * applies the products of a batch with one update of each counter
+	 * information, the other objects are applied one by one
+	 */
+	@Override
+	public void onObjectsChanged(List<? extends Serializable> objects, String coordinationRoom, boolean added) {
+		List<Product> products = new ArrayList<>();
+		for (Serializable object : objects) {
+			if (object instanceof Product)
+				products.add((Product) object);
+			else
+				onObjectChanged(object, coordinationRoom, added);
+		}
+		if (!products.isEmpty())
+			onProductsChanged(products, coordinationRoom, added);
+	}
+
+	private void onProductsChanged(List<Product> products, String coordinationRoom, boolean added) {
+		if (coordinationRoom.equals(SBCConstants.COORDINATION_ROOM_COUNTER)) {
+			if (added)
+				onProductsAddedToCounter(products);
+			else
+				onProductsRemovedFromCounter(products);
+		}
+	}
+
 	private void onPrepackageRemoved(Prepackage prepackage) {
 		prepackages.remove(prepackage);
 	}
@@ -91,37 +116,47 @@ public class TabletData implements IChangeListener {
 
 	}
 
-	private void onProductsAddedToCounter(Product product) {
-		CounterInformation info = counterProductsCounterMap.get(product.getProductName());
-		if (info == null) {
-			info = new CounterInformation(product.getProductName(), 0, product.getRecipe().getPricePerUnit());
-			counterProductsCounterMap.put(product.getProductName(), info);
-			counterInformationData.add(info);
+	private void onProductsAddedToCounter(List<Product> products) {
+		Set<CounterInformation> changed = new LinkedHashSet<>();
+		for (Product product : products) {
+			CounterInformation info = counterProductsCounterMap.get(product.getProductName());
+			if (info == null) {
+				info = new CounterInformation(product.getProductName(), 0, product.getRecipe().getPricePerUnit());
+				counterProductsCounterMap.put(product.getProductName(), info);
+				counterInformationData.add(info);
+			}
+			info.stock++;
+			changed.add(info);
 		}
-		info.stock++;
-		int index = counterInformationData.indexOf(info);
-		if (index != -1)
-			counterInformationData.set(index, info);
+		changed.forEach(this::update);
 
 	}
 
-	private void onProductRemovedFromCounter(Product product) {
-		CounterInformation info = counterProductsCounterMap.get(product.getProductName());
-		if (info != null) {
-			if (info.stock > 0) {
-				info.stock--;
-				int index = counterInformationData.indexOf(info);
-				if (index != -1)
-					counterInformationData.set(index, info);
-
-			} else {
-				counterInformationData.remove(info);
-				counterProductsCounterMap.remove(info.type);
+	private void onProductsRemovedFromCounter(List<Product> products) {
+		Set<CounterInformation> changed = new LinkedHashSet<>();
+		for (Product product : products) {
+			CounterInformation info = counterProductsCounterMap.get(product.getProductName());
+			if (info != null) {
+				if (info.stock > 0) {
+					info.stock--;
+					changed.add(info);
+				} else {
+					counterInformationData.remove(info);
+					counterProductsCounterMap.remove(info.type);
+					changed.remove(info);
+				}
 			}
 		}
+		changed.forEach(this::update);
 
 	}
 
+	private void update(CounterInformation info) {
+		int index = counterInformationData.indexOf(info);
+		if (index != -1)
+			counterInformationData.set(index, info);
+	}
+
 	private void onOrderUpdated(Order order) {
 		delegateController.onOrderUpdated(order);
 
@@ -12,6 +12,7 @@ import java.util.Properties;
 import java.util.UUID;
 import java.util.stream.IntStream;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
@@ -76,7 +77,7 @@ public class TestDataInitializer {
 			if (amount > 0) {
 				IntStream.range(0, amount).forEach(i -> {
 					Product product = new Product(getName(key));
-					product.setTimestamp(new Timestamp(System.currentTimeMillis()));
+					product.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
 					product.setType(BakeState.DOUGH);
 					product.addContribution(kneadRobotID, Product.DOUGH_BASE, KneadRobot.class);
 					forStorage.add(product);
@@ -90,7 +91,7 @@ public class TestDataInitializer {
 			if (amount > 0) {
 				IntStream.range(0, amount).forEach(i -> {
 					Product product = new Product(getName(key));
-					product.setTimestamp(new Timestamp(System.currentTimeMillis()));
+					product.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
 					product.setType(BakeState.FINALPRODUCT);
 					product.addContribution(kneadRobotID, Product.DOUGH_BASE, KneadRobot.class);
 					product.addContribution(kneadRobotID, Product.DOUGH_FINAL, KneadRobot.class);
@@ -122,7 +123,7 @@ public class TestDataInitializer {
 			if (amount > 0) {
 				IntStream.range(0, amount).forEach(i -> {
 					Product product = new Product(getName(key));
-					product.setTimestamp(new Timestamp(System.currentTimeMillis()));
+					product.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
 					product.setType(BakeState.FINALPRODUCT);
 					product.addContribution(kneadRobotID, Product.DOUGH_BASE, KneadRobot.class);
 					product.addContribution(kneadRobotID, Product.DOUGH_FINAL, KneadRobot.class);
@@ -138,7 +139,7 @@ public class TestDataInitializer {
 			if (amount > 0) {
 				IntStream.range(0, amount).forEach(i -> {
 					Product product = new Product(getName(key));
-					product.setTimestamp(new Timestamp(System.currentTimeMillis()));
+					product.setTimestamp(new Timestamp(SimulationClock.get().currentTimeMillis()));
 					product.setType(BakeState.DOUGH);
 					product.addContribution(kneadRobotID, Product.DOUGH_BASE, KneadRobot.class);
 					product.addContribution(kneadRobotID, Product.DOUGH_FINAL, KneadRobot.class);
@@ -0,0 +1,228 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.aspect;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mozartspaces.capi3.Capi3AspectPort;
+import org.mozartspaces.capi3.LabelCoordinator;
+import org.mozartspaces.capi3.SubTransaction;
+import org.mozartspaces.capi3.Transaction;
+import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.Entry;
+import org.mozartspaces.core.MzsConstants;
+import org.mozartspaces.core.MzsCoreException;
+import org.mozartspaces.core.TransactionReference;
+import org.mozartspaces.core.aspects.AbstractContainerAspect;
+import org.mozartspaces.core.aspects.AbstractSpaceAspect;
+import org.mozartspaces.core.aspects.AspectReference;
+import org.mozartspaces.core.aspects.AspectResult;
+import org.mozartspaces.core.aspects.ContainerIPoint;
+import org.mozartspaces.core.aspects.SpaceIPoint;
+import org.mozartspaces.core.requests.CommitTransactionRequest;
+import org.mozartspaces.core.requests.ReadEntriesRequest;
+import org.mozartspaces.core.requests.RollbackTransactionRequest;
+import org.mozartspaces.core.requests.TakeEntriesRequest;
+import org.mozartspaces.core.requests.WriteEntriesRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.GenericXVSMService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
+
+/**
+ * Keeps the number of products in the counter by product name and the number
+ * of ingredients in the storage by type, so that the robots and the tablets
+ * don't have to count the entries with a query. The counts are maintained by
+ * aspects in the core which hosts the space and are updated by every write
+ * and take on the counted containers.
+ * <p>
+ * The changes of a transaction are buffered until it is committed and
+ * discarded when it is rolled back, operations without transaction are counted
+ * right away. A transaction sees the committed counts with its own changes and
+ * the entries which other transactions are writing, so the counts are an upper
+ * bound and a capacity which is checked with them also covers the writes of
+ * transactions which are still running.
+ * <p>
+ * The counts are read with {@link GenericXVSMService#readStockCounts}, which
+ * reads the marker entry of a counted container from
+ * {@value XVSMConstants#STOCK_COUNT_CONTAINER_NAME}. The result of the read is
+ * replaced by the counts of the container.
+ */
+public class XVSMStockCounter {
+	private static Logger logger = LoggerFactory.getLogger(XVSMStockCounter.class);
+
+	private static final String[] COUNTED_CONTAINER_NAMES = { XVSMConstants.COUNTER_CONTAINER_NAME,
+			XVSMConstants.STORAGE_INGREDIENT_CONTAINER_NAME, XVSMConstants.STORAGE_FLOUR_CONTAINER_NAME };
+
+	private final Capi capi;
+	private final Map<String, Map<String, Integer>> committed = new HashMap<>();
+	private final Map<TransactionReference, Map<String, Map<String, Integer>>> pending = new HashMap<>();
+	private final List<AspectReference> aspects = new ArrayList<>();
+
+	/**
+	 * starts to count the entries of the counted containers, has to be
+	 * created before the containers are restored or filled
+	 *
+	 * @param capi
+	 *            Capi of the core which hosts the bakery space
+	 */
+	public XVSMStockCounter(Capi capi) {
+		this.capi = capi;
+		GenericXVSMService service = new GenericXVSMService(capi);
+		Map<String, ContainerReference> containers = new LinkedHashMap<>();
+		for (String containerName : COUNTED_CONTAINER_NAMES) {
+			containers.put(containerName, service.getContainer(containerName));
+			committed.put(containerName, new HashMap<>());
+		}
+		ContainerReference countContainer = service.getContainer(XVSMConstants.STOCK_COUNT_CONTAINER_NAME);
+		try {
+			// one marker per counted container, the container might exist
+			// already if the core is shared
+			for (String containerName : COUNTED_CONTAINER_NAMES) {
+				if (service.test(countContainer, null, XVSMUtil.stockCountSelector(containerName)) == 0)
+					capi.write(new Entry(containerName, LabelCoordinator.newCoordinationData(containerName,
+							XVSMConstants.ID_LABEL_COORDINATOR)), countContainer, MzsConstants.RequestTimeout.TRY_ONCE,
+							null);
+			}
+			ContainerAspect containerAspect = new ContainerAspect();
+			for (ContainerReference cref : containers.values())
+				aspects.add(capi.addContainerAspect(containerAspect, cref,
+						EnumSet.of(ContainerIPoint.POST_WRITE, ContainerIPoint.POST_TAKE), null));
+			aspects.add(capi.addContainerAspect(new CountAspect(), countContainer,
+					EnumSet.of(ContainerIPoint.POST_READ), null));
+			aspects.add(capi.addSpaceAspect(new SpaceAspect(), XVSMConstants.BAKERY_SPACE_URI,
+					EnumSet.of(SpaceIPoint.POST_COMMIT_TRANSACTION, SpaceIPoint.POST_ROLLBACK_TRANSACTION), null));
+		} catch (MzsCoreException e) {
+			logger.error(e.getMessage());
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return key the entry is counted by in the given container or null if
+	 *         the entry isn't counted
+	 */
+	private static String getKey(String containerName, Serializable object) {
+		if (XVSMConstants.COUNTER_CONTAINER_NAME.equals(containerName))
+			return object instanceof Product ? ((Product) object).getProductName() : null;
+		return object instanceof Ingredient ? ((Ingredient) object).getType().name() : null;
+	}
+
+	private synchronized void onOperation(ContainerReference cref, TransactionReference tx,
+			List<? extends Serializable> entries, int delta) {
+		String containerName = XVSMUtil.getName(cref);
+		Map<String, Integer> counts = tx == null ? committed.get(containerName)
+				: pending.computeIfAbsent(tx, t -> new HashMap<>()).computeIfAbsent(containerName,
+						c -> new HashMap<>());
+		if (counts == null)
+			return;
+		for (Serializable ser : entries) {
+			String key = getKey(containerName, XVSMUtil.unwrap(ser));
+			if (key != null)
+				counts.merge(key, delta, Integer::sum);
+		}
+	}
+
+	private synchronized void onCommit(TransactionReference tx) {
+		Map<String, Map<String, Integer>> changes = pending.remove(tx);
+		if (changes != null)
+			changes.forEach((containerName, counts) -> counts
+					.forEach((key, delta) -> committed.get(containerName).merge(key, delta, Integer::sum)));
+	}
+
+	private synchronized void onRollback(TransactionReference tx) {
+		pending.remove(tx);
+	}
+
+	/**
+	 * @return committed counts of the container with the changes of the given
+	 *         transaction and the entries other transactions are writing
+	 */
+	private synchronized HashMap<String, Integer> getCounts(String containerName, TransactionReference tx) {
+		HashMap<String, Integer> counts = new HashMap<>(committed.get(containerName));
+		pending.forEach((other, changes) -> {
+			Map<String, Integer> deltas = changes.get(containerName);
+			if (deltas != null)
+				deltas.forEach((key, delta) -> {
+					if (other.equals(tx) || delta > 0)
+						counts.merge(key, delta, Integer::sum);
+				});
+		});
+		counts.replaceAll((key, count) -> Math.max(count, 0));
+		return counts;
+	}
+
+	/**
+	 * stop counting
+	 */
+	public void close() {
+		try {
+			for (AspectReference aspect : aspects)
+				capi.removeAspect(aspect);
+		} catch (MzsCoreException e) {
+			// ignore
+		}
+	}
+
+	/**
+	 * counts the entries which have been written or taken
+	 */
+	private class ContainerAspect extends AbstractContainerAspect {
+		@Override
+		public AspectResult postWrite(WriteEntriesRequest request, Transaction tx, SubTransaction stx,
+				Capi3AspectPort capi3, int executionCount) {
+			onOperation(request.getContainer(), request.getTransaction(), request.getEntries(), 1);
+			return AspectResult.OK;
+		}
+
+		@Override
+		public AspectResult postTake(TakeEntriesRequest<?> request, Transaction tx, SubTransaction stx,
+				Capi3AspectPort capi3, int executionCount, List<Serializable> entries) {
+			onOperation(request.getContainer(), request.getTransaction(), entries, -1);
+			return AspectResult.OK;
+		}
+	}
+
+	/**
+	 * answers the read of a marker with the counts of its container
+	 */
+	private class CountAspect extends AbstractContainerAspect {
+		@Override
+		public AspectResult postRead(ReadEntriesRequest<?> request, Transaction tx, SubTransaction stx,
+				Capi3AspectPort capi3, int executionCount, List<Serializable> entries) {
+			for (int i = 0; i < entries.size(); i++) {
+				Serializable marker = XVSMUtil.unwrap(entries.get(i));
+				if (committed.containsKey(marker))
+					entries.set(i, getCounts((String) marker, request.getTransaction()));
+			}
+			return AspectResult.OK;
+		}
+	}
+
+	/**
+	 * applies or discards the buffered counts at the end of a transaction
+	 */
+	private class SpaceAspect extends AbstractSpaceAspect {
+		@Override
+		public AspectResult postCommitTransaction(CommitTransactionRequest request, Transaction tx) {
+			onCommit(request.getTransaction());
+			return AspectResult.OK;
+		}
+
+		@Override
+		public AspectResult postRollbackTransaction(RollbackTransactionRequest request, Transaction tx) {
+			onRollback(request.getTransaction());
+			return AspectResult.OK;
+		}
+	}
+
+}
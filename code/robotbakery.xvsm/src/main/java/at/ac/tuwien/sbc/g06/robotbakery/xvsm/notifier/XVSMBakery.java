@@ -1,33 +1,38 @@
 package at.ac.tuwien.sbc.g06.robotbakery.xvsm.notifier;
 
 import org.mozartspaces.core.Capi;
-import org.mozartspaces.core.ContainerReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.notifier.Bakery;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.aspect.XVSMStockCounter;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.persistence.XVSMSpaceJournal;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.GenericXVSMService;
-import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
 
 public class XVSMBakery extends Bakery {
 
 	private static Logger logger = LoggerFactory.getLogger(XVSMBakery.class);;
 
-	private final ContainerReference storageContainer;
-
 	private GenericXVSMService service;
+	private XVSMStockCounter stockCounter;
+	private XVSMSpaceJournal journal;
 
 	public XVSMBakery(Capi server) {
 		super(new XVSMBakeryChangeNotifer(server));
 		service = new GenericXVSMService(server);
-		storageContainer = service.getContainer(XVSMConstants.STORAGE_CONTAINER_NAME);
+		// the restored entries are counted as well
+		stockCounter = new XVSMStockCounter(server);
+		// the containers are restored before the robots connect
+		journal = XVSMSpaceJournal.fromConfiguration(server);
 
 	}
 
 	@Override
 	public void init() {
-		service.write(new WaterPipe(), storageContainer, null);
+		// restored containers contain the water pipes already
+		if (journal == null || journal.getRecoveredEntries() == 0)
+			service.writeToStorage(WaterPipe.getConfiguredPipes(), null);
 
 	}
 
@@ -24,7 +24,7 @@ public class XVSMBakeryChangeNotifer extends ChangeNotifer implements Notificati
 	private static Logger logger = LoggerFactory.getLogger(XVSMBakeryChangeNotifer.class);
 	private GenericXVSMService service;
 	private ContainerReference counterContainer;
-	private ContainerReference storageContainer;
+	private List<ContainerReference> storageContainers;
 	private ContainerReference terminalContainer;
 	private ContainerReference bakeroomContainer;
 	private ArrayList<Notification> notifications;
@@ -32,7 +32,9 @@ public class XVSMBakeryChangeNotifer extends ChangeNotifer implements Notificati
 	public XVSMBakeryChangeNotifer(Capi server) {
 		service = new GenericXVSMService(server);
 		counterContainer = service.getContainer(XVSMConstants.COUNTER_CONTAINER_NAME);
-		storageContainer = service.getContainer(XVSMConstants.STORAGE_CONTAINER_NAME);
+		storageContainers = new ArrayList<>();
+		for (String partition : XVSMUtil.getStoragePartitions())
+			storageContainers.add(service.getContainer(partition));
 		terminalContainer = service.getContainer(XVSMConstants.TERMINAL_CONTAINER_NAME);
 		bakeroomContainer = service.getContainer(XVSMConstants.BAKEROOM_CONTAINER_NAME);
 		createNotifications(server);
@@ -52,7 +54,9 @@ public class XVSMBakeryChangeNotifer extends ChangeNotifer implements Notificati
 		NotificationManager manager = new NotificationManager(server.getCore());
 		try {
 			notifications.add(manager.createNotification(counterContainer, this, Operation.WRITE, Operation.TAKE));
-			notifications.add(manager.createNotification(storageContainer, this, Operation.WRITE, Operation.TAKE));
+			for (ContainerReference storageContainer : storageContainers)
+				notifications
+						.add(manager.createNotification(storageContainer, this, Operation.WRITE, Operation.TAKE));
 			notifications.add(manager.createNotification(terminalContainer, this, Operation.WRITE, Operation.TAKE));
 			notifications.add(manager.createNotification(bakeroomContainer, this, Operation.WRITE, Operation.TAKE));
 		} catch (MzsCoreException | InterruptedException e) {
@@ -65,13 +69,11 @@ public class XVSMBakeryChangeNotifer extends ChangeNotifer implements Notificati
 	@Override
 	public void entryOperationFinished(Notification notification, Operation operation,
 			List<? extends Serializable> entries) {
-		entries.forEach(ser -> {
-			Serializable object = XVSMUtil.unwrap(ser);
-			String coordinationRoom = XVSMUtil.getCoordinationRoom(notification.getObservedContainer());
-			registeredChangeListeners
-					.forEach(ls -> ls.onObjectChanged(object, coordinationRoom, operation == Operation.WRITE));
-
-		});
+		List<Serializable> objects = new ArrayList<>(entries.size());
+		entries.forEach(ser -> objects.add(XVSMUtil.unwrap(ser)));
+		String coordinationRoom = XVSMUtil.getCoordinationRoom(notification.getObservedContainer());
+		registeredChangeListeners
+				.forEach(ls -> ls.onObjectsChanged(objects, coordinationRoom, operation == Operation.WRITE));
 
 	}
 
@@ -63,13 +63,11 @@ public class XVSMTabletUIChangeNotifier extends TabletUIChangeNotifer implements
 	@Override
 	public void entryOperationFinished(Notification notification, Operation operation,
 			List<? extends Serializable> entries) {
-		entries.forEach(ser -> {
-			Serializable object = XVSMUtil.unwrap(ser);
-			String coordinationRoom = XVSMUtil.getCoordinationRoom(notification.getObservedContainer());
-			registeredChangeListeners
-					.forEach(ls -> ls.onObjectChanged(object, coordinationRoom, operation == Operation.WRITE));
-
-		});
+		List<Serializable> objects = new ArrayList<>(entries.size());
+		entries.forEach(ser -> objects.add(XVSMUtil.unwrap(ser)));
+		String coordinationRoom = XVSMUtil.getCoordinationRoom(notification.getObservedContainer());
+		registeredChangeListeners
+				.forEach(ls -> ls.onObjectsChanged(objects, coordinationRoom, operation == Operation.WRITE));
 
 	}
 
@@ -0,0 +1,170 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of journal records, which is written through a memory
+ * mapped window of the file. The file grows by one window at a time, the
+ * unused rest of the last window is zero and marks the end of the records. A
+ * record consists of the length and the CRC32 of its body and the body, a
+ * record which has been cut off by a crash fails the checksum and ends the
+ * records as well. Logs and snapshots have the same format.
+ */
+final class JournalLog implements Closeable {
+
+	static final byte WRITE = 1;
+	static final byte TAKE = 2;
+
+	private static final int HEADER_SIZE = 8;
+	private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final CRC32 crc = new CRC32();
+	private MappedByteBuffer window;
+	private long windowStart;
+	private int records;
+
+	/**
+	 * create a new log, an existing file is overwritten
+	 */
+	JournalLog(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		map(0, WINDOW_SIZE);
+	}
+
+	private void map(long start, int size) throws IOException {
+		windowStart = start;
+		window = channel.map(MapMode.READ_WRITE, start, size);
+	}
+
+	/**
+	 * @param operation
+	 *            {@link #WRITE} or {@link #TAKE}
+	 * @param container
+	 *            name of the container
+	 * @param key
+	 *            id of the entry or an empty string if the entry has no id
+	 * @param payload
+	 *            serialized entry
+	 */
+	synchronized void append(byte operation, String container, String key, byte[] payload) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + container.length() + 48);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(operation);
+		out.writeUTF(container);
+		out.writeUTF(key);
+		out.write(payload);
+		byte[] body = bytes.toByteArray();
+		int size = HEADER_SIZE + body.length;
+		if (window.remaining() < size) {
+			window.force();
+			map(windowStart + window.position(), Math.max(WINDOW_SIZE, size));
+		}
+		crc.reset();
+		crc.update(body, 0, body.length);
+		window.putInt(body.length);
+		window.putInt((int) crc.getValue());
+		window.put(body);
+		records++;
+	}
+
+	/**
+	 * @return number of records which have been appended
+	 */
+	synchronized int getRecords() {
+		return records;
+	}
+
+	/**
+	 * write the appended records to the disk
+	 */
+	synchronized void force() {
+		window.force();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		window.force();
+		channel.close();
+	}
+
+	/**
+	 * read the records of a log up to the first incomplete record, the file
+	 * is mapped in windows of up to 2 GB
+	 *
+	 * @param file
+	 *            log or snapshot
+	 * @param handler
+	 *            receives the records in the order in which they have been
+	 *            appended
+	 * @return number of records
+	 */
+	static int read(Path file, RecordHandler handler) throws IOException {
+		int count = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while (size - position >= HEADER_SIZE) {
+				int windowSize = (int) Math.min(size - position, Integer.MAX_VALUE);
+				boolean lastWindow = position + windowSize == size;
+				MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, windowSize);
+				int consumed = 0;
+				while (buffer.remaining() >= HEADER_SIZE) {
+					int length = buffer.getInt();
+					int checksum = buffer.getInt();
+					if (length <= 0)
+						return count;
+					if (length > buffer.remaining()) {
+						if (lastWindow)
+							return count;
+						// the record is read with the next window
+						break;
+					}
+					byte[] body = new byte[length];
+					buffer.get(body);
+					CRC32 crc = new CRC32();
+					crc.update(body, 0, length);
+					if ((int) crc.getValue() != checksum)
+						return count;
+					handle(body, handler);
+					consumed = buffer.position();
+					count++;
+				}
+				if (consumed == 0)
+					return count;
+				position += consumed;
+			}
+		}
+		return count;
+	}
+
+	private static void handle(byte[] body, RecordHandler handler) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+		byte operation = in.readByte();
+		String container = in.readUTF();
+		String key = in.readUTF();
+		byte[] payload = new byte[in.available()];
+		in.readFully(payload);
+		handler.onRecord(operation, container, key, payload);
+	}
+
+	/**
+	 * receives the records of a log
+	 */
+	interface RecordHandler {
+		void onRecord(byte operation, String container, String key, byte[] payload);
+	}
+
+}
@@ -0,0 +1,80 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Content of the bakery containers, which is rebuilt from a snapshot and the
+ * logs written after it. Entries are identified by the key of their records,
+ * i.e. their id. An entry which is written again replaces the former one and
+ * moves to the end, so the entries of a container keep the order in which
+ * they have been written, and a take removes the entry with its key. The
+ * serialized form of an entry isn't compared, it differs between runs, e.g.
+ * for the hash maps of the recipes.
+ * <p>
+ * An entry without id is written with an empty key and gets a unique key of
+ * the image, so that equal entries are kept apart. A take with an empty key
+ * removes the first entry without id which has the same serialized form,
+ * entries without id must be serialized in the same way in every run.
+ */
+final class SpaceImage {
+
+	private static final String KEYLESS_PREFIX = "#";
+
+	private final Map<String, Map<String, byte[]>> containers = new LinkedHashMap<>();
+
+	void apply(byte operation, String container, String key, byte[] payload) {
+		Map<String, byte[]> entries = containers.computeIfAbsent(container, c -> new LinkedHashMap<>());
+		if (operation == JournalLog.WRITE) {
+			String id = key.isEmpty() ? KEYLESS_PREFIX + UUID.randomUUID() : key;
+			entries.remove(id);
+			entries.put(id, payload);
+		} else if (!key.isEmpty()) {
+			entries.remove(key);
+		} else {
+			Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, byte[]> entry = it.next();
+				if (entry.getKey().startsWith(KEYLESS_PREFIX) && Arrays.equals(entry.getValue(), payload)) {
+					it.remove();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * append the entries as write records with their keys, e.g. to compact
+	 * the records to a snapshot
+	 */
+	void write(JournalLog out) throws IOException {
+		for (Map.Entry<String, Map<String, byte[]>> container : containers.entrySet()) {
+			for (Map.Entry<String, byte[]> entry : container.getValue().entrySet())
+				out.append(JournalLog.WRITE, container.getKey(), entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * @return names of the containers which have been logged
+	 */
+	Set<String> getContainers() {
+		return containers.keySet();
+	}
+
+	/**
+	 * @return serialized entries of a container in the order in which they
+	 *         have been written
+	 */
+	List<byte[]> getEntries(String container) {
+		Map<String, byte[]> entries = containers.get(container);
+		return entries == null ? new ArrayList<>() : new ArrayList<>(entries.values());
+	}
+
+}
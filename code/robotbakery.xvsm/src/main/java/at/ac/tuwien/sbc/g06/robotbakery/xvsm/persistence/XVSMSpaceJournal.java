@@ -0,0 +1,434 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.mozartspaces.capi3.Capi3AspectPort;
+import org.mozartspaces.capi3.SubTransaction;
+import org.mozartspaces.capi3.Transaction;
+import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.MzsCoreException;
+import org.mozartspaces.core.TransactionReference;
+import org.mozartspaces.core.aspects.AbstractContainerAspect;
+import org.mozartspaces.core.aspects.AbstractSpaceAspect;
+import org.mozartspaces.core.aspects.AspectReference;
+import org.mozartspaces.core.aspects.AspectResult;
+import org.mozartspaces.core.aspects.ContainerIPoint;
+import org.mozartspaces.core.aspects.SpaceIPoint;
+import org.mozartspaces.core.requests.CommitTransactionRequest;
+import org.mozartspaces.core.requests.RollbackTransactionRequest;
+import org.mozartspaces.core.requests.TakeEntriesRequest;
+import org.mozartspaces.core.requests.WriteEntriesRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.GenericXVSMService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
+
+/**
+ * Persists the bakery containers of the space which is hosted by this process
+ * in a directory. Every write and take on the containers is appended to a log,
+ * see {@link JournalLog}. After {@link XVSMConstants#SNAPSHOT_RECORDS} records
+ * a new log is started and the former snapshot and the closed logs are
+ * compacted to a new snapshot in the background, afterwards they are deleted.
+ * The snapshot isn't read from the containers, the entries which are locked
+ * by running transactions would be missing. On
+ * startup the latest snapshot is loaded, the logs which have been started
+ * after it are replayed and the entries are written back to the containers in
+ * bulk.
+ * <p>
+ * The operations are intercepted by aspects in the core which hosts the space,
+ * so the transactions of robots in other processes are logged as well. The
+ * operations of a transaction are buffered and appended when it is committed,
+ * in the order of the commits, and discarded when it is rolled back. Operations
+ * without transaction are committed implicitly and appended right away.
+ */
+public class XVSMSpaceJournal {
+	private static Logger logger = LoggerFactory.getLogger(XVSMSpaceJournal.class);
+
+	private static final String LOG_PREFIX = "journal-";
+	private static final String LOG_SUFFIX = ".log";
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".dat";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final GenericXVSMService service;
+	private final Path directory;
+	private final Map<String, ContainerReference> containers = new LinkedHashMap<>();
+	private final Map<TransactionReference, List<Record>> pending = new ConcurrentHashMap<>();
+	private final List<AspectReference> aspects = new ArrayList<>();
+	private final Capi capi;
+	private final AtomicBoolean snapshotPending = new AtomicBoolean();
+	private final ScheduledExecutorService executor;
+	private JournalLog log;
+	private long generation;
+	private int recoveredEntries;
+
+	/**
+	 * restores the bakery containers from the directory and starts to log the
+	 * changes, has to be created before the robots are started
+	 *
+	 * @param capi
+	 *            Capi of the core which hosts the bakery space
+	 * @param directory
+	 *            directory of the logs and snapshots, is created if it
+	 *            doesn't exist
+	 */
+	public XVSMSpaceJournal(Capi capi, Path directory) throws IOException {
+		this.capi = capi;
+		this.service = new GenericXVSMService(capi);
+		this.directory = directory;
+		Files.createDirectories(directory);
+		for (String containerName : XVSMConstants.BAKERY_CONTAINER_NAMES)
+			containers.put(containerName, service.getContainer(containerName));
+		for (String containerName : XVSMUtil.getStoragePartitions())
+			containers.put(containerName, service.getContainer(containerName));
+		recover();
+		log = new JournalLog(getFile(LOG_PREFIX, generation, LOG_SUFFIX));
+		executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "xvsm-journal");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::force, XVSMConstants.JOURNAL_FORCE_INTERVAL,
+				XVSMConstants.JOURNAL_FORCE_INTERVAL, TimeUnit.MILLISECONDS);
+		addAspects();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> close()));
+	}
+
+	/**
+	 * @return journal in the directory of the system property
+	 *         {@value XVSMConstants#DATA_DIR_PROPERTY} or null if the property
+	 *         isn't set, the space isn't persisted then
+	 */
+	public static XVSMSpaceJournal fromConfiguration(Capi capi) {
+		String dataDir = System.getProperty(XVSMConstants.DATA_DIR_PROPERTY);
+		if (dataDir == null || dataDir.trim().isEmpty())
+			return null;
+		try {
+			return new XVSMSpaceJournal(capi, Paths.get(dataDir.trim()));
+		} catch (IOException | UncheckedIOException e) {
+			logger.error(e.getMessage());
+			return null;
+		}
+	}
+
+	private void addAspects() {
+		try {
+			ContainerAspect containerAspect = new ContainerAspect();
+			for (ContainerReference cref : containers.values())
+				aspects.add(capi.addContainerAspect(containerAspect, cref,
+						EnumSet.of(ContainerIPoint.POST_WRITE, ContainerIPoint.POST_TAKE), null));
+			aspects.add(capi.addSpaceAspect(new SpaceAspect(), XVSMConstants.BAKERY_SPACE_URI,
+					EnumSet.of(SpaceIPoint.POST_COMMIT_TRANSACTION, SpaceIPoint.POST_ROLLBACK_TRANSACTION), null));
+		} catch (MzsCoreException e) {
+			logger.error(e.getMessage());
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * load the latest snapshot, replay the logs which have been started after
+	 * it and write the entries to the containers
+	 */
+	private void recover() throws IOException {
+		long start = System.currentTimeMillis();
+		SpaceImage image = new SpaceImage();
+		int records = load(image, Long.MAX_VALUE);
+		generation = 0;
+		for (long snapshotGeneration : getGenerations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX))
+			generation = Math.max(generation, snapshotGeneration);
+		for (long logGeneration : getGenerations(LOG_PREFIX, LOG_SUFFIX))
+			generation = Math.max(generation, logGeneration + 1);
+		for (String containerName : image.getContainers()) {
+			ContainerReference cref = containers.get(containerName);
+			if (cref == null)
+				continue;
+			// deserializing is the expensive part of the recovery
+			List<Serializable> entries = image.getEntries(containerName).parallelStream()
+					.map(XVSMSpaceJournal::deserialize).collect(Collectors.toList());
+			for (int i = 0; i < entries.size(); i += XVSMConstants.RECOVERY_BATCH_SIZE) {
+				if (!service.write(entries.subList(i, Math.min(i + XVSMConstants.RECOVERY_BATCH_SIZE, entries.size())),
+						cref, null))
+					throw new IOException("Couldn't restore container " + containerName);
+			}
+			recoveredEntries += entries.size();
+		}
+		if (records > 0)
+			logger.info("Restored " + recoveredEntries + " entries from " + records + " records in "
+					+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * load the latest snapshot before the given generation and replay the
+	 * logs which have been started after it and before the given generation
+	 *
+	 * @return number of records
+	 */
+	private int load(SpaceImage image, long end) throws IOException {
+		long snapshot = -1;
+		for (long snapshotGeneration : getGenerations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+			if (snapshotGeneration < end)
+				snapshot = snapshotGeneration;
+		}
+		int records = 0;
+		if (snapshot >= 0)
+			records += JournalLog.read(getFile(SNAPSHOT_PREFIX, snapshot, SNAPSHOT_SUFFIX), image::apply);
+		for (long logGeneration : getGenerations(LOG_PREFIX, LOG_SUFFIX)) {
+			if (logGeneration >= snapshot && logGeneration < end)
+				records += JournalLog.read(getFile(LOG_PREFIX, logGeneration, LOG_SUFFIX), image::apply);
+		}
+		return records;
+	}
+
+	/**
+	 * buffer the operation until its transaction is committed, operations
+	 * without transaction are appended right away
+	 */
+	private void onOperation(ContainerReference cref, TransactionReference tx, byte operation,
+			List<? extends Serializable> entries) {
+		String containerName = XVSMUtil.getName(cref);
+		List<Record> records = new ArrayList<>(entries.size());
+		try {
+			// takes are logged with the key as well, they are replayed by
+			// the key and not by the serialized form
+			for (Serializable ser : entries) {
+				Serializable object = XVSMUtil.unwrap(ser);
+				records.add(new Record(operation, containerName, getKey(object), serialize(object)));
+			}
+		} catch (UncheckedIOException e) {
+			logger.error(e.getMessage());
+			return;
+		}
+		if (tx == null)
+			append(records);
+		else
+			pending.computeIfAbsent(tx, t -> Collections.synchronizedList(new ArrayList<>())).addAll(records);
+	}
+
+	private void onCommit(TransactionReference tx) {
+		List<Record> records = pending.remove(tx);
+		if (records != null)
+			append(records);
+	}
+
+	private void onRollback(TransactionReference tx) {
+		pending.remove(tx);
+	}
+
+	private synchronized void append(List<Record> records) {
+		try {
+			for (Record record : records)
+				log.append(record.operation, record.container, record.key, record.payload);
+		} catch (IOException e) {
+			logger.error(e.getMessage());
+		}
+		if (log.getRecords() >= XVSMConstants.SNAPSHOT_RECORDS && snapshotPending.compareAndSet(false, true))
+			executor.execute(this::writeSnapshot);
+	}
+
+	/**
+	 * start a new log and compact the former snapshot and the closed logs to
+	 * a snapshot, which contains the committed content at the start of the new
+	 * log
+	 */
+	private void writeSnapshot() {
+		try {
+			long snapshot = rotate();
+			SpaceImage image = new SpaceImage();
+			load(image, snapshot);
+			Path temp = getFile(SNAPSHOT_PREFIX, snapshot, TEMP_SUFFIX);
+			try (JournalLog out = new JournalLog(temp)) {
+				image.write(out);
+			}
+			Files.move(temp, getFile(SNAPSHOT_PREFIX, snapshot, SNAPSHOT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+			deleteBefore(snapshot);
+		} catch (IOException | UncheckedIOException e) {
+			logger.error(e.getMessage());
+		} finally {
+			snapshotPending.set(false);
+		}
+	}
+
+	/**
+	 * @return generation of the new log
+	 */
+	private synchronized long rotate() throws IOException {
+		log.close();
+		generation++;
+		log = new JournalLog(getFile(LOG_PREFIX, generation, LOG_SUFFIX));
+		return generation;
+	}
+
+	private void deleteBefore(long snapshot) throws IOException {
+		for (long logGeneration : getGenerations(LOG_PREFIX, LOG_SUFFIX)) {
+			if (logGeneration < snapshot)
+				Files.deleteIfExists(getFile(LOG_PREFIX, logGeneration, LOG_SUFFIX));
+		}
+		for (long snapshotGeneration : getGenerations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+			if (snapshotGeneration < snapshot)
+				Files.deleteIfExists(getFile(SNAPSHOT_PREFIX, snapshotGeneration, SNAPSHOT_SUFFIX));
+		}
+	}
+
+	private synchronized void force() {
+		log.force();
+	}
+
+	/**
+	 * @return number of entries which have been restored on startup
+	 */
+	public int getRecoveredEntries() {
+		return recoveredEntries;
+	}
+
+	/**
+	 * stop logging and write the log to the disk
+	 */
+	public void close() {
+		executor.shutdown();
+		try {
+			for (AspectReference aspect : aspects)
+				capi.removeAspect(aspect);
+		} catch (MzsCoreException e) {
+			// ignore
+		}
+		pending.clear();
+		synchronized (this) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				logger.error(e.getMessage());
+			}
+		}
+	}
+
+	private Path getFile(String prefix, long fileGeneration, String suffix) {
+		return directory.resolve(prefix + fileGeneration + suffix);
+	}
+
+	/**
+	 * @return generations of the files with the given prefix and suffix in
+	 *         ascending order
+	 */
+	private List<Long> getGenerations(String prefix, String suffix) throws IOException {
+		List<Long> generations = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+				} catch (NumberFormatException e) {
+					logger.warn("Ignoring " + file);
+				}
+			}
+		}
+		Collections.sort(generations);
+		return generations;
+	}
+
+	/**
+	 * @return id of the entry or an empty string, an entry without id gets a
+	 *         key of its own in the {@link SpaceImage}
+	 */
+	private static String getKey(Serializable object) {
+		UUID id = XVSMUtil.getId(object);
+		return id != null ? id.toString() : "";
+	}
+
+	private static byte[] serialize(Serializable object) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Serializable deserialize(byte[] payload) {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+			return (Serializable) in.readObject();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (ClassNotFoundException e) {
+			throw new UncheckedIOException(new IOException(e));
+		}
+	}
+
+	private static final class Record {
+		private final byte operation;
+		private final String container;
+		private final String key;
+		private final byte[] payload;
+
+		private Record(byte operation, String container, String key, byte[] payload) {
+			this.operation = operation;
+			this.container = container;
+			this.key = key;
+			this.payload = payload;
+		}
+	}
+
+	/**
+	 * passes the entries which have been written or taken to the journal
+	 */
+	private class ContainerAspect extends AbstractContainerAspect {
+		@Override
+		public AspectResult postWrite(WriteEntriesRequest request, Transaction tx, SubTransaction stx,
+				Capi3AspectPort capi3, int executionCount) {
+			onOperation(request.getContainer(), request.getTransaction(), JournalLog.WRITE, request.getEntries());
+			return AspectResult.OK;
+		}
+
+		@Override
+		public AspectResult postTake(TakeEntriesRequest<?> request, Transaction tx, SubTransaction stx,
+				Capi3AspectPort capi3, int executionCount, List<Serializable> entries) {
+			onOperation(request.getContainer(), request.getTransaction(), JournalLog.TAKE, entries);
+			return AspectResult.OK;
+		}
+	}
+
+	/**
+	 * appends or discards the buffered operations at the end of a transaction
+	 */
+	private class SpaceAspect extends AbstractSpaceAspect {
+		@Override
+		public AspectResult postCommitTransaction(CommitTransactionRequest request, Transaction tx) {
+			onCommit(request.getTransaction());
+			return AspectResult.OK;
+		}
+
+		@Override
+		public AspectResult postRollbackTransaction(RollbackTransactionRequest request, Transaction tx) {
+			onRollback(request.getTransaction());
+			return AspectResult.OK;
+		}
+	}
+
+}
@@ -14,9 +14,11 @@ import org.mozartspaces.core.ContainerReference;
 import org.mozartspaces.core.Entry;
 import org.mozartspaces.core.MzsConstants;
 import org.mozartspaces.core.MzsCoreException;
+import org.mozartspaces.core.MzsTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
@@ -30,18 +32,14 @@ public class GenericXVSMService {
 	private static Logger logger = LoggerFactory.getLogger(GenericXVSMService.class);
 	protected Capi capi;
 
-	private Map<String, ContainerReference> containers = new HashMap<>();
-
 	public GenericXVSMService(Capi capi) {
 		this.capi = capi;
 	}
 
-	public ContainerReference getContainer(String containerName, URI spaceURI){
-		ContainerReference cref = containers.get(containerName);
-		if (cref == null)
-			cref = XVSMUtil.getOrCreateContainer(capi, containerName,spaceURI);
-		return cref;
+	public ContainerReference getContainer(String containerName, URI spaceURI) {
+		return XVSMUtil.getContainer(capi, containerName, spaceURI);
 	}
+
 	public ContainerReference getContainer(String containerName) {
 		return getContainer(containerName, XVSMConstants.BAKERY_SPACE_URI);
 	}
@@ -59,7 +57,7 @@ public class GenericXVSMService {
 	public <T extends Serializable> boolean write(List<T> modelObjects, ContainerReference cref, ITransaction tx) {
 		try {
 			List<Entry> entries = new ArrayList<>();
-			modelObjects.forEach(mo -> entries.add(new Entry(mo)));
+			modelObjects.forEach(mo -> entries.add(new Entry(mo, XVSMUtil.getLabels(mo))));
 			capi.write(entries, cref, MzsConstants.RequestTimeout.TRY_ONCE, XVSMUtil.unwrap(tx));
 			return true;
 		} catch (MzsCoreException ex) {
@@ -79,7 +77,7 @@ public class GenericXVSMService {
 	 */
 	public <T extends Serializable> boolean write(T modelObject, ContainerReference cref, ITransaction tx) {
 		try {
-			Entry entry = new Entry(modelObject);
+			Entry entry = new Entry(modelObject, XVSMUtil.getLabels(modelObject));
 			capi.write(entry, cref, MzsConstants.RequestTimeout.TRY_ONCE, XVSMUtil.unwrap(tx));
 			return true;
 		} catch (MzsCoreException ex) {
@@ -88,6 +86,39 @@ public class GenericXVSMService {
 		}
 	}
 
+	/**
+	 * Writes elements into the storage, each element is routed to its
+	 * partition of the storage, see {@link XVSMUtil#getStoragePartition}. The
+	 * partitions are containers of the same space, so the transaction spans
+	 * all of them.
+	 * 
+	 * @param modelObjects
+	 * @param tx
+	 * @return
+	 */
+	public <T extends Serializable> boolean writeToStorage(List<T> modelObjects, ITransaction tx) {
+		Map<String, List<T>> partitions = new HashMap<>();
+		for (T modelObject : modelObjects)
+			partitions.computeIfAbsent(XVSMUtil.getStoragePartition(modelObject), p -> new ArrayList<>())
+					.add(modelObject);
+		for (Map.Entry<String, List<T>> partition : partitions.entrySet()) {
+			if (!write(partition.getValue(), getContainer(partition.getKey()), tx))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes one element into its partition of the storage.
+	 * 
+	 * @param modelObject
+	 * @param tx
+	 * @return
+	 */
+	public <T extends Serializable> boolean writeToStorage(T modelObject, ITransaction tx) {
+		return write(modelObject, getContainer(XVSMUtil.getStoragePartition(modelObject)), tx);
+	}
+
 	@SuppressWarnings("unchecked")
 	public <T extends Serializable> T takeFirst(ContainerReference cref, ITransaction tx, Selector... selectors) {
 		try {
@@ -109,6 +140,79 @@ public class GenericXVSMService {
 		}
 	}
 
+	/**
+	 * Blocking version of {@link #takeFirst(ContainerReference, ITransaction, Selector...)},
+	 * waits until an entry matches the selectors or the timeout elapses.
+	 * 
+	 * @param cref
+	 * @param tx
+	 * @param timeout
+	 *            simulated time in milliseconds
+	 * @param selectors
+	 * @return taken entry or null if no entry was taken in time
+	 */
+	public <T extends Serializable> T takeFirst(ContainerReference cref, ITransaction tx, long timeout,
+			Selector... selectors) {
+		List<T> entries = take(cref, tx, timeout, selectors);
+		return entries == null || entries.isEmpty() ? null : entries.get(0);
+	}
+
+	/**
+	 * Blocking version of {@link #take(ContainerReference, ITransaction, Selector...)},
+	 * the space answers the request as soon as the selectors can be fulfilled
+	 * instead of being polled.
+	 * 
+	 * @param cref
+	 * @param tx
+	 * @param timeout
+	 *            simulated time in milliseconds
+	 * @param selectors
+	 * @return taken entries or null if the selectors couldn't be fulfilled in
+	 *         time
+	 */
+	public <T extends Serializable> List<T> take(ContainerReference cref, ITransaction tx, long timeout,
+			Selector... selectors) {
+		SimulationClock clock = SimulationClock.get();
+		clock.beginIdle();
+		try {
+			return capi.take(cref, Arrays.asList(selectors), clock.toRealTime(timeout), XVSMUtil.unwrap(tx));
+		} catch (MzsTimeoutException e) {
+			return null;
+		} catch (MzsCoreException e) {
+			logger.error(e.getMessage());
+			return null;
+		} finally {
+			clock.endIdle();
+		}
+	}
+
+	/**
+	 * Blocking version of {@link #read(ContainerReference, ITransaction, Selector...)}
+	 * 
+	 * @param cref
+	 * @param tx
+	 * @param timeout
+	 *            simulated time in milliseconds
+	 * @param selectors
+	 * @return read entries or null if the selectors couldn't be fulfilled in
+	 *         time
+	 */
+	public <T extends Serializable> List<T> read(ContainerReference cref, ITransaction tx, long timeout,
+			Selector... selectors) {
+		SimulationClock clock = SimulationClock.get();
+		clock.beginIdle();
+		try {
+			return capi.read(cref, Arrays.asList(selectors), clock.toRealTime(timeout), XVSMUtil.unwrap(tx));
+		} catch (MzsTimeoutException e) {
+			return null;
+		} catch (MzsCoreException e) {
+			logger.error(e.getMessage());
+			return null;
+		} finally {
+			clock.endIdle();
+		}
+	}
+
 	public <T extends Serializable> List<T> read(ContainerReference cref, ITransaction tx, Selector... selectors) {
 		try {
 			return capi.read(cref, Arrays.asList(selectors), MzsConstants.RequestTimeout.TRY_ONCE, XVSMUtil.unwrap(tx));
@@ -118,6 +222,29 @@ public class GenericXVSMService {
 		}
 	}
 
+	/**
+	 * Reads the counts of a container, which are kept by the
+	 * {@link at.ac.tuwien.sbc.g06.robotbakery.xvsm.aspect.XVSMStockCounter} of
+	 * the space, with one request.
+	 * 
+	 * @param containerName
+	 *            counter or ingredient partition of the storage
+	 * @param tx
+	 * @return number of products by name or of ingredients by type including
+	 *         the changes of the transaction, null if the counts couldn't be
+	 *         read
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Integer> readStockCounts(String containerName, ITransaction tx) {
+		List<Serializable> counts = read(getContainer(XVSMConstants.STOCK_COUNT_CONTAINER_NAME), tx,
+				XVSMUtil.stockCountSelector(containerName));
+		if (counts == null || counts.isEmpty() || !(counts.get(0) instanceof Map)) {
+			logger.error("Couldn't read the counts of " + containerName);
+			return null;
+		}
+		return (Map<String, Integer>) counts.get(0);
+	}
+
 	public <T extends Serializable> int test(ContainerReference cref, ITransaction tx, Selector... selectors) {
 		try {
 			return capi.test(cref, Arrays.asList(selectors), MzsConstants.RequestTimeout.TRY_ONCE, XVSMUtil.unwrap(tx));
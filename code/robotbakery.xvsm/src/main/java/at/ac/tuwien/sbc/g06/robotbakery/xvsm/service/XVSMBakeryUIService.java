@@ -14,25 +14,23 @@ import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
 
 public class XVSMBakeryUIService extends GenericXVSMService implements IBakeryUIService {
 
-	private final ContainerReference storageContainer;
 	private ContainerReference counterContainer;
 	private ContainerReference bakeroomContainer;
 
 	public XVSMBakeryUIService(Capi capi) {
 		super(capi);
-		storageContainer = getContainer(XVSMConstants.STORAGE_CONTAINER_NAME);
 		counterContainer = getContainer(XVSMConstants.COUNTER_CONTAINER_NAME);
 		bakeroomContainer = getContainer(XVSMConstants.BAKEROOM_CONTAINER_NAME);
 	}
 
 	@Override
 	public boolean addIngredientsToStorage(List<Ingredient> ingredients) {
-		return write(ingredients, storageContainer, null);
+		return writeToStorage(ingredients, null);
 	}
 
 	@Override
 	public void addItemsToStorage(List<Serializable> items) {
-		write(items, storageContainer, null);
+		writeToStorage(items, null);
 
 	}
 
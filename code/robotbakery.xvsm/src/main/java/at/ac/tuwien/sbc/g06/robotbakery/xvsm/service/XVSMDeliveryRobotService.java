@@ -1,16 +1,13 @@
 package at.ac.tuwien.sbc.g06.robotbakery.xvsm.service;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 import org.mozartspaces.capi3.ComparableProperty;
-import org.mozartspaces.capi3.Property;
 import org.mozartspaces.capi3.Query;
 import org.mozartspaces.capi3.QueryCoordinator;
-import org.mozartspaces.capi3.TypeCoordinator;
 import org.mozartspaces.core.Capi;
 import org.mozartspaces.core.ContainerReference;
-import org.mozartspaces.core.DefaultMzsCore;
 import org.mozartspaces.core.MzsConstants;
 import org.mozartspaces.core.MzsCoreException;
 
@@ -18,8 +15,10 @@ import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IDeliveryRobotService;
-import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMCoreProvider;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
 
 /**
  * Created by Matthias Höllthaler on 20.05.2017.
@@ -31,7 +30,11 @@ public class XVSMDeliveryRobotService extends GenericXVSMService implements IDel
 	private ContainerReference counterContainer;
 
 	public XVSMDeliveryRobotService() {
-		super(new Capi(DefaultMzsCore.newInstance()));
+		this(XVSMCoreProvider.getCapi());
+	}
+
+	public XVSMDeliveryRobotService(Capi capi) {
+		super(capi);
 		this.terminalContainer = getContainer(XVSMConstants.TERMINAL_CONTAINER_NAME);
 		this.counterContainer = getContainer(XVSMConstants.COUNTER_CONTAINER_NAME);
 
@@ -40,10 +43,12 @@ public class XVSMDeliveryRobotService extends GenericXVSMService implements IDel
 
 	@Override
 	public PackedOrder getPackedDeliveryOrder() {
-		Query query = new Query().filter(Property.forName("*", "delivery").equalTo(true))
-				.sortup(ComparableProperty.forName("*", "timestamp"));
-		return takeFirst(terminalContainer, null, QueryCoordinator.newSelector(query),
-				TypeCoordinator.newSelector(PackedOrder.class));
+		// the packed delivery orders are selected by their label, only these
+		// are sorted
+		Query query = new Query().sortup(ComparableProperty.forName("*", "timestamp"));
+		return takeFirst(terminalContainer, null,
+				XVSMUtil.deliverySelector(OrderState.PACKED, MzsConstants.Selecting.COUNT_MAX),
+				QueryCoordinator.newSelector(query));
 
 	}
 
@@ -80,12 +85,11 @@ public class XVSMDeliveryRobotService extends GenericXVSMService implements IDel
 	}
 
 	@Override
-	public Map<String, Boolean> getInitialState() {
-		Query query = new Query().filter(Property.forName("*", "delivery").equalTo(true));
-		boolean avaible = test(terminalContainer, null, QueryCoordinator.newSelector(query)) > 0;
-		Map<String, Boolean> map = new HashMap<>();
-		map.put(SBCConstants.NotificationKeys.IS_DELIVERY_ORDER_AVAILABLE, avaible);
-		map.put(SBCConstants.NotificationKeys.IS_DELIVERY_ORDER_AVAILABLE, avaible);
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		boolean avaible = test(terminalContainer, null,
+				XVSMUtil.deliverySelector(OrderState.PACKED, MzsConstants.Selecting.COUNT_MAX)) > 0;
+		Map<NotificationKeys, Boolean> map = new EnumMap<>(NotificationKeys.class);
+		map.put(NotificationKeys.IS_DELIVERY_ORDER_AVAILABLE, avaible);
 		return map;
 	}
 }
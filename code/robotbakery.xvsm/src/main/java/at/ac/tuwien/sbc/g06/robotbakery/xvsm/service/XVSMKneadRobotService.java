@@ -2,10 +2,17 @@ package at.ac.tuwien.sbc.g06.robotbakery.xvsm.service;
 
 import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.NO_MORE_INGREDIENTS_IN_STORAGE;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.mozartspaces.capi3.ComparableProperty;
 import org.mozartspaces.capi3.Property;
@@ -14,22 +21,29 @@ import org.mozartspaces.capi3.QueryCoordinator;
 import org.mozartspaces.capi3.TypeCoordinator;
 import org.mozartspaces.core.Capi;
 import org.mozartspaces.core.ContainerReference;
-import org.mozartspaces.core.DefaultMzsCore;
 import org.mozartspaces.core.MzsConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.clock.SimulationClock;
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
-import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Recipe.IngredientType;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IKneadRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.FlourAllocator;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.FlourAllocator.Allocation;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.notifier.XVSMBakeryChangeNotifer;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMCoreProvider;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
 
 /**
  * 
@@ -38,97 +52,107 @@ import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
  */
 public class XVSMKneadRobotService extends GenericXVSMService implements IKneadRobotService {
 	private static Logger logger = LoggerFactory.getLogger(XVSMKneadRobotService.class);
-	private final ContainerReference storageContainer;
-	private final ContainerReference counterContainer;
+	private final ContainerReference waterContainer;
+	private final ContainerReference flourContainer;
+	private final ContainerReference ingredientContainer;
+	private final ContainerReference doughContainer;
 	private final ContainerReference bakeroomContainer;
 	private IRobotService robotService;
+	private final StockView stockView;
+	private final AtomicLong reservationConflicts = new AtomicLong();
 
 	public XVSMKneadRobotService() {
-		super(new Capi(DefaultMzsCore.newInstance()));
-		storageContainer = getContainer(XVSMConstants.STORAGE_CONTAINER_NAME);
-		counterContainer = getContainer(XVSMConstants.COUNTER_CONTAINER_NAME);
+		this(XVSMCoreProvider.getCapi());
+	}
+
+	public XVSMKneadRobotService(Capi capi) {
+		this(capi, new StockView(new XVSMBakeryChangeNotifer(capi), new XVSMStockService(capi)));
+	}
+
+	public XVSMKneadRobotService(Capi capi, StockView stockView) {
+		super(capi);
+		this.stockView = stockView;
+		waterContainer = getContainer(XVSMConstants.STORAGE_WATER_CONTAINER_NAME);
+		flourContainer = getContainer(XVSMConstants.STORAGE_FLOUR_CONTAINER_NAME);
+		ingredientContainer = getContainer(XVSMConstants.STORAGE_INGREDIENT_CONTAINER_NAME);
+		doughContainer = getContainer(XVSMConstants.STORAGE_DOUGH_CONTAINER_NAME);
 		bakeroomContainer = getContainer(XVSMConstants.BAKEROOM_CONTAINER_NAME);
 
 	}
 
 	@Override
 	public List<Product> checkBaseDoughsInStorage() {
-		Query query = new Query().filter(Property.forName("*", "type").equalTo(BakeState.DOUGH))
-				.sortup(ComparableProperty.forName("*", "timestamp"));
-		return read(storageContainer, null, QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX),
-				TypeCoordinator.newSelector(Product.class, MzsConstants.Selecting.COUNT_MAX));
+		Query query = new Query().sortup(ComparableProperty.forName("*", "timestamp"));
+		return read(doughContainer, null, QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
 
 	}
 
 	@Override
 	public Map<IngredientType, Integer> getIngredientStock() {
-
-		Map<IngredientType, Integer> map = new HashMap<>();
-		for (IngredientType type : IngredientType.values()) {
-			if (type != IngredientType.WATER) {
-				if (type == IngredientType.FLOUR) {
-					map.put(type, test(storageContainer, null,
-							TypeCoordinator.newSelector(FlourPack.class, MzsConstants.Selecting.COUNT_MAX)));
-				} else {
-					Query query = new Query().filter(Property.forName("*", "type").equalTo(type));
-					map.put(type,
-							test(storageContainer, null,
-									QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX),
-									TypeCoordinator.newSelector(Ingredient.class, MzsConstants.Selecting.COUNT_MAX)));
-				}
-			}
+		// the ingredients and the flour packs are counted by the space, flour
+		// is counted in packs like in the stock view
+		Map<IngredientType, Integer> map = new EnumMap<>(IngredientType.class);
+		for (String containerName : Arrays.asList(XVSMConstants.STORAGE_INGREDIENT_CONTAINER_NAME,
+				XVSMConstants.STORAGE_FLOUR_CONTAINER_NAME)) {
+			Map<String, Integer> counts = readStockCounts(containerName, null);
+			if (counts != null)
+				counts.forEach((type, count) -> map.merge(IngredientType.valueOf(type), count, Integer::sum));
 		}
+		map.remove(IngredientType.WATER);
 		return map;
-
 	}
 
 	@Override
 	public Map<String, Integer> getCounterStock() {
-
 		Map<String, Integer> map = new HashMap<>();
-		for (String productName : SBCConstants.PRODUCTS_NAMES) {
-			Query query = new Query().filter(Property.forName("*", "productName").equalTo(productName));
-			map.put(productName,
-					test(counterContainer, null, QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX),
-							TypeCoordinator.newSelector(Product.class, MzsConstants.Selecting.COUNT_MAX)));
-		}
+		Map<String, Integer> counts = readStockCounts(XVSMConstants.COUNTER_CONTAINER_NAME, null);
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			map.put(productName, counts == null ? 0 : counts.getOrDefault(productName, 0));
 		return map;
+	}
 
+	@Override
+	public StockView getStockView() {
+		return stockView;
 	}
 
 	@Override
 	public List<Ingredient> getIngredientsFromStorage(IngredientType type, Integer amount, ITransaction tx) {
-		Query query = new Query().filter(Property.forName("*", "type").equalTo(type)).cnt(amount);
-		return take(storageContainer, tx, QueryCoordinator.newSelector(query, amount),
-				TypeCoordinator.newSelector(Ingredient.class, amount));
+		return take(ingredientContainer, tx, XVSMUtil.kindSelector(Ingredient.class, type, amount));
 
 	}
 
 	@Override
-	public boolean useWaterPipe(long time, ITransaction tx) {
-
-		WaterPipe pipe = takeFirst(storageContainer, tx, TypeCoordinator.newSelector(WaterPipe.class));
-		try {
-			Thread.sleep(time);
-		} catch (InterruptedException e) {
-			logger.error(e.getMessage());
-			return false;
-		}
-		write(pipe, storageContainer, tx);
-		return true;
+	public WaterPipe leaseWaterPipe(int waterAmount, ITransaction tx) {
+		long now = SimulationClock.get().currentTimeMillis();
+		Query query = new Query().filter(ComparableProperty.forName("*", "leaseExpiresAt").lessThanOrEqualTo(now))
+				.cnt(1);
+		WaterPipe pipe = takeFirst(waterContainer, tx, QueryCoordinator.newSelector(query));
+		if (pipe == null)
+			return null;
+		WaterPipe leased = pipe
+				.lease(now + pipe.getUsageTime(waterAmount) + SBCConstants.WATER_PIPE_LEASE_MARGIN);
+		return write(leased, waterContainer, tx) ? leased : null;
+	}
 
+	@Override
+	public boolean returnWaterPipe(WaterPipe pipe, ITransaction tx) {
+		// the lease is only returned if it wasn't taken over after it expired
+		Query query = new Query().filter(Property.forName("*", "leaseExpiresAt").equalTo(pipe.getLeaseExpiresAt()))
+				.cnt(1);
+		WaterPipe leased = takeFirst(waterContainer, tx, XVSMUtil.idSelector(pipe.getId()),
+				QueryCoordinator.newSelector(query));
+		return leased != null && write(leased.release(), waterContainer, tx);
 	}
 
 	@Override
 	public boolean putBaseDoughInStorage(Product nextProduct, ITransaction tx) {
-		return write(nextProduct, storageContainer, tx);
+		return writeToStorage(nextProduct, tx);
 	}
 
 	@Override
 	public Product getProductFromStorage(UUID id, ITransaction tx) {
-		Query query = new Query().filter(Property.forName("*", "id").equalTo(id)).cnt(1);
-		return takeFirst(storageContainer, tx, QueryCoordinator.newSelector(query),
-				TypeCoordinator.newSelector(Product.class));
+		return takeFirst(doughContainer, tx, XVSMUtil.idSelector(id));
 	}
 
 	@Override
@@ -138,36 +162,100 @@ public class XVSMKneadRobotService extends GenericXVSMService implements IKneadR
 
 	@Override
 	public boolean takeFlourFromStorage(int amount, ITransaction tx) {
-		FlourPack pack = null;
-		while (amount > 0) {
-			pack = (FlourPack) getPackFromStorage(tx);
-			if (pack == null)
+		// the packs are read without the transaction, so that no read locks are
+		// held on packs which aren't taken. A pack which another robot takes
+		// in the meantime is skipped and the missing flour is allocated from
+		// the other packs.
+		Set<UUID> skipped = new HashSet<>();
+		int missing = amount;
+		for (int attempt = 0; missing > 0 && attempt < XVSMConstants.FLOUR_TAKE_ATTEMPTS; attempt++) {
+			List<FlourPack> packs = read(flourContainer, null,
+					TypeCoordinator.newSelector(FlourPack.class, MzsConstants.Selecting.COUNT_MAX));
+			if (packs == null)
 				return false;
-			amount = pack.takeFlour(amount);
-		}
-		if (pack.getCurrentAmount() > 0) {
-			if (!putPackInStorage(pack, tx))
+			packs.removeIf(pack -> skipped.contains(pack.getId()));
+			Allocation allocation = FlourAllocator.allocate(packs, missing);
+			if (allocation == null)
 				return false;
+			// the selectors of a request are applied one after the other, so
+			// every pack is taken by its id label with a request of its own
+			for (FlourPack pack : allocation.getPacks()) {
+				skipped.add(pack.getId());
+				FlourPack taken = takeFirst(flourContainer, tx, XVSMUtil.idSelector(pack.getId()));
+				if (taken != null)
+					missing -= taken.getCurrentAmount();
+			}
 		}
-		return true;
+		if (missing > 0)
+			return false;
+		return missing == 0 || write(new FlourPack(-missing), flourContainer, tx);
 	}
 
-	private FlourPack getPackFromStorage(ITransaction tx) {
-		Query query = new Query().sortup(ComparableProperty.forName("*", "currentAmount")).cnt(1);
-		return takeFirst(storageContainer, tx, QueryCoordinator.newSelector(query),
-				TypeCoordinator.newSelector(Ingredient.class));
+	@Override
+	public IngredientReservation reserveIngredients(Map<IngredientType, Integer> billOfMaterials, long ttl,
+			ITransaction tx) {
+		int flourAmount = 0;
+		List<Ingredient> ingredients = new ArrayList<>();
+		for (Entry<IngredientType, Integer> entry : billOfMaterials.entrySet()) {
+			if (entry.getKey() == IngredientType.FLOUR) {
+				if (!takeFlourFromStorage(entry.getValue(), tx))
+					return reservationConflict();
+				flourAmount = entry.getValue();
+			} else {
+				List<Ingredient> taken = getIngredientsFromStorage(entry.getKey(), entry.getValue(), tx);
+				if (taken == null)
+					return reservationConflict();
+				ingredients.addAll(taken);
+			}
+		}
+		IngredientReservation reservation = new IngredientReservation(flourAmount, ingredients,
+				SimulationClock.get().currentTimeMillis() + ttl);
+		return write(reservation, ingredientContainer, tx) ? reservation : null;
+	}
+
+	private IngredientReservation reservationConflict() {
+		reservationConflicts.incrementAndGet();
+		return null;
+	}
 
+	@Override
+	public boolean consumeReservation(IngredientReservation reservation, ITransaction tx) {
+		return takeFirst(ingredientContainer, tx, XVSMUtil.idSelector(reservation.getId())) != null;
 	}
 
-	private boolean putPackInStorage(FlourPack pack, ITransaction tx) {
-		return write(pack, storageContainer, tx);
+	@Override
+	public boolean releaseReservation(IngredientReservation reservation, ITransaction tx) {
+		return consumeReservation(reservation, tx)
+				&& writeToStorage(reservation.getReleasedIngredients(), tx);
+	}
+
+	@Override
+	public int reclaimExpiredReservations(ITransaction tx) {
+		long now = SimulationClock.get().currentTimeMillis();
+		Query query = new Query().filter(ComparableProperty.forName("*", "expiresAt").lessThanOrEqualTo(now));
+		List<IngredientReservation> expired = take(ingredientContainer, tx,
+				TypeCoordinator.newSelector(IngredientReservation.class, MzsConstants.Selecting.COUNT_MAX),
+				QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
+		if (expired == null)
+			return -1;
+		for (IngredientReservation reservation : expired) {
+			if (!writeToStorage(reservation.getReleasedIngredients(), tx))
+				return -1;
+		}
+		return expired.size();
+	}
+
+	@Override
+	public long getReservationConflicts() {
+		return reservationConflicts.get();
 	}
 
 	@Override
-	public Map<String, Boolean> getInitialState() {
-		Map<String, Boolean> notificationState = new HashMap<>();
+	public Map<NotificationKeys, Boolean> getInitialState() {
+		Map<NotificationKeys, Boolean> notificationState = new EnumMap<>(NotificationKeys.class);
 		notificationState.put(NO_MORE_INGREDIENTS_IN_STORAGE,
-				test(storageContainer, null, TypeCoordinator.newSelector(Ingredient.class)) == 0);
+				test(ingredientContainer, null, TypeCoordinator.newSelector(Ingredient.class))
+						+ test(flourContainer, null, TypeCoordinator.newSelector(FlourPack.class)) == 0);
 		return notificationState;
 	}
 }
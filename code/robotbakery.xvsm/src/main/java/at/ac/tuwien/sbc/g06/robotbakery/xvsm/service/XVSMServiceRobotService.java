@@ -2,22 +2,21 @@ package at.ac.tuwien.sbc.g06.robotbakery.xvsm.service;
 
 import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.COUNTER_MAX_CAPACITY;
 import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys.*;
-import static at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.PRODUCTS_NAMES;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.mozartspaces.capi3.ComparableProperty;
-import org.mozartspaces.capi3.Matchmaker;
-import org.mozartspaces.capi3.Matchmakers;
 import org.mozartspaces.capi3.Property;
 import org.mozartspaces.capi3.Query;
 import org.mozartspaces.capi3.QueryCoordinator;
 import org.mozartspaces.capi3.TypeCoordinator;
 import org.mozartspaces.core.Capi;
 import org.mozartspaces.core.ContainerReference;
-import org.mozartspaces.core.DefaultMzsCore;
 import org.mozartspaces.core.MzsConstants;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.NotificationMessage;
@@ -30,59 +29,98 @@ import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.IServiceRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants.NotificationKeys;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMCoreProvider;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
 
 public class XVSMServiceRobotService extends GenericXVSMService implements IServiceRobotService {
 
 	private final ContainerReference counterContainer;
 	private final ContainerReference terminalContainer;
-	private final ContainerReference storageContainer;
+	private final Map<String, ContainerReference> productContainers = new LinkedHashMap<>();
 
 	public XVSMServiceRobotService() {
-		super(new Capi(DefaultMzsCore.newInstance()));
+		this(XVSMCoreProvider.getCapi());
+	}
+
+	public XVSMServiceRobotService(Capi capi) {
+		super(capi);
 		counterContainer = getContainer(XVSMConstants.COUNTER_CONTAINER_NAME);
 		terminalContainer = getContainer(XVSMConstants.TERMINAL_CONTAINER_NAME);
-		storageContainer = getContainer(XVSMConstants.STORAGE_CONTAINER_NAME);
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			productContainers.put(productName, getContainer(XVSMUtil.getProductPartition(productName)));
 	}
 
 	@Override
 	public Order getNextOrder(ITransaction tx) {
-		Query query = new Query()
-				.filter(Matchmakers.or(Property.forName("*", "state").equalTo(OrderState.ORDERED),
-						Property.forName("*", "state").equalTo(OrderState.WAITING)))
-				.sortup(ComparableProperty.forName("*", "timestamp")).cnt(1);
-		return takeFirst(counterContainer, null,
-				QueryCoordinator.newSelector(query, MzsConstants.Selecting.DEFAULT_COUNT));
+		// the orders are selected by their state label and only these are
+		// sorted. Waiting orders have been ordered before and are taken first,
+		// the robot only waits for new orders.
+		Query waitingQuery = new Query().sortup(ComparableProperty.forName("*", "timestamp")).cnt(0, 1);
+		List<Order> waiting = take(counterContainer, tx,
+				XVSMUtil.kindSelector(Order.class, OrderState.WAITING, MzsConstants.Selecting.COUNT_MAX),
+				QueryCoordinator.newSelector(waitingQuery, MzsConstants.Selecting.COUNT_MAX));
+		if (waiting != null && !waiting.isEmpty())
+			return waiting.get(0);
+		Query orderedQuery = new Query().sortup(ComparableProperty.forName("*", "timestamp")).cnt(1);
+		return takeFirst(counterContainer, tx, XVSMConstants.ORDER_TAKE_TIMEOUT,
+				XVSMUtil.kindSelector(Order.class, OrderState.ORDERED, MzsConstants.Selecting.COUNT_MAX),
+				QueryCoordinator.newSelector(orderedQuery, MzsConstants.Selecting.DEFAULT_COUNT));
 
 	}
 
 	@Override
-	public boolean addToCounter(Product product, ITransaction tx) {
-		Query query = new Query().filter(Property.forName("*", "productName").equalTo(product.getProductName()));
-		Integer available = test(counterContainer, null,
-				QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
-		if (available < SBCConstants.COUNTER_MAX_CAPACITY)
-			write(product, counterContainer, tx);
-		return true;
+	public boolean addToCounter(List<Product> products, ITransaction tx) {
+		// the counts of the space include the changes of the transaction and
+		// the products other robots are putting in the counter
+		Map<String, Integer> counts = readStockCounts(XVSMConstants.COUNTER_CONTAINER_NAME, tx);
+		if (counts == null)
+			return false;
+		Map<String, Integer> added = new HashMap<>();
+		products.forEach(p -> added.merge(p.getProductName(), 1, Integer::sum));
+		for (Map.Entry<String, Integer> entry : added.entrySet()) {
+			if (counts.getOrDefault(entry.getKey(), 0) + entry.getValue() > SBCConstants.COUNTER_MAX_CAPACITY)
+				return false;
+		}
+		return write(products, counterContainer, tx);
 
 	}
 
 	@Override
-	public List<Product> getProductsFromStorage(String productName, int amount, ITransaction tx) {
-		return getProducts(storageContainer, productName, amount, tx);
+	public List<Product> getProductsFromStorage(Map<String, Integer> amounts, ITransaction tx) {
+		// the selectors of a request are applied one after the other, so the
+		// products are taken with one request per storage partition
+		List<Product> products = new ArrayList<>();
+		for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+			ContainerReference productContainer = productContainers.get(amount.getKey());
+			if (productContainer == null)
+				return null;
+			// the partition only holds final products with this name
+			Query query = new Query().cnt(0, amount.getValue());
+			List<Product> taken = take(productContainer, tx,
+					QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
+			if (taken == null)
+				return null;
+			products.addAll(taken);
+		}
+		return products;
 	}
 
 	@Override
-	public List<Product> getProductsFromCounter(String productName, int amount, ITransaction tx) {
-		return getProducts(counterContainer, productName, amount, tx);
-	}
-
-	private List<Product> getProducts(ContainerReference containerReference, String productName, int amount,
-			ITransaction tx) {
-		Matchmaker product = Property.forName("*", "productName").equalTo(productName);
-		Matchmaker type = Property.forName("*", "type").equalTo(BakeState.FINALPRODUCT);
-		Query query = new Query().filter(Matchmakers.and(product, type)).cnt(0, amount);
-		return take(containerReference, tx, QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
+	public List<Product> getProductsFromCounter(Map<String, Integer> amounts, ITransaction tx) {
+		List<Product> products = new ArrayList<>();
+		for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+			Query query = new Query().filter(Property.forName("*", "productName").equalTo(amount.getKey()))
+					.cnt(0, amount.getValue());
+			List<Product> taken = take(counterContainer, tx,
+					XVSMUtil.kindSelector(Product.class, BakeState.FINALPRODUCT, MzsConstants.Selecting.COUNT_MAX),
+					QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
+			if (taken == null || taken.size() < amount.getValue())
+				return null;
+			products.addAll(taken);
+		}
+		return products;
 	}
 
 	@Override
@@ -99,16 +137,15 @@ public class XVSMServiceRobotService extends GenericXVSMService implements IServ
 	@Override
 	public Map<String, Integer> getCounterStock() {
 		Map<String, Integer> missingProducts = new HashMap<>();
-
-		for (String name : PRODUCTS_NAMES) {
-			Query query = new Query().filter(Property.forName("*", "productName").equalTo(name));
-			Integer available = test(counterContainer, null,
-					QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
+		Map<String, Integer> counts = readStockCounts(XVSMConstants.COUNTER_CONTAINER_NAME, null);
+		if (counts == null)
+			return missingProducts;
+		for (String name : SBCConstants.PRODUCTS_NAMES) {
+			int available = counts.getOrDefault(name, 0);
 			if (available < COUNTER_MAX_CAPACITY) {
 				missingProducts.put(name, COUNTER_MAX_CAPACITY - available);
 			}
 		}
-
 		return missingProducts;
 	}
 
@@ -124,28 +161,42 @@ public class XVSMServiceRobotService extends GenericXVSMService implements IServ
 
 	@Override
 	public List<Product> getProductsFromStorage(int amount, ITransaction tx) {
-		Query query = new Query().filter(Property.forName("*", "type").equalTo(BakeState.FINALPRODUCT)).cnt(amount);
-		return take(storageContainer, tx, QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX),
-				TypeCoordinator.newSelector(Product.class, MzsConstants.Selecting.COUNT_MAX));
+		// the products are collected from the partitions in the transaction of
+		// the robot, which puts them back if there are not enough
+		List<Product> products = new ArrayList<>();
+		for (ContainerReference productContainer : productContainers.values()) {
+			Query query = new Query().cnt(0, amount - products.size());
+			List<Product> taken = take(productContainer, tx,
+					QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
+			if (taken == null)
+				return null;
+			products.addAll(taken);
+			if (products.size() == amount)
+				return products;
+		}
+		return null;
 	}
 
 	@Override
-	public Map<String, Boolean> getInitialState() {
-		Query productQuery = new Query().filter(Property.forName("*", "type").equalTo(BakeState.FINALPRODUCT));
+	public Map<NotificationKeys, Boolean> getInitialState() {
 		Query highPriorityQuery = new Query().filter(Property.forName("*", "highPriority").equalTo(true));
-		Map<String, Boolean> notificationState = new HashMap<>();
+		Map<NotificationKeys, Boolean> notificationState = new EnumMap<>(NotificationKeys.class);
 		notificationState.put(IS_COUNTER_EMPTY,
 				test(counterContainer, null, TypeCoordinator.newSelector(Product.class)) == 0);
 		notificationState.put(IS_COUNTER_FULL,
 				test(counterContainer, null, TypeCoordinator.newSelector(Product.class)) == 5 * COUNTER_MAX_CAPACITY);
-		notificationState.put(NO_MORE_PRODUCTS_IN_STORAGE, test(storageContainer, null,
-				QueryCoordinator.newSelector(productQuery), TypeCoordinator.newSelector(Product.class)) == 0);
+		int productsInStorage = 0;
+		for (ContainerReference productContainer : productContainers.values())
+			productsInStorage += test(productContainer, null,
+					TypeCoordinator.newSelector(Product.class, MzsConstants.Selecting.COUNT_MAX));
+		notificationState.put(NO_MORE_PRODUCTS_IN_STORAGE, productsInStorage == 0);
 		notificationState.put(IS_ORDER_AVAILABLE,
 				test(counterContainer, null, TypeCoordinator.newSelector(Order.class)) > 0);
 		notificationState.put(IS_PREPACKAGE_LIMIT, test(terminalContainer, null,
 				TypeCoordinator.newSelector(Prepackage.class)) >= SBCConstants.PREPACKAGE_MAX_AMOUNT);
 		notificationState.put(IS_ORDER_PROCESSING_LOCKED, test(counterContainer, null,
-				QueryCoordinator.newSelector(highPriorityQuery), TypeCoordinator.newSelector(Order.class)) > 0);
+				TypeCoordinator.newSelector(Order.class, MzsConstants.Selecting.COUNT_MAX),
+				QueryCoordinator.newSelector(highPriorityQuery)) > 0);
 		return notificationState;
 	}
 
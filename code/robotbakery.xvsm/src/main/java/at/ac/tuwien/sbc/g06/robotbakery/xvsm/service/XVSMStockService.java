@@ -0,0 +1,57 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mozartspaces.capi3.Query;
+import org.mozartspaces.capi3.QueryCoordinator;
+import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.ContainerReference;
+import org.mozartspaces.core.MzsConstants;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.service.IStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
+
+/**
+ * Reads the storage, bakeroom and counter container for the resync of the
+ * stock view, the storage is read from all of its partitions
+ */
+public class XVSMStockService extends GenericXVSMService implements IStockService {
+
+	private final Map<String, List<ContainerReference>> containers = new HashMap<>();
+
+	public XVSMStockService(Capi capi) {
+		super(capi);
+		List<ContainerReference> storageContainers = new ArrayList<>();
+		for (String partition : XVSMUtil.getStoragePartitions())
+			storageContainers.add(getContainer(partition));
+		containers.put(SBCConstants.COORDINATION_ROOM_STORAGE, storageContainers);
+		containers.put(SBCConstants.COORDINATION_ROOM_BAKEROOM,
+				Arrays.asList(getContainer(XVSMConstants.BAKEROOM_CONTAINER_NAME)));
+		containers.put(SBCConstants.COORDINATION_ROOM_COUNTER,
+				Arrays.asList(getContainer(XVSMConstants.COUNTER_CONTAINER_NAME)));
+	}
+
+	@Override
+	public List<Serializable> readRoom(String coordinationRoom) {
+		List<ContainerReference> crefs = containers.get(coordinationRoom);
+		if (crefs == null)
+			return null;
+		List<Serializable> content = new ArrayList<>();
+		for (ContainerReference cref : crefs) {
+			List<Serializable> entries = read(cref, null,
+					QueryCoordinator.newSelector(new Query(), MzsConstants.Selecting.COUNT_MAX));
+			if (entries == null)
+				return null;
+			content.addAll(entries);
+		}
+		return content;
+	}
+
+}
@@ -6,7 +6,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
-import org.mozartspaces.capi3.Matchmakers;
 import org.mozartspaces.capi3.Property;
 import org.mozartspaces.capi3.Query;
 import org.mozartspaces.capi3.QueryCoordinator;
@@ -19,10 +18,10 @@ import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.PackedOrder;
 import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
-import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
 import at.ac.tuwien.sbc.g06.robotbakery.core.service.ITabletUIService;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
 
 public class XVSMTabletUIService extends GenericXVSMService implements ITabletUIService {
 
@@ -43,12 +42,9 @@ public class XVSMTabletUIService extends GenericXVSMService implements ITabletUI
 
 	@Override
 	public PackedOrder getPackedOrder(Order order) {
-		Query query = new Query()
-				.filter(Matchmakers.and(Property.forName("*", "customerID").equalTo(order.getCustomerId()),
-						Property.forName("*", "orderID").equalTo(order.getId())))
-				.cnt(1);
 		return takeFirst(terminalContainer, null,
-				QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_ALL));
+				XVSMUtil.customerSelector(order.getCustomerId(), MzsConstants.Selecting.COUNT_MAX),
+				XVSMUtil.idSelector(order.getId()));
 
 	}
 
@@ -61,28 +57,27 @@ public class XVSMTabletUIService extends GenericXVSMService implements ITabletUI
 	@Override
 	public Map<String, Integer> getInitialCounterProducts() {
 
+		// the products of the counter are counted by the space, so they are
+		// neither transferred to the tablet nor counted with a query
 		Map<String, Integer> map = new HashMap<>();
-		for (String productName : SBCConstants.PRODUCTS_NAMES) {
-			Query query = new Query().filter(Property.forName("*", "productName").equalTo(productName));
-			map.put(productName,
-					test(counterContainer, null, QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX),
-							TypeCoordinator.newSelector(Product.class, MzsConstants.Selecting.COUNT_MAX)));
-		}
+		Map<String, Integer> counts = readStockCounts(XVSMConstants.COUNTER_CONTAINER_NAME, null);
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			map.put(productName, counts == null ? 0 : counts.getOrDefault(productName, 0));
 		return map;
 
 	}
 
 	@Override
 	public Prepackage getPrepackage(UUID packageId) {
-		Query query = new Query().filter(Property.forName("*", "id").equalTo(packageId));
-		return takeFirst(terminalContainer, null, QueryCoordinator.newSelector(query));
+		return takeFirst(terminalContainer, null, XVSMUtil.idSelector(packageId));
 	}
 
 	@Override
 	public List<Prepackage> getInitialPrepackages() {
 		Query query = new Query().filter(Property.forName("*", "state").equalTo(Prepackage.STATE_IN_TERMINAL));
-		return read(terminalContainer, null, QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX),
-				TypeCoordinator.newSelector(Prepackage.class, MzsConstants.Selecting.COUNT_MAX));
+		return read(terminalContainer, null,
+				TypeCoordinator.newSelector(Prepackage.class, MzsConstants.Selecting.COUNT_MAX),
+				QueryCoordinator.newSelector(query, MzsConstants.Selecting.COUNT_MAX));
 	}
 
 
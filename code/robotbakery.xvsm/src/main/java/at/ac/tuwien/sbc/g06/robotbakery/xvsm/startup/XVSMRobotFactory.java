@@ -0,0 +1,79 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.startup;
+
+import org.mozartspaces.core.Capi;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.listener.StockView;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.BakeRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.DeliveryRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.KneadRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ProductionPlanner;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.Robot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotFactory;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.ServiceRobot;
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.WaterSupply;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.notifier.XVSMBakeryChangeNotifer;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMBakeRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMDeliveryRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMKneadRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMServiceRobotService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMStockService;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.transaction.XVSMTransactionManager;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMCoreProvider;
+
+/**
+ * Creates XVSM robots which share one embedded core, one transaction manager,
+ * one change notifier, one stock view, one production planner and one wait
+ * queue for the water pipes.
+ */
+public class XVSMRobotFactory implements RobotFactory {
+
+	private final Capi capi;
+	private final XVSMTransactionManager transactionManager;
+	private final XVSMBakeryChangeNotifer changeNotifer;
+	private final StockView stockView;
+	private final ProductionPlanner planner;
+	private final WaterSupply waterSupply;
+
+	public XVSMRobotFactory() {
+		this(XVSMCoreProvider.getCapi());
+	}
+
+	public XVSMRobotFactory(Capi capi) {
+		this.capi = capi;
+		XVSMCoreProvider.warmUp(capi, XVSMConstants.BAKERY_SPACE_URI);
+		this.transactionManager = new XVSMTransactionManager(capi);
+		this.changeNotifer = new XVSMBakeryChangeNotifer(capi);
+		this.stockView = new StockView(changeNotifer, new XVSMStockService(capi));
+		this.planner = new ProductionPlanner(stockView);
+		this.waterSupply = new WaterSupply();
+	}
+
+	@Override
+	public Robot createRobot(String type, String id) {
+		switch (type) {
+		case TYPE_SERVICE:
+			return new ServiceRobot(new XVSMServiceRobotService(capi), changeNotifer, transactionManager, id);
+		case TYPE_KNEAD:
+			return new KneadRobot(new XVSMKneadRobotService(capi, stockView), changeNotifer, transactionManager, id,
+					planner, waterSupply);
+		case TYPE_BAKE:
+			return new BakeRobot(new XVSMBakeRobotService(capi), changeNotifer, transactionManager, id);
+		case TYPE_DELIVER:
+			return new DeliveryRobot(new XVSMDeliveryRobotService(capi), changeNotifer, transactionManager, id);
+		default:
+			throw new IllegalArgumentException("Unknown robot type: " + type);
+		}
+	}
+
+	@Override
+	public void releaseRobot(Robot robot) {
+		// XVSM services don't hold resources of their own
+	}
+
+	@Override
+	public void close() {
+		XVSMCoreProvider.shutdown(capi);
+	}
+
+}
@@ -0,0 +1,20 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.startup;
+
+import java.io.IOException;
+
+import at.ac.tuwien.sbc.g06.robotbakery.core.robot.RobotHost;
+
+/**
+ * Starts multiple robots in one process, e.g. "service:2 knead:4 bake deliver"
+ */
+public class XVSMRobotHostStartUp {
+
+	public static void main(String[] args) throws IOException {
+		RobotHost host = new RobotHost(new XVSMRobotFactory());
+		host.addRobots(args);
+		System.out.println("Press CTRL+C to exit...");
+		host.runConsole(System.in);
+		System.exit(0);
+	}
+
+}
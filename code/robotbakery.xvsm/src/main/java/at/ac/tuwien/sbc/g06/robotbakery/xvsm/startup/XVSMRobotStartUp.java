@@ -3,7 +3,6 @@ package at.ac.tuwien.sbc.g06.robotbakery.xvsm.startup;
 import java.io.IOException;
 
 import org.mozartspaces.core.Capi;
-import org.mozartspaces.core.DefaultMzsCore;
 
 import at.ac.tuwien.sbc.g06.robotbakery.core.robot.BakeRobot;
 import at.ac.tuwien.sbc.g06.robotbakery.core.robot.DeliveryRobot;
@@ -16,6 +15,8 @@ import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMDeliveryRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMKneadRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.service.XVSMServiceRobotService;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.transaction.XVSMTransactionManager;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMCoreProvider;
 
 public class XVSMRobotStartUp {
 
@@ -26,26 +27,25 @@ public class XVSMRobotStartUp {
 		String id = null;
 		if (args.length == 2)
 			id = args[1];
+		// the robot, its notifier and its transaction manager share one core
+		Capi capi = XVSMCoreProvider.getCapi();
+		XVSMCoreProvider.warmUp(capi, XVSMConstants.BAKERY_SPACE_URI);
 		switch (args[0]) {
 		case "service":
-			startRobot(new ServiceRobot(new XVSMServiceRobotService(),
-					new XVSMBakeryChangeNotifer(new Capi(DefaultMzsCore.newInstance())), new XVSMTransactionManager(),
-					id));
+			startRobot(new ServiceRobot(new XVSMServiceRobotService(capi), new XVSMBakeryChangeNotifer(capi),
+					new XVSMTransactionManager(capi), id));
 			break;
 		case "knead":
-			startRobot(new KneadRobot(new XVSMKneadRobotService(),
-					new XVSMBakeryChangeNotifer(new Capi(DefaultMzsCore.newInstance())), new XVSMTransactionManager(),
-					id));
+			startRobot(new KneadRobot(new XVSMKneadRobotService(capi), new XVSMBakeryChangeNotifer(capi),
+					new XVSMTransactionManager(capi), id));
 			break;
 		case "bake":
-			startRobot(new BakeRobot(new XVSMBakeRobotService(),
-					new XVSMBakeryChangeNotifer(new Capi(DefaultMzsCore.newInstance())), new XVSMTransactionManager(),
-					id));
+			startRobot(new BakeRobot(new XVSMBakeRobotService(capi), new XVSMBakeryChangeNotifer(capi),
+					new XVSMTransactionManager(capi), id));
 			break;
 		case "deliver":
-			startRobot(new DeliveryRobot(new XVSMDeliveryRobotService(),
-					new XVSMBakeryChangeNotifer(new Capi(DefaultMzsCore.newInstance())), new XVSMTransactionManager(),
-					id));
+			startRobot(new DeliveryRobot(new XVSMDeliveryRobotService(capi), new XVSMBakeryChangeNotifer(capi),
+					new XVSMTransactionManager(capi), id));
 			break;
 		default:
 			break;
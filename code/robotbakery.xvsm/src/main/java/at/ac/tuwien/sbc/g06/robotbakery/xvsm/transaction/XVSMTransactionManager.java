@@ -1,7 +1,6 @@
 package at.ac.tuwien.sbc.g06.robotbakery.xvsm.transaction;
 
 import org.mozartspaces.core.Capi;
-import org.mozartspaces.core.DefaultMzsCore;
 import org.mozartspaces.core.MzsCoreException;
 import org.mozartspaces.core.TransactionReference;
 import org.slf4j.Logger;
@@ -10,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransactionManager;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMConstants;
+import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMCoreProvider;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.util.XVSMUtil;
 
 public class XVSMTransactionManager implements ITransactionManager {
@@ -18,7 +18,11 @@ public class XVSMTransactionManager implements ITransactionManager {
 	private Capi capi;
 
 	public XVSMTransactionManager() {
-		this.capi = new Capi(DefaultMzsCore.newInstance());
+		this(XVSMCoreProvider.getCapi());
+	}
+
+	public XVSMTransactionManager(Capi capi) {
+		this.capi = capi;
 	}
 
 	@Override
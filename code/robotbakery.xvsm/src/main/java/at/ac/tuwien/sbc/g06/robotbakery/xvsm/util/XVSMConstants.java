@@ -15,12 +15,43 @@ public class XVSMConstants {
 	public static final String COUNTER_CONTAINER_NAME = "Bakery/Counter";
 	public static final String TERMINAL_CONTAINER_NAME = "Bakery/Terminal";
 	public static final String STORAGE_CONTAINER_NAME = "Bakery/Storage";
+	// partitions of the storage, see XVSMUtil#getStoragePartition
+	public static final String STORAGE_WATER_CONTAINER_NAME = STORAGE_CONTAINER_NAME + "/Water";
+	public static final String STORAGE_FLOUR_CONTAINER_NAME = STORAGE_CONTAINER_NAME + "/Flour";
+	public static final String STORAGE_INGREDIENT_CONTAINER_NAME = STORAGE_CONTAINER_NAME + "/Ingredients";
+	public static final String STORAGE_DOUGH_CONTAINER_NAME = STORAGE_CONTAINER_NAME + "/Doughs";
+	public static final String STORAGE_PRODUCT_CONTAINER_PREFIX = STORAGE_CONTAINER_NAME + "/Products/";
 	public static final String BAKEROOM_CONTAINER_NAME = "Bakery/Bakeroom";
 	public static final String DELIVERY_CONTAINER_NAME = "Delivery";
+	// counts of the counter and the storage, see XVSMStockCounter
+	public static final String STOCK_COUNT_CONTAINER_NAME = "Bakery/StockCounts";
+	public static final String[] BAKERY_CONTAINER_NAMES = { COUNTER_CONTAINER_NAME, TERMINAL_CONTAINER_NAME,
+			BAKEROOM_CONTAINER_NAME };
 
 	// XVSM Configuration
 
+	// label coordinators of the bakery containers, see XVSMUtil#getLabels
+	public static final String KIND_LABEL_COORDINATOR = "kind";
+	public static final String ID_LABEL_COORDINATOR = "id";
+	public static final String DELIVERY_LABEL_COORDINATOR = "delivery";
+	public static final String CUSTOMER_LABEL_COORDINATOR = "customer";
+
+	// persistence of the bakery containers, see XVSMSpaceJournal
+	public static final String DATA_DIR_PROPERTY = "robotbakery.xvsm.dataDir";
+	// log records after which a new log is started and a snapshot is written
+	public static final int SNAPSHOT_RECORDS = 100000;
+	// real time in milliseconds after which the log is written to the disk
+	public static final long JOURNAL_FORCE_INTERVAL = 1000L;
+	// entries which are written with one request when the containers are
+	// restored
+	public static final int RECOVERY_BATCH_SIZE = 10000;
+
 	public static final long MAX_TRANSACTION_TIMEOUT = MzsConstants.TransactionTimeout.INFINITE;
+	// simulated time a service robot waits for an order in the counter
+	public static final long ORDER_TAKE_TIMEOUT = 1000L;
+	// allocations of flour packs per take, a pack which has been taken by
+	// another robot in the meantime is skipped by the next allocation
+	public static final int FLOUR_TAKE_ATTEMPTS = 3;
 
 	private XVSMConstants() {
 	};
@@ -0,0 +1,59 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.util;
+
+import java.net.URI;
+
+import org.mozartspaces.core.Capi;
+import org.mozartspaces.core.DefaultMzsCore;
+
+/**
+ * Hands out the embedded MozartSpaces core of the JVM. All services, notifiers
+ * and transaction managers of a process share one core, instead of starting a
+ * core with its own threads and TCP listener each. A Capi only wraps the core
+ * and is thread safe, so one Capi is shared as well. The references of the
+ * bakery containers are cached, see {@link XVSMUtil#getContainer}.
+ */
+public final class XVSMCoreProvider {
+
+	private static Capi shared;
+
+	private XVSMCoreProvider() {
+	}
+
+	/**
+	 * @return Capi of the shared core, the core is started on the first call
+	 */
+	public static synchronized Capi getCapi() {
+		if (shared == null)
+			shared = new Capi(DefaultMzsCore.newInstance());
+		return shared;
+	}
+
+	/**
+	 * look up the containers of a space before the first robot needs them
+	 *
+	 * @param capi
+	 *            Capi which is used for the lookup
+	 * @param spaceURI
+	 *            space which hosts the bakery containers
+	 */
+	public static void warmUp(Capi capi, URI spaceURI) {
+		for (String containerName : XVSMConstants.BAKERY_CONTAINER_NAMES)
+			XVSMUtil.getContainer(capi, containerName, spaceURI);
+		for (String containerName : XVSMUtil.getStoragePartitions())
+			XVSMUtil.getContainer(capi, containerName, spaceURI);
+	}
+
+	/**
+	 * shut down the core of a Capi, if it is the shared core, it is started
+	 * again on the next call of {@link #getCapi()} and the cached container
+	 * references are dropped
+	 */
+	public static synchronized void shutdown(Capi toShutdown) {
+		if (toShutdown == shared) {
+			shared = null;
+			XVSMUtil.clearContainers();
+		}
+		toShutdown.getCore().shutdown(true);
+	}
+
+}
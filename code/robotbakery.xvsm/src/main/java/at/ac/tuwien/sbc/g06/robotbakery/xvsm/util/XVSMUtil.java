@@ -2,15 +2,19 @@ package at.ac.tuwien.sbc.g06.robotbakery.xvsm.util;
 
 import java.io.Serializable;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.collections.map.HashedMap;
+import org.mozartspaces.capi3.CoordinationData;
 import org.mozartspaces.capi3.Coordinator;
 import org.mozartspaces.capi3.FifoCoordinator;
+import org.mozartspaces.capi3.LabelCoordinator;
 import org.mozartspaces.capi3.QueryCoordinator;
+import org.mozartspaces.capi3.Selector;
 import org.mozartspaces.capi3.TypeCoordinator;
 import org.mozartspaces.core.Capi;
 import org.mozartspaces.core.ContainerReference;
@@ -22,6 +26,15 @@ import org.mozartspaces.core.TransactionReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.FlourPack;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Ingredient;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.IngredientReservation;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Order.OrderState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Prepackage;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.Product.BakeState;
+import at.ac.tuwien.sbc.g06.robotbakery.core.model.WaterPipe;
 import at.ac.tuwien.sbc.g06.robotbakery.core.transaction.ITransaction;
 import at.ac.tuwien.sbc.g06.robotbakery.core.util.SBCConstants;
 import at.ac.tuwien.sbc.g06.robotbakery.xvsm.transaction.XVSMTransaction;
@@ -29,12 +42,35 @@ import at.ac.tuwien.sbc.g06.robotbakery.xvsm.transaction.XVSMTransaction;
 public class XVSMUtil {
 	private static Logger logger = LoggerFactory.getLogger(XVSMUtil.class);
 
-	private static Map<String, String> CONTAINER_NAME_TO_ID = new HashMap<>();
+	private static final Map<String, String> CONTAINER_NAME_TO_ID = new ConcurrentHashMap<>();
+	private static final Map<String, ContainerReference> CONTAINERS = new ConcurrentHashMap<>();
 
 	private XVSMUtil() {
 	};
 
 
+	/**
+	 * Cached version of {@link #getOrCreateContainer}, the references are shared
+	 * by all services of the JVM.
+	 */
+	public static ContainerReference getContainer(Capi capi, String containerName, URI spaceURI) {
+		String key = spaceURI + "/" + containerName;
+		ContainerReference cref = CONTAINERS.get(key);
+		if (cref == null) {
+			cref = getOrCreateContainer(capi, containerName, spaceURI);
+			if (cref != null) {
+				ContainerReference cached = CONTAINERS.putIfAbsent(key, cref);
+				if (cached != null)
+					cref = cached;
+			}
+		}
+		return cref;
+	}
+
+	static void clearContainers() {
+		CONTAINERS.clear();
+	}
+
 	public static ContainerReference getOrCreateContainer(Capi capi, String containerName, URI spaceURI) {
 		logger.debug("Lookup container:" + containerName);
 		ContainerReference cref = null;
@@ -43,8 +79,8 @@ public class XVSMUtil {
 			logger.debug("Existing container found for: " + containerName);
 		} catch (MzsCoreException e) {
 			try {
-				cref = capi.createContainer(containerName, spaceURI,
-						MzsConstants.Container.UNBOUNDED, getObligatoryCoordsForContainer(containerName), null, null);
+				cref = capi.createContainer(containerName, spaceURI, MzsConstants.Container.UNBOUNDED,
+						getObligatoryCoordsForContainer(containerName), getLabelCoordinators(), null);
 				logger.debug("New container has been created for: " + containerName);
 			} catch (MzsCoreException e1) {
 				logger.error(e1.getMessage());
@@ -58,17 +94,15 @@ public class XVSMUtil {
 	}
 
 	private static void setId(String containerName, String id) {
-		if (!CONTAINER_NAME_TO_ID.containsKey(id)) {
-			CONTAINER_NAME_TO_ID.put(id, containerName);
-		}
+		CONTAINER_NAME_TO_ID.putIfAbsent(id, containerName);
 	}
 
 	private static List<Coordinator> getObligatoryCoordsForContainer(String containerName) {
+		if (isStoragePartition(containerName))
+			return Arrays.asList(new QueryCoordinator(), new TypeCoordinator(), new FifoCoordinator());
 		switch (containerName) {
 		case XVSMConstants.COUNTER_CONTAINER_NAME:
 			return Arrays.asList(new QueryCoordinator(), new TypeCoordinator());
-		case XVSMConstants.STORAGE_CONTAINER_NAME:
-			return Arrays.asList(new QueryCoordinator(), new TypeCoordinator(), new FifoCoordinator());
 		case XVSMConstants.BAKEROOM_CONTAINER_NAME:
 			return Arrays.asList(new FifoCoordinator(), new QueryCoordinator());
 		case XVSMConstants.TERMINAL_CONTAINER_NAME:
@@ -80,14 +114,171 @@ public class XVSMUtil {
 		}
 	}
 
+	/**
+	 * The label coordinators index the entries by kind, by id and the orders
+	 * by delivery state and customer, so that the lookups don't scan the whole
+	 * container. They are optional, entries without labels are not registered
+	 * with them.
+	 */
+	private static List<Coordinator> getLabelCoordinators() {
+		return Arrays.asList(new LabelCoordinator(XVSMConstants.KIND_LABEL_COORDINATOR),
+				new LabelCoordinator(XVSMConstants.ID_LABEL_COORDINATOR),
+				new LabelCoordinator(XVSMConstants.DELIVERY_LABEL_COORDINATOR),
+				new LabelCoordinator(XVSMConstants.CUSTOMER_LABEL_COORDINATOR));
+	}
+
+	/**
+	 * Labels of an entry for the label coordinators. Products are labelled
+	 * with their bake state, ingredients with their type and orders with their
+	 * state and customer, delivery orders also with their delivery state.
+	 * Entries are never changed in the space, but taken and written
+	 * again, so the labels stay up to date.
+	 * 
+	 * @param entry
+	 *            model object which is written
+	 * @return coordination data for the label coordinators
+	 */
+	public static List<CoordinationData> getLabels(Serializable entry) {
+		List<CoordinationData> labels = new ArrayList<>();
+		String kind = null;
+		if (entry instanceof Product)
+			kind = getKindLabel(Product.class, ((Product) entry).getType());
+		else if (entry instanceof Ingredient)
+			kind = getKindLabel(Ingredient.class, ((Ingredient) entry).getType());
+		else if (entry instanceof Order)
+			kind = getKindLabel(Order.class, ((Order) entry).getState());
+		UUID id = getId(entry);
+		if (kind != null)
+			labels.add(LabelCoordinator.newCoordinationData(kind, XVSMConstants.KIND_LABEL_COORDINATOR));
+		if (id != null)
+			labels.add(LabelCoordinator.newCoordinationData(id.toString(), XVSMConstants.ID_LABEL_COORDINATOR));
+		if (entry instanceof Order) {
+			Order order = (Order) entry;
+			if (order.isDelivery() && order.getState() != null)
+				labels.add(LabelCoordinator.newCoordinationData(order.getState().toString(),
+						XVSMConstants.DELIVERY_LABEL_COORDINATOR));
+			if (order.getCustomerId() != null)
+				labels.add(LabelCoordinator.newCoordinationData(order.getCustomerId().toString(),
+						XVSMConstants.CUSTOMER_LABEL_COORDINATOR));
+		}
+		return labels;
+	}
+
+	/**
+	 * @return id of a model object or null if the object has no id
+	 */
+	public static UUID getId(Serializable entry) {
+		if (entry instanceof Product)
+			return ((Product) entry).getId();
+		if (entry instanceof Ingredient)
+			return ((Ingredient) entry).getId();
+		if (entry instanceof Order)
+			return ((Order) entry).getId();
+		if (entry instanceof Prepackage)
+			return ((Prepackage) entry).getId();
+		if (entry instanceof IngredientReservation)
+			return ((IngredientReservation) entry).getId();
+		if (entry instanceof WaterPipe)
+			return ((WaterPipe) entry).getId();
+		return null;
+	}
+
+	private static String getKindLabel(Class<?> type, Object value) {
+		return type.getSimpleName() + "/" + value;
+	}
+
+	/**
+	 * @return selector of the entries of a kind, e.g. the final products or
+	 *         the eggs
+	 */
+	public static Selector kindSelector(Class<?> type, Object value, int count) {
+		return LabelCoordinator.newSelector(getKindLabel(type, value), count, XVSMConstants.KIND_LABEL_COORDINATOR);
+	}
+
+	/**
+	 * @return selector of the entry with the given id
+	 */
+	public static Selector idSelector(UUID id) {
+		return LabelCoordinator.newSelector(id.toString(), 1, XVSMConstants.ID_LABEL_COORDINATOR);
+	}
+
+	/**
+	 * @return selector of the delivery orders in the given state
+	 */
+	public static Selector deliverySelector(OrderState state, int count) {
+		return LabelCoordinator.newSelector(state.toString(), count, XVSMConstants.DELIVERY_LABEL_COORDINATOR);
+	}
+
+	/**
+	 * @return selector of the orders of the given customer
+	 */
+	public static Selector customerSelector(UUID customerId, int count) {
+		return LabelCoordinator.newSelector(customerId.toString(), count, XVSMConstants.CUSTOMER_LABEL_COORDINATOR);
+	}
+
+	/**
+	 * @return selector of the counts of the given container, see
+	 *         {@link at.ac.tuwien.sbc.g06.robotbakery.xvsm.aspect.XVSMStockCounter}
+	 */
+	public static Selector stockCountSelector(String containerName) {
+		return LabelCoordinator.newSelector(containerName, 1, XVSMConstants.ID_LABEL_COORDINATOR);
+	}
+
+	/**
+	 * @return names of the containers the storage is partitioned into
+	 */
+	public static List<String> getStoragePartitions() {
+		List<String> partitions = new ArrayList<>(Arrays.asList(XVSMConstants.STORAGE_WATER_CONTAINER_NAME,
+				XVSMConstants.STORAGE_FLOUR_CONTAINER_NAME, XVSMConstants.STORAGE_INGREDIENT_CONTAINER_NAME,
+				XVSMConstants.STORAGE_DOUGH_CONTAINER_NAME));
+		for (String productName : SBCConstants.PRODUCTS_NAMES)
+			partitions.add(getProductPartition(productName));
+		return partitions;
+	}
+
+	/**
+	 * @return name of the storage partition of the final products with the
+	 *         given name
+	 */
+	public static String getProductPartition(String productName) {
+		return XVSMConstants.STORAGE_PRODUCT_CONTAINER_PREFIX + productName;
+	}
+
+	/**
+	 * The storage is partitioned by the kind of the entries, so that the
+	 * robots which work on different kinds don't contend for one container.
+	 * Reservations are kept with the ingredients.
+	 * 
+	 * @param entry
+	 *            model object which is put in the storage
+	 * @return name of the storage partition of the entry
+	 */
+	public static String getStoragePartition(Serializable entry) {
+		if (entry instanceof WaterPipe)
+			return XVSMConstants.STORAGE_WATER_CONTAINER_NAME;
+		if (entry instanceof FlourPack)
+			return XVSMConstants.STORAGE_FLOUR_CONTAINER_NAME;
+		if (entry instanceof Product) {
+			Product product = (Product) entry;
+			return product.getType() == BakeState.FINALPRODUCT ? getProductPartition(product.getProductName())
+					: XVSMConstants.STORAGE_DOUGH_CONTAINER_NAME;
+		}
+		return XVSMConstants.STORAGE_INGREDIENT_CONTAINER_NAME;
+	}
+
+	private static boolean isStoragePartition(String containerName) {
+		return containerName.startsWith(XVSMConstants.STORAGE_CONTAINER_NAME + "/");
+	}
+
 	public static String getName(ContainerReference cref) {
 		return CONTAINER_NAME_TO_ID.get(cref.getId());
 	}
 
 	public static String getCoordinationRoom(ContainerReference cref) {
-		switch (getName(cref)) {
-		case XVSMConstants.STORAGE_CONTAINER_NAME:
+		String containerName = getName(cref);
+		if (isStoragePartition(containerName))
 			return SBCConstants.COORDINATION_ROOM_STORAGE;
+		switch (containerName) {
 		case XVSMConstants.COUNTER_CONTAINER_NAME:
 			return SBCConstants.COORDINATION_ROOM_COUNTER;
 		case XVSMConstants.TERMINAL_CONTAINER_NAME:
@@ -0,0 +1,206 @@
+package at.ac.tuwien.sbc.g06.robotbakery.xvsm.persistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalLogTest {
+
+	private static final String STORAGE = "storage";
+	private static final String COUNTER = "counter";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = folder.newFile("journal-0.log").toPath();
+	}
+
+	@Test
+	public void testReplayKeepsWriteOrder() throws IOException {
+		try (JournalLog log = new JournalLog(file)) {
+			log.append(JournalLog.WRITE, STORAGE, "a", bytes("a1"));
+			log.append(JournalLog.WRITE, STORAGE, "b", bytes("b1"));
+			log.append(JournalLog.WRITE, COUNTER, "c", bytes("c1"));
+			log.append(JournalLog.WRITE, STORAGE, "a", bytes("a2"));
+			assertEquals(4, log.getRecords());
+		}
+		SpaceImage image = new SpaceImage();
+		assertEquals(4, JournalLog.read(file, image::apply));
+		assertEntries(image.getEntries(STORAGE), "b1", "a2");
+		assertEntries(image.getEntries(COUNTER), "c1");
+	}
+
+	@Test
+	public void testTakeRemovesByKey() throws IOException {
+		try (JournalLog log = new JournalLog(file)) {
+			log.append(JournalLog.WRITE, STORAGE, "a", bytes("a1"));
+			log.append(JournalLog.WRITE, STORAGE, "b", bytes("b1"));
+			// the serialized form of a taken entry may differ from the written
+			log.append(JournalLog.TAKE, STORAGE, "a", bytes("a1'"));
+			log.append(JournalLog.TAKE, STORAGE, "c", bytes("c1"));
+		}
+		SpaceImage image = new SpaceImage();
+		JournalLog.read(file, image::apply);
+		assertEntries(image.getEntries(STORAGE), "b1");
+	}
+
+	@Test
+	public void testEqualEntriesWithoutIdAreKeptApart() throws IOException {
+		try (JournalLog log = new JournalLog(file)) {
+			log.append(JournalLog.WRITE, COUNTER, "", bytes("x"));
+			log.append(JournalLog.WRITE, COUNTER, "", bytes("x"));
+			log.append(JournalLog.WRITE, COUNTER, "", bytes("y"));
+			log.append(JournalLog.TAKE, COUNTER, "", bytes("x"));
+		}
+		SpaceImage image = new SpaceImage();
+		JournalLog.read(file, image::apply);
+		assertEntries(image.getEntries(COUNTER), "x", "y");
+	}
+
+	@Test
+	public void testRecoveryAcrossRestart() throws IOException {
+		// first run: the products are written
+		try (JournalLog log = new JournalLog(file)) {
+			log.append(JournalLog.WRITE, STORAGE, "p", bytes("p-run1"));
+			log.append(JournalLog.WRITE, STORAGE, "q", bytes("q-run1"));
+		}
+		// second run: the recovered products are serialized differently when
+		// they are taken
+		Path second = folder.newFile("journal-1.log").toPath();
+		try (JournalLog log = new JournalLog(second)) {
+			log.append(JournalLog.TAKE, STORAGE, "p", bytes("p-run2"));
+			log.append(JournalLog.WRITE, STORAGE, "r", bytes("r-run2"));
+		}
+		SpaceImage image = new SpaceImage();
+		JournalLog.read(file, image::apply);
+		JournalLog.read(second, image::apply);
+		assertEntries(image.getEntries(STORAGE), "q-run1", "r-run2");
+	}
+
+	@Test
+	public void testCompactedSnapshotKeepsContent() throws IOException {
+		try (JournalLog log = new JournalLog(file)) {
+			log.append(JournalLog.WRITE, STORAGE, "a", bytes("a1"));
+			log.append(JournalLog.WRITE, STORAGE, "b", bytes("b1"));
+			log.append(JournalLog.WRITE, COUNTER, "", bytes("x"));
+			log.append(JournalLog.WRITE, COUNTER, "", bytes("x"));
+			log.append(JournalLog.TAKE, STORAGE, "a", bytes("a1"));
+		}
+		SpaceImage image = new SpaceImage();
+		JournalLog.read(file, image::apply);
+		Path snapshot = folder.newFile("snapshot-1.dat").toPath();
+		try (JournalLog out = new JournalLog(snapshot)) {
+			image.write(out);
+		}
+		Path next = folder.newFile("journal-1.log").toPath();
+		try (JournalLog log = new JournalLog(next)) {
+			log.append(JournalLog.TAKE, COUNTER, "", bytes("x"));
+			log.append(JournalLog.WRITE, STORAGE, "a", bytes("a2"));
+		}
+		SpaceImage recovered = new SpaceImage();
+		assertEquals(3, JournalLog.read(snapshot, recovered::apply));
+		JournalLog.read(next, recovered::apply);
+		assertEntries(recovered.getEntries(STORAGE), "b1", "a2");
+		assertEntries(recovered.getEntries(COUNTER), "x");
+	}
+
+	@Test
+	public void testReadStopsAtTruncatedRecord() throws IOException {
+		try (JournalLog log = new JournalLog(file)) {
+			log.append(JournalLog.WRITE, STORAGE, "a", bytes("a1"));
+			log.append(JournalLog.WRITE, STORAGE, "b", bytes("b1"));
+		}
+		long end = endOfRecords();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(end - 1);
+		}
+		SpaceImage image = new SpaceImage();
+		assertEquals(1, JournalLog.read(file, image::apply));
+		assertEntries(image.getEntries(STORAGE), "a1");
+	}
+
+	@Test
+	public void testReadStopsAtCorruptRecord() throws IOException {
+		try (JournalLog log = new JournalLog(file)) {
+			log.append(JournalLog.WRITE, STORAGE, "a", bytes("a1"));
+			log.append(JournalLog.WRITE, STORAGE, "b", bytes("b1"));
+			log.append(JournalLog.WRITE, STORAGE, "c", bytes("c1"));
+		}
+		// flip the last byte of the payload of the second record
+		long second = recordEnd(recordEnd(0));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(1);
+			channel.read(buffer, second - 1);
+			buffer.put(0, (byte) (buffer.get(0) ^ 0xff));
+			buffer.rewind();
+			channel.write(buffer, second - 1);
+		}
+		SpaceImage image = new SpaceImage();
+		assertEquals(1, JournalLog.read(file, image::apply));
+		assertEntries(image.getEntries(STORAGE), "a1");
+	}
+
+	@Test
+	public void testEmptyLogHasNoRecords() throws IOException {
+		new JournalLog(file).close();
+		SpaceImage image = new SpaceImage();
+		assertEquals(0, JournalLog.read(file, image::apply));
+		assertTrue(image.getContainers().isEmpty());
+	}
+
+	/**
+	 * @return position after the record which starts at the given position
+	 */
+	private long recordEnd(long position) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer length = ByteBuffer.allocate(4);
+			channel.read(length, position);
+			return position + 8 + length.getInt(0);
+		}
+	}
+
+	/**
+	 * @return position after the last record
+	 */
+	private long endOfRecords() throws IOException {
+		long position = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer length = ByteBuffer.allocate(4);
+			while (true) {
+				length.clear();
+				channel.read(length, position);
+				if (length.getInt(0) == 0)
+					return position;
+				position += 8 + length.getInt(0);
+			}
+		}
+	}
+
+	private static void assertEntries(List<byte[]> entries, String... expected) {
+		assertEquals(expected.length, entries.size());
+		for (int i = 0; i < expected.length; i++)
+			assertArrayEquals(bytes(expected[i]), entries.get(i));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
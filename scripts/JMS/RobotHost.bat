@@ -0,0 +1,2 @@
+call mvn -f ../../code/robotbakery.jms/pom.xml install
+mvn -f ../../code/robotbakery.jms/pom.xml exec:java -Phost
\ No newline at end of file